@@ -0,0 +1,146 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.authoritativesource.ImmutableAuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import com.khartec.waltz.service.authoritative_source.AuthoritativeSourceResolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.model.EntityReference.mkRef;
+
+
+/**
+ * Building an {@link AuthoritativeSourceResolver} and resolving the rating of
+ * every flow, as done when (re)calculating logical flow decorator ratings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class AuthoritativeSourceResolverBenchmark {
+
+    private static final AuthoritativenessRating[] RATINGS = {
+            AuthoritativenessRating.PRIMARY,
+            AuthoritativenessRating.SECONDARY,
+            AuthoritativenessRating.DISCOURAGED
+    };
+
+    @Param({"100000"})
+    public int appCount;
+
+    @Param({"1000000"})
+    public int flowCount;
+
+    @Param({"50000"})
+    public int vantagePointCount;
+
+    @Param({"2000"})
+    public int orgUnitCount;
+
+    @Param({"500"})
+    public int dataTypeCount;
+
+    private List<AuthoritativeRatingVantagePoint> vantagePoints;
+    private AuthoritativeSourceResolver resolver;
+
+    private EntityReference[] apps;
+    private EntityReference[] orgUnits;
+    private String[] dataTypeCodes;
+
+    // flows are held as indexes into the arrays above, 1M EntityReference pairs would dominate the heap
+    private int[] flowSources;
+    private int[] flowTargetOrgUnits;
+    private int[] flowDataTypes;
+
+
+    @Setup
+    public void setup() {
+        Random random = SyntheticData.mkRandom();
+
+        apps = new EntityReference[appCount];
+        for (int i = 0; i < appCount; i++) {
+            apps[i] = mkRef(EntityKind.APPLICATION, i + 1);
+        }
+
+        orgUnits = new EntityReference[orgUnitCount];
+        for (int i = 0; i < orgUnitCount; i++) {
+            orgUnits[i] = mkRef(EntityKind.ORG_UNIT, i + 1);
+        }
+
+        dataTypeCodes = new String[dataTypeCount];
+        for (int i = 0; i < dataTypeCount; i++) {
+            dataTypeCodes[i] = "DT_" + i;
+        }
+
+        vantagePoints = new ArrayList<>(vantagePointCount);
+        for (int i = 0; i < vantagePointCount; i++) {
+            int dataType = random.nextInt(dataTypeCount);
+            vantagePoints.add(ImmutableAuthoritativeRatingVantagePoint.builder()
+                    .vantagePoint(orgUnits[random.nextInt(orgUnitCount)])
+                    .vantagePointRank(1 + random.nextInt(6))
+                    .dataType(mkRef(EntityKind.DATA_TYPE, dataType + 1))
+                    .dataTypeCode(dataTypeCodes[dataType])
+                    .dataTypeRank(1 + random.nextInt(4))
+                    .applicationId(apps[random.nextInt(appCount)].id())
+                    .rating(RATINGS[random.nextInt(RATINGS.length)])
+                    .build());
+        }
+
+        resolver = new AuthoritativeSourceResolver(vantagePoints);
+
+        flowSources = new int[flowCount];
+        flowTargetOrgUnits = new int[flowCount];
+        flowDataTypes = new int[flowCount];
+        for (int i = 0; i < flowCount; i++) {
+            flowSources[i] = random.nextInt(appCount);
+            flowTargetOrgUnits[i] = random.nextInt(orgUnitCount);
+            flowDataTypes[i] = random.nextInt(dataTypeCount);
+        }
+    }
+
+
+    @Benchmark
+    public AuthoritativeSourceResolver buildResolver() {
+        return new AuthoritativeSourceResolver(vantagePoints);
+    }
+
+
+    @Benchmark
+    public void resolveAllFlows(Blackhole bh) {
+        for (int i = 0; i < flowCount; i++) {
+            bh.consume(resolver.resolve(
+                    orgUnits[flowTargetOrgUnits[i]],
+                    apps[flowSources[i]],
+                    dataTypeCodes[flowDataTypes[i]]));
+        }
+    }
+
+}
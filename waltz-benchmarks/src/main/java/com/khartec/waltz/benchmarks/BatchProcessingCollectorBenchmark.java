@@ -0,0 +1,67 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.BatchProcessingCollector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Overhead of {@link BatchProcessingCollector}, used to chunk large streams
+ * into batched inserts and updates.  The batch processor does no work so
+ * only the collector itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class BatchProcessingCollectorBenchmark {
+
+    @Param({"1000000"})
+    public int itemCount;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private Long[] items;
+
+
+    @Setup
+    public void setup() {
+        items = new Long[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            items[i] = (long) i;
+        }
+    }
+
+
+    @Benchmark
+    public Integer collect(Blackhole bh) {
+        return Arrays
+                .stream(items)
+                .collect(new BatchProcessingCollector<>(batchSize, bh::consume));
+    }
+
+}
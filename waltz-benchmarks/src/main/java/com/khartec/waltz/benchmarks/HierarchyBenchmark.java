@@ -0,0 +1,120 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.hierarchy.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Building taxonomy forests and walking their ancestry, as done when rebuilding
+ * entity hierarchies and when rolling data types up to their parents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class HierarchyBenchmark {
+
+    private static final int PROBES = 10_000;
+
+    @Param({"5000", "50000"})
+    public int taxonomySize;
+
+    private List<FlatNode<Long, Long>> flatNodes;
+    private Forest<Long, Long> forest;
+    private LongForest longForest;
+    private long[] probeAncestors;
+    private long[] probeDescendants;
+
+
+    @Setup
+    public void setup() {
+        Random random = SyntheticData.mkRandom();
+        flatNodes = SyntheticData.mkTaxonomy(taxonomySize, 10, 8, random);
+        forest = HierarchyUtilities.toForest(flatNodes);
+        longForest = LongForest.fromFlatNodes(flatNodes);
+
+        probeAncestors = new long[PROBES];
+        probeDescendants = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeAncestors[i] = 1 + random.nextInt(taxonomySize);
+            probeDescendants[i] = 1 + random.nextInt(taxonomySize);
+        }
+    }
+
+
+    @Benchmark
+    public Forest<Long, Long> toForest() {
+        return HierarchyUtilities.toForest(flatNodes);
+    }
+
+
+    @Benchmark
+    public Map<Long, Integer> assignDepths() {
+        return HierarchyUtilities.assignDepths(forest);
+    }
+
+
+    @Benchmark
+    public LongForest buildLongForest() {
+        return LongForest.fromFlatNodes(flatNodes);
+    }
+
+
+    /**
+     * Ancestry test by walking node parents, as used before {@link LongForest}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void ancestryViaNodeParents(Blackhole bh) {
+        Map<Long, Node<Long, Long>> nodes = forest.getAllNodes();
+        for (int i = 0; i < PROBES; i++) {
+            long ancestorId = probeAncestors[i];
+            Node<Long, Long> node = nodes.get(probeDescendants[i]);
+            boolean result = node.getId() == ancestorId
+                    || HierarchyUtilities
+                        .parents(node)
+                        .stream()
+                        .anyMatch(p -> p.getId() == ancestorId);
+            bh.consume(result);
+        }
+    }
+
+
+    /**
+     * Ancestry test as used by the logical flow decorator data type roll ups.
+     */
+    @Benchmark
+    @OperationsPerInvocation(PROBES)
+    public void ancestryViaLongForest(Blackhole bh) {
+        for (int i = 0; i < PROBES; i++) {
+            bh.consume(longForest.isAncestorOrSelf(probeAncestors[i], probeDescendants[i]));
+        }
+    }
+
+}
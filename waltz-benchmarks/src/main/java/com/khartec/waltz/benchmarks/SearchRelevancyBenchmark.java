@@ -0,0 +1,66 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.data.SearchUtilities;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+
+/**
+ * Ordering search results with {@link SearchUtilities#mkRelevancyComparator(Function, String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class SearchRelevancyBenchmark {
+
+    @Param({"1000", "100000"})
+    public int resultCount;
+
+    @Param({"risk"})
+    public String term;
+
+    private List<String> results;
+    private Comparator<String> comparator;
+
+
+    @Setup
+    public void setup() {
+        results = SyntheticData.mkNames(resultCount, SyntheticData.mkRandom());
+        comparator = SearchUtilities.mkRelevancyComparator(Function.identity(), term);
+    }
+
+
+    @Benchmark
+    public List<String> sortByRelevancy() {
+        List<String> sorted = new ArrayList<>(results);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.benchmarks;
+
+import com.khartec.waltz.common.hierarchy.FlatNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+
+/**
+ * Deterministic generators for benchmark data.  Sizes are chosen by the
+ * benchmarks (typically those of a large enterprise: ~100k applications,
+ * ~1M flows and taxonomies of ~50k nodes), the shape of the data is fixed
+ * by the seed so results are comparable between runs and machines.
+ */
+public class SyntheticData {
+
+    public static final long SEED = 8675309L;
+
+    private static final String[] WORDS = {
+            "trade", "capture", "risk", "ledger", "payments", "settlement", "client",
+            "reference", "data", "pricing", "market", "credit", "liquidity", "reporting",
+            "onboarding", "treasury", "collateral", "margin", "regulatory", "position"
+    };
+
+
+    public static Random mkRandom() {
+        return new Random(SEED);
+    }
+
+
+    /**
+     * Builds a taxonomy of <code>size</code> nodes with ids <code>1..size</code>.
+     * The first <code>rootCount</code> nodes are roots, every other node hangs off
+     * a randomly chosen earlier node so the trees are bushy near the top and
+     * (logarithmically) deep, much like real capability and data type taxonomies.
+     *
+     * @param size  total number of nodes
+     * @param rootCount  number of roots
+     * @param branching  average number of children per parent
+     * @param random  source of randomness
+     * @return flat nodes, the data of each node is its id
+     */
+    public static List<FlatNode<Long, Long>> mkTaxonomy(int size,
+                                                        int rootCount,
+                                                        int branching,
+                                                        Random random) {
+        List<FlatNode<Long, Long>> nodes = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            Optional<Long> parentId = id <= rootCount
+                    ? Optional.empty()
+                    : Optional.of(1L + random.nextInt((int) Math.max(1, (id - 1) / branching)));
+            nodes.add(new FlatNode<>(id, parentId, id));
+        }
+        return nodes;
+    }
+
+
+    /**
+     * @return <code>count</code> application-like names, e.g. "Credit Risk Ledger 1234"
+     */
+    public static List<String> mkNames(int count, Random random) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(capitalise(pick(WORDS, random))
+                    + " " + capitalise(pick(WORDS, random))
+                    + " " + capitalise(pick(WORDS, random))
+                    + " " + i);
+        }
+        return names;
+    }
+
+
+    private static String pick(String[] xs, Random random) {
+        return xs[random.nextInt(xs.length)];
+    }
+
+
+    private static String capitalise(String str) {
+        return Character.toUpperCase(str.charAt(0)) + str.substring(1);
+    }
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.common.buffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Bounded, asynchronous write-behind buffer.
+ *
+ * Items are queued by {@link #offer(Object)} and handed to the writer, in
+ * batches, by a single background thread.  A batch is written as soon as it
+ * reaches <code>batchSize</code> items or when <code>flushInterval</code>
+ * has elapsed since the last write, whichever comes first.
+ *
+ * The buffer never blocks the caller, if the queue is full the item is
+ * dropped and counted.  If a batch cannot be written and a fallback writer
+ * has been given, each item in the batch is handed to the fallback writer in
+ * turn, otherwise (or if the fallback also fails) the items are logged and
+ * counted as failed.  {@link #close()} stops the background thread and
+ * writes anything still queued on the calling thread.
+ *
+ * @param <T> item type
+ */
+public class WriteBehindBuffer<T> implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    // upper bound on how long the worker waits before re-checking whether it has been closed
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final String name;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Consumer<List<T>> writer;
+    private final Consumer<T> fallbackWriter;
+    private final BlockingQueue<T> queue;
+    private final Thread worker;
+
+    private final AtomicLong offeredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private volatile boolean running = true;
+
+
+    public WriteBehindBuffer(String name,
+                             int capacity,
+                             int batchSize,
+                             long flushInterval,
+                             TimeUnit flushIntervalUnit,
+                             Consumer<List<T>> writer) {
+        this(name, capacity, batchSize, flushInterval, flushIntervalUnit, writer, null);
+    }
+
+
+    /**
+     * @param fallbackWriter  writes a single item, used for each item of a batch which failed to write (may be null)
+     */
+    public WriteBehindBuffer(String name,
+                             int capacity,
+                             int batchSize,
+                             long flushInterval,
+                             TimeUnit flushIntervalUnit,
+                             Consumer<List<T>> writer,
+                             Consumer<T> fallbackWriter) {
+        checkNotNull(name, "name cannot be null");
+        checkTrue(capacity > 0, "capacity must be positive");
+        checkTrue(batchSize > 0, "batchSize must be positive");
+        checkTrue(flushInterval > 0, "flushInterval must be positive");
+        checkNotNull(flushIntervalUnit, "flushIntervalUnit cannot be null");
+        checkNotNull(writer, "writer cannot be null");
+
+        this.name = name;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushIntervalUnit.toNanos(flushInterval);
+        this.writer = writer;
+        this.fallbackWriter = fallbackWriter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        this.worker = new Thread(this::run, name + " write-behind");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+
+    /**
+     * Queues the item for writing.
+     *
+     * @return false if the buffer is full (or closed) and the item was dropped
+     */
+    public boolean offer(T item) {
+        checkNotNull(item, "item cannot be null");
+        offeredCount.incrementAndGet();
+
+        if (running && queue.offer(item)) {
+            return true;
+        }
+
+        long drops = droppedCount.incrementAndGet();
+        if (drops == 1 || drops % 1000 == 0) {
+            LOG.warn("{} write-behind buffer is full or closed, items are not being queued (so far: {})", name, drops);
+        }
+        return false;
+    }
+
+
+    /**
+     * Writes everything currently queued on the calling thread.
+     *
+     * @return number of items handed to the writer
+     */
+    public int flush() {
+        int total = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            total += batch.size();
+            write(batch);
+            batch.clear();
+        }
+        return total;
+    }
+
+
+    /**
+     * Stops the background thread and writes any remaining items.  Items
+     * offered after this point are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int remaining = flush();
+        LOG.info("Closed {} write-behind buffer, flushed {} remaining items", name, remaining);
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+
+    public int getQueueRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+
+    public long getOfferedCount() {
+        return offeredCount.get();
+    }
+
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("WriteBehindBuffer{");
+        sb.append("name='").append(name).append('\'');
+        sb.append(", queueDepth=").append(getQueueDepth());
+        sb.append(", offered=").append(getOfferedCount());
+        sb.append(", dropped=").append(getDroppedCount());
+        sb.append(", written=").append(getWrittenCount());
+        sb.append(", failed=").append(getFailedCount());
+        sb.append(", batches=").append(getBatchCount());
+        sb.append('}');
+        return sb.toString();
+    }
+
+
+    // --- HELPERS ---
+
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+
+        try {
+            while (running) {
+                long waitNanos = deadline - System.nanoTime();
+                T item = waitNanos > 0
+                        ? queue.poll(Math.min(waitNanos, MAX_POLL_NANOS), TimeUnit.NANOSECONDS)
+                        : queue.poll();
+
+                if (item != null) {
+                    batch.add(item);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+
+                if (batch.size() >= batchSize || System.nanoTime() - deadline >= 0) {
+                    write(batch);
+                    batch.clear();
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            write(batch);
+        }
+    }
+
+
+    private void write(List<T> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            writer.accept(new ArrayList<>(batch));
+            writtenCount.addAndGet(batch.size());
+            batchCount.incrementAndGet();
+        } catch (Exception e) {
+            if (fallbackWriter == null) {
+                failedCount.addAndGet(batch.size());
+                LOG.error("{} write-behind buffer failed to write batch of {} items: {}", name, batch.size(), e.getMessage(), e);
+            } else {
+                LOG.warn("{} write-behind buffer failed to write batch of {} items, writing individually: {}", name, batch.size(), e.getMessage());
+                batch.forEach(this::writeIndividually);
+            }
+        }
+    }
+
+
+    private void writeIndividually(T item) {
+        try {
+            fallbackWriter.accept(item);
+            writtenCount.incrementAndGet();
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            LOG.error("{} write-behind buffer failed to write item {}: {}", name, item, e.getMessage(), e);
+        }
+    }
+
+}
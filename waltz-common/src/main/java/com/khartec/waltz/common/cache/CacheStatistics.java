@@ -0,0 +1,81 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.cache;
+
+
+/**
+ * Point in time snapshot of the usage of a cache.
+ */
+public class CacheStatistics {
+
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+
+    public CacheStatistics(int size,
+                           long hitCount,
+                           long missCount,
+                           long evictionCount) {
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+
+    public int getSize() {
+        return size;
+    }
+
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+
+    public double getHitRatio() {
+        long requests = hitCount + missCount;
+        return requests == 0
+                ? 0
+                : (double) hitCount / requests;
+    }
+
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{" +
+                "size=" + size +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+}
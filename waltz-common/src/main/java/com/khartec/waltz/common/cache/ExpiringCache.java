@@ -0,0 +1,234 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.cache;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * A simple, size bounded, in-memory cache where entries expire after a
+ * fixed time-to-live.  When the cache is full the least recently used entry
+ * is evicted.
+ *
+ * Values are loaded outside of the cache lock, so a slow loader will not
+ * block readers of other keys.  If the cache is invalidated whilst a value
+ * is being loaded then that (potentially stale) value is returned to the
+ * caller but is not stored.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<K, Entry<V>> entries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private long generation = 0;
+
+
+    public ExpiringCache(int maxSize, long ttl, TimeUnit ttlUnit) {
+        this(maxSize, ttl, ttlUnit, System::nanoTime);
+    }
+
+
+    ExpiringCache(int maxSize, long ttl, TimeUnit ttlUnit, LongSupplier clock) {
+        checkTrue(maxSize > 0, "maxSize must be positive");
+        checkTrue(ttl > 0, "ttl must be positive");
+        checkNotNull(ttlUnit, "ttlUnit cannot be null");
+        checkNotNull(clock, "clock cannot be null");
+
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlUnit.toNanos(ttl);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                boolean evict = size() > ExpiringCache.this.maxSize;
+                if (evict) {
+                    evictionCount.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the cached value for the given key, using the loader to
+     * (re)compute it if it is absent or has expired.
+     *
+     * @param key  key to look up
+     * @param loader  function used to compute the value on a miss, must not return null
+     * @return  the cached or newly loaded value
+     */
+    public V get(K key, Function<K, V> loader) {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(loader, "loader cannot be null");
+
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && ! isExpired(entry)) {
+                hitCount.incrementAndGet();
+                return entry.value;
+            }
+            loadGeneration = generation;
+        }
+
+        missCount.incrementAndGet();
+        V value = checkNotNull(loader.apply(key), "loader cannot return null");
+
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                entries.put(key, new Entry<>(value, clock.getAsLong()));
+            }
+        }
+        return value;
+    }
+
+
+    /**
+     * Bulk variant of {@link #get(Object, Function)}.  All keys which are absent
+     * (or have expired) are passed to the loader in a single call.  Keys for which
+     * the loader does not return a value are not cached and are omitted from the
+     * result.
+     *
+     * @param keys  keys to look up
+     * @param bulkLoader  function used to compute values for all missed keys
+     * @return  map of cached or newly loaded values
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> bulkLoader) {
+        checkNotNull(keys, "keys cannot be null");
+        checkNotNull(bulkLoader, "bulkLoader cannot be null");
+
+        Map<K, V> result = new HashMap<>();
+        Set<K> misses = new LinkedHashSet<>();
+        long loadGeneration;
+        synchronized (this) {
+            for (K key : keys) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null && ! isExpired(entry)) {
+                    result.put(key, entry.value);
+                } else {
+                    misses.add(key);
+                }
+            }
+            loadGeneration = generation;
+        }
+
+        hitCount.addAndGet(result.size());
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        missCount.addAndGet(misses.size());
+        Map<K, V> loaded = checkNotNull(bulkLoader.apply(misses), "bulkLoader cannot return null");
+
+        synchronized (this) {
+            long now = clock.getAsLong();
+            for (K key : misses) {
+                V value = loaded.get(key);
+                if (value == null) {
+                    continue;
+                }
+                result.put(key, value);
+                if (loadGeneration == generation) {
+                    entries.put(key, new Entry<>(value, now));
+                }
+            }
+        }
+        return result;
+    }
+
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+
+    /**
+     * Removes all expired entries, returning the number removed.
+     * Expired entries are otherwise only replaced when next requested.
+     * @return count of removed entries
+     */
+    public synchronized int purgeExpired() {
+        int removed = 0;
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (isExpired(iterator.next())) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(
+                size(),
+                hitCount.get(),
+                missCount.get(),
+                evictionCount.get());
+    }
+
+
+    // -- HELPERS ---
+
+    private boolean isExpired(Entry<V> entry) {
+        return clock.getAsLong() - entry.loadedAt >= ttlNanos;
+    }
+
+
+    private static class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+
+        private Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
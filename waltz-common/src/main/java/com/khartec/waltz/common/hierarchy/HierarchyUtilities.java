@@ -30,6 +30,13 @@ import java.util.stream.Collectors;
 import static java.util.stream.Collectors.toMap;
 
 
+/**
+ * Builds and queries object based hierarchies ({@link Forest} / {@link Node}).
+ * Hierarchies keyed on long ids which only need ancestry, descendants or
+ * depths should use {@link LongForest} instead; these utilities remain for
+ * hierarchies with other key types (e.g. people keyed on employee id) or
+ * which need to carry node data.
+ */
 public class HierarchyUtilities {
 
 
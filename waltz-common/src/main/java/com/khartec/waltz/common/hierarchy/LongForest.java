@@ -0,0 +1,356 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchy;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+
+/**
+ * Array backed, immutable forest keyed on primitive <code>long</code> ids.
+ *
+ * This is the equivalent of {@link Forest} built via
+ * {@link HierarchyUtilities#toForest(Collection)}, but stores the structure in
+ * flat arrays (sorted ids, parent indexes, depths and a pre-order tour) rather than
+ * as a graph of {@link Node} objects.  Ancestor tests are constant time and
+ * descendant lookups are a slice of the tour.
+ *
+ * Semantics follow <code>toForest</code>:
+ * <ul>
+ *     <li>a node with no parent, or which is its own parent, is a root</li>
+ *     <li>a node whose parent is not in the forest is detached (it is neither a root nor a child)</li>
+ *     <li>if an id is given more than once the first occurrence wins</li>
+ * </ul>
+ * Depths start at 1 for roots and are -1 for nodes which cannot be reached from a root.
+ * Nodes which are part of (or hang off) a cycle are never reached by the tour, they have
+ * no ancestors or descendants.
+ */
+public class LongForest {
+
+    private static final int NONE = -1;
+
+    private final long[] ids;
+    private final int[] parents;
+    private final int[] depths;
+    private final int[] tourStart;
+    private final int[] tourEnd;
+    private final int[] tour;
+    private final long[] rootIds;
+
+
+    private LongForest(long[] ids,
+                       int[] parents,
+                       boolean[] isRoot) {
+        int size = ids.length;
+
+        this.ids = ids;
+        this.parents = parents;
+        this.depths = new int[size];
+        this.tourStart = new int[size];
+        this.tourEnd = new int[size];
+
+        Arrays.fill(depths, NONE);
+        Arrays.fill(tourStart, NONE);
+        Arrays.fill(tourEnd, NONE);
+
+        // children in compressed sparse row form: children of i are childList[childOffsets[i] .. childOffsets[i + 1])
+        int[] childOffsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            if (parents[i] != NONE) {
+                childOffsets[parents[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            childOffsets[i + 1] += childOffsets[i];
+        }
+        int[] childList = new int[childOffsets[size]];
+        int[] fill = Arrays.copyOf(childOffsets, size);
+        for (int i = 0; i < size; i++) {
+            if (parents[i] != NONE) {
+                childList[fill[parents[i]]++] = i;
+            }
+        }
+
+        int rootCount = 0;
+        for (boolean r : isRoot) {
+            if (r) rootCount++;
+        }
+        this.rootIds = new long[rootCount];
+
+        int[] visitOrder = new int[size];
+        int[] stack = new int[size];
+        int position = 0;
+        int rootPosition = 0;
+
+        for (int start = 0; start < size; start++) {
+            if (parents[start] != NONE) {
+                continue;
+            }
+            if (isRoot[start]) {
+                rootIds[rootPosition++] = ids[start];
+            }
+
+            // iterative pre-order walk, detached subtrees are toured but do not get depths
+            int stackSize = 0;
+            stack[stackSize++] = start;
+            depths[start] = isRoot[start] ? 1 : NONE;
+            while (stackSize > 0) {
+                int current = stack[--stackSize];
+                tourStart[current] = position;
+                visitOrder[position++] = current;
+                for (int c = childOffsets[current + 1] - 1; c >= childOffsets[current]; c--) {
+                    int child = childList[c];
+                    depths[child] = depths[current] == NONE ? NONE : depths[current] + 1;
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+
+        // a node's subtree is the contiguous run of the tour starting at the node
+        int[] subtreeSizes = new int[size];
+        for (int p = position - 1; p >= 0; p--) {
+            int node = visitOrder[p];
+            subtreeSizes[node]++;
+            if (parents[node] != NONE) {
+                subtreeSizes[parents[node]] += subtreeSizes[node];
+            }
+        }
+        for (int p = 0; p < position; p++) {
+            int node = visitOrder[p];
+            tourEnd[node] = p + subtreeSizes[node] - 1;
+        }
+
+        this.tour = Arrays.copyOf(visitOrder, position);
+    }
+
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    /**
+     * Builds a forest from the given flat nodes, the node data is discarded.
+     */
+    public static <T> LongForest fromFlatNodes(Collection<FlatNode<T, Long>> flatNodes) {
+        Builder builder = builder();
+        for (FlatNode<T, Long> flatNode : flatNodes) {
+            if (flatNode.getParentId().isPresent()) {
+                builder.add(flatNode.getId(), flatNode.getParentId().get());
+            } else {
+                builder.add(flatNode.getId());
+            }
+        }
+        return builder.build();
+    }
+
+
+    public int size() {
+        return ids.length;
+    }
+
+
+    public boolean contains(long id) {
+        return indexOf(id) != NONE;
+    }
+
+
+    /**
+     * @return all ids in the forest, in ascending order
+     */
+    public long[] getAllIds() {
+        return Arrays.copyOf(ids, ids.length);
+    }
+
+
+    public long[] getRootIds() {
+        return Arrays.copyOf(rootIds, rootIds.length);
+    }
+
+
+    /**
+     * @return depth of the node (roots are at depth 1), or -1 if the node is
+     * unknown or cannot be reached from a root
+     */
+    public int depthOf(long id) {
+        int idx = indexOf(id);
+        return idx == NONE ? NONE : depths[idx];
+    }
+
+
+    /**
+     * Equivalent of {@link HierarchyUtilities#parents(Node)}.
+     *
+     * @param id  node to start from, not included in output
+     * @return ids of the ancestors of this node, immediate parent first (or empty array)
+     */
+    public long[] ancestorIds(long id) {
+        int idx = indexOf(id);
+        if (idx == NONE || tourStart[idx] == NONE) {
+            return new long[0];
+        }
+
+        int count = 0;
+        for (int p = parents[idx]; p != NONE; p = parents[p]) {
+            count++;
+        }
+
+        long[] result = new long[count];
+        int i = 0;
+        for (int p = parents[idx]; p != NONE; p = parents[p]) {
+            result[i++] = ids[p];
+        }
+        return result;
+    }
+
+
+    /**
+     * @param id  node to start from, not included in output
+     * @return ids of all descendants of this node in pre-order (or empty array)
+     */
+    public long[] descendantIds(long id) {
+        int idx = indexOf(id);
+        if (idx == NONE || tourStart[idx] == NONE) {
+            return new long[0];
+        }
+
+        long[] result = new long[tourEnd[idx] - tourStart[idx]];
+        for (int p = tourStart[idx] + 1, i = 0; p <= tourEnd[idx]; p++, i++) {
+            result[i] = ids[tour[p]];
+        }
+        return result;
+    }
+
+
+    /**
+     * Constant time ancestry check.  A node is considered to be its own ancestor.
+     *
+     * @return true if <code>ancestorId</code> is <code>id</code> or one of its ancestors
+     */
+    public boolean isAncestorOrSelf(long ancestorId, long id) {
+        int idx = indexOf(id);
+        if (idx == NONE) {
+            return false;
+        }
+        if (ancestorId == id) {
+            return true;
+        }
+
+        int ancestorIdx = indexOf(ancestorId);
+        if (ancestorIdx == NONE || tourStart[ancestorIdx] == NONE || tourStart[idx] == NONE) {
+            return false;
+        }
+        return tourStart[ancestorIdx] <= tourStart[idx]
+                && tourStart[idx] <= tourEnd[ancestorIdx];
+    }
+
+
+    /**
+     * @return true if some nodes could not be reached from a root or
+     * detached node, i.e. they are part of, or below, a cycle
+     */
+    public boolean hasCycle() {
+        return tour.length < ids.length;
+    }
+
+
+    private int indexOf(long id) {
+        int idx = Arrays.binarySearch(ids, id);
+        return idx < 0 ? NONE : idx;
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("LongForest{");
+        sb.append("#allNodes=").append(ids.length);
+        sb.append(", rootIds=").append(Arrays.toString(rootIds));
+        sb.append('}');
+        return sb.toString();
+    }
+
+
+    public static class Builder {
+
+        private long[] ids = new long[64];
+        private long[] parentIds = new long[64];
+        private boolean[] hasParent = new boolean[64];
+        private int count = 0;
+
+
+        public Builder add(long id) {
+            return add(id, id, false);
+        }
+
+
+        public Builder add(long id, long parentId) {
+            return add(id, parentId, id != parentId);
+        }
+
+
+        public LongForest build() {
+            long[] sortedIds = Arrays.copyOf(ids, count);
+            Arrays.sort(sortedIds);
+
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || sortedIds[i] != sortedIds[i - 1]) {
+                    sortedIds[size++] = sortedIds[i];
+                }
+            }
+            sortedIds = Arrays.copyOf(sortedIds, size);
+
+            int[] parents = new int[size];
+            boolean[] isRoot = new boolean[size];
+            boolean[] seen = new boolean[size];
+            Arrays.fill(parents, NONE);
+
+            for (int i = 0; i < count; i++) {
+                int idx = Arrays.binarySearch(sortedIds, ids[i]);
+                if (seen[idx]) {
+                    continue;
+                }
+                seen[idx] = true;
+                if (hasParent[i]) {
+                    int parentIdx = Arrays.binarySearch(sortedIds, parentIds[i]);
+                    parents[idx] = parentIdx < 0 ? NONE : parentIdx;
+                } else {
+                    isRoot[idx] = true;
+                }
+            }
+
+            return new LongForest(sortedIds, parents, isRoot);
+        }
+
+
+        private Builder add(long id, long parentId, boolean withParent) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                parentIds = Arrays.copyOf(parentIds, capacity);
+                hasParent = Arrays.copyOf(hasParent, capacity);
+            }
+            ids[count] = id;
+            parentIds[count] = parentId;
+            hasParent[count] = withParent;
+            count++;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.common.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+
+public class WriteBehindBufferTest {
+
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+
+
+    @Test
+    public void itemsAreWrittenInBatchesAndRemainderOnClose() {
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 100, 3, 1, TimeUnit.HOURS, batches::add);
+        for (int i = 1; i <= 7; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        waitFor(() -> buffer.getWrittenCount() == 6);
+        buffer.close();
+
+        assertEquals(asList(asList(1, 2, 3), asList(4, 5, 6), asList(7)), batches);
+        assertEquals(7, buffer.getWrittenCount());
+        assertEquals(0, buffer.getDroppedCount());
+    }
+
+
+    @Test
+    public void partialBatchIsWrittenAfterFlushInterval() {
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 100, 100, 20, TimeUnit.MILLISECONDS, batches::add);
+        buffer.offer(1);
+
+        waitFor(() -> buffer.getWrittenCount() == 1);
+        assertEquals(asList(asList(1)), batches);
+        buffer.close();
+    }
+
+
+    @Test
+    public void itemsAreDroppedWhenFull() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 2, 1, 1, TimeUnit.HOURS, batch -> {
+            writing.countDown();
+            await(release);
+            batches.add(batch);
+        });
+
+        buffer.offer(1);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        assertTrue(buffer.offer(2));
+        assertTrue(buffer.offer(3));
+        assertFalse(buffer.offer(4));
+
+        release.countDown();
+        buffer.close();
+
+        assertEquals(4, buffer.getOfferedCount());
+        assertEquals(1, buffer.getDroppedCount());
+        assertEquals(3, buffer.getWrittenCount());
+        assertFalse(buffer.offer(5));
+    }
+
+
+    @Test
+    public void failedBatchesAreCounted() {
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>("test", 10, 2, 1, TimeUnit.HOURS, batch -> {
+            throw new IllegalStateException("boom");
+        });
+        buffer.offer(1);
+        buffer.offer(2);
+
+        waitFor(() -> buffer.getFailedCount() == 2);
+        buffer.close();
+
+        assertEquals(0, buffer.getWrittenCount());
+    }
+
+
+    @Test
+    public void failedBatchesFallBackToIndividualWrites() {
+        List<Integer> individuallyWritten = new CopyOnWriteArrayList<>();
+        WriteBehindBuffer<Integer> buffer = new WriteBehindBuffer<>(
+                "test", 10, 3, 1, TimeUnit.HOURS,
+                batch -> {
+                    throw new IllegalStateException("boom");
+                },
+                item -> {
+                    if (item == 2) {
+                        throw new IllegalStateException("bad item");
+                    }
+                    individuallyWritten.add(item);
+                });
+        buffer.offer(1);
+        buffer.offer(2);
+        buffer.offer(3);
+
+        waitFor(() -> buffer.getWrittenCount() + buffer.getFailedCount() == 3);
+        buffer.close();
+
+        assertEquals(2, buffer.getWrittenCount());
+        assertEquals(1, buffer.getFailedCount());
+        assertEquals(asList(1, 3), individuallyWritten);
+    }
+
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (! condition.getAsBoolean()) {
+            assertTrue("timed out waiting for condition", System.currentTimeMillis() < deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
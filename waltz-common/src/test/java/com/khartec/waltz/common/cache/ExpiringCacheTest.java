@@ -0,0 +1,151 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.cache;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+
+public class ExpiringCacheTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final AtomicInteger loadCount = new AtomicInteger(0);
+
+    private final ExpiringCache<String, Integer> cache = new ExpiringCache<>(
+            2,
+            10,
+            TimeUnit.NANOSECONDS,
+            now::get);
+
+
+    @Test
+    public void valuesAreLoadedOnceUntilTheyExpire() {
+        assertEquals(Integer.valueOf(1), cache.get("a", this::load));
+        assertEquals(Integer.valueOf(1), cache.get("a", this::load));
+        assertEquals(1, loadCount.get());
+
+        now.set(10);
+        assertEquals(Integer.valueOf(2), cache.get("a", this::load));
+
+        CacheStatistics stats = cache.getStatistics();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvictedWhenFull() {
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("a", this::load);
+        cache.get("c", this::load);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+
+        cache.get("a", this::load);
+        assertEquals("a was recently used so should not have been evicted", 3, loadCount.get());
+        cache.get("b", this::load);
+        assertEquals("b should have been evicted", 4, loadCount.get());
+    }
+
+
+    @Test
+    public void invalidationForcesReload() {
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+
+        cache.invalidate("a");
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        assertEquals(3, loadCount.get());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void valuesLoadedDuringInvalidationAreNotStored() {
+        Integer v = cache.get("a", k -> {
+            cache.invalidateAll();
+            return load(k);
+        });
+
+        assertEquals(Integer.valueOf(1), v);
+        assertEquals(0, cache.size());
+    }
+
+
+    @Test
+    public void purgeRemovesOnlyExpiredEntries() {
+        cache.get("a", this::load);
+        now.set(5);
+        cache.get("b", this::load);
+        now.set(12);
+
+        assertEquals(1, cache.purgeExpired());
+        assertEquals(1, cache.size());
+    }
+
+
+    @Test
+    public void getAllOnlyLoadsMissingKeysInOneCall() {
+        cache.get("a", this::load);
+        List<Collection<String>> loaderCalls = new ArrayList<>();
+
+        Map<String, Integer> result = cache.getAll(
+                asList("a", "b", "x"),
+                keys -> {
+                    loaderCalls.add(new ArrayList<>(keys));
+                    Map<String, Integer> loaded = new HashMap<>();
+                    loaded.put("b", 42);
+                    return loaded;
+                });
+
+        assertEquals(1, loaderCalls.size());
+        assertEquals(asList("b", "x"), loaderCalls.get(0));
+        assertEquals(Integer.valueOf(1), result.get("a"));
+        assertEquals(Integer.valueOf(42), result.get("b"));
+        assertFalse("values not returned by the loader are omitted", result.containsKey("x"));
+        assertEquals(2, cache.size());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() {
+        new ExpiringCache<String, String>(0, 1, TimeUnit.SECONDS);
+    }
+
+
+    // -- HELPERS ---
+
+    private Integer load(String key) {
+        return loadCount.incrementAndGet();
+    }
+
+}
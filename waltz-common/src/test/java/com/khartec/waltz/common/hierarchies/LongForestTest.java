@@ -0,0 +1,152 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.common.hierarchies;
+
+import com.khartec.waltz.common.hierarchy.LongForest;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+
+public class LongForestTest {
+
+    //  1        6
+    //  +- 2     +- 7
+    //  |  +- 3
+    //  |  +- 4
+    //  +- 5
+    private static final LongForest TWO_TREES = LongForest.builder()
+            .add(1)
+            .add(2, 1)
+            .add(3, 2)
+            .add(4, 2)
+            .add(5, 1)
+            .add(6)
+            .add(7, 6)
+            .build();
+
+
+    @Test
+    public void twoTrees() {
+        assertEquals(7, TWO_TREES.size());
+        assertArrayEquals(new long[] {1, 6}, TWO_TREES.getRootIds());
+        assertFalse(TWO_TREES.hasCycle());
+    }
+
+
+    @Test
+    public void depths() {
+        assertEquals(1, TWO_TREES.depthOf(1));
+        assertEquals(2, TWO_TREES.depthOf(2));
+        assertEquals(3, TWO_TREES.depthOf(4));
+        assertEquals(2, TWO_TREES.depthOf(7));
+        assertEquals(-1, TWO_TREES.depthOf(99));
+    }
+
+
+    @Test
+    public void ancestorsAreImmediateParentFirst() {
+        assertArrayEquals(new long[] {2, 1}, TWO_TREES.ancestorIds(3));
+        assertArrayEquals(new long[0], TWO_TREES.ancestorIds(1));
+        assertArrayEquals(new long[0], TWO_TREES.ancestorIds(99));
+    }
+
+
+    @Test
+    public void descendants() {
+        assertArrayEquals(new long[] {2, 3, 4, 5}, sorted(TWO_TREES.descendantIds(1)));
+        assertArrayEquals(new long[] {3, 4}, sorted(TWO_TREES.descendantIds(2)));
+        assertArrayEquals(new long[0], TWO_TREES.descendantIds(5));
+    }
+
+
+    @Test
+    public void isAncestorOrSelf() {
+        assertTrue(TWO_TREES.isAncestorOrSelf(1, 4));
+        assertTrue(TWO_TREES.isAncestorOrSelf(2, 2));
+        assertFalse(TWO_TREES.isAncestorOrSelf(4, 1));
+        assertFalse(TWO_TREES.isAncestorOrSelf(5, 3));
+        assertFalse(TWO_TREES.isAncestorOrSelf(6, 3));
+        assertFalse(TWO_TREES.isAncestorOrSelf(99, 99));
+    }
+
+
+    @Test
+    public void circular() {
+        LongForest forest = LongForest.builder()
+                .add(1, 3)
+                .add(2, 1)
+                .add(3, 1)
+                .build();
+
+        assertEquals(3, forest.size());
+        assertEquals(0, forest.getRootIds().length);
+        assertTrue(forest.hasCycle());
+        assertArrayEquals(new long[0], forest.ancestorIds(2));
+        assertEquals(-1, forest.depthOf(2));
+    }
+
+
+    @Test
+    public void selfReferenceIsTreatedAsRoot() {
+        LongForest forest = LongForest.builder()
+                .add(1, 1)
+                .add(2, 1)
+                .build();
+
+        assertArrayEquals(new long[] {1}, forest.getRootIds());
+        assertEquals(2, forest.depthOf(2));
+    }
+
+
+    @Test
+    public void missingParentLeavesNodeDetached() {
+        LongForest forest = LongForest.builder()
+                .add(1, 99)
+                .add(2, 1)
+                .build();
+
+        assertEquals(0, forest.getRootIds().length);
+        assertEquals(-1, forest.depthOf(2));
+        assertArrayEquals(new long[] {1}, forest.ancestorIds(2));
+        assertTrue(forest.isAncestorOrSelf(1, 2));
+    }
+
+
+    @Test
+    public void firstOccurrenceOfDuplicateIdWins() {
+        LongForest forest = LongForest.builder()
+                .add(1)
+                .add(2, 1)
+                .add(2)
+                .build();
+
+        assertEquals(2, forest.size());
+        assertArrayEquals(new long[] {1}, forest.ancestorIds(2));
+    }
+
+
+    private static long[] sorted(long[] xs) {
+        long[] copy = Arrays.copyOf(xs, xs.length);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -18,34 +18,115 @@
 
 package com.khartec.waltz.data;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Fixed size pool used to run independent database queries in parallel.
+ *
+ * The pool has a bounded work queue.  When the queue is full (or the pool has
+ * been shut down) {@link #submit(Callable)} runs the task on the calling
+ * thread, slowing the submitter down rather than letting the backlog grow
+ * without limit.  Callers which would rather drop the work (e.g. searches,
+ * which have a deadline) use {@link #submitOrReject(Callable)}, which throws a
+ * {@link RejectedExecutionException} instead.  The number of rejections, and
+ * how many of those were run on the caller, are recorded along with the other
+ * pool metrics.
+ */
 public class DBExecutorPool implements DBExecutorPoolInterface {
 
-    private final ExecutorService executorPool;
+    private static final Logger LOG = LoggerFactory.getLogger(DBExecutorPool.class);
+
+    private final ThreadPoolExecutor executorPool;
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
 
 
-    @Autowired
-    public DBExecutorPool(int dbPoolMin, int dbPoolMax) {
-        executorPool = Executors.newFixedThreadPool(
-                Integer.max(dbPoolMax / 2, 1),
+    public DBExecutorPool(int threadCount, int queueCapacity) {
+        checkTrue(threadCount > 0, "threadCount must be positive");
+        checkTrue(queueCapacity > 0, "queueCapacity must be positive");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        executorPool = new ThreadPoolExecutor(
+                threadCount,
+                threadCount,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
                 (runnable) -> {
-                    Thread t = new Thread(runnable, "DB Executor");
+                    Thread t = new Thread(runnable, "DB Executor-" + threadNumber.incrementAndGet());
                     t.setDaemon(true);
                     return t;
+                },
+                (runnable, executor) -> {
+                    long rejections = rejectedCount.incrementAndGet();
+                    if (rejections == 1 || rejections % 100 == 0) {
+                        LOG.warn("DB executor queue is full or shut down, task rejected or run by caller (rejections so far: {})", rejections);
+                    }
+                    throw new RejectedExecutionException("DB executor queue is full or shut down");
                 });
-
     }
 
 
     @Override
     public <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executorPool.submit(task);
+        } catch (RejectedExecutionException e) {
+            callerRunsCount.incrementAndGet();
+            FutureTask<T> futureTask = new FutureTask<>(task);
+            futureTask.run();
+            return futureTask;
+        }
+    }
+
+
+    @Override
+    public <T> Future<T> submitOrReject(Callable<T> task) {
         return executorPool.submit(task);
     }
 
+
+    public int getThreadCount() {
+        return executorPool.getMaximumPoolSize();
+    }
+
+
+    public int getActiveCount() {
+        return executorPool.getActiveCount();
+    }
+
+
+    public int getQueueDepth() {
+        return executorPool.getQueue().size();
+    }
+
+
+    public int getQueueRemainingCapacity() {
+        return executorPool.getQueue().remainingCapacity();
+    }
+
+
+    public long getCompletedTaskCount() {
+        return executorPool.getCompletedTaskCount();
+    }
+
+
+    public long getRejectedTaskCount() {
+        return rejectedCount.get();
+    }
+
+
+    public long getCallerRunsTaskCount() {
+        return callerRunsCount.get();
+    }
+
 }
@@ -21,8 +21,22 @@ package com.khartec.waltz.data;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 public interface DBExecutorPoolInterface {
 
+    /**
+     * Runs the task on the pool, if the pool is saturated the task is run on
+     * the calling thread instead (and the returned future is already complete).
+     */
     <T> Future<T> submit(Callable<T> task);
+
+
+    /**
+     * As {@link #submit(Callable)} but if the pool is saturated the task is
+     * rejected, for callers which would rather omit the work than wait for it.
+     *
+     * @throws RejectedExecutionException if the pool's queue is full or the pool has been shut down
+     */
+    <T> Future<T> submitOrReject(Callable<T> task);
 }
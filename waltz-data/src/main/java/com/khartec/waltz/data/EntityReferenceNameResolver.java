@@ -18,78 +18,133 @@
 
 package com.khartec.waltz.data;
 
-import com.khartec.waltz.common.ListUtilities;
+import com.khartec.waltz.common.cache.ExpiringCache;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
-import org.jooq.*;
-import org.jooq.impl.DSL;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.lambda.tuple.Tuple3;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.maybeFirst;
-import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Service which takes a list of entity references and returns a list
  * enriched with entity names.
+ *
+ * References are grouped by kind and each kind is looked up with
+ * <code>IN</code> list queries against its table (in chunks, to stay within
+ * database bind parameter limits).  Names of frequently referenced kinds
+ * (apps, people, org units etc) are cached for a short time.
  */
 @Repository
 public class EntityReferenceNameResolver {
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private static final Set<EntityKind> CACHED_KINDS = EnumSet.of(
+            EntityKind.ACTOR,
+            EntityKind.ALLOCATION_SCHEME,
+            EntityKind.APPLICATION,
+            EntityKind.DATA_TYPE,
+            EntityKind.ENTITY_STATISTIC,
+            EntityKind.MEASURABLE,
+            EntityKind.MEASURABLE_CATEGORY,
+            EntityKind.ORG_UNIT,
+            EntityKind.PERSON);
+
     private final DSLContext dsl;
+    private final ExpiringCache<EntityReference, String> nameCache;
+
 
     @Autowired
-    public EntityReferenceNameResolver(DSLContext dsl) {
+    public EntityReferenceNameResolver(DSLContext dsl,
+                                       @Value("${waltz.name.resolver.cache.size:20000}") int cacheSize,
+                                       @Value("${waltz.name.resolver.cache.ttl.seconds:60}") int cacheTtlSeconds) {
+        checkNotNull(dsl, "dsl cannot be null");
         this.dsl = dsl;
+        this.nameCache = new ExpiringCache<>(cacheSize, cacheTtlSeconds, TimeUnit.SECONDS);
     }
 
+
     public Optional<EntityReference> resolve(EntityReference ref) {
         return maybeFirst(resolve(newArrayList(ref)));
     }
 
+
+    /**
+     * @param refs  references to resolve, existing names are ignored
+     * @return one reference per distinct (kind, id) in the input, in input order.  The
+     * name is empty if the entity could not be found or names are not supported for its kind
+     */
     public List<EntityReference> resolve(List<EntityReference> refs) {
         checkNotNull(refs, "refs cannot be null");
-        
-        Field<Long> idField = DSL.field("tref_id", Long.class);
-        Field<String> kindField = DSL.field("tref_kind", String.class);
-
-        Field<String> nameField = InlineSelectFieldFactory.mkNameField(
-                idField,
-                kindField);
-
-        List<SelectSelectStep<Record2<String, Long>>> parts = map(
-                refs,
-                r -> DSL.select(
-                        DSL.val(r.kind().name()).as(kindField),
-                        DSL.val(r.id()).as(idField)));
-
-
-        if (parts.size() > 0) {
-            SelectSelectStep<Record2<String, Long>> firstPart = parts.get(0);
-            if (parts.size() > 1) {
-                List<SelectSelectStep<Record2<String, Long>>> tail = ListUtilities.drop(parts, 1);
-                tail.forEach(firstPart::union);
-            }
-
-            Table<Record2<String, Long>> tempRefs = firstPart.asTable("temp_refs");
-            return dsl
-                    .select(idField, kindField, nameField)
-                    .from(tempRefs)
-                    .fetch(r -> mkRef(
-                            EntityKind.valueOf(r.get(kindField)),
-                            r.get(idField),
-                            r.get(nameField)));
-        } else {
-            return Collections.emptyList();
+
+        Set<EntityReference> distinctRefs = new LinkedHashSet<>();
+        refs.forEach(r -> distinctRefs.add(mkRef(r.kind(), r.id())));
+
+        Map<EntityKind, List<EntityReference>> refsByKind = new EnumMap<>(EntityKind.class);
+        distinctRefs.forEach(r -> refsByKind
+                .computeIfAbsent(r.kind(), k -> new ArrayList<>())
+                .add(r));
+
+        Map<EntityReference, String> names = new HashMap<>();
+        refsByKind.forEach((kind, kindRefs) -> names.putAll(CACHED_KINDS.contains(kind)
+                ? nameCache.getAll(kindRefs, this::loadNames)
+                : loadNames(kindRefs)));
+
+        return distinctRefs
+                .stream()
+                .map(r -> mkRef(r.kind(), r.id(), names.get(r)))
+                .collect(toList());
+    }
+
+
+    // --- HELPERS ---
+
+    /**
+     * @param refs  name-less references, all of the same kind
+     */
+    private Map<EntityReference, String> loadNames(Collection<EntityReference> refs) {
+        Map<EntityReference, String> names = new HashMap<>();
+        if (refs.isEmpty()) {
+            return names;
+        }
+
+        EntityKind kind = refs.iterator().next().kind();
+        Optional<Tuple3<Table, Field<Long>, Field<String>>> mapping = InlineSelectFieldFactory.getNameMapping(kind);
+        if (! mapping.isPresent()) {
+            return names;
+        }
+
+        Table table = mapping.get().v1;
+        Field<Long> idField = mapping.get().v2;
+        Field<String> nameField = mapping.get().v3;
+
+        List<Long> ids = refs
+                .stream()
+                .map(EntityReference::id)
+                .collect(toList());
+
+        for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+            dsl.select(idField, nameField)
+                    .from(table)
+                    .where(idField.in(chunk))
+                    .forEach(r -> names.put(mkRef(kind, r.get(idField)), r.get(nameField)));
         }
 
+        return names;
     }
 
 }
@@ -60,6 +60,16 @@ public class InlineSelectFieldFactory {
     }
 
 
+    /**
+     * Exposes the table, id field and name field used to look up names for the given kind
+     * so that names can be fetched directly (e.g. with an <code>IN</code> list) rather
+     * than via a derived field.
+     */
+    static Optional<Tuple3<Table, Field<Long>, Field<String>>> getNameMapping(EntityKind kind) {
+        return Optional.ofNullable(NAME_RESOLVER.mappings.get(kind));
+    }
+
+
     // --- External Id
 
     public static Field<String> mkExternalIdField(Field<Long> idCompareField,
@@ -0,0 +1,249 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data;
+
+import org.jooq.ConnectionProvider;
+import org.jooq.TransactionContext;
+import org.jooq.TransactionProvider;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DataSourceConnectionProvider;
+import org.jooq.impl.DefaultTransactionProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Lets a block of work span several daos in a single database transaction.
+ *
+ * The daos all share the application wide <code>DSLContext</code>, which
+ * normally borrows a pooled connection per query.  Within
+ * {@link #inTransaction(Supplier)} the {@link #connectionProvider()} instead
+ * hands every query on the calling thread the same connection, which is
+ * committed (or rolled back) when the block completes.  Any
+ * <code>dsl.transaction(...)</code> started inside the block joins it rather
+ * than committing on its own; if one of those fails the whole block is rolled
+ * back, even if the failure was caught.
+ *
+ * Outside a block both providers behave exactly like the jOOQ defaults
+ * (<code>DataSourceConnectionProvider</code> and
+ * <code>DefaultTransactionProvider</code>), so only code which opts in is
+ * affected.
+ */
+public class ThreadBoundTransactionScope {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ThreadBoundTransactionScope.class);
+    private static final String JOINED_SCOPE_KEY = ThreadBoundTransactionScope.class.getName() + ".joined";
+
+    private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+    private final ConnectionProvider pooledConnectionProvider;
+    private final ConnectionProvider connectionProvider;
+    private final TransactionProvider transactionProvider;
+
+
+    public ThreadBoundTransactionScope(DataSource dataSource) {
+        checkNotNull(dataSource, "dataSource cannot be null");
+        this.pooledConnectionProvider = new DataSourceConnectionProvider(dataSource);
+        this.connectionProvider = new ScopedConnectionProvider();
+        this.transactionProvider = new ScopedTransactionProvider(new DefaultTransactionProvider(connectionProvider));
+    }
+
+
+    public ConnectionProvider connectionProvider() {
+        return connectionProvider;
+    }
+
+
+    public TransactionProvider transactionProvider() {
+        return transactionProvider;
+    }
+
+
+    public boolean isActive() {
+        return currentScope.get() != null;
+    }
+
+
+    /**
+     * Runs the work with every query on this thread sharing one connection and
+     * transaction.  The transaction is committed if the work completes, and
+     * rolled back if it throws (the exception is rethrown) or if a nested
+     * <code>dsl.transaction(...)</code> failed.  Nested calls simply join the
+     * outermost block.
+     *
+     * @param work  the queries to run in a single transaction
+     * @param <T>  result type
+     * @return the result of the work
+     * @throws IllegalStateException if a nested transaction failed, so the block was rolled back
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        checkNotNull(work, "work cannot be null");
+
+        if (isActive()) {
+            return work.get();
+        }
+
+        Connection connection = pooledConnectionProvider.acquire();
+        boolean originalAutoCommit;
+        try {
+            originalAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            pooledConnectionProvider.release(connection);
+            throw new DataAccessException("Cannot start transaction", e);
+        }
+
+        Scope scope = new Scope(connection);
+        currentScope.set(scope);
+
+        try {
+            T result;
+            try {
+                result = work.get();
+            } catch (RuntimeException | Error e) {
+                rollbackQuietly(connection);
+                throw e;
+            }
+
+            if (scope.rollbackOnly) {
+                rollbackQuietly(connection);
+                throw new IllegalStateException("A nested transaction failed, all work in the transaction has been rolled back");
+            }
+
+            commit(connection);
+            return result;
+        } finally {
+            currentScope.remove();
+            restoreAutoCommit(connection, originalAutoCommit);
+            pooledConnectionProvider.release(connection);
+        }
+    }
+
+
+    // -- HELPERS ---
+
+    private static void restoreAutoCommit(Connection connection, boolean autoCommit) {
+        try {
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            LOG.warn("Cannot restore auto commit on connection", e);
+        }
+    }
+
+
+    private static void commit(Connection connection) {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            rollbackQuietly(connection);
+            throw new DataAccessException("Cannot commit transaction", e);
+        }
+    }
+
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            LOG.warn("Cannot rollback transaction", e);
+        }
+    }
+
+
+    private static class Scope {
+        private final Connection connection;
+        private boolean rollbackOnly = false;
+
+        private Scope(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+
+    private class ScopedConnectionProvider implements ConnectionProvider {
+
+        @Override
+        public Connection acquire() {
+            Scope scope = currentScope.get();
+            return scope == null
+                    ? pooledConnectionProvider.acquire()
+                    : scope.connection;
+        }
+
+
+        @Override
+        public void release(Connection connection) {
+            Scope scope = currentScope.get();
+            if (scope == null || scope.connection != connection) {
+                pooledConnectionProvider.release(connection);
+            }
+        }
+    }
+
+
+    private class ScopedTransactionProvider implements TransactionProvider {
+
+        private final TransactionProvider delegate;
+
+
+        private ScopedTransactionProvider(TransactionProvider delegate) {
+            this.delegate = delegate;
+        }
+
+
+        @Override
+        public void begin(TransactionContext ctx) {
+            if (isActive()) {
+                ctx.configuration().data(JOINED_SCOPE_KEY, true);
+            } else {
+                delegate.begin(ctx);
+            }
+        }
+
+
+        @Override
+        public void commit(TransactionContext ctx) {
+            if (! isJoined(ctx)) {
+                delegate.commit(ctx);
+            }
+        }
+
+
+        @Override
+        public void rollback(TransactionContext ctx) {
+            if (isJoined(ctx)) {
+                currentScope.get().rollbackOnly = true;
+            } else {
+                delegate.rollback(ctx);
+            }
+        }
+
+
+        private boolean isJoined(TransactionContext ctx) {
+            return ctx.configuration().data(JOINED_SCOPE_KEY) != null;
+        }
+    }
+
+}
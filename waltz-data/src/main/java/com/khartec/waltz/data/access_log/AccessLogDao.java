@@ -35,8 +35,10 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.schema.tables.AccessLog.ACCESS_LOG;
 
@@ -84,6 +86,25 @@ public class AccessLogDao {
     }
 
 
+    public int[] write(Collection<AccessLog> logEntries) {
+        List<AccessLogRecord> records = logEntries
+                .stream()
+                .map(logEntry -> {
+                    AccessLogRecord record = dsl.newRecord(ACCESS_LOG);
+                    record.setParams(logEntry.params());
+                    record.setState(logEntry.state());
+                    record.setUserId(logEntry.userId());
+                    record.setCreatedAt(Timestamp.valueOf(logEntry.createdAt()));
+                    return record;
+                })
+                .collect(Collectors.toList());
+
+        return dsl
+                .batchInsert(records)
+                .execute();
+    }
+
+
     public List<AccessLog> findForUserId(String userId,
                                          Optional<Integer> limit) {
         return dsl.select(ACCESS_LOG.fields())
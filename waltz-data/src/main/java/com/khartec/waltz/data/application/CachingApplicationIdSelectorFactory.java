@@ -0,0 +1,177 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.data.application;
+
+import com.khartec.waltz.common.cache.CacheStatistics;
+import com.khartec.waltz.common.cache.ExpiringCache;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.IdSelectionOptions;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+
+
+/**
+ * Wraps the {@link ApplicationIdSelectorFactory} with an optional cache of
+ * resolved application ids.
+ *
+ * The standard factory produces a (often deeply nested) sub-select which is
+ * re-evaluated by every query it is embedded in.  When caching is enabled
+ * the selector is evaluated once per {@link IdSelectionOptions}, the
+ * resulting ids are held in memory and subsequent callers are given a
+ * simple primary key lookup against an inlined list of those ids.
+ *
+ * Selectors which resolve to more than <code>maxIds</code> applications are
+ * not materialised (the original sub-select is returned instead) as very
+ * large literal lists perform worse than the joins they replace.
+ *
+ * Cached entries are discarded whenever {@link #invalidateAll()} is called:
+ * after the hierarchy rebuild jobs and by the app group membership,
+ * involvement and measurable rating write services.  Other changes which
+ * alter a selector's applications (e.g. application lifecycle changes,
+ * flows, tags or bulk loads made directly against the database) are only
+ * seen once the entry expires, after the configurable ttl.
+ */
+@Service
+public class CachingApplicationIdSelectorFactory implements Function<IdSelectionOptions, Select<Record1<Long>>> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingApplicationIdSelectorFactory.class);
+
+    private final ApplicationIdSelectorFactory delegate = new ApplicationIdSelectorFactory();
+    private final DSLContext dsl;
+    private final boolean enabled;
+    private final int maxIds;
+    private final ExpiringCache<IdSelectionOptions, Optional<long[]>> cache;
+
+
+    @Autowired
+    public CachingApplicationIdSelectorFactory(DSLContext dsl,
+                                               @Value("${waltz.selector.cache.enabled:false}") boolean enabled,
+                                               @Value("${waltz.selector.cache.size:500}") int cacheSize,
+                                               @Value("${waltz.selector.cache.ttl.seconds:300}") int ttlSeconds,
+                                               @Value("${waltz.selector.cache.max.ids:5000}") int maxIds) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkTrue(maxIds > 0, "maxIds must be positive");
+
+        this.dsl = dsl;
+        this.enabled = enabled;
+        this.maxIds = maxIds;
+        this.cache = new ExpiringCache<>(cacheSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+
+    @Override
+    public Select<Record1<Long>> apply(IdSelectionOptions options) {
+        checkNotNull(options, "options cannot be null");
+
+        Select<Record1<Long>> selector = delegate.apply(options);
+
+        if (! enabled || options.entityReference().kind() == EntityKind.APPLICATION) {
+            return selector;
+        }
+
+        return cache
+                .get(options, k -> resolve(selector))
+                .map(CachingApplicationIdSelectorFactory::mkSelectorForIds)
+                .orElse(selector);
+    }
+
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+
+    public CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    private Optional<long[]> resolve(Select<Record1<Long>> selector) {
+        long[] ids = new long[16];
+        int count = 0;
+
+        try (Cursor<Record1<Long>> cursor = dsl.fetchLazy(selector)) {
+            for (Record1<Long> r : cursor) {
+                Long id = r.value1();
+                if (id == null) {
+                    continue;
+                }
+                if (count == maxIds) {
+                    LOG.debug("Selector resolves to more than {} applications, will not be materialised", maxIds);
+                    return Optional.empty();
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, Math.min(maxIds, count * 2));
+                }
+                ids[count++] = id;
+            }
+        }
+
+        long[] distinctIds = Arrays
+                .stream(ids, 0, count)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        return Optional.of(distinctIds);
+    }
+
+
+    private static Select<Record1<Long>> mkSelectorForIds(long[] ids) {
+        if (ids.length == 0) {
+            return DSL
+                    .select(APPLICATION.ID)
+                    .from(APPLICATION)
+                    .where(DSL.falseCondition());
+        }
+
+        List<Field<Long>> idLiterals = Arrays
+                .stream(ids)
+                .mapToObj(DSL::inline)
+                .collect(Collectors.toList());
+
+        return DSL
+                .select(APPLICATION.ID)
+                .from(APPLICATION)
+                .where(APPLICATION.ID.in(idLiterals));
+    }
+
+}
@@ -207,6 +207,29 @@ public class AuthoritativeSourceDao {
 
 
     public List<AuthoritativeRatingVantagePoint> findExpandedAuthoritativeRatingVantagePoints(Set<Long> orgIds) {
+        return findExpandedAuthoritativeRatingVantagePoints(ehOrgUnit.ID.in(orgIds));
+    }
+
+
+    /**
+     * As {@link #findExpandedAuthoritativeRatingVantagePoints(Set)} but for the org units
+     * returned by the selector, which keeps large subtrees out of bind parameters.
+     */
+    public List<AuthoritativeRatingVantagePoint> findExpandedAuthoritativeRatingVantagePoints(Select<Record1<Long>> orgIdSelector) {
+        return findExpandedAuthoritativeRatingVantagePoints(ehOrgUnit.ID.in(orgIdSelector));
+    }
+
+
+    /**
+     * As {@link #findExpandedAuthoritativeRatingVantagePoints(Set)} but for every org unit
+     * which has (or inherits) an authoritative source.
+     */
+    public List<AuthoritativeRatingVantagePoint> findAllExpandedAuthoritativeRatingVantagePoints() {
+        return findExpandedAuthoritativeRatingVantagePoints(DSL.trueCondition());
+    }
+
+
+    private List<AuthoritativeRatingVantagePoint> findExpandedAuthoritativeRatingVantagePoints(Condition orgUnitCondition) {
         SelectSeekStep3<Record8<Long, Integer, String, Long, Integer, String, Long, String>, Integer, Integer, Long> select = dsl.select(
                 targetOrgUnitId,
                 declaredOrgUnitLevel,
@@ -225,7 +248,7 @@ public class AuthoritativeSourceDao {
                     .on(ehDataType.ANCESTOR_ID.eq(declaredDataType.ID).and(ehDataType.KIND.eq(EntityKind.DATA_TYPE.name())))
                 .innerJoin(impliedDataType)
                     .on(impliedDataType.ID.eq(ehDataType.ID).and(ehDataType.KIND.eq(EntityKind.DATA_TYPE.name())))
-                .where(ehOrgUnit.ID.in(orgIds))
+                .where(orgUnitCondition)
                 .orderBy(ehOrgUnit.LEVEL.desc(), ehDataType.LEVEL.desc(), ehOrgUnit.ID);
 
         return select.fetch(TO_VANTAGE_MAPPER);
@@ -34,7 +34,9 @@ import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotEmpty;
 import static com.khartec.waltz.common.Checks.checkNotNull;
@@ -130,6 +132,34 @@ public class ChangeLogDao {
     }
 
 
+    /**
+     * Finds the entities (via parent reference) which have had change log
+     * entries written on or after the given time, along with the time of
+     * their most recent entry.
+     *
+     * @param since  earliest change log entry to consider
+     * @param kinds  parent kinds of interest
+     * @return map of parent reference to the time of its latest change log entry
+     */
+    public Map<EntityReference, LocalDateTime> findLatestChangeByParentSince(LocalDateTime since,
+                                                                            Collection<EntityKind> kinds) {
+        checkNotNull(since, "since must not be null");
+        checkNotNull(kinds, "kinds must not be null");
+
+        Field<Timestamp> latest = DSL.max(CHANGE_LOG.CREATED_AT).as("latest");
+
+        return dsl
+                .select(CHANGE_LOG.PARENT_KIND, CHANGE_LOG.PARENT_ID, latest)
+                .from(CHANGE_LOG)
+                .where(CHANGE_LOG.CREATED_AT.ge(Timestamp.valueOf(since)))
+                .and(CHANGE_LOG.PARENT_KIND.in(kinds.stream().map(Enum::name).collect(Collectors.toList())))
+                .groupBy(CHANGE_LOG.PARENT_KIND, CHANGE_LOG.PARENT_ID)
+                .fetchMap(
+                        r -> EntityReference.mkRef(EntityKind.valueOf(r.get(CHANGE_LOG.PARENT_KIND)), r.get(CHANGE_LOG.PARENT_ID)),
+                        r -> r.get(latest).toLocalDateTime());
+    }
+
+
     public List<OrderedTally<String>> getContributionLeaderBoard(int limit) {
         return makeOrderedTallyQuery(
                     dsl,
@@ -23,6 +23,7 @@ import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.complexity.*;
 import com.khartec.waltz.schema.tables.records.ComplexityScoreRecord;
 import org.jooq.*;
+import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -32,7 +33,9 @@ import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.khartec.waltz.common.StreamUtilities.batchProcessingCollector;
 import static com.khartec.waltz.schema.tables.ComplexityScore.COMPLEXITY_SCORE;
 import static java.util.Collections.emptyList;
 
@@ -118,11 +121,41 @@ public class ComplexityScoreDao {
     }
 
 
-    public int deleteAll() {
-        return dsl.deleteFrom(COMPLEXITY_SCORE).execute();
+    /**
+     * Replaces all application scores of the given kind.  The delete and the
+     * (batched) inserts happen in a single transaction so readers continue to
+     * see the previous scores until the new ones are committed.  Records are
+     * pulled from the stream a batch at a time, so only one batch needs to be
+     * held in memory.
+     *
+     * @param kind  complexity kind being replaced
+     * @param records  new score records, all of the given kind
+     * @param batchSize  number of records to insert per batch
+     * @return  number of records inserted
+     */
+    public int replaceForKind(ComplexityKind kind,
+                              Stream<ComplexityScoreRecord> records,
+                              int batchSize) {
+        Checks.checkNotNull(kind, "kind cannot be null");
+        Checks.checkNotNull(records, "records cannot be null");
+        Checks.checkTrue(batchSize > 0, "batchSize must be positive");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            txDsl.deleteFrom(COMPLEXITY_SCORE)
+                    .where(COMPLEXITY_SCORE.COMPLEXITY_KIND.eq(kind.name()))
+                    .and(COMPLEXITY_SCORE.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                    .execute();
+
+            return records
+                    .collect(batchProcessingCollector(
+                            batchSize,
+                            batch -> {
+                                if (! batch.isEmpty()) {
+                                    txDsl.batchInsert(batch).execute();
+                                }
+                            }));
+        });
     }
-
-    public int[] bulkInsert(List<ComplexityScoreRecord> records) {
-        return dsl.batchInsert(records).execute();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.data_type_usage;
+
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.data_type_usage.DataTypeUsage;
+import com.khartec.waltz.model.data_type_usage.ImmutableDataTypeUsage;
+import com.khartec.waltz.model.system.ImmutableSystemChangeSet;
+import com.khartec.waltz.model.system.SystemChangeSet;
+import com.khartec.waltz.model.usage_info.ImmutableUsageInfo;
+import com.khartec.waltz.model.usage_info.UsageKind;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.StringUtilities.isEmpty;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Works out the changes needed to bring the stored data type usages of a set
+ * of entities in line with their logical flows.
+ *
+ * The rules are:
+ * <ul>
+ *     <li>an entity is a <code>DISTRIBUTOR</code> of the data types on its active outbound flows
+ *     and a <code>CONSUMER</code> of those on its active inbound flows</li>
+ *     <li>an entity is an <code>ORIGINATOR</code> of data types it distributes but does not consume</li>
+ *     <li>usages of data types which are not on any active flow of the entity are removed, whatever their kind</li>
+ *     <li>calculated usages (consumer, distributor, originator) which are no longer implied by
+ *     the flows are removed, unless they have been commented on in which case they are deselected</li>
+ *     <li>other (user maintained) usages are left alone</li>
+ * </ul>
+ */
+public class DataTypeUsageCalculator {
+
+    public static final Set<UsageKind> CALCULATED_USAGE_KINDS = Collections.unmodifiableSet(EnumSet.of(
+            UsageKind.CONSUMER,
+            UsageKind.DISTRIBUTOR,
+            UsageKind.ORIGINATOR));
+
+    private static final String PROVENANCE = "waltz";
+
+
+    /**
+     * @param existing  currently stored usages for the entities
+     * @param flowUsages  consumer and distributor usages implied by the active flows of the entities
+     * @return  usages to insert, usages whose selection flag has changed, and usages to delete
+     */
+    public static SystemChangeSet<DataTypeUsage, DataTypeUsage> calculate(Collection<DataTypeUsage> existing,
+                                                                          Collection<DataTypeUsage> flowUsages) {
+        checkNotNull(existing, "existing cannot be null");
+        checkNotNull(flowUsages, "flowUsages cannot be null");
+
+        Set<Tuple3<EntityReference, Long, UsageKind>> required = mkRequired(flowUsages);
+
+        Set<Tuple2<EntityReference, Long>> dataTypesOnFlows = new HashSet<>();
+        required.forEach(k -> dataTypesOnFlows.add(tuple(k.v1(), k.v2())));
+
+        ImmutableSystemChangeSet.Builder<DataTypeUsage, DataTypeUsage> changes = ImmutableSystemChangeSet.builder();
+        Set<Tuple3<EntityReference, Long, UsageKind>> remaining = new LinkedHashSet<>(required);
+
+        for (DataTypeUsage usage : existing) {
+            Tuple3<EntityReference, Long, UsageKind> key = toKey(usage);
+            remaining.remove(key);
+
+            if (! dataTypesOnFlows.contains(tuple(key.v1(), key.v2()))) {
+                changes.addDeletes(usage);
+            } else if (CALCULATED_USAGE_KINDS.contains(key.v3())) {
+                boolean shouldBeSelected = required.contains(key);
+                if (! shouldBeSelected && isEmpty(usage.usage().description())) {
+                    changes.addDeletes(usage);
+                } else if (shouldBeSelected != usage.usage().isSelected()) {
+                    changes.addUpdates(withSelection(usage, shouldBeSelected));
+                }
+            }
+        }
+
+        remaining.forEach(k -> changes.addInserts(mkUsage(k)));
+
+        return changes.build();
+    }
+
+
+    private static Set<Tuple3<EntityReference, Long, UsageKind>> mkRequired(Collection<DataTypeUsage> flowUsages) {
+        Set<Tuple3<EntityReference, Long, UsageKind>> required = new LinkedHashSet<>();
+        flowUsages.forEach(u -> required.add(toKey(u)));
+
+        List<Tuple3<EntityReference, Long, UsageKind>> originators = new ArrayList<>();
+        for (Tuple3<EntityReference, Long, UsageKind> k : required) {
+            if (k.v3() == UsageKind.DISTRIBUTOR
+                    && ! required.contains(tuple(k.v1(), k.v2(), UsageKind.CONSUMER))) {
+                originators.add(tuple(k.v1(), k.v2(), UsageKind.ORIGINATOR));
+            }
+        }
+        required.addAll(originators);
+
+        return required;
+    }
+
+
+    private static Tuple3<EntityReference, Long, UsageKind> toKey(DataTypeUsage usage) {
+        EntityReference ref = usage.entityReference();
+        // names are not part of the identity of a usage
+        return tuple(
+                EntityReference.mkRef(ref.kind(), ref.id()),
+                usage.dataTypeId(),
+                usage.usage().kind());
+    }
+
+
+    private static DataTypeUsage withSelection(DataTypeUsage usage, boolean isSelected) {
+        return ImmutableDataTypeUsage
+                .copyOf(usage)
+                .withUsage(ImmutableUsageInfo
+                        .copyOf(usage.usage())
+                        .withIsSelected(isSelected));
+    }
+
+
+    private static DataTypeUsage mkUsage(Tuple3<EntityReference, Long, UsageKind> key) {
+        return ImmutableDataTypeUsage.builder()
+                .entityReference(key.v1())
+                .dataTypeId(key.v2())
+                .usage(ImmutableUsageInfo.builder()
+                        .kind(key.v3())
+                        .isSelected(true)
+                        .description("")
+                        .build())
+                .provenance(PROVENANCE)
+                .build();
+    }
+
+}
@@ -26,6 +26,7 @@ import com.khartec.waltz.model.IdSelectionOptions;
 import com.khartec.waltz.model.ImmutableEntityReference;
 import com.khartec.waltz.model.data_type_usage.DataTypeUsage;
 import com.khartec.waltz.model.data_type_usage.ImmutableDataTypeUsage;
+import com.khartec.waltz.model.system.SystemChangeSet;
 import com.khartec.waltz.model.tally.Tally;
 import com.khartec.waltz.model.usage_info.ImmutableUsageInfo;
 import com.khartec.waltz.model.usage_info.UsageInfo;
@@ -36,14 +37,15 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.ListUtilities.map;
+import static com.khartec.waltz.common.StreamUtilities.batchProcessingCollector;
 import static com.khartec.waltz.common.StringUtilities.limit;
 import static com.khartec.waltz.data.application.ApplicationDao.IS_ACTIVE;
 import static com.khartec.waltz.model.EntityLifecycleStatus.REMOVED;
@@ -64,16 +66,9 @@ public class DataTypeUsageDao {
     private final com.khartec.waltz.schema.tables.LogicalFlow lf = LOGICAL_FLOW.as("lf");
     private final com.khartec.waltz.schema.tables.LogicalFlowDecorator lfd = LOGICAL_FLOW_DECORATOR.as("lfd");
     private final com.khartec.waltz.schema.tables.Application app = APPLICATION.as("app");
-    private final com.khartec.waltz.schema.tables.Actor actor = ACTOR.as("actor");
     private final Condition NOT_REMOVED = lf.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name());
 
-    private final Field<String> originatorUsageKindField = val(UsageKind.ORIGINATOR.name());
-
-
-
-    private final Field<Long> nodeIdInner = DSL.field("node_id_inner", Long.class);
-    private final Field<Long> dataTypeIdInner = DSL.field("dt_id_inner", Long.class);
-    private final Field<String> usageKindInner = DSL.field("usage_kind_inner", String.class);
+    private static final int DEFAULT_CHUNK_SIZE = 500;
 
     private static final RecordMapper<Record, DataTypeUsage> TO_USAGE_MAPPER = r -> {
         DataTypeUsageRecord record = r.into(DATA_TYPE_USAGE);
@@ -234,18 +229,15 @@ public class DataTypeUsageDao {
     }
 
 
+    /**
+     * Recalculates usages for all active applications and all actors, a chunk of
+     * entities at a time (each in its own short transaction).
+     *
+     * @return true once complete
+     */
     public boolean recalculateForAllApplications() {
-        recalculateForIdSelector(
-                EntityKind.APPLICATION,
-                DSL.select(APPLICATION.ID)
-                    .from(APPLICATION)
-                    .where(IS_ACTIVE));
-
-        recalculateForIdSelector(
-                EntityKind.ACTOR,
-                DSL.select(ACTOR.ID)
-                    .from(ACTOR));
-
+        recalculateForIds(EntityKind.APPLICATION, findIdsForRecalculation(EntityKind.APPLICATION), DEFAULT_CHUNK_SIZE);
+        recalculateForIds(EntityKind.ACTOR, findIdsForRecalculation(EntityKind.ACTOR), DEFAULT_CHUNK_SIZE);
         return true;
     }
 
@@ -257,269 +249,163 @@ public class DataTypeUsageDao {
 
 
     public boolean recalculateForIdSelector(EntityKind kind, Select<Record1<Long>> idSelector) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(idSelector, "idSelector cannot be null");
 
-        dsl.transaction(configuration -> {
-            DSLContext tx = DSL.using(configuration);
-
-            Condition isCalculatedUsageKind = DATA_TYPE_USAGE.USAGE_KIND.in(
-                    UsageKind.CONSUMER.name(),
-                    UsageKind.ORIGINATOR.name(),
-                    UsageKind.DISTRIBUTOR.name());
-
-            // clear calculated usages
-            tx.deleteFrom(DATA_TYPE_USAGE)
-                    .where(isCalculatedUsageKind)
-                    .and(DATA_TYPE_USAGE.DESCRIPTION.eq(""))
-                    .and(DATA_TYPE_USAGE.ENTITY_ID.in(idSelector))
-                    .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
-                    .execute();
-
-            // clear usages where the datatype is not tied to an active logical flow
-            List<DataTypeUsageRecord> recordsToDelete = findAllNonActiveDataTypeUsages(tx, kind, idSelector);
-            tx.batchDelete(recordsToDelete)
-                    .execute();
-
-
-
-            // mark commented usages inactive
-            tx.update(DATA_TYPE_USAGE)
-                    .set(DATA_TYPE_USAGE.IS_SELECTED, false)
-                    .where(isCalculatedUsageKind)
-                    .and(DATA_TYPE_USAGE.DESCRIPTION.ne(""))
-                    .and(DATA_TYPE_USAGE.ENTITY_ID.in(idSelector))
-                    .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
-                    .execute();
-
-            insertUsages(
-                    tx,
-                    mkConsumerDistributorUsagesToInsertSelector(kind, idSelector));
-            updateUsageKinds(
-                    tx,
-                    mkFlowWithTypesForConsumerDistributors(kind, idSelector));
-
-            insertUsages(
-                    tx,
-                    mkOriginatorUsagesToInsertSelector(kind, idSelector));
-            updateUsageKinds(
-                    tx,
-                    mkFlowWithTypesForOriginators(kind, idSelector));
-        });
-
+        recalculateForIds(kind, dsl.fetch(idSelector).getValues(0, Long.class), DEFAULT_CHUNK_SIZE);
         return true;
-
-    }
-
-
-    private List<DataTypeUsageRecord> findAllNonActiveDataTypeUsages(DSLContext tx,
-                                                                     EntityKind kind,
-                                                                     Select<Record1<Long>> idSelector) {
-        Field<String> entityKind = field("entity_kind", String.class);
-        Field<Long> entityId = field("entity_id", Long.class);
-        Field<Long> dataTypeId = field("data_type_id", Long.class);
-
-        SelectConditionStep<Record3<String, Long, Long>> logicalSourcesWithDataTypes = tx.select(
-                LOGICAL_FLOW.SOURCE_ENTITY_KIND.as(entityKind),
-                LOGICAL_FLOW.SOURCE_ENTITY_ID.as(entityId),
-                LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.as(dataTypeId)
-        )
-        .from(LOGICAL_FLOW_DECORATOR)
-        .innerJoin(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
-        .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
-        .and(LOGICAL_FLOW.IS_REMOVED.isFalse().and(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name())))
-        .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.in(idSelector))
-        .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(kind.name()));
-
-
-        SelectConditionStep<Record3<String, Long, Long>> logicalTargetsWithDataTypes = tx.select(
-                LOGICAL_FLOW.TARGET_ENTITY_KIND.as(entityKind),
-                LOGICAL_FLOW.TARGET_ENTITY_ID.as(entityId),
-                LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.as(dataTypeId)
-        )
-        .from(LOGICAL_FLOW_DECORATOR)
-        .innerJoin(LOGICAL_FLOW).on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
-        .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
-        .and(LOGICAL_FLOW.IS_REMOVED.isFalse().and(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name())))
-        .and(LOGICAL_FLOW.TARGET_ENTITY_ID.in(idSelector))
-        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(kind.name()));
-
-        SelectOrderByStep<Record3<String, Long, Long>> refsWithActiveFlowDataTypes = logicalSourcesWithDataTypes
-                .union(logicalTargetsWithDataTypes);
-
-        SelectConditionStep<Record> dataTypeUsagesThatNeedDeleting = tx.select(DATA_TYPE_USAGE.fields())
-                .from(DATA_TYPE_USAGE)
-                .leftOuterJoin(refsWithActiveFlowDataTypes)
-                .on(DATA_TYPE_USAGE.ENTITY_KIND.eq(refsWithActiveFlowDataTypes.field(entityKind)))
-                .and(DATA_TYPE_USAGE.ENTITY_ID.eq(refsWithActiveFlowDataTypes.field(entityId)))
-                .and(DATA_TYPE_USAGE.DATA_TYPE_ID.eq(refsWithActiveFlowDataTypes.field(dataTypeId)))
-                .where(refsWithActiveFlowDataTypes.field(entityId).isNull())
-                .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
-                .and(DATA_TYPE_USAGE.ENTITY_ID.in(idSelector));
-
-        return dataTypeUsagesThatNeedDeleting
-                .fetch()
-                .map(r -> r.into(DATA_TYPE_USAGE));
     }
 
 
+    /**
+     * @return ids of the entities of the given kind which take part in a full recalculation
+     * (active applications, all actors)
+     */
+    public List<Long> findIdsForRecalculation(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
 
-    private void insertUsages(DSLContext tx,
-                              Select<Record7<Long, String, Long, String, String, String, Boolean>> usagesSelector) {
-        tx.insertInto(DATA_TYPE_USAGE)
-                .columns(
-                        DATA_TYPE_USAGE.ENTITY_ID,
-                        DATA_TYPE_USAGE.ENTITY_KIND,
-                        DATA_TYPE_USAGE.DATA_TYPE_ID,
-                        DATA_TYPE_USAGE.USAGE_KIND,
-                        DATA_TYPE_USAGE.DESCRIPTION,
-                        DATA_TYPE_USAGE.PROVENANCE,
-                        DATA_TYPE_USAGE.IS_SELECTED)
-                .select(usagesSelector)
-                .execute();
+        switch (kind) {
+            case APPLICATION:
+                return dsl
+                        .select(APPLICATION.ID)
+                        .from(APPLICATION)
+                        .where(IS_ACTIVE)
+                        .fetch(APPLICATION.ID);
+            case ACTOR:
+                return dsl
+                        .select(ACTOR.ID)
+                        .from(ACTOR)
+                        .fetch(ACTOR.ID);
+            default:
+                throw new UnsupportedOperationException("Cannot create dt usage records for node kind: " + kind);
+        }
     }
 
 
-    private void updateUsageKinds(DSLContext tx,
-                                  Table<Record3<Long, Long, String>> flowTable) {
-        tx.update(DATA_TYPE_USAGE)
-                .set(DATA_TYPE_USAGE.IS_SELECTED, true)
-                .where(DATA_TYPE_USAGE.IS_SELECTED.eq(false))
-                .and(exists(
-                        selectFrom(flowTable)
-                            .where(DATA_TYPE_USAGE.ENTITY_ID.eq(nodeIdInner))
-                            .and(DATA_TYPE_USAGE.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
-                            .and(DATA_TYPE_USAGE.DATA_TYPE_ID.eq(dataTypeIdInner))
-                            .and(DATA_TYPE_USAGE.USAGE_KIND.eq(usageKindInner))))
-                .execute();
-    }
+    /**
+     * Brings the usages of the given entities in line with their logical flows (see
+     * {@link DataTypeUsageCalculator}).  The current and required usages are read,
+     * compared in memory and only the differences are written, all within one short
+     * transaction.  Callers wanting to recalculate many entities should split them
+     * into chunks (see {@link #recalculateForIds(EntityKind, Collection, int)}).
+     *
+     * @return number of usage rows inserted, updated or deleted
+     */
+    public int recalculateForIds(EntityKind kind, Collection<Long> ids) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(ids, "ids cannot be null");
 
+        if (ids.isEmpty()) {
+            return 0;
+        }
 
-    private Select<Record7<Long, String, Long, String, String, String, Boolean>> mkOriginatorUsagesToInsertSelector(
-            EntityKind nodeKind,
-            Select<Record1<Long>> nodeIdSelector)
-    {
-        return mkUsagesToInsertSelector(
-                nodeKind,
-                mkFlowWithTypesForOriginators(
-                        nodeKind,
-                        nodeIdSelector));
-    }
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = DSL.using(configuration);
 
-    private Select<Record7<Long, String, Long, String, String, String, Boolean>> mkConsumerDistributorUsagesToInsertSelector(
-            EntityKind kind,
-            Select<Record1<Long>> idSelector)
-    {
-        return mkUsagesToInsertSelector(
-                kind,
-                mkFlowWithTypesForConsumerDistributors(
-                        kind,
-                        idSelector));
-    }
+            List<DataTypeUsage> existing = tx
+                    .select(DATA_TYPE_USAGE.fields())
+                    .from(DATA_TYPE_USAGE)
+                    .where(DATA_TYPE_USAGE.ENTITY_KIND.eq(kind.name()))
+                    .and(DATA_TYPE_USAGE.ENTITY_ID.in(ids))
+                    .fetch(TO_USAGE_MAPPER);
 
+            SystemChangeSet<DataTypeUsage, DataTypeUsage> changes = DataTypeUsageCalculator.calculate(
+                    existing,
+                    findFlowUsages(tx, kind, ids));
 
-    private Select<Record7<Long, String, Long, String, String, String, Boolean>> mkUsagesToInsertSelector(
-            EntityKind nodeKind,
-            Table<Record3<Long, Long, String>> flowsWithTypesTable)
-    {
-        return selectDistinct(
-                nodeIdInner,
-                val(nodeKind.name()),
-                dataTypeIdInner,
-                usageKindInner,
-                val(""),
-                val("waltz"),
-                val(true))
-            .from(flowsWithTypesTable)
-            .leftJoin(dtu)
-                .on(mkDataTypeUsageJoin(usageKindInner))
-            .where(dtu.ENTITY_ID.isNull());
+            return applyChanges(tx, changes);
+        });
     }
 
 
-    private Table<Record3<Long, Long, String>> mkFlowWithTypesForConsumerDistributors(
-            EntityKind nodeKind,
-            Select<Record1<Long>> nodeIdSelector)
-    {
+    /**
+     * Recalculates the given entities a chunk at a time, each chunk in its own transaction.
+     *
+     * @return number of usage rows inserted, updated or deleted
+     */
+    public int recalculateForIds(EntityKind kind, Collection<Long> ids, int chunkSize) {
+        checkNotNull(ids, "ids cannot be null");
+        checkTrue(chunkSize > 0, "chunkSize must be positive");
 
-        switch (nodeKind) {
-            case ACTOR:
-                return mkFlowWithTypesForConsumerDistributors(nodeKind, actor, actor.ID, nodeIdSelector);
-            case APPLICATION:
-                return mkFlowWithTypesForConsumerDistributors(nodeKind, app, app.ID, nodeIdSelector);
-            default:
-                throw new UnsupportedOperationException("Cannot create dt usage records for node kind: "+nodeKind);
-        }
+        AtomicInteger changes = new AtomicInteger();
+        ids.stream()
+                .collect(batchProcessingCollector(
+                        chunkSize,
+                        chunk -> changes.addAndGet(recalculateForIds(kind, chunk))));
+
+        return changes.get();
     }
 
 
-    private Table<Record3<Long, Long, String>> mkFlowWithTypesForConsumerDistributors(EntityKind nodeKind,
-                                                                                        Table nodeTable,
-                                                                                        TableField<? extends Record, Long> nodeIdField,
-                                                                                        Select<Record1<Long>> nodeIdSelector) {
-        return DSL
-                .select(
-                    nodeIdField.as(nodeIdInner),
-                    dt.ID.as(dataTypeIdInner),
-                    mkConsumerDistributorCaseField(nodeIdField).as(usageKindInner))
-                .from(lf)
-                .innerJoin(nodeTable)
-                .on(mkMatchingFlowCondition(nodeKind, nodeIdField))
-                .innerJoin(lfd)
-                .on(lfd.LOGICAL_FLOW_ID.eq(lf.ID))
-                .and(lfd.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
-                .innerJoin(dt)
-                .on(dt.ID.eq(lfd.DECORATOR_ENTITY_ID))
-                .where(nodeIdField.in(nodeIdSelector))
+    private List<DataTypeUsage> findFlowUsages(DSLContext tx, EntityKind kind, Collection<Long> ids) {
+        Condition isActiveDataTypeFlow = lf.IS_REMOVED.isFalse()
                 .and(NOT_REMOVED)
-                .asTable("cons_dist");
-    }
+                .and(lfd.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()));
 
-
-    private Condition mkMatchingFlowCondition(EntityKind nodeKind, TableField<? extends Record, Long> nodeIdField) {
-        Condition matchingSourceCondition = nodeIdField.eq(lf.SOURCE_ENTITY_ID).and(lf.SOURCE_ENTITY_KIND.eq(nodeKind.name()));
-        Condition matchingTargetCondition = nodeIdField.eq(lf.TARGET_ENTITY_ID).and(lf.TARGET_ENTITY_KIND.eq(nodeKind.name()));
-        return matchingSourceCondition.or(matchingTargetCondition);
+        SelectConditionStep<Record3<Long, Long, String>> distributors = tx
+                .selectDistinct(lf.SOURCE_ENTITY_ID, dt.ID, DSL.inline(UsageKind.DISTRIBUTOR.name()))
+                .from(lf)
+                .innerJoin(lfd).on(lfd.LOGICAL_FLOW_ID.eq(lf.ID))
+                .innerJoin(dt).on(dt.ID.eq(lfd.DECORATOR_ENTITY_ID))
+                .where(isActiveDataTypeFlow)
+                .and(lf.SOURCE_ENTITY_KIND.eq(kind.name()))
+                .and(lf.SOURCE_ENTITY_ID.in(ids));
+
+        // a flow from an entity to itself only makes it a distributor
+        SelectConditionStep<Record3<Long, Long, String>> consumers = tx
+                .selectDistinct(lf.TARGET_ENTITY_ID, dt.ID, DSL.inline(UsageKind.CONSUMER.name()))
+                .from(lf)
+                .innerJoin(lfd).on(lfd.LOGICAL_FLOW_ID.eq(lf.ID))
+                .innerJoin(dt).on(dt.ID.eq(lfd.DECORATOR_ENTITY_ID))
+                .where(isActiveDataTypeFlow)
+                .and(lf.TARGET_ENTITY_KIND.eq(kind.name()))
+                .and(lf.TARGET_ENTITY_ID.in(ids))
+                .andNot(lf.SOURCE_ENTITY_KIND.eq(lf.TARGET_ENTITY_KIND)
+                        .and(lf.SOURCE_ENTITY_ID.eq(lf.TARGET_ENTITY_ID)));
+
+        return distributors
+                .unionAll(consumers)
+                .fetch(r -> ImmutableDataTypeUsage.builder()
+                        .entityReference(mkRef(kind, r.value1()))
+                        .dataTypeId(r.value2())
+                        .usage(ImmutableUsageInfo.builder()
+                                .kind(UsageKind.valueOf(r.value3()))
+                                .isSelected(true)
+                                .build())
+                        .provenance("waltz")
+                        .build());
     }
 
 
-    private Field<String> mkConsumerDistributorCaseField(TableField<? extends Record, Long> nodeIdTableField) {
-        return DSL
-                .when(lf.SOURCE_ENTITY_ID.eq(nodeIdTableField),
-                        UsageKind.DISTRIBUTOR.name())
-                .otherwise(UsageKind.CONSUMER.name());
-    }
+    private int applyChanges(DSLContext tx, SystemChangeSet<DataTypeUsage, DataTypeUsage> changes) {
+        List<Query> queries = new ArrayList<>();
 
+        changes.deletes().forEach(u -> queries.add(tx
+                .deleteFrom(DATA_TYPE_USAGE)
+                .where(mkIdentityCondition(u))));
 
-    private Table<Record3<Long, Long, String>> mkFlowWithTypesForOriginators(EntityKind nodeKind,
-                                                                               Select<Record1<Long>> nodeIdSelector) {
+        changes.updates().forEach(u -> queries.add(tx
+                .update(DATA_TYPE_USAGE)
+                .set(DATA_TYPE_USAGE.IS_SELECTED, u.usage().isSelected())
+                .where(mkIdentityCondition(u))));
 
-        com.khartec.waltz.schema.tables.DataTypeUsage dtuConsumer = DATA_TYPE_USAGE.as("dtu_consumer");
+        if (! queries.isEmpty()) {
+            tx.batch(queries).execute();
+        }
 
-        return DSL.select(
-                    dtu.ENTITY_ID.as(nodeIdInner),
-                    dtu.DATA_TYPE_ID.as(dataTypeIdInner),
-                    originatorUsageKindField.as(usageKindInner))
-                .from(dtu)
-                .where(dtu.ENTITY_ID.in(nodeIdSelector))
-                .and(dtu.ENTITY_KIND.eq(nodeKind.name()))
-                .and(dtu.USAGE_KIND.eq(UsageKind.DISTRIBUTOR.name()))
-                .and(dtu.IS_SELECTED.eq(true))
-                .and(DSL.notExists(DSL.selectFrom(dtuConsumer)
-                        .where(dtuConsumer.ENTITY_ID.eq(dtu.ENTITY_ID))
-                        .and(dtuConsumer.ENTITY_KIND.eq(dtu.ENTITY_KIND))
-                        .and(dtuConsumer.DATA_TYPE_ID.eq(dtu.DATA_TYPE_ID))
-                        .and(dtuConsumer.USAGE_KIND.eq(UsageKind.CONSUMER.name()))
-                        .and(dtuConsumer.IS_SELECTED.eq(true))))
-                .asTable("originators");
+        if (! changes.inserts().isEmpty()) {
+            tx.batchInsert(map(changes.inserts(), TO_RECORD_MAPPER)).execute();
+        }
 
+        return queries.size() + changes.inserts().size();
     }
 
 
-    private Condition mkDataTypeUsageJoin(Field<String> usageKindField) {
-        return dtu.ENTITY_ID.eq(nodeIdInner)
-                        .and(dtu.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
-                        .and(dtu.DATA_TYPE_ID.eq(dataTypeIdInner))
-                        .and(dtu.USAGE_KIND.eq(usageKindField))
-                        .and(dtu.IS_SELECTED.eq(false));
+    private static Condition mkIdentityCondition(DataTypeUsage usage) {
+        return DATA_TYPE_USAGE.ENTITY_KIND.eq(usage.entityReference().kind().name())
+                .and(DATA_TYPE_USAGE.ENTITY_ID.eq(usage.entityReference().id()))
+                .and(DATA_TYPE_USAGE.DATA_TYPE_ID.eq(usage.dataTypeId()))
+                .and(DATA_TYPE_USAGE.USAGE_KIND.eq(usage.usage().kind().name()));
     }
 
 
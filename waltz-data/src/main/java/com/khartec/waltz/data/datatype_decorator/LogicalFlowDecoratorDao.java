@@ -22,6 +22,8 @@ import com.khartec.waltz.common.SetUtilities;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
 import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.data_flow_decorator.DecoratorRatingCandidate;
+import com.khartec.waltz.model.data_flow_decorator.ImmutableDecoratorRatingCandidate;
 import com.khartec.waltz.model.datatype.DataTypeDecorator;
 import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
 import com.khartec.waltz.model.rating.AuthoritativenessRating;
@@ -34,10 +36,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
-import java.util.Collection;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
@@ -55,6 +55,10 @@ import static java.util.stream.Collectors.toList;
 @Repository
 public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
 
+    public static final com.khartec.waltz.schema.tables.Application TARGET_APP = APPLICATION.as("target_app");
+
+    private static final int RATING_UPDATE_CHUNK_SIZE = 1000;
+
 
     private static final RecordMapper<Record, DataTypeDecorator> TO_DECORATOR_MAPPER = r -> {
         LogicalFlowDecoratorRecord record = r.into(LOGICAL_FLOW_DECORATOR);
@@ -268,6 +272,84 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
         return authSourceUpdateCount + nonAuthSourceUpdateCount;
     }
 
+    /**
+     * Streams a rating candidate for every data type decorator on an active flow which
+     * satisfies the given condition.  The condition may refer to <code>LOGICAL_FLOW_DECORATOR</code>,
+     * <code>LOGICAL_FLOW</code> and {@link #TARGET_APP} (which is only joined when the flow
+     * targets an application).
+     *
+     * Candidates are read with a cursor and handed to the visitor one at a time so that
+     * callers can process every decorator without holding them all in memory.
+     *
+     * @param condition  restricts the decorators to visit
+     * @param visitor  called once per decorator
+     */
+    public void visitRatingCandidates(Condition condition, Consumer<DecoratorRatingCandidate> visitor) {
+        checkNotNull(condition, "condition cannot be null");
+        checkNotNull(visitor, "visitor cannot be null");
+
+        SelectConditionStep<Record6<Long, Long, String, String, Long, Long>> qry = dsl
+                .select(LOGICAL_FLOW_DECORATOR.ID,
+                        LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID,
+                        LOGICAL_FLOW_DECORATOR.RATING,
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        TARGET_APP.ORGANISATIONAL_UNIT_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .innerJoin(LOGICAL_FLOW)
+                .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
+                .leftJoin(TARGET_APP)
+                .on(TARGET_APP.ID.eq(LOGICAL_FLOW.TARGET_ENTITY_ID)
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name())))
+                .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
+                .and(LOGICAL_NOT_REMOVED)
+                .and(condition);
+
+        try (Cursor<Record6<Long, Long, String, String, Long, Long>> cursor = qry.fetchLazy()) {
+            for (Record6<Long, Long, String, String, Long, Long> r : cursor) {
+                boolean sourceIsApp = EntityKind.APPLICATION.name().equals(r.value4());
+                visitor.accept(ImmutableDecoratorRatingCandidate.builder()
+                        .decoratorId(r.value1())
+                        .dataTypeId(r.value2())
+                        .rating(AuthoritativenessRating.valueOf(r.value3()))
+                        .sourceApplicationId(sourceIsApp ? Optional.of(r.value5()) : Optional.empty())
+                        .targetOrgUnitId(Optional.ofNullable(r.value6()))
+                        .build());
+            }
+        }
+    }
+
+
+    /**
+     * Sets the rating of the given decorators, the updates are issued as a batch
+     * of <code>id in (...)</code> statements.
+     *
+     * @param rating  new rating
+     * @param decoratorIds  ids of the decorators to update
+     * @return  number of decorators updated
+     */
+    public int updateRatings(AuthoritativenessRating rating, Collection<Long> decoratorIds) {
+        checkNotNull(rating, "rating cannot be null");
+        checkNotNull(decoratorIds, "decoratorIds cannot be null");
+
+        if (decoratorIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(decoratorIds);
+        List<Query> queries = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += RATING_UPDATE_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + RATING_UPDATE_CHUNK_SIZE, ids.size()));
+            queries.add(dsl
+                    .update(LOGICAL_FLOW_DECORATOR)
+                    .set(LOGICAL_FLOW_DECORATOR.RATING, rating.name())
+                    .where(LOGICAL_FLOW_DECORATOR.ID.in(chunk)));
+        }
+
+        return Arrays.stream(dsl.batch(queries).execute()).sum();
+    }
+
+
     // --- HELPERS ---
 
     private List<DataTypeDecorator> findByCondition(Condition condition) {
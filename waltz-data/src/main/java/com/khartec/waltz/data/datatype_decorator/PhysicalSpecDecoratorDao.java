@@ -100,6 +100,13 @@ public class PhysicalSpecDecoratorDao extends DataTypeDecoratorDao {
     }
 
 
+    public List<DataTypeDecorator> findBySpecificationIds(Collection<Long> specIds) {
+        return dsl.selectFrom(PHYSICAL_SPEC_DATA_TYPE)
+                .where(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.in(specIds))
+                .fetch(TO_DOMAIN_MAPPER);
+    }
+
+
     @Override
     public List<DataTypeDecorator> findByEntityIdSelector(Select<Record1<Long>> specIdSelector,
                                                           Optional<EntityKind> entityKind) {
@@ -27,23 +27,22 @@ import com.khartec.waltz.model.tally.Tally;
 import com.khartec.waltz.schema.tables.EntityHierarchy;
 import com.khartec.waltz.schema.tables.records.ApplicationRecord;
 import com.khartec.waltz.schema.tables.records.EntityHierarchyRecord;
-import org.jooq.Condition;
-import org.jooq.DSLContext;
-import org.jooq.Record;
-import org.jooq.RecordMapper;
+import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.*;
 import java.util.function.Function;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.data.JooqUtilities.TO_STRING_TALLY;
 import static com.khartec.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class EntityHierarchyDao {
@@ -103,6 +102,109 @@ public class EntityHierarchyDao {
     }
 
 
+    /**
+     * Brings the stored hierarchy for the given kind in line with the given
+     * items by applying only the differences.  Rows which are unchanged are
+     * left untouched, so (unlike <code>replaceHierarchy</code>) readers of
+     * the hierarchy are only blocked by rows which have actually changed.
+     *
+     * Existing rows are matched on (id, ancestor id).  Rows which are no
+     * longer required are deleted, rows whose level has changed are updated
+     * and missing rows are inserted.  Duplicate existing rows are removed and
+     * re-inserted once.
+     *
+     * @param kind  hierarchy kind
+     * @param hierarchyItems  the complete set of desired rows within the scope of the filter
+     * @param existingFilter  restricts the existing rows which are considered (and hence may be deleted)
+     * @return  number of rows inserted, updated or deleted
+     */
+    public int syncHierarchy(EntityKind kind,
+                             Collection<EntityHierarchyItem> hierarchyItems,
+                             Condition existingFilter) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(hierarchyItems, "hierarchyItems cannot be null");
+        checkNotNull(existingFilter, "existingFilter cannot be null");
+
+        Map<Tuple2<Long, Long>, Integer> desired = new HashMap<>(hierarchyItems.size() * 2);
+        hierarchyItems.forEach(item -> desired.put(
+                tuple(item.id().get(), item.parentId().orElse(null)),
+                item.level()));
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            Map<Tuple2<Long, Long>, Integer> existing = new HashMap<>(desired.size() * 2);
+            Set<Tuple2<Long, Long>> duplicates = new HashSet<>();
+
+            txDsl.select(eh.ID, eh.ANCESTOR_ID, eh.LEVEL)
+                    .from(eh)
+                    .where(eh.KIND.eq(kind.name()))
+                    .and(existingFilter)
+                    .fetch()
+                    .forEach(r -> {
+                        Tuple2<Long, Long> key = tuple(r.get(eh.ID), r.get(eh.ANCESTOR_ID));
+                        if (existing.containsKey(key)) {
+                            duplicates.add(key);
+                        }
+                        existing.put(key, r.get(eh.LEVEL));
+                    });
+
+            List<Tuple2<Long, Long>> deletes = new ArrayList<>();
+            List<Tuple2<Long, Long>> updates = new ArrayList<>();
+            List<EntityHierarchyRecord> inserts = new ArrayList<>();
+
+            existing.forEach((key, level) -> {
+                if (! desired.containsKey(key) || duplicates.contains(key)) {
+                    deletes.add(key);
+                } else if (! Objects.equals(level, desired.get(key))) {
+                    updates.add(key);
+                }
+            });
+
+            desired.forEach((key, level) -> {
+                if (! existing.containsKey(key) || duplicates.contains(key)) {
+                    inserts.add(new EntityHierarchyRecord(kind.name(), key.v1, key.v2, level));
+                }
+            });
+
+            if (! deletes.isEmpty()) {
+                BatchBindStep deleteBatch = txDsl.batch(DSL
+                        .deleteFrom(eh)
+                        .where(eh.KIND.eq((String) null))
+                        .and(eh.ID.eq((Long) null))
+                        .and(eh.ANCESTOR_ID.eq((Long) null)));
+                deletes.forEach(key -> deleteBatch.bind(kind.name(), key.v1, key.v2));
+                deleteBatch.execute();
+            }
+
+            if (! updates.isEmpty()) {
+                BatchBindStep updateBatch = txDsl.batch(DSL
+                        .update(eh)
+                        .set(eh.LEVEL, (Integer) null)
+                        .where(eh.KIND.eq((String) null))
+                        .and(eh.ID.eq((Long) null))
+                        .and(eh.ANCESTOR_ID.eq((Long) null)));
+                updates.forEach(key -> updateBatch.bind(desired.get(key), kind.name(), key.v1, key.v2));
+                updateBatch.execute();
+            }
+
+            if (! inserts.isEmpty()) {
+                txDsl.batchInsert(inserts)
+                        .execute();
+            }
+
+            LOG.info("Synchronised hierarchy items for kind: {}, deleted: {}, updated: {}, inserted: {}, unchanged: {}",
+                    kind,
+                    deletes.size(),
+                    updates.size(),
+                    inserts.size(),
+                    desired.size() - updates.size() - inserts.size());
+
+            return deletes.size() + updates.size() + inserts.size();
+        });
+    }
+
+
     public List<Tally<String>> tallyByKind() {
         return JooqUtilities.calculateStringTallies(dsl, eh, eh.KIND, DSL.trueCondition());
     }
@@ -0,0 +1,273 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.data.entity_search;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.ImmutableEntityReference;
+import com.khartec.waltz.model.entity_search.ImmutableSearchableEntity;
+import com.khartec.waltz.model.entity_search.SearchableEntity;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.schema.tables.Actor.ACTOR;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.ChangeInitiative.CHANGE_INITIATIVE;
+import static com.khartec.waltz.schema.tables.DataType.DATA_TYPE;
+import static com.khartec.waltz.schema.tables.EntityAlias.ENTITY_ALIAS;
+import static com.khartec.waltz.schema.tables.LogicalDataElement.LOGICAL_DATA_ELEMENT;
+import static com.khartec.waltz.schema.tables.Measurable.MEASURABLE;
+import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
+import static com.khartec.waltz.schema.tables.Person.PERSON;
+import static com.khartec.waltz.schema.tables.Roadmap.ROADMAP;
+import static com.khartec.waltz.schema.tables.ServerInformation.SERVER_INFORMATION;
+import static com.khartec.waltz.schema.tables.SoftwarePackage.SOFTWARE_PACKAGE;
+import static java.util.stream.Collectors.*;
+
+
+/**
+ * Loads the searchable fields (names, codes and aliases) of entities so
+ * they can be held in the in-memory search index.  Entity references are
+ * constructed in the same way as the equivalent domain objects so search
+ * results are identical whether they come from the index or the database.
+ */
+@Repository
+public class SearchableEntityDao {
+
+    public static final Set<EntityKind> SUPPORTED_KINDS = Collections.unmodifiableSet(asSet(
+            EntityKind.ACTOR,
+            EntityKind.APPLICATION,
+            EntityKind.CHANGE_INITIATIVE,
+            EntityKind.DATA_TYPE,
+            EntityKind.LOGICAL_DATA_ELEMENT,
+            EntityKind.MEASURABLE,
+            EntityKind.ORG_UNIT,
+            EntityKind.PERSON,
+            EntityKind.ROADMAP,
+            EntityKind.SERVER,
+            EntityKind.SOFTWARE));
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public SearchableEntityDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public List<SearchableEntity> findAll(EntityKind kind) {
+        return fetch(kind, idField -> DSL.trueCondition());
+    }
+
+
+    public List<SearchableEntity> findByIds(EntityKind kind, Collection<Long> ids) {
+        checkNotNull(ids, "ids cannot be null");
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return fetch(kind, idField -> idField.in(ids));
+    }
+
+
+    // -- helpers --
+
+    private List<SearchableEntity> fetch(EntityKind kind, Function<Field<Long>, Condition> idCondition) {
+        checkNotNull(kind, "kind cannot be null");
+        switch (kind) {
+            case ACTOR:
+                return dsl
+                        .select(ACTOR.ID, ACTOR.NAME, ACTOR.DESCRIPTION)
+                        .from(ACTOR)
+                        .where(idCondition.apply(ACTOR.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind, r.get(ACTOR.ID), r.get(ACTOR.NAME), r.get(ACTOR.DESCRIPTION), EntityLifecycleStatus.ACTIVE)));
+            case APPLICATION:
+                return fetchApplications(idCondition.apply(APPLICATION.ID));
+            case CHANGE_INITIATIVE:
+                return dsl
+                        .select(CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.NAME, CHANGE_INITIATIVE.DESCRIPTION, CHANGE_INITIATIVE.EXTERNAL_ID)
+                        .from(CHANGE_INITIATIVE)
+                        .where(idCondition.apply(CHANGE_INITIATIVE.ID))
+                        .fetch(r -> {
+                            String externalId = r.get(CHANGE_INITIATIVE.EXTERNAL_ID);
+                            String name = r.get(CHANGE_INITIATIVE.NAME) + (externalId == null ? "" : " (" + externalId + ")");
+                            return mkSearchableEntity(
+                                    mkRef(kind, r.get(CHANGE_INITIATIVE.ID), name, r.get(CHANGE_INITIATIVE.DESCRIPTION), EntityLifecycleStatus.ACTIVE),
+                                    externalId);
+                        });
+            case DATA_TYPE:
+                return dsl
+                        .select(DATA_TYPE.ID, DATA_TYPE.NAME, DATA_TYPE.DESCRIPTION, DATA_TYPE.CODE)
+                        .from(DATA_TYPE)
+                        .where(idCondition.apply(DATA_TYPE.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind, r.get(DATA_TYPE.ID), r.get(DATA_TYPE.NAME), r.get(DATA_TYPE.DESCRIPTION), EntityLifecycleStatus.ACTIVE),
+                                r.get(DATA_TYPE.CODE)));
+            case LOGICAL_DATA_ELEMENT:
+                return dsl
+                        .select(LOGICAL_DATA_ELEMENT.ID, LOGICAL_DATA_ELEMENT.NAME, LOGICAL_DATA_ELEMENT.DESCRIPTION, LOGICAL_DATA_ELEMENT.EXTERNAL_ID, LOGICAL_DATA_ELEMENT.ENTITY_LIFECYCLE_STATUS)
+                        .from(LOGICAL_DATA_ELEMENT)
+                        .where(idCondition.apply(LOGICAL_DATA_ELEMENT.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind,
+                                        r.get(LOGICAL_DATA_ELEMENT.ID),
+                                        r.get(LOGICAL_DATA_ELEMENT.NAME),
+                                        r.get(LOGICAL_DATA_ELEMENT.DESCRIPTION),
+                                        EntityLifecycleStatus.valueOf(r.get(LOGICAL_DATA_ELEMENT.ENTITY_LIFECYCLE_STATUS))),
+                                r.get(LOGICAL_DATA_ELEMENT.EXTERNAL_ID)));
+            case MEASURABLE:
+                return dsl
+                        .select(MEASURABLE.ID, MEASURABLE.NAME, MEASURABLE.DESCRIPTION, MEASURABLE.EXTERNAL_ID, MEASURABLE.ENTITY_LIFECYCLE_STATUS)
+                        .from(MEASURABLE)
+                        .where(idCondition.apply(MEASURABLE.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind,
+                                        r.get(MEASURABLE.ID),
+                                        r.get(MEASURABLE.NAME),
+                                        r.get(MEASURABLE.DESCRIPTION),
+                                        EntityLifecycleStatus.valueOf(r.get(MEASURABLE.ENTITY_LIFECYCLE_STATUS))),
+                                r.get(MEASURABLE.EXTERNAL_ID)));
+            case ORG_UNIT:
+                return dsl
+                        .select(ORGANISATIONAL_UNIT.ID, ORGANISATIONAL_UNIT.NAME, ORGANISATIONAL_UNIT.DESCRIPTION, ORGANISATIONAL_UNIT.EXTERNAL_ID)
+                        .from(ORGANISATIONAL_UNIT)
+                        .where(idCondition.apply(ORGANISATIONAL_UNIT.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind, r.get(ORGANISATIONAL_UNIT.ID), r.get(ORGANISATIONAL_UNIT.NAME), r.get(ORGANISATIONAL_UNIT.DESCRIPTION), EntityLifecycleStatus.ACTIVE),
+                                r.get(ORGANISATIONAL_UNIT.EXTERNAL_ID)));
+            case PERSON:
+                return dsl
+                        .select(PERSON.ID, PERSON.DISPLAY_NAME, PERSON.EMAIL, PERSON.IS_REMOVED)
+                        .from(PERSON)
+                        .where(idCondition.apply(PERSON.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind,
+                                        r.get(PERSON.ID),
+                                        r.get(PERSON.DISPLAY_NAME),
+                                        null,
+                                        EntityLifecycleStatus.fromIsRemovedFlag(r.get(PERSON.IS_REMOVED))),
+                                r.get(PERSON.EMAIL)));
+            case ROADMAP:
+                return dsl
+                        .select(ROADMAP.ID, ROADMAP.NAME, ROADMAP.DESCRIPTION, ROADMAP.ENTITY_LIFECYCLE_STATUS)
+                        .from(ROADMAP)
+                        .where(idCondition.apply(ROADMAP.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind,
+                                        r.get(ROADMAP.ID),
+                                        r.get(ROADMAP.NAME),
+                                        r.get(ROADMAP.DESCRIPTION),
+                                        EntityLifecycleStatus.valueOf(r.get(ROADMAP.ENTITY_LIFECYCLE_STATUS)))));
+            case SERVER:
+                return dsl
+                        .select(SERVER_INFORMATION.ID, SERVER_INFORMATION.HOSTNAME, SERVER_INFORMATION.EXTERNAL_ID)
+                        .from(SERVER_INFORMATION)
+                        .where(idCondition.apply(SERVER_INFORMATION.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind, r.get(SERVER_INFORMATION.ID), r.get(SERVER_INFORMATION.HOSTNAME), null, EntityLifecycleStatus.ACTIVE),
+                                r.get(SERVER_INFORMATION.EXTERNAL_ID)));
+            case SOFTWARE:
+                return dsl
+                        .select(SOFTWARE_PACKAGE.ID, SOFTWARE_PACKAGE.NAME, SOFTWARE_PACKAGE.DESCRIPTION, SOFTWARE_PACKAGE.EXTERNAL_ID)
+                        .from(SOFTWARE_PACKAGE)
+                        .where(idCondition.apply(SOFTWARE_PACKAGE.ID))
+                        .fetch(r -> mkSearchableEntity(
+                                mkRef(kind, r.get(SOFTWARE_PACKAGE.ID), r.get(SOFTWARE_PACKAGE.NAME), r.get(SOFTWARE_PACKAGE.DESCRIPTION), EntityLifecycleStatus.ACTIVE),
+                                r.get(SOFTWARE_PACKAGE.EXTERNAL_ID)));
+            default:
+                throw new UnsupportedOperationException("Cannot load searchable entities of kind: " + kind);
+        }
+    }
+
+
+    private List<SearchableEntity> fetchApplications(Condition condition) {
+        Map<Long, List<String>> aliasesByAppId = dsl
+                .select(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                .from(ENTITY_ALIAS)
+                .innerJoin(APPLICATION).on(APPLICATION.ID.eq(ENTITY_ALIAS.ID))
+                .where(ENTITY_ALIAS.KIND.eq(EntityKind.APPLICATION.name()))
+                .and(condition)
+                .fetch()
+                .stream()
+                .collect(groupingBy(
+                        r -> r.get(ENTITY_ALIAS.ID),
+                        mapping(r -> r.get(ENTITY_ALIAS.ALIAS), toList())));
+
+        return dsl
+                .select(APPLICATION.ID, APPLICATION.NAME, APPLICATION.DESCRIPTION, APPLICATION.ASSET_CODE, APPLICATION.ENTITY_LIFECYCLE_STATUS)
+                .from(APPLICATION)
+                .where(condition)
+                .fetch(r -> ImmutableSearchableEntity.builder()
+                        .entityReference(mkRef(
+                                EntityKind.APPLICATION,
+                                r.get(APPLICATION.ID),
+                                r.get(APPLICATION.NAME),
+                                r.get(APPLICATION.DESCRIPTION),
+                                EntityLifecycleStatus.valueOf(r.get(APPLICATION.ENTITY_LIFECYCLE_STATUS))))
+                        .codes(mkCodes(r.get(APPLICATION.ASSET_CODE)))
+                        .aliases(aliasesByAppId.getOrDefault(r.get(APPLICATION.ID), Collections.emptyList()))
+                        .build());
+    }
+
+
+    private static EntityReference mkRef(EntityKind kind,
+                                         long id,
+                                         String name,
+                                         String description,
+                                         EntityLifecycleStatus lifecycleStatus) {
+        return ImmutableEntityReference.builder()
+                .kind(kind)
+                .id(id)
+                .name(Optional.ofNullable(name))
+                .description(description)
+                .entityLifecycleStatus(lifecycleStatus)
+                .build();
+    }
+
+
+    private static SearchableEntity mkSearchableEntity(EntityReference ref, String... codes) {
+        return ImmutableSearchableEntity.builder()
+                .entityReference(ref)
+                .codes(mkCodes(codes))
+                .build();
+    }
+
+
+    private static List<String> mkCodes(String... codes) {
+        return Stream.of(codes)
+                .filter(Objects::nonNull)
+                .filter(c -> ! c.trim().isEmpty())
+                .collect(toList());
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.entity_statistic;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.entity_statistic.EntityStatisticRollupEntry;
+import com.khartec.waltz.model.entity_statistic.ImmutableEntityStatisticRollupEntry;
+import com.khartec.waltz.model.entity_statistic.RollupKind;
+import org.jooq.*;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.lambda.tuple.Tuple3;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.EntityStatisticValue.ENTITY_STATISTIC_VALUE;
+import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Produces the per org unit partial aggregates used to build entity statistic rollups.
+ *
+ * Values are grouped by the org unit which directly owns the (active) application
+ * they describe, so the aggregate for any node in the org unit hierarchy is the
+ * combination of the entries for that node and its descendants.
+ */
+@Repository
+public class EntityStatisticRollupDao {
+
+    private static final com.khartec.waltz.schema.tables.EntityStatisticValue esv = ENTITY_STATISTIC_VALUE.as("esv");
+    private static final com.khartec.waltz.schema.tables.Application app = APPLICATION.as("app");
+
+    private static final DataType<BigDecimal> decimalValueDataType = SQLDataType.DECIMAL(38, 12);
+
+    private static final Field<Integer> countField = DSL.count().as("value_count");
+    private static final Field<BigDecimal> totalField = DSL.sum(DSL.cast(esv.VALUE, decimalValueDataType)).as("value_total");
+    private static final Field<BigDecimal> noTotalField = DSL.inline(BigDecimal.ZERO).as("value_total");
+    private static final Field<Timestamp> maxCreatedAtField = DSL.max(esv.CREATED_AT).as("max_created_at");
+    private static final Field<Date> createdAtDateField = DSL.cast(esv.CREATED_AT, Date.class);
+    private static final Field<Integer> currentCountField = DSL.count(esv.ID).filterWhere(esv.CURRENT.eq(true)).as("current_count");
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntityStatisticRollupDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * A watermark changes whenever values for the statistic are added, removed
+     * or made (non) current, it is used to detect which rollups are stale.
+     *
+     * @return statistic id -> (last created at, number of values, number of current values)
+     */
+    public Map<Long, Tuple3<Timestamp, Integer, Integer>> findWatermarks(Collection<Long> statisticIds) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+
+        if (statisticIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, Tuple3<Timestamp, Integer, Integer>> watermarks = new HashMap<>();
+
+        dsl.select(esv.STATISTIC_ID, maxCreatedAtField, countField, currentCountField)
+                .from(esv)
+                .where(esv.STATISTIC_ID.in(statisticIds))
+                .groupBy(esv.STATISTIC_ID)
+                .fetch()
+                .forEach(r -> watermarks.put(
+                        r.get(esv.STATISTIC_ID),
+                        tuple(r.get(maxCreatedAtField), r.get(countField), r.get(currentCountField))));
+
+        return watermarks;
+    }
+
+
+    /**
+     * @return partial aggregates of the current values of the statistic, one per (org unit, outcome)
+     */
+    public List<EntityStatisticRollupEntry> findCurrentEntries(long statisticId, RollupKind rollupKind) {
+        return findEntries(statisticId, rollupKind, true);
+    }
+
+
+    /**
+     * @return partial aggregates of the historic (non current) values of the statistic,
+     * one per (org unit, outcome, day)
+     */
+    public List<EntityStatisticRollupEntry> findHistoricEntries(long statisticId, RollupKind rollupKind) {
+        return findEntries(statisticId, rollupKind, false);
+    }
+
+
+    private List<EntityStatisticRollupEntry> findEntries(long statisticId,
+                                                        RollupKind rollupKind,
+                                                        boolean current) {
+        checkNotNull(rollupKind, "rollupKind cannot be null");
+
+        // values are only numeric for the summing rollups, counts must not cast them
+        Field<BigDecimal> total = rollupKind == RollupKind.COUNT_BY_ENTITY
+                ? noTotalField
+                : totalField;
+
+        List<Field<?>> groupingFields = new ArrayList<>();
+        groupingFields.add(app.ORGANISATIONAL_UNIT_ID);
+        groupingFields.add(esv.OUTCOME);
+        if (! current) {
+            groupingFields.add(createdAtDateField);
+        }
+
+        List<Field<?>> selectFields = new ArrayList<>(groupingFields);
+        selectFields.add(countField);
+        selectFields.add(total);
+        selectFields.add(maxCreatedAtField);
+
+        return dsl
+                .select(selectFields)
+                .from(esv)
+                .innerJoin(app)
+                .on(app.ID.eq(esv.ENTITY_ID))
+                .where(esv.STATISTIC_ID.eq(statisticId))
+                .and(esv.ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                .and(esv.CURRENT.eq(current))
+                .and(app.ENTITY_LIFECYCLE_STATUS.eq(EntityLifecycleStatus.ACTIVE.name()))
+                .and(app.ORGANISATIONAL_UNIT_ID.isNotNull())
+                .groupBy(groupingFields)
+                .fetch()
+                .stream()
+                .map(r -> ImmutableEntityStatisticRollupEntry.builder()
+                        .statisticId(statisticId)
+                        .orgUnitId(r.get(app.ORGANISATIONAL_UNIT_ID))
+                        .outcome(r.get(esv.OUTCOME))
+                        .date(current
+                                ? Optional.empty()
+                                : Optional.of(r.get(createdAtDateField).toLocalDate()))
+                        .count(r.get(countField))
+                        .total(Optional
+                                .ofNullable(r.get(total))
+                                .orElse(BigDecimal.ZERO))
+                        .lastUpdatedAt(r.get(maxCreatedAtField).toLocalDateTime())
+                        .build())
+                .collect(toList());
+    }
+
+}
@@ -36,6 +36,7 @@ import java.sql.Timestamp;
 import java.util.*;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.map;
@@ -57,6 +58,8 @@ public class LogicalFlowDao {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogicalFlowDao.class);
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private static final Field<String> SOURCE_NAME_FIELD = InlineSelectFieldFactory.mkNameField(
             LOGICAL_FLOW.SOURCE_ENTITY_ID,
             LOGICAL_FLOW.SOURCE_ENTITY_KIND,
@@ -297,6 +300,13 @@ public class LogicalFlowDao {
     }
 
 
+    public List<LogicalFlow> findAllNotRemoved() {
+        return baseQuery()
+                .where(LOGICAL_NOT_REMOVED)
+                .fetch(TO_DOMAIN_MAPPER);
+    }
+
+
     public List<LogicalFlow> findActiveByFlowIds(Collection<Long> dataFlowIds) {
         return findByFlowIdsWithCondition(dataFlowIds, LOGICAL_NOT_REMOVED);
     }
@@ -314,6 +324,21 @@ public class LogicalFlowDao {
     }
 
 
+    /**
+     * As {@link #findBySelector(Select)} but lazily backed by a database cursor,
+     * the caller must close the stream (which releases the connection).
+     * Rows are fetched in batches of 1000.  When streamed to a client the
+     * pooled connection is held until the client has finished downloading.
+     */
+    public Stream<LogicalFlow> streamBySelector(Select<Record1<Long>> flowIdSelector) {
+        return baseQuery()
+                .where(LOGICAL_FLOW.ID.in(flowIdSelector))
+                .fetchSize(STREAM_FETCH_SIZE)
+                .stream()
+                .map(TO_DOMAIN_MAPPER::map);
+    }
+
+
     public Integer cleanupOrphans() {
         Select<Record1<Long>> appIds = DSL
                 .select(APPLICATION.ID)
@@ -39,6 +39,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.DateTimeUtilities.toLocalDateTime;
@@ -55,6 +56,8 @@ import static java.lang.String.format;
 @Repository
 public class MeasurableRatingDao {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private static final Condition APP_JOIN_CONDITION = APPLICATION.ID.eq(MEASURABLE_RATING.ENTITY_ID)
             .and(MEASURABLE_RATING.ENTITY_KIND.eq(EntityKind.APPLICATION.name()));
 
@@ -193,23 +196,45 @@ public class MeasurableRatingDao {
 
 
     public Collection<MeasurableRating> findByApplicationIdSelector(Select<Record1<Long>> selector) {
-        checkNotNull(selector, "selector cannot be null");
-        Condition condition = MEASURABLE_RATING.ENTITY_ID.in(selector)
-                .and(MEASURABLE_RATING.ENTITY_KIND.eq(DSL.val(EntityKind.APPLICATION.name())));
-        return mkBaseQuery()
-                .where(condition)
+        return mkApplicationIdSelectorQuery(selector)
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
 
+    /**
+     * As {@link #findByApplicationIdSelector(Select)} but lazily backed by a database
+     * cursor, the caller must close the stream (which releases the connection).
+     * Rows are fetched in batches of 1000.  When streamed to a client the
+     * pooled connection is held until the client has finished downloading.
+     */
+    public Stream<MeasurableRating> streamByApplicationIdSelector(Select<Record1<Long>> selector) {
+        return mkApplicationIdSelectorQuery(selector)
+                .fetchSize(STREAM_FETCH_SIZE)
+                .stream()
+                .map(TO_DOMAIN_MAPPER::map);
+    }
+
+
     public Collection<MeasurableRating> findByCategory(long id) {
-        return mkBaseQuery()
-                .innerJoin(MEASURABLE).on(MEASURABLE_RATING.MEASURABLE_ID.eq(MEASURABLE.ID))
-                .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(id))
+        return mkCategoryQuery(id)
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
 
+    /**
+     * As {@link #findByCategory(long)} but lazily backed by a database cursor,
+     * the caller must close the stream (which releases the connection).
+     * Fetch size and connection use are as
+     * {@link #streamByApplicationIdSelector(Select)}.
+     */
+    public Stream<MeasurableRating> streamByCategory(long id) {
+        return mkCategoryQuery(id)
+                .fetchSize(STREAM_FETCH_SIZE)
+                .stream()
+                .map(TO_DOMAIN_MAPPER::map);
+    }
+
+
     // --- stats
 
     public List<Tally<Long>> tallyByMeasurableCategoryId(long categoryId) {
@@ -286,6 +311,22 @@ public class MeasurableRatingDao {
 
     // --- utils
 
+    private SelectConditionStep<Record> mkApplicationIdSelectorQuery(Select<Record1<Long>> selector) {
+        checkNotNull(selector, "selector cannot be null");
+        Condition condition = MEASURABLE_RATING.ENTITY_ID.in(selector)
+                .and(MEASURABLE_RATING.ENTITY_KIND.eq(DSL.val(EntityKind.APPLICATION.name())));
+        return mkBaseQuery()
+                .where(condition);
+    }
+
+
+    private SelectConditionStep<Record> mkCategoryQuery(long id) {
+        return mkBaseQuery()
+                .innerJoin(MEASURABLE).on(MEASURABLE_RATING.MEASURABLE_ID.eq(MEASURABLE.ID))
+                .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(id));
+    }
+
+
     private SelectJoinStep<Record> mkBaseQuery() {
         return dsl
                 .select(MEASURABLE_RATING.fields())
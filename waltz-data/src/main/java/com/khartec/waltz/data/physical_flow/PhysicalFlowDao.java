@@ -34,8 +34,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkFalse;
 import static com.khartec.waltz.common.Checks.checkNotNull;
@@ -152,6 +154,23 @@ public class PhysicalFlowDao {
     }
 
 
+    public List<PhysicalFlow> findBySpecificationIds(Collection<Long> specificationIds) {
+        return findByCondition(PHYSICAL_FLOW.SPECIFICATION_ID.in(specificationIds));
+    }
+
+
+    /**
+     * Returns all flows (including removed ones) which are associated with one of the
+     * given logical flows <em>and</em> one of the given specifications.  Used to bulk
+     * resolve the candidates for {@link #matchPhysicalFlow(PhysicalFlow)}.
+     */
+    public List<PhysicalFlow> findByLogicalFlowIdsAndSpecificationIds(Collection<Long> logicalFlowIds,
+                                                                      Collection<Long> specificationIds) {
+        return findByCondition(PHYSICAL_FLOW.LOGICAL_FLOW_ID.in(logicalFlowIds)
+                .and(PHYSICAL_FLOW.SPECIFICATION_ID.in(specificationIds)));
+    }
+
+
     public List<PhysicalFlow> findBySelector(Select<Record1<Long>> selector) {
         return findByCondition(PHYSICAL_FLOW.ID.in(selector));
     }
@@ -246,6 +265,31 @@ public class PhysicalFlowDao {
 
 
     public long create(PhysicalFlow flow) {
+        PhysicalFlowRecord record = mkRecord(flow);
+        record.store();
+        return record.getId();
+    }
+
+
+    /**
+     * Inserts the given flows as a single batch.  Generated ids are not returned,
+     * callers should re-query (e.g. via {@link #findByLogicalFlowIdsAndSpecificationIds(Collection, Collection)}).
+     */
+    public int[] createAll(Collection<PhysicalFlow> flows) {
+        checkNotNull(flows, "flows cannot be null");
+
+        List<PhysicalFlowRecord> records = flows
+                .stream()
+                .map(this::mkRecord)
+                .collect(Collectors.toList());
+
+        return dsl
+                .batchInsert(records)
+                .execute();
+    }
+
+
+    private PhysicalFlowRecord mkRecord(PhysicalFlow flow) {
         checkNotNull(flow, "flow cannot be null");
         checkFalse(flow.id().isPresent(), "flow must not have an id");
 
@@ -271,8 +315,7 @@ public class PhysicalFlowDao {
         record.setCreatedAt(flow.created().map(UserTimestamp::atTimestamp).orElse(Timestamp.valueOf(flow.lastUpdatedAt())));
         record.setCreatedBy(flow.created().map(UserTimestamp::by).orElse(flow.lastUpdatedBy()));
 
-        record.store();
-        return record.getId();
+        return record;
     }
 
 
@@ -34,6 +34,7 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -46,6 +47,7 @@ import static com.khartec.waltz.model.EntityReference.mkRef;
 import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
 import static com.khartec.waltz.schema.tables.PhysicalFlow.PHYSICAL_FLOW;
 import static com.khartec.waltz.schema.tables.PhysicalSpecification.PHYSICAL_SPECIFICATION;
+import static java.util.stream.Collectors.toList;
 import static org.jooq.impl.DSL.*;
 
 @Repository
@@ -138,18 +140,36 @@ public class PhysicalSpecificationDao {
 
 
     public PhysicalSpecification getByParsedFlow(PhysicalFlowParsed flow) {
-
-        Condition condition = PHYSICAL_SPECIFICATION.NAME.eq(flow.name())
-                        .and(PHYSICAL_SPECIFICATION.FORMAT.eq(flow.format().name()))
-                        .and(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND.eq(flow.owner().kind().name()))
-                        .and(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.eq(flow.owner().id()))
-                        .and(PHYSICAL_SPEC_NOT_REMOVED);
+        Condition condition = mkParsedFlowCondition(flow)
+                .and(PHYSICAL_SPEC_NOT_REMOVED);
 
         return basicSelectByCondition(condition)
                 .fetchOne(TO_DOMAIN_MAPPER);
     }
 
 
+    /**
+     * Set based equivalent of {@link #getByParsedFlow(PhysicalFlowParsed)}, specs are
+     * matched on owner, format and name.
+     */
+    public List<PhysicalSpecification> findByParsedFlows(Collection<PhysicalFlowParsed> flows) {
+        checkNotNull(flows, "flows cannot be null");
+
+        if (flows.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Condition condition = or(flows
+                    .stream()
+                    .map(this::mkParsedFlowCondition)
+                    .collect(toList()))
+                .and(PHYSICAL_SPEC_NOT_REMOVED);
+
+        return basicSelectByCondition(condition)
+                .fetch(TO_DOMAIN_MAPPER);
+    }
+
+
     public boolean isUsed(long id) {
         Field<Boolean> specUsed = DSL.when(
                     exists(selectFrom(PHYSICAL_FLOW)
@@ -166,6 +186,31 @@ public class PhysicalSpecificationDao {
 
 
     public Long create(PhysicalSpecification specification) {
+        PhysicalSpecificationRecord record = mkRecord(specification);
+        record.store();
+        return record.getId();
+    }
+
+
+    /**
+     * Inserts the given specifications as a single batch.  Generated ids are not
+     * returned, callers should re-query (e.g. via {@link #findByParsedFlows(Collection)}).
+     */
+    public int[] createAll(Collection<PhysicalSpecification> specifications) {
+        checkNotNull(specifications, "specifications cannot be null");
+
+        List<PhysicalSpecificationRecord> records = specifications
+                .stream()
+                .map(this::mkRecord)
+                .collect(toList());
+
+        return dsl
+                .batchInsert(records)
+                .execute();
+    }
+
+
+    private PhysicalSpecificationRecord mkRecord(PhysicalSpecification specification) {
         checkNotNull(specification, "specification cannot be null");
         checkFalse(specification.id().isPresent(), "specification must not have an id");
 
@@ -185,8 +230,7 @@ public class PhysicalSpecificationDao {
         record.setCreatedAt(specification.created().get().atTimestamp());
         record.setCreatedBy(specification.created().get().by());
 
-        record.store();
-        return record.getId();
+        return record;
     }
 
 
@@ -209,6 +253,14 @@ public class PhysicalSpecificationDao {
     }
 
 
+    private Condition mkParsedFlowCondition(PhysicalFlowParsed flow) {
+        return PHYSICAL_SPECIFICATION.NAME.eq(flow.name())
+                .and(PHYSICAL_SPECIFICATION.FORMAT.eq(flow.format().name()))
+                .and(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND.eq(flow.owner().kind().name()))
+                .and(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.eq(flow.owner().id()));
+    }
+
+
     private SelectConditionStep<Record> basicSelectByCondition(Condition in) {
         return dsl
                 .select(PHYSICAL_SPECIFICATION.fields())
@@ -30,25 +30,28 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import org.jooq.lambda.tuple.Tuple2;
+
 import java.sql.Date;
 import java.sql.Timestamp;
 import java.time.LocalDate;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.StreamUtilities.batchProcessingCollector;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
 import static com.khartec.waltz.common.DateTimeUtilities.toSqlDate;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.schema.Tables.*;
 import static java.util.Optional.ofNullable;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class SurveyInstanceDao {
 
+    private static final int ISSUANCE_BATCH_SIZE = 1000;
+
     private static final Field<String> ENTITY_NAME_FIELD = InlineSelectFieldFactory.mkNameField(
                 SURVEY_INSTANCE.ENTITY_ID,
                 SURVEY_INSTANCE.ENTITY_KIND,
@@ -135,19 +138,143 @@ public class SurveyInstanceDao {
         checkNotNull(command, "command cannot be null");
 
         SurveyInstanceRecord record = dsl.newRecord(SURVEY_INSTANCE);
-        record.setSurveyRunId(command.surveyRunId());
-        record.setEntityKind(command.entityReference().kind().name());
-        record.setEntityId(command.entityReference().id());
-        record.setStatus(command.status().name());
-        record.setDueDate(command.dueDate().map(Date::valueOf).orElse(null));
-        record.setOwnerId(command.ownerId());
-        record.setOwningRole(command.owningRole());
+        populateRecord(record, command);
 
         record.store();
         return record.getId();
     }
 
 
+    /**
+     * Issues (or re-issues) the instances and recipients of a survey run in a single transaction.
+     * Instances and recipients are written using batched inserts rather than one statement per row.
+     *
+     * As instance ids are generated by the database, new instances are matched back to their
+     * commands by entity.  Instances created for the same entity in the same run are identical
+     * so it does not matter which recipients end up on which of them.
+     *
+     * @param surveyRunId  the run being issued
+     * @param replaceExisting  if true all existing instances and recipients of the run are deleted first
+     * @param recipientIdsToRemove  existing recipients to delete, instances left without recipients are deleted
+     * @param personIdsToAddByInstanceId  people to add as recipients of existing instances
+     * @param instancesToReissue  existing instances which are kept, they are given the status and due date
+     *                            of the matching command and their submission and approval are cleared
+     * @param instancesToCreate  new instances along with the ids of the people who should receive them
+     * @return  number of recipients created
+     */
+    public int issue(long surveyRunId,
+                     boolean replaceExisting,
+                     Collection<Long> recipientIdsToRemove,
+                     Map<Long, ? extends Collection<Long>> personIdsToAddByInstanceId,
+                     Map<Long, SurveyInstanceCreateCommand> instancesToReissue,
+                     List<Tuple2<SurveyInstanceCreateCommand, ? extends Collection<Long>>> instancesToCreate) {
+        checkNotNull(recipientIdsToRemove, "recipientIdsToRemove cannot be null");
+        checkNotNull(personIdsToAddByInstanceId, "personIdsToAddByInstanceId cannot be null");
+        checkNotNull(instancesToReissue, "instancesToReissue cannot be null");
+        checkNotNull(instancesToCreate, "instancesToCreate cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            Condition isRunInstance = SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId);
+            Select<Record1<Long>> runInstanceIds = DSL
+                    .select(SURVEY_INSTANCE.ID)
+                    .from(SURVEY_INSTANCE)
+                    .where(isRunInstance);
+
+            if (replaceExisting) {
+                txDsl.deleteFrom(SURVEY_INSTANCE_RECIPIENT)
+                        .where(SURVEY_INSTANCE_RECIPIENT.SURVEY_INSTANCE_ID.in(runInstanceIds))
+                        .execute();
+                txDsl.deleteFrom(SURVEY_INSTANCE)
+                        .where(isRunInstance)
+                        .execute();
+            } else if (! recipientIdsToRemove.isEmpty()) {
+                recipientIdsToRemove
+                        .stream()
+                        .collect(batchProcessingCollector(ISSUANCE_BATCH_SIZE, batch -> txDsl
+                                .deleteFrom(SURVEY_INSTANCE_RECIPIENT)
+                                .where(SURVEY_INSTANCE_RECIPIENT.ID.in(batch))
+                                .execute()));
+
+                txDsl.deleteFrom(SURVEY_INSTANCE)
+                        .where(isRunInstance)
+                        .and(IS_ORIGINAL_INSTANCE_CONDITION)
+                        .andNotExists(DSL
+                                .selectFrom(SURVEY_INSTANCE_RECIPIENT)
+                                .where(SURVEY_INSTANCE_RECIPIENT.SURVEY_INSTANCE_ID.eq(SURVEY_INSTANCE.ID)))
+                        .execute();
+            }
+
+            if (! replaceExisting) {
+                instancesToReissue
+                        .entrySet()
+                        .stream()
+                        .collect(Collectors.groupingBy(
+                                e -> tuple(e.getValue().status(), e.getValue().dueDate()),
+                                Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                        .forEach((statusAndDueDate, instanceIds) -> instanceIds
+                                .stream()
+                                .collect(batchProcessingCollector(ISSUANCE_BATCH_SIZE, batch -> txDsl
+                                        .update(SURVEY_INSTANCE)
+                                        .set(SURVEY_INSTANCE.STATUS, statusAndDueDate.v1.name())
+                                        .set(SURVEY_INSTANCE.DUE_DATE, statusAndDueDate.v2.map(Date::valueOf).orElse(null))
+                                        .set(SURVEY_INSTANCE.SUBMITTED_AT, (Timestamp) null)
+                                        .set(SURVEY_INSTANCE.SUBMITTED_BY, (String) null)
+                                        .set(SURVEY_INSTANCE.APPROVED_AT, (Timestamp) null)
+                                        .set(SURVEY_INSTANCE.APPROVED_BY, (String) null)
+                                        .where(SURVEY_INSTANCE.ID.in(batch))
+                                        .execute())));
+            }
+
+            Set<Long> preExistingInstanceIds = new HashSet<>(txDsl
+                    .select(SURVEY_INSTANCE.ID)
+                    .from(SURVEY_INSTANCE)
+                    .where(isRunInstance)
+                    .fetch(SURVEY_INSTANCE.ID));
+
+            instancesToCreate
+                    .stream()
+                    .map(t -> {
+                        SurveyInstanceRecord record = new SurveyInstanceRecord();
+                        populateRecord(record, t.v1);
+                        return record;
+                    })
+                    .collect(batchProcessingCollector(ISSUANCE_BATCH_SIZE, batch -> batchInsert(txDsl, batch)));
+
+            Map<EntityReference, Deque<Long>> newInstanceIdsByEntity = new HashMap<>();
+            txDsl.select(SURVEY_INSTANCE.ID, SURVEY_INSTANCE.ENTITY_KIND, SURVEY_INSTANCE.ENTITY_ID)
+                    .from(SURVEY_INSTANCE)
+                    .where(isRunInstance)
+                    .fetch()
+                    .forEach(r -> {
+                        if (! preExistingInstanceIds.contains(r.value1())) {
+                            newInstanceIdsByEntity
+                                    .computeIfAbsent(
+                                            EntityReference.mkRef(EntityKind.valueOf(r.value2()), r.value3()),
+                                            k -> new ArrayDeque<>())
+                                    .add(r.value1());
+                        }
+                    });
+
+            List<SurveyInstanceRecipientRecord> recipientRecords = new ArrayList<>();
+            personIdsToAddByInstanceId.forEach((instanceId, personIds) ->
+                    personIds.forEach(personId -> recipientRecords.add(mkRecipientRecord(instanceId, personId))));
+
+            instancesToCreate.forEach(t -> {
+                EntityReference ref = t.v1.entityReference();
+                long instanceId = newInstanceIdsByEntity
+                        .get(EntityReference.mkRef(ref.kind(), ref.id()))
+                        .pop();
+                t.v2.forEach(personId -> recipientRecords.add(mkRecipientRecord(instanceId, personId)));
+            });
+            return recipientRecords
+                    .stream()
+                    .collect(batchProcessingCollector(ISSUANCE_BATCH_SIZE, batch -> batchInsert(txDsl, batch)));
+        });
+    }
+
+
     public long createPreviousVersion(SurveyInstance currentInstance) {
         checkNotNull(currentInstance, "currentInstance cannot be null");
 
@@ -351,4 +478,32 @@ public class SurveyInstanceDao {
 
         return dsl.batchInsert(records).execute();
     }
+
+
+    // -- helpers --
+
+    private static void populateRecord(SurveyInstanceRecord record, SurveyInstanceCreateCommand command) {
+        record.setSurveyRunId(command.surveyRunId());
+        record.setEntityKind(command.entityReference().kind().name());
+        record.setEntityId(command.entityReference().id());
+        record.setStatus(command.status().name());
+        record.setDueDate(command.dueDate().map(Date::valueOf).orElse(null));
+        record.setOwnerId(command.ownerId());
+        record.setOwningRole(command.owningRole());
+    }
+
+
+    private static SurveyInstanceRecipientRecord mkRecipientRecord(long instanceId, long personId) {
+        SurveyInstanceRecipientRecord record = new SurveyInstanceRecipientRecord();
+        record.setSurveyInstanceId(instanceId);
+        record.setPersonId(personId);
+        return record;
+    }
+
+
+    private static void batchInsert(DSLContext txDsl, List<? extends TableRecord<?>> records) {
+        if (! records.isEmpty()) {
+            txDsl.batchInsert(records).execute();
+        }
+    }
 }
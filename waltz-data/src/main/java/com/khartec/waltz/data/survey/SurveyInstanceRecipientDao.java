@@ -102,6 +102,20 @@ public class SurveyInstanceRecipientDao {
     }
 
 
+    public List<SurveyInstanceRecipient> findForSurveyRun(long surveyRunId) {
+        return dsl
+                .select(SURVEY_INSTANCE_RECIPIENT.fields())
+                .select(SURVEY_INSTANCE.fields())
+                .select(PERSON.fields())
+                .from(SURVEY_INSTANCE_RECIPIENT)
+                .innerJoin(SURVEY_INSTANCE).on(SURVEY_INSTANCE.ID.eq(SURVEY_INSTANCE_RECIPIENT.SURVEY_INSTANCE_ID))
+                .innerJoin(PERSON).on(PERSON.ID.eq(SURVEY_INSTANCE_RECIPIENT.PERSON_ID))
+                .where(SURVEY_INSTANCE.SURVEY_RUN_ID.eq(surveyRunId))
+                .and(SURVEY_INSTANCE.ORIGINAL_INSTANCE_ID.isNull())
+                .fetch(TO_DOMAIN_MAPPER);
+    }
+
+
     public List<SurveyInstanceRecipient> findForSurveyInstance(long surveyInstanceId) {
         return dsl
                 .select(SURVEY_INSTANCE_RECIPIENT.fields())
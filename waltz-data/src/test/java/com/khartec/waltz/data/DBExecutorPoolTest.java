@@ -0,0 +1,100 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.data;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DBExecutorPoolTest {
+
+    @Test
+    public void tasksAreRunOnNamedPoolThreads() throws Exception {
+        DBExecutorPool pool = new DBExecutorPool(2, 10);
+        Future<String> threadName = pool.submit(() -> Thread.currentThread().getName());
+        assertTrue(threadName.get(5, TimeUnit.SECONDS).startsWith("DB Executor-"));
+    }
+
+
+    @Test
+    public void whenQueueIsFullTasksRunOnTheCaller() throws Exception {
+        DBExecutorPool pool = new DBExecutorPool(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<Boolean> blocker = pool.submit(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        Future<String> queued = pool.submit(() -> Thread.currentThread().getName());
+        Future<String> overflow = pool.submit(() -> Thread.currentThread().getName());
+
+        assertTrue(overflow.isDone());
+        assertEquals(Thread.currentThread().getName(), overflow.get());
+        assertEquals(1, pool.getRejectedTaskCount());
+        assertEquals(1, pool.getCallerRunsTaskCount());
+
+        release.countDown();
+        assertTrue(blocker.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS).startsWith("DB Executor-"));
+    }
+
+
+    @Test
+    public void whenQueueIsFullTasksCanBeRejected() throws Exception {
+        DBExecutorPool pool = new DBExecutorPool(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<Boolean> blocker = pool.submit(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        started.await(5, TimeUnit.SECONDS);
+
+        Future<String> queued = pool.submit(() -> Thread.currentThread().getName());
+
+        try {
+            pool.submitOrReject(() -> Thread.currentThread().getName());
+            fail("expected overflow task to be rejected");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        assertEquals(1, pool.getActiveCount());
+        assertEquals(1, pool.getQueueDepth());
+        assertEquals(1, pool.getRejectedTaskCount());
+        assertEquals(0, pool.getCallerRunsTaskCount());
+
+        release.countDown();
+        assertTrue(blocker.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS).startsWith("DB Executor-"));
+    }
+
+}
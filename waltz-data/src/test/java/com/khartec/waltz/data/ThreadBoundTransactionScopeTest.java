@@ -0,0 +1,210 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.data;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ThreadBoundTransactionScopeTest {
+
+    private final List<RecordingConnection> connections = new ArrayList<>();
+    private ThreadBoundTransactionScope scope;
+    private DSLContext dsl;
+
+
+    @Before
+    public void setUp() {
+        connections.clear();
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(
+                DataSource.class.getClassLoader(),
+                new Class[] { DataSource.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        RecordingConnection connection = new RecordingConnection();
+                        connections.add(connection);
+                        return connection;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        scope = new ThreadBoundTransactionScope(dataSource);
+        dsl = DSL.using(new DefaultConfiguration()
+                .set(scope.connectionProvider())
+                .set(scope.transactionProvider())
+                .set(SQLDialect.H2));
+    }
+
+
+    @Test
+    public void outsideAScopeEachQueryBorrowsItsOwnConnection() {
+        appDaoUpdate();
+        flowDaoUpdate();
+
+        assertEquals(2, connections.size());
+        assertFalse(scope.isActive());
+    }
+
+
+    @Test
+    public void outsideAScopeDslTransactionsCommitOnTheirOwn() {
+        dsl.transaction(ctx -> ctx.dsl().execute("update app set name = 'a'"));
+
+        assertEquals(1, connections.size());
+        assertEquals(1, connections.get(0).commits);
+        assertEquals(0, connections.get(0).rollbacks);
+    }
+
+
+    @Test
+    public void queriesFromSeveralDaosShareOneTransaction() {
+        int updated = scope.inTransaction(() -> appDaoUpdate() + flowDaoUpdate());
+
+        assertEquals(2, updated);
+        assertEquals(1, connections.size());
+        RecordingConnection connection = connections.get(0);
+        assertEquals(1, connection.commits);
+        assertEquals(0, connection.rollbacks);
+        assertTrue("auto commit should be restored", connection.autoCommit);
+        assertFalse(scope.isActive());
+    }
+
+
+    @Test
+    public void nestedTransactionsJoinTheScope() {
+        scope.inTransaction(() -> {
+            appDaoUpdate();
+            dsl.transaction(ctx -> ctx.dsl().execute("update flow set name = 'b'"));
+            return scope.inTransaction(this::flowDaoUpdate);
+        });
+
+        assertEquals(1, connections.size());
+        assertEquals(1, connections.get(0).commits);
+        assertEquals(0, connections.get(0).rollbacks);
+    }
+
+
+    @Test
+    public void failureRollsBackTheWholeScope() {
+        try {
+            scope.inTransaction(() -> {
+                appDaoUpdate();
+                flowDaoUpdate();
+                throw new IllegalArgumentException("boom");
+            });
+            fail("exception should be rethrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("boom", e.getMessage());
+        }
+
+        assertEquals(1, connections.size());
+        assertEquals(0, connections.get(0).commits);
+        assertEquals(1, connections.get(0).rollbacks);
+        assertFalse(scope.isActive());
+    }
+
+
+    @Test
+    public void caughtNestedFailureStillRollsBackTheScope() {
+        try {
+            scope.inTransaction(() -> {
+                appDaoUpdate();
+                try {
+                    dsl.transaction(ctx -> {
+                        throw new IllegalArgumentException("boom");
+                    });
+                } catch (IllegalArgumentException e) {
+                    // swallowed by the caller
+                }
+                return flowDaoUpdate();
+            });
+            fail("scope should report the rollback");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertEquals(1, connections.size());
+        assertEquals(0, connections.get(0).commits);
+        assertEquals(1, connections.get(0).rollbacks);
+    }
+
+
+    // -- HELPERS ---
+
+    private int appDaoUpdate() {
+        return dsl.execute("update app set name = 'a'");
+    }
+
+
+    private int flowDaoUpdate() {
+        return dsl.execute("update flow set name = 'b'");
+    }
+
+
+    private static class RecordingConnection extends MockConnection {
+
+        private boolean autoCommit = true;
+        private int commits = 0;
+        private int rollbacks = 0;
+
+
+        private RecordingConnection() {
+            super(ctx -> new MockResult[] { new MockResult(1, null) });
+        }
+
+
+        @Override
+        public boolean getAutoCommit() {
+            return autoCommit;
+        }
+
+
+        @Override
+        public void setAutoCommit(boolean autoCommit) {
+            this.autoCommit = autoCommit;
+        }
+
+
+        @Override
+        public void commit() {
+            commits++;
+        }
+
+
+        @Override
+        public void rollback() {
+            rollbacks++;
+        }
+    }
+
+}
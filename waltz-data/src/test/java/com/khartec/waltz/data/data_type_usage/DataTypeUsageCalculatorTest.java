@@ -0,0 +1,133 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.data.data_type_usage;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.data_type_usage.DataTypeUsage;
+import com.khartec.waltz.model.data_type_usage.ImmutableDataTypeUsage;
+import com.khartec.waltz.model.system.SystemChangeSet;
+import com.khartec.waltz.model.usage_info.ImmutableUsageInfo;
+import com.khartec.waltz.model.usage_info.UsageKind;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class DataTypeUsageCalculatorTest {
+
+    private static final EntityReference APP = mkRef(EntityKind.APPLICATION, 1);
+    private static final long DT_A = 10;
+    private static final long DT_B = 20;
+
+
+    @Test
+    public void newFlowsGiveSelectedUsagesIncludingOriginators() {
+        SystemChangeSet<DataTypeUsage, DataTypeUsage> changes = DataTypeUsageCalculator.calculate(
+                Collections.emptyList(),
+                newArrayList(
+                        mkUsage(DT_A, UsageKind.DISTRIBUTOR, "", true),
+                        mkUsage(DT_B, UsageKind.DISTRIBUTOR, "", true),
+                        mkUsage(DT_B, UsageKind.CONSUMER, "", true)));
+
+        assertEquals(4, changes.inserts().size());
+        assertTrue(changes.inserts().contains(mkUsage(DT_A, UsageKind.ORIGINATOR, "", true)));
+        assertTrue(changes.updates().isEmpty());
+        assertTrue(changes.deletes().isEmpty());
+    }
+
+
+    @Test
+    public void unchangedUsagesAreNotWritten() {
+        List<DataTypeUsage> existing = newArrayList(
+                mkUsage(DT_A, UsageKind.CONSUMER, "", true),
+                mkUsage(DT_A, UsageKind.MODIFIER, "user comment", true));
+
+        SystemChangeSet<DataTypeUsage, DataTypeUsage> changes = DataTypeUsageCalculator.calculate(
+                existing,
+                newArrayList(mkUsage(DT_A, UsageKind.CONSUMER, "", true)));
+
+        assertTrue(changes.inserts().isEmpty());
+        assertTrue(changes.updates().isEmpty());
+        assertTrue(changes.deletes().isEmpty());
+    }
+
+
+    @Test
+    public void calculatedUsagesNoLongerImpliedAreDeletedOrDeselectedIfCommented() {
+        DataTypeUsage uncommented = mkUsage(DT_A, UsageKind.ORIGINATOR, "", true);
+        DataTypeUsage commented = mkUsage(DT_A, UsageKind.DISTRIBUTOR, "why we send this", true);
+
+        // app now only consumes A, so is neither a distributor nor an originator of it
+        SystemChangeSet<DataTypeUsage, DataTypeUsage> changes = DataTypeUsageCalculator.calculate(
+                newArrayList(uncommented, commented),
+                newArrayList(mkUsage(DT_A, UsageKind.CONSUMER, "", true)));
+
+        assertEquals(newArrayList(uncommented), changes.deletes());
+        assertEquals(newArrayList(mkUsage(DT_A, UsageKind.DISTRIBUTOR, "why we send this", false)), changes.updates());
+        assertEquals(newArrayList(mkUsage(DT_A, UsageKind.CONSUMER, "", true)), changes.inserts());
+    }
+
+
+    @Test
+    public void deselectedCommentedUsagesAreReselectedWhenImpliedAgain() {
+        SystemChangeSet<DataTypeUsage, DataTypeUsage> changes = DataTypeUsageCalculator.calculate(
+                newArrayList(mkUsage(DT_A, UsageKind.CONSUMER, "comment", false)),
+                newArrayList(mkUsage(DT_A, UsageKind.CONSUMER, "", true)));
+
+        assertEquals(newArrayList(mkUsage(DT_A, UsageKind.CONSUMER, "comment", true)), changes.updates());
+        assertTrue(changes.inserts().isEmpty());
+    }
+
+
+    @Test
+    public void usagesOfDataTypesNoLongerOnAnyFlowAreDeletedWhateverTheirKind() {
+        DataTypeUsage modifier = mkUsage(DT_B, UsageKind.MODIFIER, "user comment", true);
+        DataTypeUsage commented = mkUsage(DT_B, UsageKind.CONSUMER, "comment", false);
+
+        SystemChangeSet<DataTypeUsage, DataTypeUsage> changes = DataTypeUsageCalculator.calculate(
+                newArrayList(modifier, commented),
+                newArrayList(mkUsage(DT_A, UsageKind.CONSUMER, "", true)));
+
+        assertEquals(newArrayList(modifier, commented), changes.deletes());
+    }
+
+
+    private static DataTypeUsage mkUsage(long dataTypeId,
+                                         UsageKind kind,
+                                         String description,
+                                         boolean isSelected) {
+        return ImmutableDataTypeUsage.builder()
+                .entityReference(APP)
+                .dataTypeId(dataTypeId)
+                .usage(ImmutableUsageInfo.builder()
+                        .kind(kind)
+                        .description(description)
+                        .isSelected(isSelected)
+                        .build())
+                .provenance("waltz")
+                .build();
+    }
+}
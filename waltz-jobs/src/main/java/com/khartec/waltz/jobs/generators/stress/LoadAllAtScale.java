@@ -0,0 +1,128 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.LoggingUtilities;
+import com.khartec.waltz.jobs.generators.SampleDataGenerator;
+import com.khartec.waltz.service.DIConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.common.ListUtilities.reverse;
+
+
+/**
+ * Loads a scalable, repeatable data set for load testing, sized by a
+ * {@link StressProfile} (see that class for the system properties).
+ *
+ * Generators are grouped into stages, a stage only depends on data
+ * created by earlier stages so the generators within a stage run in
+ * parallel.  Previously generated stress data is removed first, working
+ * back through the stages.
+ *
+ * The target database is whatever <code>DIConfiguration</code> connects
+ * to, this should only ever be a local database.
+ */
+public class LoadAllAtScale {
+
+    private static List<List<SampleDataGenerator>> mkStages(StressProfile profile) {
+        return newArrayList(
+                newArrayList(
+                        new StressOrgUnitGenerator(profile),
+                        new StressMeasurableGenerator(profile)),
+                newArrayList(
+                        new StressPersonGenerator(profile),
+                        new StressAppGenerator(profile)),
+                newArrayList(
+                        new StressLogicalFlowGenerator(profile),
+                        new StressMeasurableRatingGenerator(profile),
+                        new StressSurveyGenerator(profile)));
+    }
+
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
+
+        LoggingUtilities.configureLogging();
+
+        StressProfile profile = StressProfile.fromSystemProperties();
+        log("Loading with profile: %s", profile);
+
+        List<List<SampleDataGenerator>> stages = mkStages(profile);
+        ExecutorService pool = Executors.newFixedThreadPool(profile.getThreads());
+
+        try {
+            long start = System.currentTimeMillis();
+
+            for (List<SampleDataGenerator> stage : reverse(stages)) {
+                runStage(pool, stage, ctx, "Cleanup", SampleDataGenerator::remove);
+            }
+
+            for (List<SampleDataGenerator> stage : stages) {
+                runStage(pool, stage, ctx, "Generate", SampleDataGenerator::create);
+            }
+
+            log("Done in %dms", System.currentTimeMillis() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    /**
+     * Runs every generator in the stage and waits for all of them, the first
+     * failure (if any) is rethrown so later stages do not run against
+     * incomplete data.
+     */
+    private static void runStage(ExecutorService pool,
+                                 List<SampleDataGenerator> stage,
+                                 ApplicationContext ctx,
+                                 String action,
+                                 BiFunction<SampleDataGenerator, ApplicationContext, ?> task) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>();
+        for (SampleDataGenerator generator : stage) {
+            futures.add(pool.submit(() -> {
+                String name = generator.getClass().getSimpleName();
+                long start = System.currentTimeMillis();
+                Object result = task.apply(generator, ctx);
+                log("%s: %s took %dms %s", action, name, System.currentTimeMillis() - start, result instanceof Map ? result : "");
+                return result;
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+
+    private static void log(String s, Object... args) {
+        System.out.println(String.format(s, args));
+    }
+}
@@ -44,8 +44,9 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 
 /**
  * This generator app creates lots of flows for a given application id.
- * The application is specified via the `appId` variable and the number
- * of flows to generate is specified via the `HOW_MANY_FLOWS` constant.
+ * The application is specified via the `waltz.stress.app.id` system
+ * property and the number of flows to generate via `waltz.stress.flow.count`.
+ * For a whole data set sized by a scale factor see {@link LoadAllAtScale}.
  *
  * Generated flows alternate between inbound and outbound flows and
  * connect to any active application.
@@ -57,7 +58,7 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 public class LogicalFlowStressGenerator {
 
     private static final String PROVENANCE = "stress";
-    private static final int HOW_MANY_FLOWS = 100;
+    private static final int HOW_MANY_FLOWS = Integer.getInteger("waltz.stress.flow.count", 100);
     private static final int MAX_DATA_TYPES_PER_FLOW = 4;
 
     private final AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext(DIConfiguration.class);
@@ -66,7 +67,7 @@ public class LogicalFlowStressGenerator {
     private final LogicalFlowDao lfDao = ctx.getBean(LogicalFlowDao.class);
 
 
-    private final long appId = 655L;
+    private final long appId = Long.getLong("waltz.stress.app.id", 655L);
 
     public static void main(String[] args) {
         new LogicalFlowStressGenerator().go();
@@ -0,0 +1,104 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.DateTimeUtilities;
+import com.khartec.waltz.common.MapUtilities;
+import com.khartec.waltz.model.Criticality;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.application.ApplicationKind;
+import com.khartec.waltz.model.application.LifecyclePhase;
+import com.khartec.waltz.model.rating.RagRating;
+import com.khartec.waltz.schema.tables.records.ApplicationRecord;
+import org.jooq.DSLContext;
+import org.springframework.context.ApplicationContext;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
+
+
+/**
+ * Generates applications spread randomly across the stress org units.
+ */
+public class StressAppGenerator extends StressDataGenerator {
+
+    private static final RagRating[] RATINGS = { RagRating.R, RagRating.A, RagRating.A, RagRating.G, RagRating.G };
+
+
+    public StressAppGenerator(StressProfile profile) {
+        super(profile);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        long[] orgUnitIds = loadIds(
+                dsl,
+                ORGANISATIONAL_UNIT.ID,
+                ORGANISATIONAL_UNIT.PROVENANCE.eq(StressProfile.PROVENANCE));
+        checkTrue(orgUnitIds.length > 0, "No stress org units found, please generate them first");
+
+        Timestamp now = DateTimeUtilities.nowUtcTimestamp();
+
+        Stream<ApplicationRecord> records = IntStream
+                .range(0, profile.getAppCount())
+                .mapToObj(i -> {
+                    LifecyclePhase phase = rnd.nextInt(10) > 7
+                            ? pick(LifecyclePhase.values())
+                            : LifecyclePhase.PRODUCTION;
+
+                    ApplicationRecord record = new ApplicationRecord();
+                    record.setName("Stress App " + i);
+                    record.setDescription("Generated application " + i);
+                    record.setAssetCode("stress-" + i);
+                    record.setParentAssetCode("");
+                    record.setOrganisationalUnitId(pick(orgUnitIds));
+                    record.setKind(pick(ApplicationKind.values()).name());
+                    record.setLifecyclePhase(phase.name());
+                    record.setOverallRating(pick(RATINGS).name());
+                    record.setBusinessCriticality(pick(Criticality.values()).name());
+                    record.setCreatedAt(now);
+                    record.setUpdatedAt(now);
+                    record.setProvenance(StressProfile.PROVENANCE);
+                    record.setIsRemoved(false);
+                    record.setEntityLifecycleStatus(EntityLifecycleStatus.ACTIVE.name());
+                    return record;
+                });
+
+        return MapUtilities.newHashMap("created", insertInBatches(dsl, records));
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        getDsl(ctx)
+                .deleteFrom(APPLICATION)
+                .where(APPLICATION.PROVENANCE.eq(StressProfile.PROVENANCE))
+                .execute();
+        return true;
+    }
+}
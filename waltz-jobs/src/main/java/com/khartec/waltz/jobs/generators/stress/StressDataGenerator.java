@@ -0,0 +1,87 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.jobs.generators.SampleDataGenerator;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.TableField;
+import org.jooq.TableRecord;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.StreamUtilities.batchProcessingCollector;
+
+
+/**
+ * Base for generators which size their output from a {@link StressProfile}.
+ * Records are written in batches of <code>profile.getBatchSize()</code> so
+ * memory use stays flat as the scale grows.
+ */
+public abstract class StressDataGenerator implements SampleDataGenerator {
+
+    protected final StressProfile profile;
+    protected final Random rnd;
+
+
+    protected StressDataGenerator(StressProfile profile) {
+        checkNotNull(profile, "profile cannot be null");
+        this.profile = profile;
+        this.rnd = profile.mkRandom(getClass().getSimpleName());
+    }
+
+
+    protected int insertInBatches(DSLContext dsl, Stream<? extends TableRecord<?>> records) {
+        return records.collect(batchProcessingCollector(
+                profile.getBatchSize(),
+                batch -> dsl.batchInsert(batch).execute()));
+    }
+
+
+    /**
+     * Ids are returned in ascending order so that random picks from them
+     * are repeatable for a given seed.
+     */
+    protected long[] loadIds(DSLContext dsl,
+                             TableField<? extends Record, Long> idCol,
+                             Condition condition) {
+        return dsl
+                .select(idCol)
+                .from(idCol.getTable())
+                .where(condition)
+                .orderBy(idCol)
+                .fetch(idCol)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+
+    protected <T> T pick(T[] ts) {
+        return ts[rnd.nextInt(ts.length)];
+    }
+
+
+    protected long pick(long[] ids) {
+        return ids[rnd.nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.MapUtilities;
+import com.khartec.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.jobs.WaltzUtilities.mkLogicalFlowDecoratorRecord;
+import static com.khartec.waltz.jobs.WaltzUtilities.mkLogicalFlowRecord;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.DataType.DATA_TYPE;
+import static com.khartec.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
+import static com.khartec.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Generates logical flows between randomly chosen stress applications and
+ * decorates each flow with up to <code>profile.getMaxDataTypesPerFlow()</code>
+ * of the existing data types.
+ */
+public class StressLogicalFlowGenerator extends StressDataGenerator {
+
+    public StressLogicalFlowGenerator(StressProfile profile) {
+        super(profile);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        long[] appIds = loadIds(
+                dsl,
+                APPLICATION.ID,
+                APPLICATION.PROVENANCE.eq(StressProfile.PROVENANCE));
+        checkTrue(appIds.length > 1, "Need at least two stress applications, please generate them first");
+
+        Set<Tuple2<Long, Long>> pairs = mkSourceTargetPairs(appIds, profile.getFlowCount());
+
+        int flowCount = insertInBatches(
+                dsl,
+                pairs.stream().map(t -> mkLogicalFlowRecord(t.v1, t.v2, StressProfile.PROVENANCE)));
+
+        long[] dataTypeIds = loadIds(dsl, DATA_TYPE.ID, DSL.trueCondition());
+        if (dataTypeIds.length == 0) {
+            log("No data types found, flows will not be decorated");
+            return MapUtilities.newHashMap("created", flowCount);
+        }
+
+        long[] flowIds = loadIds(
+                dsl,
+                LOGICAL_FLOW.ID,
+                LOGICAL_FLOW.PROVENANCE.eq(StressProfile.PROVENANCE));
+
+        Stream<LogicalFlowDecoratorRecord> decorators = Arrays
+                .stream(flowIds)
+                .boxed()
+                .flatMap(flowId -> rnd
+                        .longs(rnd.nextInt(profile.getMaxDataTypesPerFlow()) + 1, 0, dataTypeIds.length)
+                        .map(idx -> dataTypeIds[(int) idx])
+                        .distinct()
+                        .mapToObj(dtId -> mkLogicalFlowDecoratorRecord(flowId, dtId, StressProfile.PROVENANCE)));
+
+        int decoratorCount = insertInBatches(dsl, decorators);
+
+        return MapUtilities.newHashMap(
+                "created", flowCount,
+                "decorators", decoratorCount);
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        dsl.deleteFrom(LOGICAL_FLOW_DECORATOR)
+                .where(LOGICAL_FLOW_DECORATOR.PROVENANCE.eq(StressProfile.PROVENANCE))
+                .execute();
+
+        dsl.deleteFrom(LOGICAL_FLOW)
+                .where(LOGICAL_FLOW.PROVENANCE.eq(StressProfile.PROVENANCE))
+                .execute();
+        return true;
+    }
+
+
+    /**
+     * Picks distinct, non self referencing, source/target pairs.  Gives up
+     * after a bounded number of attempts so small scales with few apps
+     * cannot loop forever.
+     */
+    private Set<Tuple2<Long, Long>> mkSourceTargetPairs(long[] appIds, int howMany) {
+        Set<Tuple2<Long, Long>> pairs = new LinkedHashSet<>(howMany);
+        long maxAttempts = howMany * 3L;
+        for (long attempt = 0; attempt < maxAttempts && pairs.size() < howMany; attempt++) {
+            long source = pick(appIds);
+            long target = pick(appIds);
+            if (source != target) {
+                pairs.add(tuple(source, target));
+            }
+        }
+        return pairs;
+    }
+}
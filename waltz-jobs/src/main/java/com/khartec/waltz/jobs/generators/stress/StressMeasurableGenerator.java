@@ -0,0 +1,130 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.DateTimeUtilities;
+import com.khartec.waltz.common.MapUtilities;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.schema.tables.Measurable;
+import com.khartec.waltz.schema.tables.records.MeasurableRecord;
+import com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.jooq.DSLContext;
+import org.springframework.context.ApplicationContext;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.jobs.WaltzUtilities.getOrCreateMeasurableCategory;
+import static com.khartec.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
+import static com.khartec.waltz.schema.tables.Measurable.MEASURABLE;
+import static org.jooq.impl.DSL.select;
+
+
+/**
+ * Generates a single taxonomy in its own measurable category, leaf nodes
+ * are concrete so they can be rated.
+ */
+public class StressMeasurableGenerator extends StressDataGenerator {
+
+    public static final String CATEGORY_EXTERNAL_ID = "STRESS_PROFILE";
+
+
+    public StressMeasurableGenerator(StressProfile profile) {
+        super(profile);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+        long categoryId = getCategoryId(dsl);
+
+        int count = profile.getMeasurableCount();
+        int[] parents = new int[count];
+        boolean[] hasChildren = new boolean[count];
+        for (int i = 1; i < count; i++) {
+            parents[i] = rnd.nextInt(Math.max(1, i / 4));
+            hasChildren[parents[i]] = true;
+        }
+
+        Timestamp now = DateTimeUtilities.nowUtcTimestamp();
+
+        Stream<MeasurableRecord> records = IntStream
+                .range(0, count)
+                .mapToObj(i -> {
+                    MeasurableRecord record = new MeasurableRecord();
+                    record.setName("Stress Measurable " + i);
+                    record.setDescription("Generated measurable " + i);
+                    record.setExternalId(toExternalId(i));
+                    record.setExternalParentId(i == 0 ? null : toExternalId(parents[i]));
+                    record.setConcrete(! hasChildren[i]);
+                    record.setMeasurableCategoryId(categoryId);
+                    record.setLastUpdatedAt(now);
+                    record.setLastUpdatedBy(SAMPLE_DATA_USER);
+                    record.setProvenance(StressProfile.PROVENANCE);
+                    return record;
+                });
+
+        int inserted = insertInBatches(dsl, records);
+
+        Measurable parent = MEASURABLE.as("parent");
+        dsl.update(MEASURABLE)
+                .set(MEASURABLE.PARENT_ID, select(parent.ID)
+                        .from(parent)
+                        .where(parent.EXTERNAL_ID.eq(MEASURABLE.EXTERNAL_PARENT_ID))
+                        .and(parent.MEASURABLE_CATEGORY_ID.eq(categoryId)))
+                .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId))
+                .and(MEASURABLE.EXTERNAL_PARENT_ID.isNotNull())
+                .execute();
+
+        log("Rebuilding hierarchy for measurable category: %d", categoryId);
+        ctx.getBean(EntityHierarchyService.class).buildForMeasurableByCategory(categoryId);
+
+        return MapUtilities.newHashMap("created", inserted);
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+        Long categoryId = getCategoryId(dsl);
+        dsl.deleteFrom(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(EntityKind.MEASURABLE.name()))
+                .and(ENTITY_HIERARCHY.ID.in(select(MEASURABLE.ID)
+                        .from(MEASURABLE)
+                        .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId))))
+                .execute();
+        dsl.deleteFrom(MEASURABLE)
+                .where(MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId))
+                .execute();
+        return true;
+    }
+
+
+    private static Long getCategoryId(DSLContext dsl) {
+        return getOrCreateMeasurableCategory(dsl, CATEGORY_EXTERNAL_ID, "Stress Profile");
+    }
+
+
+    private static String toExternalId(int i) {
+        return "stress-m-" + i;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.DateTimeUtilities;
+import com.khartec.waltz.common.MapUtilities;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.schema.tables.records.MeasurableRatingRecord;
+import org.jooq.DSLContext;
+import org.springframework.context.ApplicationContext;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.Measurable.MEASURABLE;
+import static com.khartec.waltz.schema.tables.MeasurableCategory.MEASURABLE_CATEGORY;
+import static com.khartec.waltz.schema.tables.MeasurableRating.MEASURABLE_RATING;
+
+
+/**
+ * Rates every stress application against up to
+ * <code>profile.getMaxRatingsPerApp()</code> concrete stress measurables.
+ */
+public class StressMeasurableRatingGenerator extends StressDataGenerator {
+
+    private static final String[] RATINGS = { "R", "A", "G" };
+
+
+    public StressMeasurableRatingGenerator(StressProfile profile) {
+        super(profile);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        long[] appIds = loadIds(
+                dsl,
+                APPLICATION.ID,
+                APPLICATION.PROVENANCE.eq(StressProfile.PROVENANCE));
+
+        long[] measurableIds = loadIds(
+                dsl,
+                MEASURABLE.ID,
+                MEASURABLE.CONCRETE.isTrue()
+                        .and(MEASURABLE.MEASURABLE_CATEGORY_ID.in(dsl
+                                .select(MEASURABLE_CATEGORY.ID)
+                                .from(MEASURABLE_CATEGORY)
+                                .where(MEASURABLE_CATEGORY.EXTERNAL_ID.eq(StressMeasurableGenerator.CATEGORY_EXTERNAL_ID)))));
+
+        checkTrue(appIds.length > 0, "No stress applications found, please generate them first");
+        checkTrue(measurableIds.length > 0, "No stress measurables found, please generate them first");
+
+        Timestamp now = DateTimeUtilities.nowUtcTimestamp();
+
+        Stream<MeasurableRatingRecord> records = Arrays
+                .stream(appIds)
+                .boxed()
+                .flatMap(appId -> rnd
+                        .longs(rnd.nextInt(profile.getMaxRatingsPerApp() + 1), 0, measurableIds.length)
+                        .map(idx -> measurableIds[(int) idx])
+                        .distinct()
+                        .mapToObj(measurableId -> {
+                            MeasurableRatingRecord record = new MeasurableRatingRecord();
+                            record.setEntityId(appId);
+                            record.setEntityKind(EntityKind.APPLICATION.name());
+                            record.setMeasurableId(measurableId);
+                            record.setRating(pick(RATINGS));
+                            record.setLastUpdatedAt(now);
+                            record.setLastUpdatedBy(SAMPLE_DATA_USER);
+                            record.setProvenance(StressProfile.PROVENANCE);
+                            return record;
+                        }));
+
+        return MapUtilities.newHashMap("created", insertInBatches(dsl, records));
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        getDsl(ctx)
+                .deleteFrom(MEASURABLE_RATING)
+                .where(MEASURABLE_RATING.PROVENANCE.eq(StressProfile.PROVENANCE))
+                .execute();
+        return true;
+    }
+}
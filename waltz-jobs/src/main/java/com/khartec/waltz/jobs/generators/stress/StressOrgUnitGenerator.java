@@ -0,0 +1,100 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.DateTimeUtilities;
+import com.khartec.waltz.common.MapUtilities;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.schema.tables.records.OrganisationalUnitRecord;
+import com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService;
+import org.jooq.DSLContext;
+import org.springframework.context.ApplicationContext;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
+import static org.jooq.impl.DSL.max;
+
+
+/**
+ * Generates a single tree of org units, each unit hangs off a randomly
+ * chosen, previously generated, unit.  The org unit hierarchy is rebuilt
+ * afterwards so hierarchy based selectors see the new units.
+ */
+public class StressOrgUnitGenerator extends StressDataGenerator {
+
+    public StressOrgUnitGenerator(StressProfile profile) {
+        super(profile);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        // org unit ids are not generated by the database
+        long baseId = Optional
+                .ofNullable(dsl.select(max(ORGANISATIONAL_UNIT.ID)).from(ORGANISATIONAL_UNIT).fetchOne().value1())
+                .orElse(0L) + 1;
+
+        Timestamp now = DateTimeUtilities.nowUtcTimestamp();
+
+        Stream<OrganisationalUnitRecord> records = IntStream
+                .range(0, profile.getOrgUnitCount())
+                .mapToObj(i -> {
+                    OrganisationalUnitRecord record = new OrganisationalUnitRecord();
+                    record.setId(baseId + i);
+                    record.setParentId(i == 0 ? null : baseId + rnd.nextInt(i));
+                    record.setName("Stress Org Unit " + i);
+                    record.setDescription("Generated org unit " + i);
+                    record.setExternalId("stress-ou-" + i);
+                    record.setCreatedAt(now);
+                    record.setLastUpdatedAt(now);
+                    record.setCreatedBy(SAMPLE_DATA_USER);
+                    record.setLastUpdatedBy(SAMPLE_DATA_USER);
+                    record.setProvenance(StressProfile.PROVENANCE);
+                    return record;
+                });
+
+        int created = insertInBatches(dsl, records);
+        getEntityHierarchyService(ctx).buildFor(EntityKind.ORG_UNIT);
+
+        return MapUtilities.newHashMap("created", created);
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        getDsl(ctx)
+                .deleteFrom(ORGANISATIONAL_UNIT)
+                .where(ORGANISATIONAL_UNIT.PROVENANCE.eq(StressProfile.PROVENANCE))
+                .execute();
+        getEntityHierarchyService(ctx).buildFor(EntityKind.ORG_UNIT);
+        return true;
+    }
+
+
+    private static EntityHierarchyService getEntityHierarchyService(ApplicationContext ctx) {
+        return ctx.getBean(EntityHierarchyService.class);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.MapUtilities;
+import com.khartec.waltz.jobs.generators.SampleData;
+import com.khartec.waltz.model.person.PersonKind;
+import com.khartec.waltz.schema.tables.records.PersonRecord;
+import com.khartec.waltz.service.person_hierarchy.PersonHierarchyService;
+import org.jooq.DSLContext;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
+import static com.khartec.waltz.schema.tables.Person.PERSON;
+
+
+/**
+ * Generates a single management tree of people.  Each person reports to
+ * someone in the first quarter of the people generated before them, which
+ * gives a hierarchy that widens and deepens as the scale grows.
+ */
+public class StressPersonGenerator extends StressDataGenerator {
+
+    static final String EMPLOYEE_ID_PREFIX = "stress-";
+
+
+    public StressPersonGenerator(StressProfile profile) {
+        super(profile);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        long[] orgUnitIds = loadIds(
+                dsl,
+                ORGANISATIONAL_UNIT.ID,
+                ORGANISATIONAL_UNIT.PROVENANCE.eq(StressProfile.PROVENANCE));
+        checkTrue(orgUnitIds.length > 0, "No stress org units found, please generate them first");
+
+        Stream<PersonRecord> records = IntStream
+                .range(0, profile.getPersonCount())
+                .mapToObj(i -> {
+                    PersonRecord record = new PersonRecord();
+                    record.setEmployeeId(EMPLOYEE_ID_PREFIX + i);
+                    record.setManagerEmployeeId(i == 0
+                            ? null
+                            : EMPLOYEE_ID_PREFIX + rnd.nextInt(Math.max(1, i / 4)));
+                    record.setDisplayName("Stress Person " + i);
+                    record.setEmail(EMPLOYEE_ID_PREFIX + i + "@example.com");
+                    record.setUserPrincipalName(EMPLOYEE_ID_PREFIX + i);
+                    record.setKind(pick(PersonKind.values()).name());
+                    record.setTitle(pick(SampleData.jobTitles[Math.min(i, SampleData.jobTitles.length - 1)]));
+                    record.setDepartmentName(pick(SampleData.departmentNames));
+                    record.setOrganisationalUnitId(pick(orgUnitIds));
+                    record.setIsRemoved(false);
+                    return record;
+                });
+
+        int count = insertInBatches(dsl, records);
+
+        log("Rebuilding person hierarchy");
+        ctx.getBean(PersonHierarchyService.class).build();
+
+        return MapUtilities.newHashMap("created", count);
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        getDsl(ctx)
+                .deleteFrom(PERSON)
+                .where(PERSON.EMPLOYEE_ID.startsWith(EMPLOYEE_ID_PREFIX))
+                .execute();
+        return true;
+    }
+}
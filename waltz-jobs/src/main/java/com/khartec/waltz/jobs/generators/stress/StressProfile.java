@@ -0,0 +1,174 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import java.util.Random;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+
+
+/**
+ * Describes how much synthetic data the stress generators should produce.
+ *
+ * All counts are derived from a single <code>scale</code> factor, a scale
+ * of 1 produces roughly the same volumes as the demo data set.  Every
+ * generator draws from its own {@link Random}, seeded from the profile
+ * seed and the generator name, so a given seed and scale always produces
+ * the same data regardless of how the generators are scheduled.
+ *
+ * Profiles are usually read from system properties, e.g.:
+ * <pre>
+ *     -Dwaltz.stress.scale=20 -Dwaltz.stress.seed=42 -Dwaltz.stress.batch.size=2000 -Dwaltz.stress.threads=4
+ * </pre>
+ */
+public class StressProfile {
+
+    // distinct from the "stress" provenance used by LogicalFlowStressGenerator, so neither removes the other's data
+    public static final String PROVENANCE = "stress-profile";
+
+    private static final int ORG_UNITS_PER_SCALE = 20;
+    private static final int PEOPLE_PER_SCALE = 1000;
+    private static final int APPS_PER_SCALE = 500;
+    private static final int MEASURABLES_PER_SCALE = 500;
+    private static final int FLOWS_PER_APP = 5;
+    private static final int SURVEY_RUNS_PER_SCALE = 5;
+
+    private final int scale;
+    private final long seed;
+    private final int batchSize;
+    private final int threads;
+
+
+    public StressProfile(int scale, long seed, int batchSize, int threads) {
+        checkTrue(scale > 0, "scale must be positive");
+        checkTrue(batchSize > 0, "batchSize must be positive");
+        checkTrue(threads > 0, "threads must be positive");
+        this.scale = scale;
+        this.seed = seed;
+        this.batchSize = batchSize;
+        this.threads = threads;
+    }
+
+
+    public static StressProfile fromSystemProperties() {
+        return new StressProfile(
+                Integer.getInteger("waltz.stress.scale", 1),
+                Long.getLong("waltz.stress.seed", 1L),
+                Integer.getInteger("waltz.stress.batch.size", 1000),
+                Integer.getInteger("waltz.stress.threads", Runtime.getRuntime().availableProcessors()));
+    }
+
+
+    /**
+     * @param generatorName  distinguishes the random streams of different generators
+     * @return a random number generator which is repeatable for this profile and name
+     */
+    public Random mkRandom(String generatorName) {
+        return new Random(seed * 31 + generatorName.hashCode());
+    }
+
+
+    public int getScale() {
+        return scale;
+    }
+
+
+    public long getSeed() {
+        return seed;
+    }
+
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+
+    public int getThreads() {
+        return threads;
+    }
+
+
+    public int getOrgUnitCount() {
+        return ORG_UNITS_PER_SCALE * scale;
+    }
+
+
+    public int getPersonCount() {
+        return PEOPLE_PER_SCALE * scale;
+    }
+
+
+    public int getAppCount() {
+        return APPS_PER_SCALE * scale;
+    }
+
+
+    public int getMeasurableCount() {
+        return MEASURABLES_PER_SCALE * scale;
+    }
+
+
+    public int getFlowCount() {
+        return getAppCount() * FLOWS_PER_APP;
+    }
+
+
+    public int getMaxDataTypesPerFlow() {
+        return 4;
+    }
+
+
+    public int getMaxRatingsPerApp() {
+        return 12;
+    }
+
+
+    public int getSurveyRunCount() {
+        return SURVEY_RUNS_PER_SCALE * scale;
+    }
+
+
+    /**
+     * Each run targets a tenth of the applications.
+     */
+    public int getSurveyInstancesPerRun() {
+        return Math.max(1, getAppCount() / 10);
+    }
+
+
+    public int getMaxRecipientsPerSurveyInstance() {
+        return 3;
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("StressProfile{");
+        sb.append("scale=").append(scale);
+        sb.append(", seed=").append(seed);
+        sb.append(", batchSize=").append(batchSize);
+        sb.append(", threads=").append(threads);
+        sb.append(", apps=").append(getAppCount());
+        sb.append(", flows=").append(getFlowCount());
+        sb.append(", people=").append(getPersonCount());
+        sb.append(", measurables=").append(getMeasurableCount());
+        sb.append('}');
+        return sb.toString();
+    }
+}
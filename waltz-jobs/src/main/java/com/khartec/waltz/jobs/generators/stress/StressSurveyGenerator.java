@@ -0,0 +1,220 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.jobs.generators.stress;
+
+import com.khartec.waltz.common.DateTimeUtilities;
+import com.khartec.waltz.common.MapUtilities;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import com.khartec.waltz.model.ReleaseLifecycleStatus;
+import com.khartec.waltz.model.survey.SurveyInstanceStatus;
+import com.khartec.waltz.model.survey.SurveyIssuanceKind;
+import com.khartec.waltz.model.survey.SurveyRunStatus;
+import com.khartec.waltz.schema.tables.records.SurveyInstanceRecipientRecord;
+import com.khartec.waltz.schema.tables.records.SurveyInstanceRecord;
+import com.khartec.waltz.schema.tables.records.SurveyRunRecord;
+import com.khartec.waltz.schema.tables.records.SurveyTemplateRecord;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.springframework.context.ApplicationContext;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.schema.tables.Application.APPLICATION;
+import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
+import static com.khartec.waltz.schema.tables.Person.PERSON;
+import static com.khartec.waltz.schema.tables.SurveyInstance.SURVEY_INSTANCE;
+import static com.khartec.waltz.schema.tables.SurveyInstanceRecipient.SURVEY_INSTANCE_RECIPIENT;
+import static com.khartec.waltz.schema.tables.SurveyRun.SURVEY_RUN;
+import static com.khartec.waltz.schema.tables.SurveyTemplate.SURVEY_TEMPLATE;
+import static org.jooq.impl.DSL.select;
+
+
+/**
+ * Generates survey runs against a dedicated application template.  Each
+ * run has <code>profile.getSurveyInstancesPerRun()</code> instances, each
+ * with up to <code>profile.getMaxRecipientsPerSurveyInstance()</code>
+ * recipients drawn from the stress people.  No question responses are
+ * generated.
+ */
+public class StressSurveyGenerator extends StressDataGenerator {
+
+    private static final String TEMPLATE_NAME = "Stress Template (STRESS)";
+    private static final String RUN_SUFFIX = "(STRESS)";
+    private static final Condition STRESS_PERSON_CONDITION = PERSON.EMPLOYEE_ID.startsWith(StressPersonGenerator.EMPLOYEE_ID_PREFIX);
+
+    private static final SurveyInstanceStatus[] INSTANCE_STATUSES = {
+            SurveyInstanceStatus.NOT_STARTED,
+            SurveyInstanceStatus.IN_PROGRESS,
+            SurveyInstanceStatus.COMPLETED
+    };
+
+
+    public StressSurveyGenerator(StressProfile profile) {
+        super(profile);
+    }
+
+
+    @Override
+    public Map<String, Integer> create(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        long[] appIds = loadIds(dsl, APPLICATION.ID, APPLICATION.PROVENANCE.eq(StressProfile.PROVENANCE));
+        long[] personIds = loadIds(dsl, PERSON.ID, STRESS_PERSON_CONDITION);
+        long[] orgUnitIds = loadIds(dsl, ORGANISATIONAL_UNIT.ID, ORGANISATIONAL_UNIT.PROVENANCE.eq(StressProfile.PROVENANCE));
+
+        checkTrue(appIds.length > 0, "No stress applications found, please generate them first");
+        checkTrue(personIds.length > 0, "No stress people found, please generate them first");
+        checkTrue(orgUnitIds.length > 0, "No stress org units found, please generate them first");
+
+        SurveyTemplateRecord template = dsl.newRecord(SURVEY_TEMPLATE);
+        template.setName(TEMPLATE_NAME);
+        template.setDescription("Template for generated stress survey runs");
+        template.setTargetEntityKind(EntityKind.APPLICATION.name());
+        template.setOwnerId(personIds[0]);
+        template.setCreatedAt(DateTimeUtilities.nowUtcTimestamp());
+        template.setStatus(ReleaseLifecycleStatus.ACTIVE.name());
+        template.store();
+
+        Map<Long, String> emailsByPersonId = dsl
+                .select(PERSON.ID, PERSON.EMAIL)
+                .from(PERSON)
+                .where(STRESS_PERSON_CONDITION)
+                .fetchMap(PERSON.ID, PERSON.EMAIL);
+
+        LocalDate today = DateTimeUtilities.today();
+
+        Stream<SurveyRunRecord> runs = IntStream
+                .range(0, profile.getSurveyRunCount())
+                .mapToObj(i -> {
+                    long ownerId = pick(personIds);
+                    LocalDate issuedOn = today.minusDays(rnd.nextInt(30));
+
+                    SurveyRunRecord record = new SurveyRunRecord();
+                    record.setSurveyTemplateId(template.getId());
+                    record.setName("Stress Run " + i + " " + RUN_SUFFIX);
+                    record.setDescription("Generated survey run " + i);
+                    record.setSelectorEntityKind(EntityKind.ORG_UNIT.name());
+                    record.setSelectorEntityId(pick(orgUnitIds));
+                    record.setSelectorHierarchyScope(HierarchyQueryScope.CHILDREN.name());
+                    record.setIssuanceKind(pick(SurveyIssuanceKind.values()).name());
+                    record.setIssuedOn(Date.valueOf(issuedOn));
+                    record.setDueDate(Date.valueOf(issuedOn.plusDays(rnd.nextInt(120) + 1)));
+                    record.setOwnerId(ownerId);
+                    record.setContactEmail(emailsByPersonId.get(ownerId));
+                    record.setStatus(SurveyRunStatus.ISSUED.name());
+                    return record;
+                });
+
+        int runCount = insertInBatches(dsl, runs);
+
+        long[] runIds = loadIds(dsl, SURVEY_RUN.ID, SURVEY_RUN.SURVEY_TEMPLATE_ID.eq(template.getId()));
+        int instancesPerRun = Math.min(profile.getSurveyInstancesPerRun(), appIds.length);
+        Date dueDate = Date.valueOf(today.plusDays(30));
+
+        Stream<SurveyInstanceRecord> instances = Arrays
+                .stream(runIds)
+                .boxed()
+                .flatMap(runId -> rnd
+                        .ints(0, appIds.length)
+                        .distinct()
+                        .limit(instancesPerRun)
+                        .mapToObj(idx -> {
+                            SurveyInstanceRecord record = new SurveyInstanceRecord();
+                            record.setSurveyRunId(runId);
+                            record.setEntityKind(EntityKind.APPLICATION.name());
+                            record.setEntityId(appIds[idx]);
+                            record.setStatus(pick(INSTANCE_STATUSES).name());
+                            record.setDueDate(dueDate);
+                            return record;
+                        }));
+
+        int instanceCount = insertInBatches(dsl, instances);
+
+        long[] instanceIds = loadIds(dsl, SURVEY_INSTANCE.ID, SURVEY_INSTANCE.SURVEY_RUN_ID.in(runIdSelector()));
+
+        Stream<SurveyInstanceRecipientRecord> recipients = Arrays
+                .stream(instanceIds)
+                .boxed()
+                .flatMap(instanceId -> rnd
+                        .longs(rnd.nextInt(profile.getMaxRecipientsPerSurveyInstance()) + 1, 0, personIds.length)
+                        .map(idx -> personIds[(int) idx])
+                        .distinct()
+                        .mapToObj(personId -> {
+                            SurveyInstanceRecipientRecord record = new SurveyInstanceRecipientRecord();
+                            record.setSurveyInstanceId(instanceId);
+                            record.setPersonId(personId);
+                            return record;
+                        }));
+
+        int recipientCount = insertInBatches(dsl, recipients);
+
+        return MapUtilities.newHashMap(
+                "runs", runCount,
+                "instances", instanceCount,
+                "recipients", recipientCount);
+    }
+
+
+    @Override
+    public boolean remove(ApplicationContext ctx) {
+        DSLContext dsl = getDsl(ctx);
+
+        Select<Record1<Long>> instanceIdSelector = select(SURVEY_INSTANCE.ID)
+                .from(SURVEY_INSTANCE)
+                .where(SURVEY_INSTANCE.SURVEY_RUN_ID.in(runIdSelector()));
+
+        dsl.deleteFrom(SURVEY_INSTANCE_RECIPIENT)
+                .where(SURVEY_INSTANCE_RECIPIENT.SURVEY_INSTANCE_ID.in(instanceIdSelector))
+                .execute();
+
+        dsl.deleteFrom(SURVEY_INSTANCE)
+                .where(SURVEY_INSTANCE.SURVEY_RUN_ID.in(runIdSelector()))
+                .execute();
+
+        dsl.deleteFrom(SURVEY_RUN)
+                .where(stressRunCondition())
+                .execute();
+
+        dsl.deleteFrom(SURVEY_TEMPLATE)
+                .where(SURVEY_TEMPLATE.NAME.eq(TEMPLATE_NAME))
+                .execute();
+        return true;
+    }
+
+
+    private static Condition stressRunCondition() {
+        return SURVEY_RUN.NAME.endsWith(" " + RUN_SUFFIX);
+    }
+
+
+    private static Select<Record1<Long>> runIdSelector() {
+        return select(SURVEY_RUN.ID)
+                .from(SURVEY_RUN)
+                .where(stressRunCondition());
+    }
+}
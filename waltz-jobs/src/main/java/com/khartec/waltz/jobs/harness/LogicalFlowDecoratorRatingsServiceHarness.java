@@ -20,9 +20,7 @@ package com.khartec.waltz.jobs.harness;
 
 import com.khartec.waltz.common.ListUtilities;
 import com.khartec.waltz.common.hierarchy.FlatNode;
-import com.khartec.waltz.common.hierarchy.Forest;
-import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
-import com.khartec.waltz.common.hierarchy.Node;
+import com.khartec.waltz.common.hierarchy.LongForest;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
 import com.khartec.waltz.model.authoritativesource.AuthoritativeSource;
 import com.khartec.waltz.model.orgunit.OrganisationalUnit;
@@ -35,7 +33,6 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 
 import java.sql.SQLException;
 import java.util.List;
-import java.util.Map;
 
 import static com.khartec.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
 
@@ -61,8 +58,7 @@ public class LogicalFlowDecoratorRatingsServiceHarness {
 
         List<OrganisationalUnit> allOrgUnits = organisationalUnitService.findAll();
         List<FlatNode<OrganisationalUnit, Long>> ouNodes = ListUtilities.map(allOrgUnits, ou -> new FlatNode<>(ou.id().get(), ou.parentId(), ou));
-        Forest<OrganisationalUnit, Long> ouForest = HierarchyUtilities.toForest(ouNodes);
-        Map<Long, Node<OrganisationalUnit, Long>> nodeMap = ouForest.getAllNodes();
+        LongForest ouForest = LongForest.fromFlatNodes(ouNodes);
 
 
 
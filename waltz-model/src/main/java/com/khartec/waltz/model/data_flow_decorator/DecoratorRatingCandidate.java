@@ -0,0 +1,44 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.data_flow_decorator;
+
+
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * The minimal facts needed to (re)rate a single logical flow data type
+ * decorator against the authoritative sources.
+ */
+@Value.Immutable
+public abstract class DecoratorRatingCandidate {
+
+    public abstract long decoratorId();
+    public abstract long dataTypeId();
+    public abstract AuthoritativenessRating rating();
+
+    /** present if the source of the flow is an application **/
+    public abstract Optional<Long> sourceApplicationId();
+
+    /** present if the target of the flow is an application **/
+    public abstract Optional<Long> targetOrgUnitId();
+
+}
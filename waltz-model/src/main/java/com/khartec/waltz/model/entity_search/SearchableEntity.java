@@ -0,0 +1,50 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.model.entity_search;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.khartec.waltz.model.EntityReference;
+import org.immutables.value.Value;
+
+import java.util.List;
+
+
+/**
+ * The searchable aspects of an entity, as held by the in-memory search index.
+ *
+ * <ul>
+ *     <li><code>entityReference</code>: returned as the search result, its name is matched anywhere</li>
+ *     <li><code>codes</code>: identifiers such as asset codes or external ids, matched by prefix</li>
+ *     <li><code>aliases</code>: alternative names, matched anywhere</li>
+ * </ul>
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableSearchableEntity.class)
+@JsonDeserialize(as = ImmutableSearchableEntity.class)
+public abstract class SearchableEntity {
+
+    public abstract EntityReference entityReference();
+
+    public abstract List<String> codes();
+
+    public abstract List<String> aliases();
+
+}
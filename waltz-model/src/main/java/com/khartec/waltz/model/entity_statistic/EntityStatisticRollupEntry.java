@@ -0,0 +1,57 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.entity_statistic;
+
+import org.immutables.value.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+
+/**
+ * Partial aggregate of the statistic values for the applications directly
+ * owned by a single org unit, grouped by outcome (and by day for historic values).
+ * Entries are combined up the org unit hierarchy to give rollups.
+ */
+@Value.Immutable
+public abstract class EntityStatisticRollupEntry {
+
+    public abstract long statisticId();
+    public abstract long orgUnitId();
+    public abstract String outcome();
+
+    /**
+     * @return day the values were recorded on, empty for current values
+     */
+    public abstract Optional<LocalDate> date();
+
+    public abstract long count();
+
+    /**
+     * @return sum of the (numeric) values, zero if the values were only counted
+     */
+    @Value.Default
+    public BigDecimal total() {
+        return BigDecimal.ZERO;
+    }
+
+    public abstract LocalDateTime lastUpdatedAt();
+}
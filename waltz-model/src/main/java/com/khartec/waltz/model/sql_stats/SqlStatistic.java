@@ -0,0 +1,46 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.model.sql_stats;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+
+/**
+ * Latency summary for a single normalised sql statement shape as issued
+ * by one caller (dao method).  When callers are sampled the count and
+ * total are estimates.  All timings are in milliseconds.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableSqlStatistic.class)
+@JsonDeserialize(as = ImmutableSqlStatistic.class)
+public abstract class SqlStatistic {
+
+    public abstract String caller();
+    public abstract String sql();
+    public abstract long count();
+    public abstract double totalMillis();
+    public abstract double meanMillis();
+    public abstract double p50Millis();
+    public abstract double p95Millis();
+    public abstract double p99Millis();
+    public abstract double maxMillis();
+
+}
@@ -20,7 +20,9 @@ package com.khartec.waltz.service;
 
 
 import com.khartec.waltz.data.DBExecutorPool;
-import com.khartec.waltz.data.DBExecutorPoolInterface;
+import com.khartec.waltz.data.ThreadBoundTransactionScope;
+import com.khartec.waltz.service.sql_stats.SqlStatisticsListener;
+import com.khartec.waltz.service.sql_stats.SqlStatisticsRecorder;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.jooq.DSLContext;
@@ -36,6 +38,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 
 import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @PropertySource(value = "classpath:waltz.properties", ignoreResourceNotFound = true)
@@ -66,12 +69,27 @@ public class DIBaseConfiguration {
     @Value("${database.pool.min:2}")
     private int dbPoolMin;
 
+    @Value("${database.executor.threads:#{null}}")
+    private Integer dbExecutorThreads;
+
+    @Value("${database.executor.queue.size:500}")
+    private int dbExecutorQueueSize;
+
     @Value("${jooq.dialect}")
     private String dialect;
 
     @Value("${database.performance.query.slow.threshold:10}")
     private int databasePerformanceQuerySlowThreshold;
 
+    @Value("${database.performance.query.slow.threshold.ms:#{null}}")
+    private Long databasePerformanceQuerySlowThresholdMillis;
+
+    @Value("${database.performance.query.stats.max.statements:1000}")
+    private int databasePerformanceQueryStatsMaxStatements;
+
+    @Value("${database.performance.query.stats.caller.sample.rate:10}")
+    private int databasePerformanceQueryStatsCallerSampleRate;
+
 
     @Bean
     public DataSource dataSource() {
@@ -88,14 +106,31 @@ public class DIBaseConfiguration {
 
 
     @Bean
-    public DBExecutorPoolInterface dbExecutorPool() {
-        return new DBExecutorPool(dbPoolMin, dbPoolMax);
+    public DBExecutorPool dbExecutorPool() {
+        int threadCount = dbExecutorThreads == null
+                ? Integer.max(dbPoolMax / 2, 1)
+                : dbExecutorThreads;
+        return new DBExecutorPool(threadCount, dbExecutorQueueSize);
+    }
+
+
+    @Bean
+    public SqlStatisticsRecorder sqlStatisticsRecorder() {
+        return new SqlStatisticsRecorder(databasePerformanceQueryStatsMaxStatements);
     }
 
 
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public ThreadBoundTransactionScope threadBoundTransactionScope(DataSource dataSource) {
+        return new ThreadBoundTransactionScope(dataSource);
+    }
+
+
+    @Bean
+    @Autowired
+    public DSLContext dsl(ThreadBoundTransactionScope threadBoundTransactionScope,
+                          SqlStatisticsRecorder sqlStatisticsRecorder) {
         try {
             SQLDialect.valueOf(dialect);
         } catch (IllegalArgumentException iae) {
@@ -113,13 +148,26 @@ public class DIBaseConfiguration {
                     .withExecuteLogging(true);
         }
 
+        // behaves like a plain data source configuration unless the caller opts in
+        // via `ThreadBoundTransactionScope.inTransaction(...)`
         org.jooq.Configuration configuration = new DefaultConfiguration()
-                .set(dataSource)
+                .set(threadBoundTransactionScope.connectionProvider())
+                .set(threadBoundTransactionScope.transactionProvider())
                 .set(SQLDialect.valueOf(dialect))
                 .set(dslSettings)
-                .set(new SlowQueryListener(databasePerformanceQuerySlowThreshold));
+                .set(new SqlStatisticsListener(
+                        sqlStatisticsRecorder,
+                        determineSlowQueryThresholdMillis(),
+                        databasePerformanceQueryStatsCallerSampleRate));
 
         return DSL.using(configuration);
     }
 
+
+    private long determineSlowQueryThresholdMillis() {
+        return databasePerformanceQuerySlowThresholdMillis != null
+                ? databasePerformanceQuerySlowThresholdMillis
+                : TimeUnit.SECONDS.toMillis(databasePerformanceQuerySlowThreshold);
+    }
+
 }
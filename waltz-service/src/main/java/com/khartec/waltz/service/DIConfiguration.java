@@ -18,13 +18,33 @@
 
 package com.khartec.waltz.service;
 
+import com.khartec.waltz.data.DBExecutorPool;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.model.ImmutableWaltzVersionInfo;
 import com.khartec.waltz.model.WaltzVersionInfo;
 import com.khartec.waltz.model.settings.ImmutableSetting;
 import com.khartec.waltz.model.settings.Setting;
 import com.khartec.waltz.service.email.DummyJavaMailSender;
+import com.khartec.waltz.service.access_log.AccessLogService;
+import com.khartec.waltz.service.jmx.AccessLogMaintenance;
+import com.khartec.waltz.service.jmx.ApplicationSelectorCacheMaintenance;
+import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.jmx.ChangeLogMaintenance;
+import com.khartec.waltz.service.entity_search.EntitySearchIndexService;
+import com.khartec.waltz.service.entity_statistic.EntityStatisticRollupService;
+import com.khartec.waltz.service.jmx.EntityStatisticRollupMaintenance;
+import com.khartec.waltz.service.jmx.DBExecutorPoolMaintenance;
+import com.khartec.waltz.service.jmx.EntitySearchIndexMaintenance;
+import com.khartec.waltz.service.jmx.LogicalFlowGraphMaintenance;
 import com.khartec.waltz.service.jmx.PersonMaintenance;
+import com.khartec.waltz.service.jmx.ReferenceDataMaintenance;
+import com.khartec.waltz.service.jmx.SqlStatisticsMaintenance;
+import com.khartec.waltz.service.jmx.UserRoleMaintenance;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
 import com.khartec.waltz.service.person_hierarchy.PersonHierarchyService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.sql_stats.SqlStatisticsService;
+import com.khartec.waltz.service.user.UserRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
@@ -119,6 +139,76 @@ public class DIConfiguration implements SchedulingConfigurer {
     }
 
 
+    @Bean
+    @Autowired
+    public UserRoleMaintenance userRoleMaintenance(UserRoleService userRoleService) {
+        return new UserRoleMaintenance(userRoleService);
+    }
+
+
+    @Bean
+    @Autowired
+    public SqlStatisticsMaintenance sqlStatisticsMaintenance(SqlStatisticsService sqlStatisticsService) {
+        return new SqlStatisticsMaintenance(sqlStatisticsService);
+    }
+
+
+    @Bean
+    @Autowired
+    public ApplicationSelectorCacheMaintenance applicationSelectorCacheMaintenance(CachingApplicationIdSelectorFactory applicationIdSelectorFactory) {
+        return new ApplicationSelectorCacheMaintenance(applicationIdSelectorFactory);
+    }
+
+
+    @Bean
+    @Autowired
+    public DBExecutorPoolMaintenance dbExecutorPoolMaintenance(DBExecutorPool dbExecutorPool) {
+        return new DBExecutorPoolMaintenance(dbExecutorPool);
+    }
+
+
+    @Bean
+    @Autowired
+    public EntitySearchIndexMaintenance entitySearchIndexMaintenance(EntitySearchIndexService entitySearchIndexService) {
+        return new EntitySearchIndexMaintenance(entitySearchIndexService);
+    }
+
+
+    @Bean
+    @Autowired
+    public LogicalFlowGraphMaintenance logicalFlowGraphMaintenance(LogicalFlowGraphService logicalFlowGraphService) {
+        return new LogicalFlowGraphMaintenance(logicalFlowGraphService);
+    }
+
+
+    @Bean
+    @Autowired
+    public ReferenceDataMaintenance referenceDataMaintenance(ReferenceDataService referenceDataService) {
+        return new ReferenceDataMaintenance(referenceDataService);
+    }
+
+
+    @Bean
+    @Autowired
+    public AccessLogMaintenance accessLogMaintenance(AccessLogService accessLogService) {
+        return new AccessLogMaintenance(accessLogService);
+    }
+
+
+    @Bean
+    @Autowired
+    public ChangeLogMaintenance changeLogMaintenance(ChangeLogService changeLogService) {
+        return new ChangeLogMaintenance(changeLogService);
+    }
+
+
+    @Bean
+    @Autowired
+    public EntityStatisticRollupMaintenance entityStatisticRollupMaintenance(EntityStatisticRollupService entityStatisticRollupService) {
+        return new EntityStatisticRollupMaintenance(entityStatisticRollupService);
+    }
+
+
     @Bean
     public JavaMailSender mailSender() {
         if (smtpHost == null) {
@@ -18,36 +18,86 @@
 
 package com.khartec.waltz.service.access_log;
 
+import com.khartec.waltz.common.buffer.WriteBehindBuffer;
 import com.khartec.waltz.data.access_log.AccessLogDao;
 import com.khartec.waltz.model.accesslog.AccessLog;
 import com.khartec.waltz.model.accesslog.AccessTime;
+import org.jooq.lambda.tuple.Tuple3;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static com.khartec.waltz.common.Checks.checkNotEmpty;
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
+/**
+ * Access log entries are the highest volume write in Waltz, so rather than
+ * inserting each one as it arrives they are queued in a bounded
+ * {@link WriteBehindBuffer} and batch inserted in the background.
+ */
 @Service
 public class AccessLogService {
 
     private final AccessLogDao accessLogDao;
+    private final WriteBehindBuffer<AccessLog> buffer;
 
     @Autowired
-    public AccessLogService(AccessLogDao accessLogDao) {
+    public AccessLogService(AccessLogDao accessLogDao,
+                            @Value("${waltz.access.log.buffer.capacity:10000}") int bufferCapacity,
+                            @Value("${waltz.access.log.buffer.batch.size:200}") int batchSize,
+                            @Value("${waltz.access.log.buffer.flush.ms:2000}") long flushIntervalMs) {
+        checkNotNull(accessLogDao, "accessLogDao cannot be null");
         this.accessLogDao = accessLogDao;
+        this.buffer = new WriteBehindBuffer<>(
+                "AccessLog",
+                bufferCapacity,
+                batchSize,
+                flushIntervalMs,
+                TimeUnit.MILLISECONDS,
+                this::writeBatch);
     }
 
 
-    public int write(AccessLog logEntry) {
+    /**
+     * Queues the entry to be written in the background.
+     *
+     * @return false if the buffer is full and the entry has been dropped
+     */
+    public boolean write(AccessLog logEntry) {
         checkNotNull(logEntry, "logEntry must not be null");
-        return accessLogDao.write(logEntry);
+        return buffer.offer(logEntry);
+    }
+
+
+    /**
+     * Synchronously writes any queued entries.
+     * @return number of entries written
+     */
+    public int flush() {
+        return buffer.flush();
+    }
+
+
+    public WriteBehindBuffer<AccessLog> getBuffer() {
+        return buffer;
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        buffer.close();
     }
 
 
@@ -63,4 +113,19 @@ public class AccessLogService {
         return accessLogDao.findActiveUsersSince(sinceTime);
     }
 
+
+    /**
+     * Repeated visits by a user to the same state (with the same params) within
+     * a batch are coalesced into a single entry with the latest timestamp.
+     */
+    private void writeBatch(List<AccessLog> entries) {
+        Map<Tuple3<String, String, String>, AccessLog> latestByUserAndState = new LinkedHashMap<>();
+        entries.forEach(e -> latestByUserAndState.merge(
+                tuple(e.userId(), e.state(), e.params()),
+                e,
+                (e1, e2) -> e2.createdAt().isAfter(e1.createdAt()) ? e2 : e1));
+
+        accessLogDao.write(latestByUserAndState.values());
+    }
+
 }
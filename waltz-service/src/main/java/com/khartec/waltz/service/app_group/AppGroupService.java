@@ -25,6 +25,7 @@ import com.khartec.waltz.data.app_group.AppGroupEntryDao;
 import com.khartec.waltz.data.app_group.AppGroupMemberDao;
 import com.khartec.waltz.data.app_group.AppGroupOrganisationalUnitDao;
 import com.khartec.waltz.data.application.ApplicationDao;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.entity_relationship.EntityRelationshipDao;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
 import com.khartec.waltz.model.*;
@@ -68,6 +69,7 @@ public class AppGroupService {
     private final EntityRelationshipDao entityRelationshipDao;
     private final ChangeInitiativeService changeInitiativeService;
     private final ChangeLogService changeLogService;
+    private final CachingApplicationIdSelectorFactory applicationIdSelectorFactory;
 
 
     @Autowired
@@ -79,7 +81,8 @@ public class AppGroupService {
                            OrganisationalUnitDao organisationalUnitDao,
                            EntityRelationshipDao entityRelationshipDao,
                            ChangeInitiativeService changeInitiativeService,
-                           ChangeLogService changeLogService) {
+                           ChangeLogService changeLogService,
+                           CachingApplicationIdSelectorFactory applicationIdSelectorFactory) {
         checkNotNull(appGroupDao, "appGroupDao cannot be null");
         checkNotNull(appGroupEntryDao, "appGroupEntryDao cannot be null");
         checkNotNull(appGroupEntryDao, "appGroupEntryDao cannot be null");
@@ -89,6 +92,7 @@ public class AppGroupService {
         checkNotNull(entityRelationshipDao, "entityRelationshipDao cannot be null");
         checkNotNull(changeInitiativeService, "changeInitiativeService cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(applicationIdSelectorFactory, "applicationIdSelectorFactory cannot be null");
 
         this.appGroupDao = appGroupDao;
         this.appGroupMemberDao = appGroupMemberDao;
@@ -99,6 +103,7 @@ public class AppGroupService {
         this.entityRelationshipDao = entityRelationshipDao;
         this.changeInitiativeService = changeInitiativeService;
         this.changeLogService = changeLogService;
+        this.applicationIdSelectorFactory = applicationIdSelectorFactory;
     }
 
 
@@ -171,6 +176,7 @@ public class AppGroupService {
     public List<AppGroupSubscription> deleteGroup(String userId, long groupId) throws InsufficientPrivelegeException {
         verifyUserCanUpdateGroup(userId, groupId);
         appGroupDao.deleteGroup(groupId);
+        applicationIdSelectorFactory.invalidateAll();
         entityRelationshipDao.removeAnyInvolving(mkRef(EntityKind.APP_GROUP, groupId));
         audit(groupId, userId, format("Removed group %d", groupId), null, Operation.REMOVE);
         return findGroupSubscriptionsForUser(userId);
@@ -184,6 +190,7 @@ public class AppGroupService {
         Application app = applicationDao.getById(applicationId);
         if (app != null) {
             appGroupEntryDao.addApplication(groupId, applicationId);
+            applicationIdSelectorFactory.invalidateAll();
             audit(groupId, userId, format("Added application %s to group", app.name()), EntityKind.APPLICATION, Operation.ADD);
         }
 
@@ -198,6 +205,7 @@ public class AppGroupService {
         verifyUserCanUpdateGroup(userId, groupId);
 
         appGroupEntryDao.addApplications(groupId, applicationIds);
+        applicationIdSelectorFactory.invalidateAll();
 
         EntityReference entityReference = mkRef(EntityKind.APP_GROUP, groupId);
         List<Application> apps = applicationDao.findByIds(applicationIds);
@@ -233,6 +241,7 @@ public class AppGroupService {
     public List<EntityReference> removeApplication(String userId, long groupId, long applicationId) throws InsufficientPrivelegeException {
         verifyUserCanUpdateGroup(userId, groupId);
         appGroupEntryDao.removeApplication(groupId, applicationId);
+        applicationIdSelectorFactory.invalidateAll();
         Application app = applicationDao.getById(applicationId);
         audit(groupId, userId, format(
                     "Removed application %s from group",
@@ -250,6 +259,7 @@ public class AppGroupService {
         OrganisationalUnit orgUnit = organisationalUnitDao.getById(orgUnitId);
         if (orgUnit != null) {
             appGroupOrganisationalUnitDao.addOrgUnit(groupId, orgUnitId);
+            applicationIdSelectorFactory.invalidateAll();
             audit(groupId, userId, format("Added application %s to group", orgUnit.name()), EntityKind.ORG_UNIT, Operation.ADD);
         }
         return appGroupOrganisationalUnitDao.getEntriesForGroup(groupId);
@@ -258,6 +268,7 @@ public class AppGroupService {
     public List<EntityReference> removeOrganisationalUnit(String userId, long groupId, long orgUnitId) throws InsufficientPrivelegeException {
         verifyUserCanUpdateGroup(userId, groupId);
         appGroupOrganisationalUnitDao.removeOrgUnit(groupId, orgUnitId);
+        applicationIdSelectorFactory.invalidateAll();
         OrganisationalUnit ou = organisationalUnitDao.getById(orgUnitId);
         audit(groupId, userId, format("Removed application %s from group", ou != null ? ou.name() : orgUnitId), EntityKind.ORG_UNIT, Operation.REMOVE);
         return appGroupOrganisationalUnitDao.getEntriesForGroup(groupId);
@@ -266,6 +277,7 @@ public class AppGroupService {
         verifyUserCanUpdateGroup(userId, groupId);
 
         appGroupEntryDao.removeApplications(groupId, applicationIds);
+        applicationIdSelectorFactory.invalidateAll();
 
         List<Application> apps = applicationDao.findByIds(applicationIds);
         List<ChangeLog> changeLogs = apps
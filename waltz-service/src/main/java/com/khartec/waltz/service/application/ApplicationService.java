@@ -19,7 +19,7 @@
 package com.khartec.waltz.service.application;
 
 import com.khartec.waltz.data.application.ApplicationDao;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.application.search.ApplicationSearchDao;
 import com.khartec.waltz.data.entity_alias.EntityAliasDao;
 import com.khartec.waltz.model.EntityKind;
@@ -60,23 +60,26 @@ public class ApplicationService {
     private final TagService tagService;
     private final EntityAliasDao entityAliasDao;
     private final ApplicationSearchDao appSearchDao;
-    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory appIdSelectorFactory;
 
 
     @Autowired
     public ApplicationService(ApplicationDao appDao,
                               TagService tagService,
                               EntityAliasDao entityAliasDao,
-                              ApplicationSearchDao appSearchDao) {
+                              ApplicationSearchDao appSearchDao,
+                              CachingApplicationIdSelectorFactory appIdSelectorFactory) {
         checkNotNull(appDao, "appDao must not be null");
         checkNotNull(tagService, "tagService must not be null");
         checkNotNull(entityAliasDao, "entityAliasDao must not be null");
         checkNotNull(appSearchDao, "appSearchDao must not be null");
+        checkNotNull(appIdSelectorFactory, "appIdSelectorFactory must not be null");
 
         this.applicationDao = appDao;
         this.tagService = tagService;
         this.entityAliasDao = entityAliasDao;
         this.appSearchDao = appSearchDao;
+        this.appIdSelectorFactory = appIdSelectorFactory;
     }
 
 
@@ -18,7 +18,7 @@
 
 package com.khartec.waltz.service.asset_cost;
 
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.asset_cost.AssetCostDao;
 import com.khartec.waltz.data.asset_cost.AssetCostStatsDao;
 import com.khartec.waltz.model.IdSelectionOptions;
@@ -43,17 +43,20 @@ public class AssetCostService {
 
     private final AssetCostDao assetCostDao;
     private final AssetCostStatsDao assetCostStatsDao;
-    private final ApplicationIdSelectorFactory idSelectorFactory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory idSelectorFactory;
 
 
     @Autowired
     public AssetCostService(AssetCostDao assetCodeDao,
-                            AssetCostStatsDao assetCostStatsDao) {
+                            AssetCostStatsDao assetCostStatsDao,
+                            CachingApplicationIdSelectorFactory idSelectorFactory) {
         checkNotNull(assetCodeDao, "assetCodeDao cannot be null");
         checkNotNull(assetCostStatsDao, "assetCostStatsDao cannot be null");
+        checkNotNull(idSelectorFactory, "idSelectorFactory cannot be null");
 
         this.assetCostDao = assetCodeDao;
         this.assetCostStatsDao = assetCostStatsDao;
+        this.idSelectorFactory = idSelectorFactory;
     }
 
 
@@ -18,131 +18,183 @@
 
 package com.khartec.waltz.service.authoritative_source;
 
-import com.khartec.waltz.common.SetUtilities;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.authoritative_source.AuthoritativeSourceDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
-import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyDao;
 import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
-import com.khartec.waltz.model.HierarchyQueryScope;
-import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.authoritativesource.AuthoritativeRatingVantagePoint;
+import com.khartec.waltz.model.data_flow_decorator.DecoratorRatingCandidate;
 import com.khartec.waltz.model.datatype.DataType;
-import com.khartec.waltz.model.datatype.DataTypeDecorator;
-import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
+import com.khartec.waltz.model.rating.AuthoritativenessRating;
+import org.jooq.Condition;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
-import static com.khartec.waltz.common.SetUtilities.fromCollection;
-import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
-import static java.util.stream.Collectors.toList;
+import static com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao.TARGET_APP;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.schema.tables.EntityHierarchy.ENTITY_HIERARCHY;
+import static com.khartec.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
 
 
+/**
+ * Rates logical flow data type decorators against the authoritative sources.
+ *
+ * Target ratings are computed in memory (via {@link AuthoritativeSourceResolver})
+ * and compared with the current ratings, only decorators whose rating has
+ * changed are written back.
+ */
 @Service
 public class AuthSourceRatingCalculator {
 
     private static final Logger LOG = LoggerFactory.getLogger(AuthSourceRatingCalculator.class);
 
-    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final AuthoritativeSourceDao authoritativeSourceDao;
     private final DataTypeDao dataTypeDao;
-    private final EntityHierarchyDao entityHierarchyDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
-    private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
 
 
     @Autowired
-    public AuthSourceRatingCalculator(DataTypeDao dataTypeDao,
-                                      EntityHierarchyDao entityHierarchyDao,
-                                      LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
+    public AuthSourceRatingCalculator(AuthoritativeSourceDao authoritativeSourceDao,
+                                      DataTypeDao dataTypeDao,
                                       LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+        checkNotNull(authoritativeSourceDao, "authoritativeSourceDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
-        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
-        checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
 
+        this.authoritativeSourceDao = authoritativeSourceDao;
         this.dataTypeDao = dataTypeDao;
-        this.entityHierarchyDao = entityHierarchyDao;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
-        this.ratingsCalculator = ratingsCalculator;
     }
 
 
     // use dataTypeId variant, want to move away from codes
     @Deprecated
-    public int[] update(String dataTypeCode, EntityReference vantageRef) {
+    public int update(String dataTypeCode, EntityReference vantageRef) {
         DataType dataType = dataTypeDao.getByCode(dataTypeCode);
         if (dataType == null) {
             LOG.error("Cannot update ratings for data type code: {} for vantage point: {} as cannot find corresponding data type",
                     dataTypeCode,
                     vantageRef);
-            return new int[0];
+            return 0;
         }
         return update(dataType, vantageRef);
     }
 
 
-    public int[] update(long dataTypeId, EntityReference vantageRef) {
+    public int update(long dataTypeId, EntityReference vantageRef) {
         DataType dataType = dataTypeDao.getById(dataTypeId);
         if (dataType == null) {
             LOG.error("Cannot update ratings for data type id: {} for vantage point: {} as cannot find corresponding data type",
                     dataTypeId,
                     vantageRef);
-            return new int[0];
+            return 0;
         }
         return update(dataType, vantageRef);
     }
 
 
-    private int[] update(DataType dataType, EntityReference vantageRef) {
+    /**
+     * Recalculates the rating of every data type decorator on an active flow.
+     * Decorators on flows which are not between applications are rated as
+     * <code>NO_OPINION</code>.
+     *
+     * @return number of decorators whose rating changed
+     */
+    public int recalculateAll() {
+        LOG.info("Recalculating all flow ratings");
+        List<AuthoritativeRatingVantagePoint> vantagePoints = authoritativeSourceDao.findAllExpandedAuthoritativeRatingVantagePoints();
+        return recalculate(new AuthoritativeSourceResolver(vantagePoints), DSL.trueCondition());
+    }
+
+
+    /**
+     * Recalculates the ratings affected by an authoritative source for the given data type
+     * being declared at the given vantage point.  Only decorators of that data type (or its
+     * descendants) on flows into applications beneath the vantage point are considered.
+     */
+    private int update(DataType dataType, EntityReference vantageRef) {
         LOG.debug("Updating ratings for auth source - dataType name: {}, id: {}, vantage point: {}",
                 dataType.name(),
                 dataType.id().get(),
                 vantageRef);
 
-        IdSelectionOptions selectorOptions = mkOpts(vantageRef, HierarchyQueryScope.CHILDREN);
-        Select<Record1<Long>> selector = appIdSelectorFactory.apply(selectorOptions);
-        Set<Long> dataTypeDescendents = entityHierarchyDao
-                .findDesendents(dataType.entityReference())
-                .stream()
-                .map(d -> d.id().get())
-                .collect(Collectors.toSet());
+        // sub-selects rather than id lists, large subtrees would exceed bind parameter limits
+        Select<Record1<Long>> orgUnitIds = mkSelfAndDescendantIdSelector(vantageRef);
+        Select<Record1<Long>> dataTypeIds = mkSelfAndDescendantIdSelector(dataType.entityReference());
+
+        List<AuthoritativeRatingVantagePoint> vantagePoints = authoritativeSourceDao.findExpandedAuthoritativeRatingVantagePoints(orgUnitIds);
+
+        Condition scope = LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.in(dataTypeIds)
+                .and(TARGET_APP.ORGANISATIONAL_UNIT_ID.in(orgUnitIds));
+
+        return recalculate(new AuthoritativeSourceResolver(vantagePoints), scope);
+    }
+
 
-        Collection<DataTypeDecorator> impactedDecorators = logicalFlowDecoratorDao
-                .findByEntityIdSelector(selector, Optional.of(EntityKind.APPLICATION))
+    private int recalculate(AuthoritativeSourceResolver resolver, Condition scope) {
+        Map<Long, String> dataTypeCodesById = dataTypeDao
+                .findAll()
+                .stream()
+                .collect(Collectors.toMap(dt -> dt.id().get(), DataType::code));
+
+        Map<AuthoritativenessRating, List<Long>> changedIdsByRating = new EnumMap<>(AuthoritativenessRating.class);
+        int[] visited = {0};
+
+        logicalFlowDecoratorDao.visitRatingCandidates(scope, candidate -> {
+            visited[0]++;
+            AuthoritativenessRating rating = determineRating(resolver, dataTypeCodesById, candidate);
+            if (rating != candidate.rating()) {
+                changedIdsByRating
+                        .computeIfAbsent(rating, r -> new ArrayList<>())
+                        .add(candidate.decoratorId());
+            }
+        });
+
+        int updated = changedIdsByRating
+                .entrySet()
                 .stream()
-                .filter(decorator -> dataTypeDescendents.contains(decorator.decoratorEntity().id()))
-                .collect(toList());
+                .mapToInt(e -> logicalFlowDecoratorDao.updateRatings(e.getKey(), e.getValue()))
+                .sum();
 
-        Collection<DataTypeDecorator> reRatedDecorators = ratingsCalculator.calculate(impactedDecorators);
+        LOG.debug("Checked {} decorator ratings, updated {}", visited[0], updated);
+        return updated;
+    }
 
-        Set<DataTypeDecorator> modifiedDecorators = SetUtilities.minus(
-                fromCollection(reRatedDecorators),
-                fromCollection(impactedDecorators));
 
-        LOG.debug("Need to update {} ratings due to auth source change - dataType name: {}, id: {}, parent: {}",
-                modifiedDecorators.size(),
-                dataType.name(),
-                dataType.id().get(),
-                vantageRef);
+    private static AuthoritativenessRating determineRating(AuthoritativeSourceResolver resolver,
+                                                           Map<Long, String> dataTypeCodesById,
+                                                           DecoratorRatingCandidate candidate) {
+        String dataTypeCode = dataTypeCodesById.get(candidate.dataTypeId());
+
+        if (dataTypeCode == null
+                || ! candidate.sourceApplicationId().isPresent()
+                || ! candidate.targetOrgUnitId().isPresent()) {
+            return AuthoritativenessRating.NO_OPINION;
+        }
 
-        return updateDecorators(modifiedDecorators);
+        return resolver.resolve(
+                mkRef(EntityKind.ORG_UNIT, candidate.targetOrgUnitId().get()),
+                mkRef(EntityKind.APPLICATION, candidate.sourceApplicationId().get()),
+                dataTypeCode);
     }
 
 
-    private int[] updateDecorators(Set<DataTypeDecorator> decorators) {
-        checkNotNull(decorators, "decorators cannot be null");
-        if (decorators.isEmpty()) return new int[] {};
-        return logicalFlowDecoratorDao.updateDecorators(decorators);
+    private static Select<Record1<Long>> mkSelfAndDescendantIdSelector(EntityReference ref) {
+        return DSL
+                .select(ENTITY_HIERARCHY.ID)
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(ref.kind().name()))
+                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq(ref.id()));
     }
 
 }
@@ -26,7 +26,6 @@ import com.khartec.waltz.data.authoritative_source.AuthoritativeSourceDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.data_type.DataTypeIdSelectorFactory;
 import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
-import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
 import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.application.Application;
 import com.khartec.waltz.model.authoritativesource.*;
@@ -34,7 +33,6 @@ import com.khartec.waltz.model.changelog.ChangeLog;
 import com.khartec.waltz.model.changelog.ImmutableChangeLog;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.orgunit.OrganisationalUnit;
-import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import org.jooq.Condition;
 import org.jooq.Record1;
@@ -69,7 +67,6 @@ public class AuthoritativeSourceService {
     private final ApplicationDao applicationDao;
     private final AuthSourceRatingCalculator ratingCalculator;
     private final ChangeLogService changeLogService;
-    private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
@@ -81,15 +78,13 @@ public class AuthoritativeSourceService {
                                       OrganisationalUnitDao organisationalUnitDao,
                                       ApplicationDao applicationDao,
                                       AuthSourceRatingCalculator ratingCalculator,
-                                      ChangeLogService changeLogService,
-                                      LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                                      ChangeLogService changeLogService) {
         checkNotNull(authoritativeSourceDao, "authoritativeSourceDao must not be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(ratingCalculator, "ratingCalculator cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
-        checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
 
         this.authoritativeSourceDao = authoritativeSourceDao;
         this.dataTypeDao = dataTypeDao;
@@ -97,7 +92,6 @@ public class AuthoritativeSourceService {
         this.applicationDao = applicationDao;
         this.ratingCalculator = ratingCalculator;
         this.changeLogService = changeLogService;
-        this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
     }
 
 
@@ -158,23 +152,16 @@ public class AuthoritativeSourceService {
 
     @Deprecated
     public boolean recalculateAllFlowRatings() {
-        logicalFlowDecoratorDao.updateRatingsByCondition(AuthoritativenessRating.NO_OPINION, DSL.trueCondition());
-        findAll()
-                .forEach(authSource -> ratingCalculator.update(
-                        authSource.dataType(),
-                        authSource.parentReference()));
-        return true;
+        return fastRecalculateAllFlowRatings();
     }
 
 
+    /**
+     * Recalculates every flow rating, only decorators whose rating has changed are written.
+     */
     public boolean fastRecalculateAllFlowRatings() {
-        logicalFlowDecoratorDao.updateRatingsByCondition(AuthoritativenessRating.NO_OPINION, DSL.trueCondition());
-        List<AuthoritativeRatingVantagePoint> authoritativeRatingVantagePoints = authoritativeSourceDao.findAuthoritativeRatingVantagePoints();
-        authoritativeRatingVantagePoints.forEach(a -> {
-            LOG.info("Updating decorators for: {}", a);
-            int updateCount = logicalFlowDecoratorDao.updateDecoratorsForAuthSource(a);
-            LOG.info("Updated {} decorators for: {}", updateCount, a);
-        });
+        int updateCount = ratingCalculator.recalculateAll();
+        LOG.info("Recalculated flow ratings, {} decorators changed", updateCount);
         return true;
     }
 
@@ -19,6 +19,7 @@
 package com.khartec.waltz.service.changelog;
 
 import com.khartec.waltz.common.CollectionUtilities;
+import com.khartec.waltz.common.buffer.WriteBehindBuffer;
 import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.data.EntityReferenceNameResolver;
 import com.khartec.waltz.data.changelog.ChangeLogDao;
@@ -43,12 +44,17 @@ import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static com.khartec.waltz.common.Checks.*;
+import static com.khartec.waltz.common.MapUtilities.indexBy;
 import static com.khartec.waltz.common.SetUtilities.*;
 import static com.khartec.waltz.model.EntityKind.*;
 import static com.khartec.waltz.model.EntityReference.mkRef;
@@ -57,6 +63,19 @@ import static java.lang.String.format;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
+/**
+ * Change log entries are normally written synchronously.  If
+ * <code>waltz.changelog.async.enabled</code> is set they are instead queued
+ * in a bounded {@link WriteBehindBuffer} and batch inserted in the background,
+ * taking the insert out of the latency of the edit which caused it.  Entries
+ * which cannot be queued (buffer full) are written synchronously, and if a
+ * batch insert fails its entries are re-written one at a time.  Only entries
+ * which also fail individually, or which are still queued if the process dies,
+ * are lost.  Queued entries are not visible to readers until they have been
+ * flushed and are not part of any surrounding transaction, callers which need
+ * their entries to commit or roll back with their own changes should use
+ * {@link #writeSynchronouslyWithin(Supplier)}.
+ */
 @Service
 public class ChangeLogService {
 
@@ -69,6 +88,8 @@ public class ChangeLogService {
     private final MeasurableRatingReplacementDao measurableRatingReplacementdao;
     private final MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao;
     private final EntityReferenceNameResolver nameResolver;
+    private final WriteBehindBuffer<ChangeLog> buffer;
+    private final ThreadLocal<Boolean> synchronousScope = ThreadLocal.withInitial(() -> false);
 
 
     @Autowired
@@ -79,7 +100,11 @@ public class ChangeLogService {
                             LogicalFlowDao logicalFlowDao,
                             MeasurableRatingReplacementDao measurableRatingReplacementDao,
                             MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao,
-                            EntityReferenceNameResolver nameResolver) {
+                            EntityReferenceNameResolver nameResolver,
+                            @Value("${waltz.changelog.async.enabled:false}") boolean asyncEnabled,
+                            @Value("${waltz.changelog.async.buffer.capacity:5000}") int bufferCapacity,
+                            @Value("${waltz.changelog.async.batch.size:200}") int batchSize,
+                            @Value("${waltz.changelog.async.flush.ms:500}") long flushIntervalMs) {
         checkNotNull(changeLogDao, "changeLogDao must not be null");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
@@ -97,6 +122,16 @@ public class ChangeLogService {
         this.measurableRatingReplacementdao = measurableRatingReplacementDao;
         this.measurableRatingPlannedDecommissionDao = measurableRatingPlannedDecommissionDao;
         this.nameResolver = nameResolver;
+        this.buffer = asyncEnabled
+                ? new WriteBehindBuffer<>(
+                        "ChangeLog",
+                        bufferCapacity,
+                        batchSize,
+                        flushIntervalMs,
+                        TimeUnit.MILLISECONDS,
+                        changeLogDao::write,
+                        changeLogDao::write)
+                : null;
     }
 
 
@@ -124,13 +159,81 @@ public class ChangeLogService {
     }
 
 
+    /**
+     * @return number of rows written, when writing asynchronously queued entries count as written
+     */
     public int write(ChangeLog changeLog) {
+        checkNotNull(changeLog, "changeLog must not be null");
+        if (isBuffering() && buffer.offer(changeLog)) {
+            return 1;
+        }
         return changeLogDao.write(changeLog);
     }
 
 
     public int[] write(Collection<ChangeLog> changeLogs) {
-        return changeLogDao.write(changeLogs);
+        checkNotNull(changeLogs, "changeLogs must not be null");
+        if (! isBuffering()) {
+            return changeLogDao.write(changeLogs);
+        }
+
+        List<ChangeLog> overflow = new ArrayList<>();
+        changeLogs.forEach(changeLog -> {
+            if (! buffer.offer(changeLog)) {
+                overflow.add(changeLog);
+            }
+        });
+
+        if (! overflow.isEmpty()) {
+            changeLogDao.write(overflow);
+        }
+
+        int[] result = new int[changeLogs.size()];
+        Arrays.fill(result, 1);
+        return result;
+    }
+
+
+    /**
+     * Runs the given work with change log entries written by this thread bypassing
+     * the asynchronous buffer, so they take part in any transaction the work is
+     * running in.
+     */
+    public <T> T writeSynchronouslyWithin(Supplier<T> work) {
+        checkNotNull(work, "work must not be null");
+        if (synchronousScope.get()) {
+            return work.get();
+        }
+        synchronousScope.set(true);
+        try {
+            return work.get();
+        } finally {
+            synchronousScope.remove();
+        }
+    }
+
+
+    /**
+     * Synchronously writes any queued entries, a no-op unless asynchronous writing is enabled.
+     * @return number of entries written
+     */
+    public int flush() {
+        return buffer == null
+                ? 0
+                : buffer.flush();
+    }
+
+
+    public Optional<WriteBehindBuffer<ChangeLog>> getBuffer() {
+        return Optional.ofNullable(buffer);
+    }
+
+
+    @PreDestroy
+    public void shutdown() {
+        if (buffer != null) {
+            buffer.close();
+        }
     }
 
 
@@ -210,6 +313,11 @@ public class ChangeLogService {
 
     ////////////////////// PRIVATE HELPERS //////////////////////////////////////////
 
+    private boolean isBuffering() {
+        return buffer != null && ! synchronousScope.get();
+    }
+
+
     private List<ChangeLog> findByParentReferenceForPhysicalFlow(EntityReference ref,
                                                                  Optional<Integer> limit) {
         checkNotNull(ref, "ref must not be null");
@@ -294,18 +402,20 @@ public class ChangeLogService {
     private Tuple2<String, Set<EntityReference>> preparePreambleAndEntitiesForChangeLogs(MeasurableRatingReplacement measurableRatingReplacement) {
 
         MeasurableRatingPlannedDecommission plannedDecommission = measurableRatingPlannedDecommissionDao.getById(measurableRatingReplacement.decommissionId());
-        String measurableName = resolveName(plannedDecommission.measurableId(), MEASURABLE);
-        String originalEntityName = resolveName(plannedDecommission.entityReference().id(), plannedDecommission.entityReference().kind());
-        String newEntityName = resolveName(measurableRatingReplacement.entityReference().id(), measurableRatingReplacement.entityReference().kind());
+        EntityReference measurableRef = mkRef(MEASURABLE, plannedDecommission.measurableId());
+        Map<EntityReference, String> names = resolveNames(
+                measurableRef,
+                plannedDecommission.entityReference(),
+                measurableRatingReplacement.entityReference());
 
         String messagePreamble = format(
                 "Replacement %s: %s [%d], for measurable: %s [%d] on: %s [%d]",
                 measurableRatingReplacement.entityReference().kind().name().toLowerCase(),
-                newEntityName,
+                nameOf(names, measurableRatingReplacement.entityReference()),
                 measurableRatingReplacement.entityReference().id(),
-                measurableName,
+                nameOf(names, measurableRef),
                 plannedDecommission.measurableId(),
-                originalEntityName,
+                nameOf(names, plannedDecommission.entityReference()),
                 plannedDecommission.entityReference().id());
 
         return tuple(
@@ -318,15 +428,15 @@ public class ChangeLogService {
     private Tuple2<String, Set<EntityReference>> preparePreambleAndEntitiesForChangeLogs(MeasurableRatingPlannedDecommission measurableRatingPlannedDecommission) {
 
         Set<MeasurableRatingReplacement> replacements = measurableRatingReplacementdao.fetchByDecommissionId(measurableRatingPlannedDecommission.id());
-        String measurableName = resolveName(measurableRatingPlannedDecommission.measurableId(), MEASURABLE);
+        EntityReference measurableRef = mkRef(MEASURABLE, measurableRatingPlannedDecommission.measurableId());
         EntityReference entityReference = measurableRatingPlannedDecommission.entityReference();
-        String entityName = resolveName(entityReference.id(), entityReference.kind());
+        Map<EntityReference, String> names = resolveNames(measurableRef, entityReference);
 
         String messagePreamble = format(
                 "Measurable Rating: %s [%d] on: %s [%d]",
-                measurableName,
+                nameOf(names, measurableRef),
                 measurableRatingPlannedDecommission.measurableId(),
-                entityName,
+                nameOf(names, entityReference),
                 entityReference.id());
 
         return tuple(
@@ -335,10 +445,25 @@ public class ChangeLogService {
     }
 
 
-    private String resolveName(long id, EntityKind kind) {
-        return nameResolver
-                .resolve(mkRef(kind, id))
-                .flatMap(EntityReference::name)
-                .orElse("UNKNOWN");
+    /**
+     * Resolves the names of all the given refs with a single lookup.
+     * @return map of names keyed by (name-less) refs
+     */
+    private Map<EntityReference, String> resolveNames(EntityReference... refs) {
+        List<EntityReference> nameless = new ArrayList<>();
+        for (EntityReference ref : refs) {
+            nameless.add(mkRef(ref.kind(), ref.id()));
+        }
+
+        return indexBy(
+                r -> mkRef(r.kind(), r.id()),
+                r -> r.name().orElse("UNKNOWN"),
+                nameResolver.resolve(nameless),
+                (n1, n2) -> n1);
+    }
+
+
+    private static String nameOf(Map<EntityReference, String> names, EntityReference ref) {
+        return names.getOrDefault(mkRef(ref.kind(), ref.id()), "UNKNOWN");
     }
 }
@@ -19,13 +19,16 @@
 package com.khartec.waltz.service.client_cache_key;
 
 
+import com.khartec.waltz.common.cache.ExpiringCache;
 import com.khartec.waltz.data.client_cache_key.ClientCacheKeyDao;
 import com.khartec.waltz.model.client_cache_key.ClientCacheKey;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static java.util.UUID.randomUUID;
@@ -36,11 +39,20 @@ public class ClientCacheKeyService {
 
     private final ClientCacheKeyDao clientCacheKeyDao;
 
+    /**
+     * Current guid of each key, used by server side caches which are checked on
+     * every request.  Local updates evict immediately, updates made by other
+     * nodes are picked up once the (short) ttl expires.
+     */
+    private final ExpiringCache<String, String> versionCache;
+
 
     @Autowired
-    public ClientCacheKeyService(ClientCacheKeyDao clientCacheKeyDao) {
+    public ClientCacheKeyService(ClientCacheKeyDao clientCacheKeyDao,
+                                 @Value("${waltz.client.cache.key.version.ttl.seconds:5}") int versionTtlSeconds) {
         checkNotNull(clientCacheKeyDao, "clientCacheKeyDao cannot be null");
         this.clientCacheKeyDao = clientCacheKeyDao;
+        this.versionCache = new ExpiringCache<>(100, versionTtlSeconds, TimeUnit.SECONDS);
     }
 
 
@@ -54,9 +66,26 @@ public class ClientCacheKeyService {
     }
 
 
+    /**
+     * @param key  name of the client cache key, e.g. <code>TAXONOMY</code>
+     * @return current guid of the key, or an empty string if it has never been set
+     */
+    public String getVersion(String key) {
+        checkNotNull(key, "key cannot be null");
+        return versionCache.get(key, k -> {
+            ClientCacheKey cacheKey = clientCacheKeyDao.getByKey(k);
+            return cacheKey == null ? "" : cacheKey.guid();
+        });
+    }
+
+
     public ClientCacheKey createOrUpdate(String key) {
         UUID guid = randomUUID();
-        clientCacheKeyDao.createOrUpdate(key, guid.toString());
+        try {
+            clientCacheKeyDao.createOrUpdate(key, guid.toString());
+        } finally {
+            versionCache.invalidate(key);
+        }
         return clientCacheKeyDao.getByKey(key);
     }
 
@@ -17,7 +17,7 @@
  */
 package com.khartec.waltz.service.complexity;
 
-import com.khartec.waltz.common.ListUtilities;
+import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
 import com.khartec.waltz.data.complexity.ComplexityScoreDao;
 import com.khartec.waltz.model.EntityKind;
@@ -28,7 +28,6 @@ import com.khartec.waltz.model.complexity.ComplexityScore;
 import com.khartec.waltz.schema.tables.records.ComplexityScoreRecord;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.SelectJoinStep;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,10 +35,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
-import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 
 
@@ -48,10 +51,13 @@ public class ComplexityRatingService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ComplexityRatingService.class);
 
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     private final ComplexityScoreDao complexityScoreDao;
     private final MeasurableComplexityService measurableComplexityService;
     private final ConnectionComplexityService connectionComplexityService;
     private final ServerComplexityService serverComplexityService;
+    private final DBExecutorPoolInterface dbExecutorPool;
 
     private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
 
@@ -60,17 +66,20 @@ public class ComplexityRatingService {
     public ComplexityRatingService(ComplexityScoreDao complexityScoreDao,
                                    MeasurableComplexityService measurableComplexityService,
                                    ConnectionComplexityService connectionComplexityService,
-                                   ServerComplexityService serverComplexityService) {
+                                   ServerComplexityService serverComplexityService,
+                                   DBExecutorPoolInterface dbExecutorPool) {
 
         checkNotNull(complexityScoreDao, "complexityScoreDao cannot be null");
         checkNotNull(measurableComplexityService, "measurableComplexityService cannot be null");
         checkNotNull(connectionComplexityService, "connectionComplexityService cannot be null");
         checkNotNull(serverComplexityService, "serverComplexityService cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
 
         this.complexityScoreDao = complexityScoreDao;
         this.measurableComplexityService = measurableComplexityService;
         this.connectionComplexityService = connectionComplexityService;
         this.serverComplexityService = serverComplexityService;
+        this.dbExecutorPool = dbExecutorPool;
     }
 
 
@@ -94,28 +103,57 @@ public class ComplexityRatingService {
     }
 
 
+    /**
+     * Recomputes the connection, server and measurable complexity scores for all
+     * applications.  The three scorers run concurrently on the db executor (if
+     * its queue is full a scorer simply runs on the calling thread), each kind
+     * is then replaced in its own transaction so the existing scores remain
+     * visible until their replacements are committed.  Score records are built
+     * as each insert batch is filled rather than all up front.
+     *
+     * @return  number of score records written
+     */
     public int rebuild() {
 
         LOG.info("Rebuild complexity score table");
-        SelectJoinStep<Record1<Long>> appIdSelector = DSL.select(APPLICATION.ID).from(APPLICATION);
 
-        List<ComplexityScore> connectionScores = connectionComplexityService.findByAppIdSelector(appIdSelector);
-        List<ComplexityScore> serverScores = serverComplexityService.findByAppIdSelector(appIdSelector);
-        List<ComplexityScore> measurableScores = measurableComplexityService.findByAppIdSelector(appIdSelector);
+        Map<ComplexityKind, Future<List<ComplexityScore>>> scoresByKind = new EnumMap<>(ComplexityKind.class);
+        scoresByKind.put(ComplexityKind.SERVER, submit(serverComplexityService::findByAppIdSelector));
+        scoresByKind.put(ComplexityKind.CONNECTION, submit(connectionComplexityService::findByAppIdSelector));
+        scoresByKind.put(ComplexityKind.MEASURABLE, submit(measurableComplexityService::findByAppIdSelector));
+
+        int total = 0;
+        for (Map.Entry<ComplexityKind, Future<List<ComplexityScore>>> entry : scoresByKind.entrySet()) {
+            ComplexityKind kind = entry.getKey();
+            List<ComplexityScore> scores = await(kind, entry.getValue());
+
+            LOG.info("Replacing {} complexity scores with {} new records", kind, scores.size());
+            total += complexityScoreDao.replaceForKind(
+                    kind,
+                    scores.stream().map(r -> buildComplexityScoreRecord(r, kind)),
+                    INSERT_BATCH_SIZE);
+        }
+
+        LOG.info("Completed rebuild of complexity scores, records: {}", total);
+        return total;
+    }
 
-        List<ComplexityScoreRecord> records = ListUtilities.concat(
-                map(serverScores, r -> buildComplexityScoreRecord(r, ComplexityKind.SERVER)),
-                map(connectionScores, r -> buildComplexityScoreRecord(r, ComplexityKind.CONNECTION)),
-                map(measurableScores, r -> buildComplexityScoreRecord(r, ComplexityKind.MEASURABLE)));
 
-        LOG.info("Scrubbing existing complexity score table");
-        complexityScoreDao.deleteAll();
+    private Future<List<ComplexityScore>> submit(Function<Select<Record1<Long>>, List<ComplexityScore>> scorer) {
+        // each task gets its own selector as query parts are not safe to share between threads
+        return dbExecutorPool.submit(() -> scorer.apply(DSL.select(APPLICATION.ID).from(APPLICATION)));
+    }
 
-        LOG.info("Inserting {} new records into complexity score table", records.size());
-        int[] results = complexityScoreDao.bulkInsert(records);
 
-        LOG.info("Completed insertion of new records, results: {}", results.length);
-        return results.length;
+    private static List<ComplexityScore> await(ComplexityKind kind, Future<List<ComplexityScore>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst calculating " + kind + " complexity", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to calculate " + kind + " complexity", e.getCause());
+        }
     }
 
 
@@ -19,7 +19,6 @@
 package com.khartec.waltz.service.data_flow_decorator;
 
 import com.khartec.waltz.data.authoritative_source.AuthoritativeSourceDao;
-import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
@@ -32,6 +31,7 @@ import com.khartec.waltz.model.logical_flow.LogicalFlow;
 import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.service.application.ApplicationService;
 import com.khartec.waltz.service.authoritative_source.AuthoritativeSourceResolver;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -58,23 +58,23 @@ public class LogicalFlowDecoratorRatingsCalculator {
     private final ApplicationService applicationService;
     private final AuthoritativeSourceDao authoritativeSourceDao;
     private final LogicalFlowDao logicalFlowDao;
-    private final DataTypeDao dataTypeDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
     public LogicalFlowDecoratorRatingsCalculator(ApplicationService applicationService,
                                                  AuthoritativeSourceDao authoritativeSourceDao,
                                                  LogicalFlowDao logicalFlowDao,
-                                                 DataTypeDao dataTypeDao) {
+                                                 ReferenceDataService referenceDataService) {
         checkNotNull(applicationService, "applicationService cannot be null");
         checkNotNull(authoritativeSourceDao, "authoritativeSourceDao cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
-        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.applicationService = applicationService;
         this.authoritativeSourceDao = authoritativeSourceDao;
         this.logicalFlowDao = logicalFlowDao;
-        this.dataTypeDao = dataTypeDao;
+        this.referenceDataService = referenceDataService;
     }
 
 
@@ -87,7 +87,7 @@ public class LogicalFlowDecoratorRatingsCalculator {
         if (isEmpty(appToAppFlows)) return Collections.emptyList();
 
         List<Application> targetApps = loadTargetApplications(appToAppFlows);
-        List<DataType> dataTypes = dataTypeDao.findAll();
+        List<DataType> dataTypes = referenceDataService.getSnapshot().getDataTypes();
 
         Map<Long, DataType> typesById = indexById(dataTypes);
         Map<Long, LogicalFlow> flowsById = indexById(appToAppFlows);
@@ -19,12 +19,10 @@
 package com.khartec.waltz.service.data_flow_decorator;
 
 
-import com.khartec.waltz.common.Checks;
 import com.khartec.waltz.common.ListUtilities;
-import com.khartec.waltz.common.SetUtilities;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.common.hierarchy.LongForest;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.data_flow_decorator.LogicalFlowDecoratorSummaryDao;
-import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowStatsDao;
 import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
@@ -39,7 +37,10 @@ import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlowMeasures;
 import com.khartec.waltz.model.logical_flow.LogicalFlow;
 import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
 import com.khartec.waltz.service.logical_flow.LogicalFlowService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import com.khartec.waltz.service.reference_data.ReferenceDataSnapshot;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
 import org.jooq.Record1;
 import org.jooq.Select;
@@ -55,14 +56,10 @@ import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.map;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
 import static com.khartec.waltz.common.ListUtilities.asList;
-import static com.khartec.waltz.common.MapUtilities.indexBy;
-import static com.khartec.waltz.common.SetUtilities.asSet;
-import static com.khartec.waltz.common.SetUtilities.union;
 import static com.khartec.waltz.model.EntityReference.mkRef;
 import static com.khartec.waltz.model.FlowDirection.*;
 import static com.khartec.waltz.model.utils.IdUtilities.indexById;
 import static java.util.Collections.emptyList;
-import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.joining;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
@@ -72,10 +69,11 @@ public class LogicalFlowDecoratorService {
     private final LogicalFlowDecoratorSummaryDao logicalFlowDecoratorSummaryDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
-    private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory applicationIdSelectorFactory;
     private final DataTypeUsageService dataTypeUsageService;
-    private final DataTypeDao dataTypeDao;
+    private final ReferenceDataService referenceDataService;
     private final LogicalFlowDao logicalFlowDao;
+    private final LogicalFlowGraphService logicalFlowGraphService;
     private final ChangeLogService changeLogService;
 
 
@@ -84,28 +82,34 @@ public class LogicalFlowDecoratorService {
                                        LogicalFlowDecoratorDao logicalFlowDecoratorDao,
                                        LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
                                        DataTypeUsageService dataTypeUsageService,
-                                       DataTypeDao dataTypeDao,
+                                       ReferenceDataService referenceDataService,
                                        LogicalFlowDao logicalFlowDao,
                                        LogicalFlowService logicalFlowService,
+                                       LogicalFlowGraphService logicalFlowGraphService,
                                        LogicalFlowStatsDao logicalFlowStatsDao,
-                                       ChangeLogService changeLogService) {
+                                       ChangeLogService changeLogService,
+                                       CachingApplicationIdSelectorFactory applicationIdSelectorFactory) {
 
         checkNotNull(logicalFlowDecoratorSummaryDao, "logicalFlowDecoratorDao cannot be null");
         checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
-        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
         checkNotNull(logicalFlowService, "logicalFlowService cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
         checkNotNull(logicalFlowStatsDao, "logicalFlowStatsDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(applicationIdSelectorFactory, "applicationIdSelectorFactory cannot be null");
 
         this.logicalFlowDecoratorSummaryDao = logicalFlowDecoratorSummaryDao;
         this.ratingsCalculator = ratingsCalculator;
         this.dataTypeUsageService = dataTypeUsageService;
-        this.dataTypeDao = dataTypeDao;
+        this.referenceDataService = referenceDataService;
         this.logicalFlowDao = logicalFlowDao;
+        this.logicalFlowGraphService = logicalFlowGraphService;
         this.changeLogService = changeLogService;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.applicationIdSelectorFactory = applicationIdSelectorFactory;
     }
 
 
@@ -133,6 +137,7 @@ public class LogicalFlowDecoratorService {
 
         Collection<DataTypeDecorator> decorators = ratingsCalculator.calculate(unrated);
         int[] added = logicalFlowDecoratorDao.addDecorators(decorators);
+        logicalFlowGraphService.refreshFlows(map(actions, UpdateDataFlowDecoratorsAction::flowId));
 
         List<LogicalFlow> effectedFlows = logicalFlowDao.findActiveByFlowIds(
                 map(actions, UpdateDataFlowDecoratorsAction::flowId));
@@ -193,10 +198,12 @@ public class LogicalFlowDecoratorService {
 
 
     private String mkAuditMessage(Operation op, Collection<EntityReference> decoratorReferences) {
-        String dtNames = dataTypeDao
-                .findByIds(map(decoratorReferences, EntityReference::id))
+        ReferenceDataSnapshot referenceData = referenceDataService.getSnapshot();
+        String dtNames = decoratorReferences
                 .stream()
-                .map(NameProvider::name)
+                .map(ref -> referenceData.getDataTypeById(ref.id()))
+                .filter(Optional::isPresent)
+                .map(dt -> dt.get().name())
                 .collect(joining(", ", "", ""));
 
         switch (op) {
@@ -247,22 +254,18 @@ public class LogicalFlowDecoratorService {
 
     private Set<LogicalFlowDecoratorStat> findFlowIdsByDataTypeForParentsAndChildren(Map<DataTypeDirectionKey, List<Long>> logicalFlowIdsByDataType) {
 
-        List<DataType> dataTypes = dataTypeDao.findAll();
-        Map<Optional<Long>, DataType> dataTypesById = indexBy(IdProvider::id, dataTypes);
+        ReferenceDataSnapshot referenceData = referenceDataService.getSnapshot();
+        List<DataType> dataTypes = referenceData.getDataTypes();
+        LongForest dataTypeForest = referenceData.getDataTypeForest();
 
         return dataTypes
                 .stream()
                 .map(dt -> {
-                    DataType exactDataType = dataTypesById.get(dt.id());
-                    Set<DataTypeDirectionKey> keysForDatatype = filterKeySetByDataTypeId(logicalFlowIdsByDataType, asSet(dt.id().get()));
+                    Set<DataTypeDirectionKey> allKeys = findKeysForSelfParentsAndChildren(
+                            logicalFlowIdsByDataType,
+                            dataTypeForest,
+                            dt.id().get());
 
-                    Set<DataType> parentDataTypes = getParents(exactDataType, dataTypesById);
-                    Set<DataTypeDirectionKey> keysForParents = filterKeySetByDataTypeId(logicalFlowIdsByDataType, getIds(parentDataTypes));
-
-                    Set<DataType> childDataTypes = getChildren(exactDataType, dataTypesById);
-                    Set<DataTypeDirectionKey> keysForChildren = filterKeySetByDataTypeId(logicalFlowIdsByDataType, getIds(childDataTypes));
-
-                    Set<DataTypeDirectionKey> allKeys = union(keysForDatatype, keysForParents, keysForChildren);
                     Set<Long> allFlowIds = getFlowsFromKeys(logicalFlowIdsByDataType, allKeys);
 
                     Map<FlowDirection, Integer> typeToFlowCountMap = getTypeToFlowCountMap(logicalFlowIdsByDataType, allKeys);
@@ -297,11 +300,6 @@ public class LogicalFlowDecoratorService {
     }
 
 
-    private static Set<Long> getIds(Set<DataType> dataTypes) {
-        return SetUtilities.map(dataTypes, dataType -> dataType.id().get());
-    }
-
-
     private Map<FlowDirection, Integer> getTypeToFlowCountMap(Map<DataTypeDirectionKey, List<Long>> logicalFlowIdsByDataType,
                                                               Set<DataTypeDirectionKey> allKeys) {
 
@@ -323,12 +321,14 @@ public class LogicalFlowDecoratorService {
     }
 
 
-    private Set<DataTypeDirectionKey> filterKeySetByDataTypeId(Map<DataTypeDirectionKey, List<Long>> logicalFlowIdsByDataType,
-                                                               Set<Long> dataTypeIds) {
+    private static Set<DataTypeDirectionKey> findKeysForSelfParentsAndChildren(Map<DataTypeDirectionKey, List<Long>> logicalFlowIdsByDataType,
+                                                                                LongForest dataTypeForest,
+                                                                                long dataTypeId) {
         return logicalFlowIdsByDataType
                 .keySet()
                 .stream()
-                .filter(k -> dataTypeIds.contains(k.DatatypeId()))
+                .filter(k -> dataTypeForest.isAncestorOrSelf(dataTypeId, k.DatatypeId())
+                        || dataTypeForest.isAncestorOrSelf(k.DatatypeId(), dataTypeId))
                 .collect(Collectors.toSet());
     }
 
@@ -342,51 +342,4 @@ public class LogicalFlowDecoratorService {
         }
         return flowIds;
     }
-
-
-    private static Set<DataType> getChildren(DataType dataType, Map<Optional<Long>, DataType> datatypesById) {
-
-        Set<DataType> children = new HashSet<>(emptySet());
-
-        Long parent = dataType.id().orElse(null);
-
-        Set<DataType> descendants = getDescendants(datatypesById, parent);
-
-        children.addAll(descendants);
-
-        descendants
-                .forEach(dt -> {
-                    Set<DataType> grandchildren = getChildren(dt, datatypesById);
-                    children.addAll(grandchildren);
-                });
-
-        return children;
-    }
-
-
-    private static Set<DataType> getDescendants(Map<Optional<Long>, DataType> dataTypesById, Long parentId) {
-        return dataTypesById
-                .values()
-                .stream()
-                .filter(dt -> dt.parentId().isPresent()
-                        && dt.parentId().get().equals(parentId))
-                .collect(Collectors.toSet());
-    }
-
-
-    private static Set<DataType> getParents(DataType dataType, Map<Optional<Long>, DataType> dataTypesById) {
-
-        Checks.checkNotNull(dataType, "starting datatype cannot be null");
-
-        Set<DataType> parents = new HashSet<>(emptySet());
-
-        DataType parent = dataTypesById.get(dataType.parentId());
-
-        while (parent != null) {
-            parents.add(parent);
-            parent = dataTypesById.get(parent.parentId());
-        }
-
-        return parents;
-    }
 }
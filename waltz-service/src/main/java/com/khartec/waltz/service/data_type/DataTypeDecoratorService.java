@@ -32,6 +32,7 @@ import com.khartec.waltz.model.rating.AuthoritativenessRating;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
 import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorService;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
 import com.khartec.waltz.service.physical_flow.PhysicalFlowService;
 import com.khartec.waltz.service.usage_info.DataTypeUsageService;
 import org.jooq.impl.DSL;
@@ -56,6 +57,7 @@ public class DataTypeDecoratorService {
     private final PhysicalFlowService physicalFlowService;
     private final DataTypeDecoratorDaoSelectorFactory dataTypeDecoratorDaoSelectorFactory;
     private final LogicalFlowDao logicalFlowDao;
+    private final LogicalFlowGraphService logicalFlowGraphService;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
     private final DataTypeUsageService dataTypeUsageService;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
@@ -66,15 +68,18 @@ public class DataTypeDecoratorService {
                                     PhysicalFlowService physicalFlowService,
                                     DataTypeDecoratorDaoSelectorFactory dataTypeDecoratorDaoSelectorFactory,
                                     LogicalFlowDao logicalFlowDao,
+                                    LogicalFlowGraphService logicalFlowGraphService,
                                     LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
                                     DataTypeUsageService dataTypeUsageService) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(logicalFlowDecoratorService, "logicalFlowDecoratorService cannot be null");
         checkNotNull(physicalFlowService, "physicalFlowService cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
 
         this.changeLogService = changeLogService;
         this.physicalFlowService = physicalFlowService;
         this.logicalFlowDao = logicalFlowDao;
+        this.logicalFlowGraphService = logicalFlowGraphService;
         this.ratingsCalculator = ratingsCalculator;
         this.dataTypeUsageService = dataTypeUsageService;
         this.dataTypeDecoratorDaoSelectorFactory = dataTypeDecoratorDaoSelectorFactory;
@@ -168,6 +173,7 @@ public class DataTypeDecoratorService {
 
     private void recalculateDataTypeUsageForApplications(EntityReference associatedEntityReference) {
         if(LOGICAL_DATA_FLOW.equals(associatedEntityReference.kind())) {
+            logicalFlowGraphService.refreshFlows(newArrayList(associatedEntityReference.id()));
             LogicalFlow flow = logicalFlowDao.getByFlowId(associatedEntityReference.id());
             dataTypeUsageService.recalculateForApplications(newArrayList(flow.source(), flow.target()));
         }
@@ -18,10 +18,10 @@
 
 package com.khartec.waltz.service.data_type;
 
-import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.data_type.search.DataTypeSearchDao;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -35,32 +35,40 @@ import static com.khartec.waltz.common.Checks.checkNotNull;
 public class DataTypeService {
 
 
-    private final DataTypeDao dataTypeDao;
+    private final ReferenceDataService referenceDataService;
     private final DataTypeSearchDao searchDao;
 
 
     @Autowired
-    public DataTypeService(DataTypeDao dataTypeDao, DataTypeSearchDao searchDao) {
-        checkNotNull(dataTypeDao, "dataTypeDao must not be null");
+    public DataTypeService(ReferenceDataService referenceDataService, DataTypeSearchDao searchDao) {
+        checkNotNull(referenceDataService, "referenceDataService must not be null");
         checkNotNull(searchDao, "searchDao cannot be null");
 
-        this.dataTypeDao = dataTypeDao;
+        this.referenceDataService = referenceDataService;
         this.searchDao = searchDao;
     }
 
 
     public List<DataType> findAll() {
-        return dataTypeDao.findAll();
+        return referenceDataService
+                .getSnapshot()
+                .getDataTypes();
     }
 
 
     public DataType getDataTypeById(long dataTypeId) {
-        return dataTypeDao.getById(dataTypeId);
+        return referenceDataService
+                .getSnapshot()
+                .getDataTypeById(dataTypeId)
+                .orElse(null);
     }
 
 
     public DataType getDataTypeByCode(String code) {
-        return dataTypeDao.getByCode(code);
+        return referenceDataService
+                .getSnapshot()
+                .getDataTypeByCode(code)
+                .orElse(null);
     }
 
 
@@ -73,10 +81,8 @@ public class DataTypeService {
      * @return `Optional.of(unknownDataType)` if an unknown datatype has been defined otherwise `Optional.empty()`.
      */
     public Optional<DataType> getUnknownDataType() {
-        return dataTypeDao
-                .findAll()
-                .stream()
-                .filter(DataType::unknown)
-                .findFirst();
+        return referenceDataService
+                .getSnapshot()
+                .getUnknownDataType();
     }
 }
@@ -19,7 +19,7 @@
 package com.khartec.waltz.service.database_information;
 
 import com.khartec.waltz.common.Checks;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.database_information.DatabaseInformationDao;
 import com.khartec.waltz.model.IdSelectionOptions;
 import com.khartec.waltz.model.database_information.DatabaseInformation;
@@ -36,12 +36,15 @@ import static com.khartec.waltz.common.Checks.checkNotNull;
 public class DatabaseInformationService {
 
     private final DatabaseInformationDao databaseInformationDao;
-    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory factory;
 
     @Autowired
-    public DatabaseInformationService(DatabaseInformationDao databaseInformationDao) {
+    public DatabaseInformationService(DatabaseInformationDao databaseInformationDao,
+                                      CachingApplicationIdSelectorFactory factory) {
         Checks.checkNotNull(databaseInformationDao, "databaseInformationDao cannot be null");
+        Checks.checkNotNull(factory, "factory cannot be null");
         this.databaseInformationDao = databaseInformationDao;
+        this.factory = factory;
     }
 
     public List<DatabaseInformation> findByApplicationId(Long id) {
@@ -19,10 +19,7 @@
 package com.khartec.waltz.service.entity_hierarchy;
 
 import com.khartec.waltz.common.ListUtilities;
-import com.khartec.waltz.common.hierarchy.FlatNode;
-import com.khartec.waltz.common.hierarchy.Forest;
-import com.khartec.waltz.common.hierarchy.HierarchyUtilities;
-import com.khartec.waltz.common.hierarchy.Node;
+import com.khartec.waltz.common.hierarchy.LongForest;
 import com.khartec.waltz.data.change_initiative.ChangeInitiativeDao;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.entity_hierarchy.EntityHierarchyDao;
@@ -40,13 +37,14 @@ import com.khartec.waltz.schema.Tables;
 import com.khartec.waltz.service.person_hierarchy.PersonHierarchyService;
 import org.jooq.*;
 import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.LongPredicate;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.model.EntityKind.PERSON;
@@ -57,6 +55,15 @@ import static org.jooq.impl.DSL.select;
 @Service
 public class EntityHierarchyService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntityHierarchyService.class);
+
+    /**
+     * Subtrees larger than this are rebuilt via a (diffed) rebuild of the
+     * whole kind rather than by listing every affected id in the query.
+     */
+    private static final int MAX_SUBTREE_SIZE = 1000;
+
+    private final boolean incremental;
     private final DSLContext dsl;
     private final ChangeInitiativeDao changeInitiativeDao;
     private final DataTypeDao dataTypeDao;
@@ -75,7 +82,8 @@ public class EntityHierarchyService {
                                   EntityStatisticDao entityStatisticDao,
                                   MeasurableDao measurableDao, 
                                   OrganisationalUnitDao organisationalUnitDao,
-                                  PersonHierarchyService personHierarchyService) {
+                                  PersonHierarchyService personHierarchyService,
+                                  @Value("${waltz.hierarchy.rebuild.incremental:true}") boolean incremental) {
 
         checkNotNull(dsl, "dsl cannot be null");
         checkNotNull(changeInitiativeDao, "changeInitiativeDao cannot be null");
@@ -94,6 +102,7 @@ public class EntityHierarchyService {
         this.measurableDao = measurableDao;
         this.organisationalUnitDao = organisationalUnitDao;
         this.personHierarchyService = personHierarchyService;
+        this.incremental = incremental;
     }
 
 
@@ -160,76 +169,148 @@ public class EntityHierarchyService {
     }
 
 
+    /**
+     * Rebuilds the hierarchy rows for a single node and all of its
+     * descendants, typically after that node has been moved to a new parent.
+     * Rows for nodes outside of the subtree are not touched.  Measurables are
+     * only read from the node's own category.
+     *
+     * @param subtreeRoot  the node which has changed
+     * @return  number of hierarchy rows for the subtree
+     */
+    public int buildForSubtree(EntityReference subtreeRoot) {
+        checkNotNull(subtreeRoot, "subtreeRoot cannot be null");
+
+        EntityKind kind = subtreeRoot.kind();
+        Table table = determineTableToRebuild(kind);
+
+        Long categoryId = kind == EntityKind.MEASURABLE
+                ? checkNotNull(measurableDao.getById(subtreeRoot.id()), "Cannot find measurable: %d", subtreeRoot.id()).categoryId()
+                : null;
+
+        LongForest forest = fetchForest(
+                table,
+                categoryId == null
+                        ? DSL.trueCondition()
+                        : MEASURABLE.MEASURABLE_CATEGORY_ID.eq(categoryId));
+
+        Set<Long> affectedIds = findSubtreeIds(
+                forest,
+                subtreeRoot.id(),
+                ListUtilities.map(entityHierarchyDao.findDesendents(subtreeRoot), item -> item.id().get()));
+
+        if (affectedIds.size() > MAX_SUBTREE_SIZE) {
+            LOG.info("Subtree of {} has {} nodes, rebuilding {} instead",
+                    subtreeRoot,
+                    affectedIds.size(),
+                    categoryId == null ? "whole hierarchy" : "measurable category " + categoryId);
+            return categoryId == null
+                    ? buildFor(kind)
+                    : buildForMeasurableByCategory(categoryId);
+        }
+
+        List<EntityHierarchyItem> hierarchyItems = convertForestToHierarchyItems(
+                kind,
+                forest,
+                affectedIds::contains);
+
+        entityHierarchyDao.syncHierarchy(kind, hierarchyItems, ENTITY_HIERARCHY.ID.in(affectedIds));
+        return hierarchyItems.size();
+    }
+
+
+    /**
+     * The nodes whose hierarchy rows may change when the given node moves: the
+     * node itself, its current descendants and the descendants it had before
+     * the move (as recorded in the stored hierarchy).
+     */
+    static Set<Long> findSubtreeIds(LongForest forest,
+                                    long subtreeRootId,
+                                    Collection<Long> previousDescendantIds) {
+        Set<Long> affectedIds = new HashSet<>(previousDescendantIds);
+        if (forest.contains(subtreeRootId)) {
+            affectedIds.add(subtreeRootId);
+            for (long descendantId : forest.descendantIds(subtreeRootId)) {
+                affectedIds.add(descendantId);
+            }
+        }
+        return affectedIds;
+    }
+
+
     private int buildFor(Table table,
                          EntityKind kind,
                          Condition selectFilter,
                          Condition deleteFilter) {
-        Collection<FlatNode<Long, Long>> flatNodes = fetchFlatNodes(table, selectFilter);
-        List<EntityHierarchyItem> hierarchyItems = convertFlatNodesToHierarchyItems(kind, flatNodes);
-
-        return entityHierarchyDao.replaceHierarchy(kind, hierarchyItems, deleteFilter);
+        List<EntityHierarchyItem> hierarchyItems = convertForestToHierarchyItems(
+                kind,
+                fetchForest(table, selectFilter),
+                id -> true);
+
+        if (incremental) {
+            entityHierarchyDao.syncHierarchy(kind, hierarchyItems, deleteFilter);
+            return hierarchyItems.size();
+        } else {
+            return entityHierarchyDao.replaceHierarchy(kind, hierarchyItems, deleteFilter);
+        }
     }
 
 
-    private List<FlatNode<Long, Long>> fetchFlatNodes(Table table, Condition selectFilter) {
+    private LongForest fetchForest(Table table, Condition selectFilter) {
         Field<Long> idField = table.field("id", Long.class);
         Field<Long> parentIdField = table.field("parent_id", Long.class);
 
         checkNotNull(idField, "cannot find id column");
         checkNotNull(parentIdField, "cannot find parent_id column");
 
-        return dsl.select(idField, parentIdField)
+        LongForest.Builder builder = LongForest.builder();
+
+        dsl.select(idField, parentIdField)
                 .from(table)
                 .where(selectFilter)
-                .fetch(r -> new FlatNode<>(
-                        r.value1(),
-                        Optional.ofNullable(r.value2()),
-                        r.value1()));
+                .fetch()
+                .forEach(r -> {
+                    if (r.value2() == null) {
+                        builder.add(r.value1());
+                    } else {
+                        builder.add(r.value1(), r.value2());
+                    }
+                });
+
+        return builder.build();
     }
 
 
-    private List<EntityHierarchyItem> convertFlatNodesToHierarchyItems(EntityKind kind, Collection<FlatNode<Long, Long>> flatNodes) {
-        Forest<Long, Long> forest = HierarchyUtilities.toForest(flatNodes);
-        Node<Long, Long> r = forest.getAllNodes().get(811L);
-        Map<Long, Integer> idToLevel = HierarchyUtilities.assignDepths(forest);
+    static List<EntityHierarchyItem> convertForestToHierarchyItems(EntityKind kind,
+                                                                   LongForest forest,
+                                                                   LongPredicate nodeFilter) {
+        List<EntityHierarchyItem> items = new ArrayList<>();
 
-        return forest.getAllNodes()
-                .values()
-                .stream()
-                .flatMap(streamItemsForNode(kind, idToLevel))
-                .collect(Collectors.toList());
-    }
+        for (long id : forest.getAllIds()) {
+            if (! nodeFilter.test(id)) {
+                continue;
+            }
 
+            // ancestor levels follow from the node's own depth, nodes not under a root have no levels (-1)
+            int level = forest.depthOf(id);
+            long[] ancestorIds = forest.ancestorIds(id);
+            for (int i = 0; i < ancestorIds.length; i++) {
+                items.add(mkHierarchyItem(kind, id, ancestorIds[i], level == -1 ? -1 : level - i - 1));
+            }
+            items.add(mkHierarchyItem(kind, id, id, level));
+        }
 
-    private Function<Node<Long, Long>, Stream<? extends EntityHierarchyItem>> streamItemsForNode(EntityKind kind, Map<Long, Integer> idToLevel) {
-        return node -> Stream.concat(
-                streamAncestors(kind, idToLevel, node),
-                streamSelf(kind, idToLevel, node));
+        return items;
     }
 
 
-    private Stream<EntityHierarchyItem> streamSelf(EntityKind kind, Map<Long, Integer> idToLevel, Node<Long, Long> node) {
-        Long nodeId = node.getId();
-        Integer level = idToLevel.get(nodeId);
-        ImmutableEntityHierarchyItem selfAsEntityHierarchyItem = ImmutableEntityHierarchyItem.builder()
-                .id(nodeId)
-                .parentId(nodeId)
-                .level(level == null ? -1 : level)
+    private static EntityHierarchyItem mkHierarchyItem(EntityKind kind, long id, long ancestorId, int level) {
+        return ImmutableEntityHierarchyItem.builder()
+                .id(id)
+                .parentId(ancestorId)
+                .level(level)
                 .kind(kind)
                 .build();
-        return Stream.of(selfAsEntityHierarchyItem);
-    }
-
-
-    private Stream<EntityHierarchyItem> streamAncestors(EntityKind kind, Map<Long, Integer> idToLevel, Node<Long, Long> node) {
-        return HierarchyUtilities.parents(node)
-            .stream()
-            .map(p -> ImmutableEntityHierarchyItem.builder()
-                    .id(node.getId())
-                    .parentId(p.getId())
-                    .level(idToLevel.get(p.getId()))
-                    .kind(kind)
-                    .build());
     }
 
 
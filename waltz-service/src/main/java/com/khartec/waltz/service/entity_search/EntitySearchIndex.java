@@ -0,0 +1,336 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.model.entity_search.SearchableEntity;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.data.SearchUtilities.mkTerms;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+
+/**
+ * An in-memory inverted index over the names, codes and aliases of
+ * searchable entities.
+ *
+ * Every searchable string is broken into lower-cased trigrams, each trigram
+ * maps to the set of entries containing it.  A query term is answered by
+ * taking the smallest posting set for the term's trigrams and then verifying
+ * each candidate, so only a handful of entries are examined per keystroke.
+ *
+ * Results are ranked in the same way as the database backed searches:
+ * code (e.g. asset code) prefix matches first, then name matches (ordered by
+ * the position of the first term within the name, then alphabetically), and
+ * finally alias matches.
+ */
+public class EntitySearchIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final int RANK_CODE = 0;
+    private static final int RANK_NAME = 1;
+    private static final int RANK_ALIAS = 2;
+
+    private static final Comparator<Match> MATCH_COMPARATOR = Comparator
+            .comparingInt((Match m) -> m.rank)
+            .thenComparingInt(m -> m.position)
+            .thenComparing(m -> m.entry.name);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<EntityReference, Entry> entries = new HashMap<>();
+    private Map<String, Set<Entry>> postings = new HashMap<>();
+
+
+    /**
+     * Replaces the entire contents of the index.  The new index is built
+     * before the write lock is taken so searches are not blocked whilst it
+     * is constructed.
+     *
+     * @param entities  all entities to be indexed
+     */
+    public void replaceAll(Collection<SearchableEntity> entities) {
+        checkNotNull(entities, "entities cannot be null");
+
+        Map<EntityReference, Entry> newEntries = new HashMap<>(entities.size() * 2);
+        Map<String, Set<Entry>> newPostings = new HashMap<>();
+        entities.forEach(e -> add(newEntries, newPostings, new Entry(e)));
+
+        lock.writeLock().lock();
+        try {
+            entries = newEntries;
+            postings = newPostings;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Refreshes the given entities.  Any entity referenced in
+     * <code>refs</code> but not present in <code>current</code> is
+     * removed from the index (e.g. it has been deleted).
+     *
+     * @param refs  references to the entities to be refreshed
+     * @param current  the current state of those entities which still exist
+     */
+    public void update(Collection<EntityReference> refs, Collection<SearchableEntity> current) {
+        checkNotNull(refs, "refs cannot be null");
+        checkNotNull(current, "current cannot be null");
+
+        List<Entry> replacements = current
+                .stream()
+                .map(Entry::new)
+                .collect(toList());
+
+        lock.writeLock().lock();
+        try {
+            refs.forEach(ref -> remove(toKey(ref)));
+            replacements.forEach(e -> {
+                remove(e.key);
+                add(entries, postings, e);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Searches the index, results are grouped by entity kind (in the order
+     * given in the options) and each kind is limited to
+     * <code>options.limit()</code> results.
+     *
+     * @param options  search query, kinds, lifecycle statuses and limit
+     * @return  matching entity references
+     */
+    public List<EntityReference> search(EntitySearchOptions options) {
+        checkNotNull(options, "options cannot be null");
+
+        List<String> terms = mkTerms(options.searchQuery())
+                .stream()
+                .map(t -> t.toLowerCase(Locale.ROOT))
+                .collect(toList());
+
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<EntityKind> kinds = EnumSet.noneOf(EntityKind.class);
+        kinds.addAll(options.entityKinds());
+        Set<EntityLifecycleStatus> statuses = EnumSet.noneOf(EntityLifecycleStatus.class);
+        statuses.addAll(options.entityLifecycleStatuses());
+
+        Map<EntityKind, List<Match>> matchesByKind = new EnumMap<>(EntityKind.class);
+
+        lock.readLock().lock();
+        try {
+            for (Entry entry : findCandidates(terms)) {
+                if (! kinds.contains(entry.ref.kind())
+                        || ! statuses.contains(entry.ref.entityLifecycleStatus())) {
+                    continue;
+                }
+                Match match = match(entry, terms);
+                if (match != null) {
+                    matchesByKind
+                            .computeIfAbsent(entry.ref.kind(), k -> new ArrayList<>())
+                            .add(match);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return options
+                .entityKinds()
+                .stream()
+                .distinct()
+                .flatMap(k -> matchesByKind
+                        .getOrDefault(k, Collections.emptyList())
+                        .stream()
+                        .sorted(MATCH_COMPARATOR)
+                        .limit(options.limit()))
+                .map(m -> m.entry.ref)
+                .collect(toList());
+    }
+
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // -- helpers --
+
+    /**
+     * Uses the longest term to select candidates, terms shorter than the
+     * gram length cannot use the index so every entry is a candidate.
+     */
+    private Collection<Entry> findCandidates(List<String> terms) {
+        String longestTerm = terms
+                .stream()
+                .max(Comparator.comparingInt(String::length))
+                .get();
+
+        if (longestTerm.length() < GRAM_LENGTH) {
+            return entries.values();
+        }
+
+        Set<Entry> smallest = null;
+        for (String gram : mkGrams(longestTerm)) {
+            Set<Entry> posting = postings.get(gram);
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+
+    private static Match match(Entry entry, List<String> terms) {
+        for (String code : entry.codes) {
+            if (terms.stream().allMatch(code::startsWith)) {
+                return new Match(entry, RANK_CODE, 0);
+            }
+        }
+
+        if (terms.stream().allMatch(entry.name::contains)) {
+            return new Match(entry, RANK_NAME, entry.name.indexOf(terms.get(0)));
+        }
+
+        for (String alias : entry.aliases) {
+            if (terms.stream().allMatch(alias::contains)) {
+                return new Match(entry, RANK_ALIAS, 0);
+            }
+        }
+
+        return null;
+    }
+
+
+    private void remove(EntityReference key) {
+        Entry existing = entries.remove(key);
+        if (existing == null) {
+            return;
+        }
+        for (String gram : existing.grams) {
+            Set<Entry> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(existing);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+
+    private static void add(Map<EntityReference, Entry> entries,
+                            Map<String, Set<Entry>> postings,
+                            Entry entry) {
+        entries.put(entry.key, entry);
+        for (String gram : entry.grams) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(entry);
+        }
+    }
+
+
+    private static Set<String> mkGrams(String str) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= str.length(); i++) {
+            grams.add(str.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+
+    private static String normalise(String str) {
+        return str == null
+                ? ""
+                : str.toLowerCase(Locale.ROOT);
+    }
+
+
+    private static EntityReference toKey(EntityReference ref) {
+        return EntityReference.mkRef(ref.kind(), ref.id());
+    }
+
+
+    /**
+     * Entries use identity equality, they are replaced (never mutated)
+     * when the underlying entity changes.
+     */
+    private static class Entry {
+
+        private final EntityReference key;
+        private final EntityReference ref;
+        private final String name;
+        private final List<String> codes;
+        private final List<String> aliases;
+        private final Set<String> grams;
+
+
+        private Entry(SearchableEntity entity) {
+            this.ref = entity.entityReference();
+            this.key = toKey(ref);
+            this.name = normalise(ref.name().orElse(null));
+            this.codes = entity.codes().stream().map(EntitySearchIndex::normalise).collect(toList());
+            this.aliases = entity.aliases().stream().map(EntitySearchIndex::normalise).collect(toList());
+            this.grams = Stream
+                    .concat(Stream.of(name), Stream.concat(codes.stream(), aliases.stream()))
+                    .flatMap(s -> mkGrams(s).stream())
+                    .collect(toSet());
+        }
+    }
+
+
+    private static class Match {
+
+        private final Entry entry;
+        private final int rank;
+        private final int position;
+
+
+        private Match(Entry entry, int rank, int position) {
+            this.entry = entry;
+            this.rank = rank;
+            this.position = position;
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.data.changelog.ChangeLogDao;
+import com.khartec.waltz.data.entity_search.SearchableEntityDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.model.entity_search.SearchableEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static java.util.stream.Collectors.*;
+
+
+/**
+ * Maintains the optional in-memory {@link EntitySearchIndex}.
+ *
+ * When enabled (<code>waltz.search.index.enabled</code>) the index is built
+ * on the first scheduled refresh.  Subsequent refreshes read the change log
+ * for entities which have been modified since the last refresh and reload
+ * just those entities.  Changes which do not write to the change log are
+ * picked up by a periodic full rebuild.
+ *
+ * Until the index has been built all searches fall back to the database.
+ */
+@Service
+public class EntitySearchIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndexService.class);
+
+    /**
+     * Change log entries are written with the clock of the server making the
+     * change, re-reading a short window guards against clock skew and late
+     * commits.  Re-indexing an entity twice is harmless.
+     */
+    private static final long CHANGE_LOG_OVERLAP_SECONDS = 60;
+
+    private final SearchableEntityDao searchableEntityDao;
+    private final ChangeLogDao changeLogDao;
+    private final boolean enabled;
+    private final long rebuildIntervalMinutes;
+
+    private final EntitySearchIndex index = new EntitySearchIndex();
+
+    private volatile boolean ready = false;
+    private LocalDateTime lastBuiltAt;
+    private LocalDateTime changeLogWatermark;
+
+
+    @Autowired
+    public EntitySearchIndexService(SearchableEntityDao searchableEntityDao,
+                                    ChangeLogDao changeLogDao,
+                                    @Value("${waltz.search.index.enabled:false}") boolean enabled,
+                                    @Value("${waltz.search.index.rebuild.minutes:60}") long rebuildIntervalMinutes) {
+        checkNotNull(searchableEntityDao, "searchableEntityDao cannot be null");
+        checkNotNull(changeLogDao, "changeLogDao cannot be null");
+
+        this.searchableEntityDao = searchableEntityDao;
+        this.changeLogDao = changeLogDao;
+        this.enabled = enabled;
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+    }
+
+
+    @Scheduled(fixedDelayString = "${waltz.search.index.refresh.ms:30000}")
+    public void refresh() {
+        if (! enabled) {
+            return;
+        }
+
+        try {
+            if (! ready || lastBuiltAt.plusMinutes(rebuildIntervalMinutes).isBefore(nowUtc())) {
+                rebuild();
+            } else {
+                applyChanges();
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to refresh entity search index", e);
+        }
+    }
+
+
+    /**
+     * @return true if the given kind can be answered by the index
+     */
+    public boolean isIndexed(EntityKind kind) {
+        return ready && SearchableEntityDao.SUPPORTED_KINDS.contains(kind);
+    }
+
+
+    public List<EntityReference> search(EntitySearchOptions options) {
+        return index.search(options);
+    }
+
+
+    public synchronized int rebuild() {
+        LocalDateTime startedAt = nowUtc();
+        long st = System.currentTimeMillis();
+
+        List<SearchableEntity> entities = SearchableEntityDao.SUPPORTED_KINDS
+                .stream()
+                .flatMap(kind -> searchableEntityDao.findAll(kind).stream())
+                .collect(toList());
+
+        index.replaceAll(entities);
+
+        lastBuiltAt = startedAt;
+        changeLogWatermark = startedAt;
+        ready = true;
+
+        LOG.info("Built entity search index of {} entities in {}ms", entities.size(), System.currentTimeMillis() - st);
+        return entities.size();
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    public boolean isReady() {
+        return ready;
+    }
+
+
+    public int getIndexSize() {
+        return index.size();
+    }
+
+
+    // -- helpers --
+
+    private synchronized void applyChanges() {
+        Map<EntityReference, LocalDateTime> changes = changeLogDao.findLatestChangeByParentSince(
+                changeLogWatermark.minusSeconds(CHANGE_LOG_OVERLAP_SECONDS),
+                SearchableEntityDao.SUPPORTED_KINDS);
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        Map<EntityKind, Set<Long>> idsByKind = changes
+                .keySet()
+                .stream()
+                .collect(groupingBy(
+                        EntityReference::kind,
+                        mapping(EntityReference::id, toSet())));
+
+        List<SearchableEntity> current = idsByKind
+                .entrySet()
+                .stream()
+                .flatMap(e -> searchableEntityDao.findByIds(e.getKey(), e.getValue()).stream())
+                .collect(toList());
+
+        index.update(changes.keySet(), current);
+
+        LocalDateTime latestChange = Collections.max(changes.values());
+        if (latestChange.isAfter(changeLogWatermark)) {
+            changeLogWatermark = latestChange;
+        }
+        LOG.debug("Refreshed {} entities in the search index", changes.size());
+    }
+
+}
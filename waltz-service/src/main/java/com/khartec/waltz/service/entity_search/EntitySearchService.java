@@ -23,6 +23,7 @@ import com.khartec.waltz.data.DBExecutorPoolInterface;
 import com.khartec.waltz.data.SearchUtilities;
 import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.model.entity_search.ImmutableEntitySearchOptions;
 import com.khartec.waltz.service.actor.ActorService;
 import com.khartec.waltz.service.app_group.AppGroupService;
 import com.khartec.waltz.service.application.ApplicationService;
@@ -36,23 +37,28 @@ import com.khartec.waltz.service.physical_specification.PhysicalSpecificationSer
 import com.khartec.waltz.service.roadmap.RoadmapService;
 import com.khartec.waltz.service.server_information.ServerInformationService;
 import com.khartec.waltz.service.software_catalog.SoftwareCatalogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static java.util.stream.Collectors.partitioningBy;
 import static java.util.stream.Collectors.toList;
-import static org.jooq.lambda.Unchecked.supplier;
 
 @Service
 public class EntitySearchService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchService.class);
+
+    private final long searchTimeoutMillis;
     private final DBExecutorPoolInterface dbExecutorPool;
+    private final EntitySearchIndexService entitySearchIndexService;
     private final ActorService actorService;
     private final ApplicationService applicationService;
     private final AppGroupService appGroupService;
@@ -70,6 +76,7 @@ public class EntitySearchService {
 
     @Autowired
     public EntitySearchService(DBExecutorPoolInterface dbExecutorPool,
+                               EntitySearchIndexService entitySearchIndexService,
                                ActorService actorService,
                                ApplicationService applicationService,
                                AppGroupService appGroupService,
@@ -82,8 +89,10 @@ public class EntitySearchService {
                                PhysicalSpecificationService physicalSpecificationService,
                                RoadmapService roadmapService,
                                ServerInformationService serverInformationService,
-                               SoftwareCatalogService softwareCatalogService) {
+                               SoftwareCatalogService softwareCatalogService,
+                               @Value("${waltz.search.timeout.ms:5000}") long searchTimeoutMillis) {
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
+        checkNotNull(entitySearchIndexService, "entitySearchIndexService cannot be null");
         checkNotNull(actorService, "actorService cannot be null");
         checkNotNull(applicationService, "applicationService cannot be null");
         checkNotNull(appGroupService, "appGroupService cannot be null");
@@ -97,9 +106,11 @@ public class EntitySearchService {
         checkNotNull(roadmapService, "roadmapService cannot be null");
         checkNotNull(serverInformationService, "serverInformationService cannot be null");
         checkNotNull(softwareCatalogService, "softwareCatalogService cannot be null");
+        checkTrue(searchTimeoutMillis > 0, "searchTimeoutMillis must be positive");
 
         this.actorService = actorService;
         this.dbExecutorPool = dbExecutorPool;
+        this.entitySearchIndexService = entitySearchIndexService;
         this.applicationService = applicationService;
         this.appGroupService = appGroupService;
         this.changeInitiativeService = changeInitiativeService;
@@ -112,9 +123,24 @@ public class EntitySearchService {
         this.roadmapService = roadmapService;
         this.serverInformationService = serverInformationService;
         this.softwareCatalogService = softwareCatalogService;
+        this.searchTimeoutMillis = searchTimeoutMillis;
     }
 
 
+    /**
+     * Searches each of the requested entity kinds in parallel.
+     *
+     * Kinds covered by the in-memory search index (when enabled and built)
+     * are answered directly from the index, the remainder are searched
+     * via the database.
+     *
+     * All database searches share a single deadline (<code>waltz.search.timeout.ms</code>),
+     * kinds which have not completed by then are cancelled and omitted
+     * from the results so one slow search cannot hold up the others.
+     *
+     * @param options  search terms and the kinds to search
+     * @return  references to the matching entities, grouped by kind
+     */
     public List<EntityReference> search(EntitySearchOptions options) {
         checkNotNull(options, "options cannot be null");
 
@@ -123,20 +149,106 @@ public class EntitySearchService {
             return Collections.emptyList();
         }
 
-        List<Future<Collection<? extends WaltzEntity>>> futures = options
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchTimeoutMillis);
+
+        Map<Boolean, List<EntityKind>> kindsByIsIndexed = options
                 .entityKinds()
                 .stream()
-                .map(ek -> dbExecutorPool.submit(mkCallable(ek, options)))
+                .distinct()
+                .collect(partitioningBy(entitySearchIndexService::isIndexed));
+
+        List<EntityKind> databaseKinds = kindsByIsIndexed.get(false);
+        List<Future<Collection<? extends WaltzEntity>>> futures = databaseKinds
+                .stream()
+                .map(ek -> submit(ek, options))
                 .collect(toList());
 
-        return futures
+        Map<EntityKind, List<EntityReference>> resultsByKind = searchIndex(kindsByIsIndexed.get(true), options);
+
+        for (int i = 0; i < futures.size(); i++) {
+            Future<Collection<? extends WaltzEntity>> future = futures.get(i);
+            EntityKind kind = databaseKinds.get(i);
+            if (future == null) {
+                continue;
+            }
+            try {
+                long remaining = Math.max(deadline - System.nanoTime(), 0);
+                resultsByKind.put(
+                        kind,
+                        future.get(remaining, TimeUnit.NANOSECONDS)
+                                .stream()
+                                .map(WaltzEntity::entityReference)
+                                .collect(toList()));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                LOG.warn("Search for {} did not complete within {}ms, omitting from results for query: '{}'",
+                        kind,
+                        searchTimeoutMillis,
+                        options.searchQuery());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelAll(futures);
+                throw new IllegalStateException("Interrupted whilst waiting for search results", e);
+            } catch (ExecutionException e) {
+                cancelAll(futures);
+                throw new IllegalStateException("Search for " + kind + " failed", e.getCause());
+            }
+        }
+
+        return options
+                .entityKinds()
                 .stream()
-                .flatMap(f -> supplier(f::get).get().stream())
-                .map(WaltzEntity::entityReference)
+                .distinct()
+                .flatMap(k -> resultsByKind.getOrDefault(k, Collections.emptyList()).stream())
                 .collect(toList());
     }
 
 
+    /**
+     * @return the pending search, or null if the executor is saturated (the
+     * kind is then omitted from the results, as if it had timed out)
+     */
+    private Future<Collection<? extends WaltzEntity>> submit(EntityKind kind,
+                                                             EntitySearchOptions options) {
+        try {
+            return dbExecutorPool.submitOrReject(mkCallable(kind, options));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Search for {} rejected by the db executor, omitting from results for query: '{}'",
+                    kind,
+                    options.searchQuery());
+            return null;
+        }
+    }
+
+
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        futures.stream()
+                .filter(Objects::nonNull)
+                .forEach(f -> f.cancel(true));
+    }
+
+
+    private Map<EntityKind, List<EntityReference>> searchIndex(List<EntityKind> kinds,
+                                                               EntitySearchOptions options) {
+        Map<EntityKind, List<EntityReference>> resultsByKind = new EnumMap<>(EntityKind.class);
+        if (kinds.isEmpty()) {
+            return resultsByKind;
+        }
+
+        EntitySearchOptions indexOptions = ImmutableEntitySearchOptions
+                .copyOf(options)
+                .withEntityKinds(kinds);
+
+        entitySearchIndexService
+                .search(indexOptions)
+                .forEach(ref -> resultsByKind
+                        .computeIfAbsent(ref.kind(), k -> new ArrayList<>())
+                        .add(ref));
+
+        return resultsByKind;
+    }
+
+
     private Callable<Collection<? extends WaltzEntity>> mkCallable(EntityKind entityKind,
                                                                    EntitySearchOptions options) {
         switch (entityKind) {
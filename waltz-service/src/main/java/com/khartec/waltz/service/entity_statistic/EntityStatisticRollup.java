@@ -0,0 +1,215 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_statistic;
+
+import com.khartec.waltz.common.hierarchy.LongForest;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.entity_statistic.EntityStatisticRollupEntry;
+import com.khartec.waltz.model.entity_statistic.RollupKind;
+import com.khartec.waltz.model.tally.ImmutableTally;
+import com.khartec.waltz.model.tally.ImmutableTallyPack;
+import com.khartec.waltz.model.tally.Tally;
+import com.khartec.waltz.model.tally.TallyPack;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Rollups of a single entity statistic over the org unit hierarchy.
+ *
+ * Built from the per org unit partial aggregates ({@link EntityStatisticRollupEntry}),
+ * the tallies for a node combine the entries of the node and all of its descendants.
+ * Combined tallies are computed on first request for a node and then kept, so
+ * repeated requests (e.g. stats panels for the top level org units) do no work.
+ *
+ * Averages are derived from the combined totals and counts, so they are the
+ * average over all values beneath the node rather than an average of averages.
+ */
+public class EntityStatisticRollup {
+
+    private static final int SCALE = 2;
+
+    private final long statisticId;
+    private final RollupKind rollupKind;
+    private final LongForest orgUnits;
+    private final Map<Long, List<EntityStatisticRollupEntry>> entriesByOrgUnitId;
+    private final ConcurrentMap<Long, List<TallyPack<String>>> packsByOrgUnitId = new ConcurrentHashMap<>();
+
+
+    public EntityStatisticRollup(long statisticId,
+                                 RollupKind rollupKind,
+                                 LongForest orgUnits,
+                                 Collection<EntityStatisticRollupEntry> entries) {
+        checkNotNull(rollupKind, "rollupKind cannot be null");
+        checkNotNull(orgUnits, "orgUnits cannot be null");
+        checkNotNull(entries, "entries cannot be null");
+        checkTrue(rollupKind != RollupKind.NONE, "Statistics without a rollup kind cannot be rolled up");
+
+        this.statisticId = statisticId;
+        this.rollupKind = rollupKind;
+        this.orgUnits = orgUnits;
+        this.entriesByOrgUnitId = entries
+                .stream()
+                .collect(groupingBy(EntityStatisticRollupEntry::orgUnitId));
+    }
+
+
+    /**
+     * @param orgUnitId  node to rollup, values of its descendants are included
+     * @return one tally pack per day with values, in ascending date order.  Packs for
+     * current values (which have no day) come first.  Empty if there are no values
+     */
+    public List<TallyPack<String>> rollup(long orgUnitId) {
+        return packsByOrgUnitId.computeIfAbsent(orgUnitId, this::calculate);
+    }
+
+
+    public boolean contains(long orgUnitId) {
+        return orgUnits.contains(orgUnitId);
+    }
+
+
+    public int getEntryCount() {
+        return entriesByOrgUnitId
+                .values()
+                .stream()
+                .mapToInt(List::size)
+                .sum();
+    }
+
+
+    private List<TallyPack<String>> calculate(long orgUnitId) {
+        if (! orgUnits.contains(orgUnitId)) {
+            return emptyList();
+        }
+
+        Map<Optional<LocalDate>, Map<String, Accumulator>> byDateThenOutcome = new HashMap<>();
+
+        accumulate(byDateThenOutcome, orgUnitId);
+        for (long descendantId : orgUnits.descendantIds(orgUnitId)) {
+            accumulate(byDateThenOutcome, descendantId);
+        }
+
+        Comparator<Optional<LocalDate>> currentFirst = Comparator.comparing(d -> d.orElse(LocalDate.MIN));
+
+        return byDateThenOutcome
+                .entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey(currentFirst))
+                .map(e -> mkPack(e.getKey(), e.getValue()))
+                .collect(toList());
+    }
+
+
+    private void accumulate(Map<Optional<LocalDate>, Map<String, Accumulator>> byDateThenOutcome,
+                            long orgUnitId) {
+        List<EntityStatisticRollupEntry> entries = entriesByOrgUnitId.getOrDefault(orgUnitId, emptyList());
+        for (EntityStatisticRollupEntry entry : entries) {
+            byDateThenOutcome
+                    .computeIfAbsent(entry.date(), d -> new TreeMap<>())
+                    .computeIfAbsent(entry.outcome(), o -> new Accumulator())
+                    .add(entry);
+        }
+    }
+
+
+    private TallyPack<String> mkPack(Optional<LocalDate> date,
+                                     Map<String, Accumulator> accumulatorsByOutcome) {
+        List<Tally<String>> tallies = new ArrayList<>(accumulatorsByOutcome.size());
+        LocalDateTime lastUpdatedAt = LocalDateTime.MIN;
+
+        for (Map.Entry<String, Accumulator> e : accumulatorsByOutcome.entrySet()) {
+            Accumulator accumulator = e.getValue();
+            tallies.add(ImmutableTally.<String>builder()
+                    .id(e.getKey())
+                    .count(accumulator.toTally(rollupKind))
+                    .build());
+            if (accumulator.lastUpdatedAt.isAfter(lastUpdatedAt)) {
+                lastUpdatedAt = accumulator.lastUpdatedAt;
+            }
+        }
+
+        return ImmutableTallyPack.<String>builder()
+                .entityReference(EntityReference.mkRef(EntityKind.ENTITY_STATISTIC, statisticId))
+                .tallies(tallies)
+                .lastUpdatedAt(date
+                        .map(LocalDate::atStartOfDay)
+                        .orElse(lastUpdatedAt))
+                .build();
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("EntityStatisticRollup{");
+        sb.append("statisticId=").append(statisticId);
+        sb.append(", rollupKind=").append(rollupKind);
+        sb.append(", #orgUnitsWithValues=").append(entriesByOrgUnitId.size());
+        sb.append(", #rolledUp=").append(packsByOrgUnitId.size());
+        sb.append('}');
+        return sb.toString();
+    }
+
+
+    private static class Accumulator {
+
+        private long count = 0;
+        private BigDecimal total = BigDecimal.ZERO;
+        private LocalDateTime lastUpdatedAt = LocalDateTime.MIN;
+
+
+        private void add(EntityStatisticRollupEntry entry) {
+            count += entry.count();
+            total = total.add(entry.total());
+            if (entry.lastUpdatedAt().isAfter(lastUpdatedAt)) {
+                lastUpdatedAt = entry.lastUpdatedAt();
+            }
+        }
+
+
+        private double toTally(RollupKind rollupKind) {
+            switch (rollupKind) {
+                case COUNT_BY_ENTITY:
+                    return count;
+                case SUM_BY_VALUE:
+                    return total.setScale(SCALE, RoundingMode.HALF_UP).doubleValue();
+                case AVG_BY_VALUE:
+                    return count == 0
+                            ? 0
+                            : total.divide(BigDecimal.valueOf(count), SCALE, RoundingMode.HALF_UP).doubleValue();
+                default:
+                    throw new UnsupportedOperationException(String.format("Rollup kind [%s] not supported.", rollupKind));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,352 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_statistic;
+
+import com.khartec.waltz.common.hierarchy.LongForest;
+import com.khartec.waltz.data.entity_statistic.EntityStatisticRollupDao;
+import com.khartec.waltz.data.orgunit.OrganisationalUnitDao;
+import com.khartec.waltz.model.Duration;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.HierarchyQueryScope;
+import com.khartec.waltz.model.IdSelectionOptions;
+import com.khartec.waltz.model.entity_statistic.EntityStatisticRollupEntry;
+import com.khartec.waltz.model.entity_statistic.RollupKind;
+import com.khartec.waltz.model.orgunit.OrganisationalUnit;
+import com.khartec.waltz.model.tally.ImmutableTallyPack;
+import com.khartec.waltz.model.tally.TallyPack;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Serves entity statistic tallies for org unit selectors from pre-aggregated
+ * rollups ({@link EntityStatisticRollup}) rather than grouping the raw values
+ * of every application beneath the org unit on each request.
+ *
+ * A rollup is built for a (statistic, rollup kind) the first time it is
+ * needed, separately for current and historic values.  Statistic values are
+ * loaded directly into the database, so every
+ * <code>waltz.entity.statistic.rollup.refresh.ms</code> the watermark (last
+ * created at, value counts) of each loaded statistic is checked and only the
+ * statistics which have changed are re-aggregated.  Changes which do not touch
+ * statistic values (e.g. applications moving between org units) are picked up
+ * by a periodic full rebuild (<code>waltz.entity.statistic.rollup.rebuild.minutes</code>).
+ *
+ * Only org unit selectors with the default options (children scope, active
+ * applications of any kind) are served, anything else should use the
+ * live queries.  Measurable selectors are deliberately excluded: an application
+ * may be rated against several measurables so node aggregates cannot simply
+ * be added together.
+ */
+@Service
+public class EntityStatisticRollupService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityStatisticRollupService.class);
+
+    private final EntityStatisticRollupDao rollupDao;
+    private final OrganisationalUnitDao organisationalUnitDao;
+    private final boolean enabled;
+    private final long rebuildIntervalMinutes;
+
+    private final ConcurrentMap<Tuple2<Long, RollupKind>, Loaded> currentRollups = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Tuple2<Long, RollupKind>, Loaded> historicRollups = new ConcurrentHashMap<>();
+
+    private volatile LongForest orgUnits;
+    private volatile LocalDateTime lastBuiltAt;
+
+
+    @Autowired
+    public EntityStatisticRollupService(EntityStatisticRollupDao rollupDao,
+                                        OrganisationalUnitDao organisationalUnitDao,
+                                        @Value("${waltz.entity.statistic.rollup.enabled:false}") boolean enabled,
+                                        @Value("${waltz.entity.statistic.rollup.rebuild.minutes:60}") long rebuildIntervalMinutes) {
+        checkNotNull(rollupDao, "rollupDao cannot be null");
+        checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
+
+        this.rollupDao = rollupDao;
+        this.organisationalUnitDao = organisationalUnitDao;
+        this.enabled = enabled;
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+    }
+
+
+    /**
+     * @return true if tallies for the given selector can be served from the rollups
+     */
+    public boolean isApplicable(IdSelectionOptions options) {
+        checkNotNull(options, "options cannot be null");
+
+        return enabled
+                && options.entityReference().kind() == EntityKind.ORG_UNIT
+                && options.scope() == HierarchyQueryScope.CHILDREN
+                && options.entityLifecycleStatuses().equals(Collections.singleton(EntityLifecycleStatus.ACTIVE))
+                && options.filters().omitApplicationKinds().isEmpty()
+                && getOrgUnits().contains(options.entityReference().id());
+    }
+
+
+    /**
+     * Equivalent of the live <code>EntityStatisticSummaryDao.generate...</code> queries
+     * for an org unit selector.
+     */
+    public TallyPack<String> getTally(long statisticId,
+                                      RollupKind rollupKind,
+                                      IdSelectionOptions options) {
+        checkApplicable(options);
+
+        return getRollup(currentRollups, statisticId, rollupKind, rollupDao::findCurrentEntries)
+                .rollup(options.entityReference().id())
+                .stream()
+                .findFirst()
+                .orElseGet(() -> ImmutableTallyPack.<String>builder()
+                        .entityReference(mkRef(EntityKind.ENTITY_STATISTIC, statisticId))
+                        .build());
+    }
+
+
+    public List<TallyPack<String>> findTallies(Collection<Long> statisticIds,
+                                               RollupKind rollupKind,
+                                               IdSelectionOptions options) {
+        checkNotNull(statisticIds, "statisticIds cannot be null");
+
+        return statisticIds
+                .stream()
+                .map(id -> getTally(id, rollupKind, options))
+                .collect(toList());
+    }
+
+
+    /**
+     * Equivalent of the live <code>EntityStatisticSummaryDao.generateHistoric...</code> queries
+     * for an org unit selector.  History is held by day, so the duration is applied to whole days.
+     */
+    public List<TallyPack<String>> findHistoricTallies(long statisticId,
+                                                       RollupKind rollupKind,
+                                                       IdSelectionOptions options,
+                                                       Duration duration) {
+        checkApplicable(options);
+        checkNotNull(duration, "duration cannot be null");
+
+        LocalDate earliest = duration == Duration.ALL
+                ? LocalDate.MIN
+                : nowUtc().toLocalDate().minusDays(duration.numDays());
+
+        return getRollup(historicRollups, statisticId, rollupKind, rollupDao::findHistoricEntries)
+                .rollup(options.entityReference().id())
+                .stream()
+                .filter(p -> ! p.lastUpdatedAt().toLocalDate().isBefore(earliest))
+                .collect(toList());
+    }
+
+
+    @Scheduled(fixedDelayString = "${waltz.entity.statistic.rollup.refresh.ms:60000}")
+    public void refresh() {
+        if (! enabled || lastBuiltAt == null) {
+            return;
+        }
+
+        try {
+            if (lastBuiltAt.plusMinutes(rebuildIntervalMinutes).isBefore(nowUtc())) {
+                invalidateAll();
+            } else {
+                refreshChanged();
+            }
+        } catch (Exception e) {
+            LOG.error("Failed to refresh entity statistic rollups", e);
+        }
+    }
+
+
+    /**
+     * Re-aggregates the loaded rollups whose statistic values have changed since they were built.
+     *
+     * @return number of rollups rebuilt
+     */
+    public synchronized int refreshChanged() {
+        Set<Long> statisticIds = loadedKeys()
+                .stream()
+                .map(Tuple2::v1)
+                .collect(toSet());
+
+        Map<Long, Tuple3<Timestamp, Integer, Integer>> watermarks = rollupDao.findWatermarks(statisticIds);
+
+        int rebuilt = refreshChanged(currentRollups, watermarks, rollupDao::findCurrentEntries)
+                + refreshChanged(historicRollups, watermarks, rollupDao::findHistoricEntries);
+
+        if (rebuilt > 0) {
+            LOG.info("Rebuilt {} entity statistic rollups after their values changed", rebuilt);
+        }
+        return rebuilt;
+    }
+
+
+    /**
+     * Discards all rollups and the org unit hierarchy, they are rebuilt as needed.
+     */
+    public synchronized void invalidateAll() {
+        currentRollups.clear();
+        historicRollups.clear();
+        orgUnits = null;
+        lastBuiltAt = null;
+        LOG.debug("Discarded all entity statistic rollups");
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    public int getRollupCount() {
+        return currentRollups.size() + historicRollups.size();
+    }
+
+
+    public LocalDateTime getLastBuiltAt() {
+        return lastBuiltAt;
+    }
+
+
+    // -- helpers --
+
+    private void checkApplicable(IdSelectionOptions options) {
+        checkTrue(isApplicable(options), "Tallies for selector cannot be served from rollups: %s", options);
+    }
+
+
+    private EntityStatisticRollup getRollup(ConcurrentMap<Tuple2<Long, RollupKind>, Loaded> rollups,
+                                            long statisticId,
+                                            RollupKind rollupKind,
+                                            EntryLoader loader) {
+        checkNotNull(rollupKind, "rollupKind cannot be null");
+
+        return rollups
+                .computeIfAbsent(
+                        tuple(statisticId, rollupKind),
+                        k -> load(k, loader))
+                .rollup;
+    }
+
+
+    private int refreshChanged(ConcurrentMap<Tuple2<Long, RollupKind>, Loaded> rollups,
+                               Map<Long, Tuple3<Timestamp, Integer, Integer>> watermarks,
+                               EntryLoader loader) {
+        int rebuilt = 0;
+        for (Map.Entry<Tuple2<Long, RollupKind>, Loaded> e : rollups.entrySet()) {
+            Tuple3<Timestamp, Integer, Integer> watermark = watermarks.get(e.getKey().v1());
+            if (! Objects.equals(watermark, e.getValue().watermark)) {
+                rollups.put(e.getKey(), load(e.getKey(), loader));
+                rebuilt++;
+            }
+        }
+        return rebuilt;
+    }
+
+
+    private Loaded load(Tuple2<Long, RollupKind> key, EntryLoader loader) {
+        long st = System.currentTimeMillis();
+        long statisticId = key.v1();
+
+        // watermark is taken first so values loaded while aggregating are caught by the next refresh
+        Tuple3<Timestamp, Integer, Integer> watermark = rollupDao
+                .findWatermarks(Collections.singleton(statisticId))
+                .get(statisticId);
+
+        List<EntityStatisticRollupEntry> entries = loader.load(statisticId, key.v2());
+        EntityStatisticRollup rollup = new EntityStatisticRollup(statisticId, key.v2(), getOrgUnits(), entries);
+
+        LOG.debug("Built rollup: {} from {} entries in {}ms", rollup, entries.size(), System.currentTimeMillis() - st);
+        return new Loaded(rollup, watermark);
+    }
+
+
+    private LongForest getOrgUnits() {
+        LongForest current = orgUnits;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (orgUnits == null) {
+                LongForest.Builder builder = LongForest.builder();
+                for (OrganisationalUnit ou : organisationalUnitDao.findAll()) {
+                    long id = ou.id().get();
+                    if (ou.parentId().isPresent()) {
+                        builder.add(id, ou.parentId().get());
+                    } else {
+                        builder.add(id);
+                    }
+                }
+                orgUnits = builder.build();
+                lastBuiltAt = nowUtc();
+            }
+            return orgUnits;
+        }
+    }
+
+
+    private Set<Tuple2<Long, RollupKind>> loadedKeys() {
+        Set<Tuple2<Long, RollupKind>> keys = new HashSet<>(currentRollups.keySet());
+        keys.addAll(historicRollups.keySet());
+        return keys;
+    }
+
+
+    @FunctionalInterface
+    private interface EntryLoader {
+        List<EntityStatisticRollupEntry> load(long statisticId, RollupKind rollupKind);
+    }
+
+
+    private static class Loaded {
+
+        private final EntityStatisticRollup rollup;
+        private final Tuple3<Timestamp, Integer, Integer> watermark;
+
+
+        private Loaded(EntityStatisticRollup rollup,
+                       Tuple3<Timestamp, Integer, Integer> watermark) {
+            this.rollup = rollup;
+            this.watermark = watermark;
+        }
+    }
+
+}
@@ -19,7 +19,7 @@
 package com.khartec.waltz.service.entity_statistic;
 
 import com.khartec.waltz.common.Checks;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDao;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticDefinitionDao;
 import com.khartec.waltz.data.entity_statistic.EntityStatisticSummaryDao;
@@ -52,29 +52,35 @@ import static java.util.Collections.emptyList;
 @Service
 public class EntityStatisticService {
 
-    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory factory;
     private final EntityStatisticValueDao valueDao;
     private final EntityStatisticDefinitionDao definitionDao;
     private final EntityStatisticSummaryDao summaryDao;
     private final EntityStatisticDao statisticDao;
+    private final EntityStatisticRollupService rollupService;
 
 
     @Autowired
     public EntityStatisticService(EntityStatisticValueDao valueDao,
                                   EntityStatisticDefinitionDao definitionDao,
                                   EntityStatisticSummaryDao summaryDao,
-                                  EntityStatisticDao statisticDao)
+                                  EntityStatisticDao statisticDao,
+                                  CachingApplicationIdSelectorFactory factory,
+                                  EntityStatisticRollupService rollupService)
     {
         checkNotNull(valueDao, "valueDao cannot be null");
         checkNotNull(definitionDao, "definitionDao cannot be null");
         checkNotNull(summaryDao, "summaryDao cannot be null");
         checkNotNull(statisticDao, "statisticDao cannot be null");
+        checkNotNull(factory, "factory cannot be null");
+        checkNotNull(rollupService, "rollupService cannot be null");
 
         this.valueDao = valueDao;
         this.definitionDao = definitionDao;
         this.summaryDao = summaryDao;
         this.statisticDao = statisticDao;
-
+        this.factory = factory;
+        this.rollupService = rollupService;
     }
 
 
@@ -108,29 +114,31 @@ public class EntityStatisticService {
         Checks.checkNotNull(statisticIds, "statisticIds cannot be null");
         Checks.checkNotNull(options, "options cannot be null");
 
-        Select<Record1<Long>> appIdSelector = factory.apply(options);
-
         Map<RollupKind, Collection<Long>> definitionIdsByRollupKind = groupBy(
                 EntityStatisticDefinition::rollupKind,
                 d -> d.id().orElse(null),
                 definitionDao.findByIds(statisticIds));
 
+        Collection<Long> countIds = definitionIdsByRollupKind.getOrDefault(RollupKind.COUNT_BY_ENTITY, emptyList());
+        Collection<Long> sumIds = definitionIdsByRollupKind.getOrDefault(RollupKind.SUM_BY_VALUE, emptyList());
+        Collection<Long> avgIds = definitionIdsByRollupKind.getOrDefault(RollupKind.AVG_BY_VALUE, emptyList());
+        Collection<Long> noRollupIds = definitionIdsByRollupKind.getOrDefault(RollupKind.NONE, emptyList());
+
+        if (rollupService.isApplicable(options)) {
+            return concat(
+                    rollupService.findTallies(countIds, RollupKind.COUNT_BY_ENTITY, options),
+                    rollupService.findTallies(sumIds, RollupKind.SUM_BY_VALUE, options),
+                    rollupService.findTallies(avgIds, RollupKind.AVG_BY_VALUE, options),
+                    summaryDao.generateWithNoRollup(noRollupIds, options.entityReference()));
+        }
 
-        return concat(
-                summaryDao.generateWithCountByEntity(
-                        definitionIdsByRollupKind.getOrDefault(RollupKind.COUNT_BY_ENTITY, emptyList()),
-                        appIdSelector),
-                summaryDao.generateWithSumByValue(
-                        definitionIdsByRollupKind.getOrDefault(RollupKind.SUM_BY_VALUE, emptyList()),
-                        appIdSelector),
-                summaryDao.generateWithAvgByValue(
-                        definitionIdsByRollupKind.getOrDefault(RollupKind.AVG_BY_VALUE, emptyList()),
-                        appIdSelector),
-                summaryDao.generateWithNoRollup(
-                        definitionIdsByRollupKind.getOrDefault(RollupKind.NONE, emptyList()),
-                        options.entityReference())
-        );
+        Select<Record1<Long>> appIdSelector = factory.apply(options);
 
+        return concat(
+                summaryDao.generateWithCountByEntity(countIds, appIdSelector),
+                summaryDao.generateWithSumByValue(sumIds, appIdSelector),
+                summaryDao.generateWithAvgByValue(avgIds, appIdSelector),
+                summaryDao.generateWithNoRollup(noRollupIds, options.entityReference()));
     }
 
 
@@ -139,6 +147,10 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(rollupKind, "rollupKind cannot be null");
 
+        if (rollupKind != RollupKind.NONE && rollupService.isApplicable(options)) {
+            return rollupService.getTally(statisticId, rollupKind, options);
+        }
+
         Select<Record1<Long>> appIdSelector = factory.apply(options);
 
         switch(rollupKind) {
@@ -165,6 +177,10 @@ public class EntityStatisticService {
         Checks.checkNotNull(options, "options cannot be null");
         Checks.checkNotNull(duration, "duration cannot be null");
 
+        if (rollupKind != RollupKind.NONE && rollupService.isApplicable(options)) {
+            return rollupService.findHistoricTallies(statisticId, rollupKind, options, duration);
+        }
+
         Select<Record1<Long>> appIdSelector = factory.apply(options);
 
         switch(rollupKind) {
@@ -19,8 +19,8 @@
 package com.khartec.waltz.service.enum_value;
 
 
-import com.khartec.waltz.data.enum_value.EnumValueDao;
 import com.khartec.waltz.model.EnumValue;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -31,18 +31,20 @@ import static com.khartec.waltz.common.Checks.checkNotNull;
 @Service
 public class EnumValueService {
 
-    private final EnumValueDao enumValueDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public EnumValueService(EnumValueDao enumValueDao) {
-        checkNotNull(enumValueDao, "enumValueDao cannot be null");
-        this.enumValueDao = enumValueDao;
+    public EnumValueService(ReferenceDataService referenceDataService) {
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<EnumValue> findAll() {
-        return enumValueDao.findAll();
+        return referenceDataService
+                .getSnapshot()
+                .getEnumValues();
     }
 
 }
@@ -20,7 +20,7 @@ package com.khartec.waltz.service.facet;
 
 
 import com.khartec.waltz.data.application.ApplicationDao;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.model.IdSelectionOptions;
 import com.khartec.waltz.model.tally.Tally;
 import org.jooq.Record1;
@@ -39,13 +39,16 @@ public class FacetService {
 
     private final ApplicationDao applicationDao;
 
-    private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory applicationIdSelectorFactory;
 
 
     @Autowired
-    public FacetService(ApplicationDao applicationDao) {
+    public FacetService(ApplicationDao applicationDao,
+                        CachingApplicationIdSelectorFactory applicationIdSelectorFactory) {
         checkNotNull(applicationDao, "applicationDao cannot be null");
+        checkNotNull(applicationIdSelectorFactory, "applicationIdSelectorFactory cannot be null");
         this.applicationDao = applicationDao;
+        this.applicationIdSelectorFactory = applicationIdSelectorFactory;
     }
 
 
@@ -21,6 +21,7 @@ package com.khartec.waltz.service.involvement;
 import com.khartec.waltz.data.EntityReferenceNameResolver;
 import com.khartec.waltz.data.GenericSelector;
 import com.khartec.waltz.data.GenericSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.involvement.InvolvementDao;
 import com.khartec.waltz.data.person.PersonDao;
 import com.khartec.waltz.model.EntityReference;
@@ -58,6 +59,7 @@ public class InvolvementService {
     private final EntityReferenceNameResolver entityReferenceNameResolver;
     private final InvolvementKindService involvementKindService;
     private final PersonDao personDao;
+    private final CachingApplicationIdSelectorFactory applicationIdSelectorFactory;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
 
     private Map<Long, String> involvementKindIdToNameMap;
@@ -68,18 +70,21 @@ public class InvolvementService {
                               InvolvementDao dao,
                               EntityReferenceNameResolver entityReferenceNameResolver,
                               InvolvementKindService involvementKindService,
-                              PersonDao personDao) {
+                              PersonDao personDao,
+                              CachingApplicationIdSelectorFactory applicationIdSelectorFactory) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(dao, "involvementDao must not be null");
         checkNotNull(entityReferenceNameResolver, "entityReferenceNameResolver cannot be null");
         checkNotNull(involvementKindService, "involvementKindService cannot be null");
         checkNotNull(personDao, "personDao cannot be null");
+        checkNotNull(applicationIdSelectorFactory, "applicationIdSelectorFactory cannot be null");
 
         this.changeLogService = changeLogService;
         this.involvementDao = dao;
         this.entityReferenceNameResolver = entityReferenceNameResolver;
         this.involvementKindService = involvementKindService;
         this.personDao = personDao;
+        this.applicationIdSelectorFactory = applicationIdSelectorFactory;
     }
 
 
@@ -126,6 +131,7 @@ public class InvolvementService {
         Involvement involvement = mkInvolvement(entityReference, command);
         boolean result = involvementDao.save(involvement) == 1;
         if (result) {
+            applicationIdSelectorFactory.invalidateAll();
             logChange(entityReference, userId, command);
         }
         return result;
@@ -138,6 +144,7 @@ public class InvolvementService {
         Involvement involvement = mkInvolvement(entityReference, command);
         boolean result = involvementDao.remove(involvement) > 0;
         if (result) {
+            applicationIdSelectorFactory.invalidateAll();
             logChange(entityReference, userId, command);
         }
         return result;
@@ -153,8 +160,10 @@ public class InvolvementService {
     public int deleteByGenericEntitySelector(IdSelectionOptions selectionOptions) {
         GenericSelector genericSelector = genericSelectorFactory
                 .apply(selectionOptions);
-        return involvementDao
+        int removed = involvementDao
                 .deleteByGenericEntitySelector(genericSelector);
+        applicationIdSelectorFactory.invalidateAll();
+        return removed;
     }
 
 
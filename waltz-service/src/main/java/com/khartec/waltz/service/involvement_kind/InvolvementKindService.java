@@ -29,6 +29,7 @@ import com.khartec.waltz.model.involvement_kind.ImmutableInvolvementKindChangeCo
 import com.khartec.waltz.model.involvement_kind.InvolvementKind;
 import com.khartec.waltz.model.involvement_kind.InvolvementKindChangeCommand;
 import com.khartec.waltz.model.involvement_kind.InvolvementKindCreateCommand;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -41,23 +42,32 @@ import static com.khartec.waltz.common.FunctionUtilities.time;
 public class InvolvementKindService {
 
     private final InvolvementKindDao involvementKindDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public InvolvementKindService(InvolvementKindDao involvementKindDao) {
+    public InvolvementKindService(InvolvementKindDao involvementKindDao,
+                                  ReferenceDataService referenceDataService) {
         checkNotNull(involvementKindDao, "involvementKindDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
 
         this.involvementKindDao = involvementKindDao;
+        this.referenceDataService = referenceDataService;
     }
 
 
     public List<InvolvementKind> findAll() {
-        return involvementKindDao.findAll();
+        return referenceDataService
+                .getSnapshot()
+                .getInvolvementKinds();
     }
 
 
     public InvolvementKind getById(long id) {
-        return involvementKindDao.getById(id);
+        return referenceDataService
+                .getSnapshot()
+                .getInvolvementKindById(id)
+                .orElse(null);
     }
 
 
@@ -72,7 +82,9 @@ public class InvolvementKindService {
         checkNotNull(command, "command cannot be null");
         checkNotNull(username, "username cannot be null");
 
-        return involvementKindDao.create(command, username);
+        Long id = involvementKindDao.create(command, username);
+        referenceDataService.reload();
+        return id;
     }
 
 
@@ -85,6 +97,7 @@ public class InvolvementKindService {
                 .withLastUpdate(UserTimestamp.mkForUser(username));
 
         boolean success = involvementKindDao.update(updateCommand);
+        referenceDataService.reload();
         return ImmutableCommandResponse.<InvolvementKindChangeCommand>builder()
                 .originalCommand(command)
                 .entityReference(EntityReference.mkRef(EntityKind.INVOLVEMENT_KIND, command.id()))
@@ -94,7 +107,9 @@ public class InvolvementKindService {
 
 
     public boolean delete(long id) {
-        return involvementKindDao.deleteIfNotUsed(id);
+        boolean deleted = involvementKindDao.deleteIfNotUsed(id);
+        referenceDataService.reload();
+        return deleted;
     }
 
 }
@@ -0,0 +1,77 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.access_log.AccessLogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Maintenance functions for the Waltz access log write-behind buffer")
+public class AccessLogMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccessLogMaintenance.class);
+
+    private final AccessLogService accessLogService;
+
+    @Autowired
+    public AccessLogMaintenance(AccessLogService accessLogService) {
+        this.accessLogService = accessLogService;
+    }
+
+
+    @ManagedOperation(description = "Write any queued access log entries now")
+    public int flush() {
+        LOG.warn("Flushing access log buffer (via jmx)");
+        return accessLogService.flush();
+    }
+
+
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return accessLogService.getBuffer().getQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public long getWrittenCount() {
+        return accessLogService.getBuffer().getWrittenCount();
+    }
+
+
+    @ManagedAttribute
+    public long getDroppedCount() {
+        return accessLogService.getBuffer().getDroppedCount();
+    }
+
+
+    @ManagedAttribute
+    public long getFailedCount() {
+        return accessLogService.getBuffer().getFailedCount();
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "AccessLog";
+    }
+
+}
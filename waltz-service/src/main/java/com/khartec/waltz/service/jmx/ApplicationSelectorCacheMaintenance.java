@@ -0,0 +1,85 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Maintenance functions and statistics for the Waltz application selector cache")
+public class ApplicationSelectorCacheMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApplicationSelectorCacheMaintenance.class);
+
+    private final CachingApplicationIdSelectorFactory applicationIdSelectorFactory;
+
+    @Autowired
+    public ApplicationSelectorCacheMaintenance(CachingApplicationIdSelectorFactory applicationIdSelectorFactory) {
+        this.applicationIdSelectorFactory = applicationIdSelectorFactory;
+    }
+
+
+    @ManagedOperation(description = "Clear the application selector cache, selectors will be re-resolved on next use")
+    public void clearCache() {
+        LOG.warn("Clearing application selector cache (via jmx)");
+        applicationIdSelectorFactory.invalidateAll();
+    }
+
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return applicationIdSelectorFactory.isEnabled();
+    }
+
+
+    @ManagedAttribute
+    public int getCacheSize() {
+        return applicationIdSelectorFactory.getStatistics().getSize();
+    }
+
+
+    @ManagedAttribute
+    public long getCacheHitCount() {
+        return applicationIdSelectorFactory.getStatistics().getHitCount();
+    }
+
+
+    @ManagedAttribute
+    public long getCacheMissCount() {
+        return applicationIdSelectorFactory.getStatistics().getMissCount();
+    }
+
+
+    @ManagedAttribute
+    public double getCacheHitRatio() {
+        return applicationIdSelectorFactory.getStatistics().getHitRatio();
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "ApplicationSelectorCache";
+    }
+
+}
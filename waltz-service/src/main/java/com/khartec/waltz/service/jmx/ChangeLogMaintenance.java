@@ -0,0 +1,69 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.common.buffer.WriteBehindBuffer;
+import com.khartec.waltz.service.changelog.ChangeLogService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Maintenance functions for the Waltz asynchronous change log writer")
+public class ChangeLogMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogMaintenance.class);
+
+    private final ChangeLogService changeLogService;
+
+    @Autowired
+    public ChangeLogMaintenance(ChangeLogService changeLogService) {
+        this.changeLogService = changeLogService;
+    }
+
+
+    @ManagedOperation(description = "Write any queued change log entries now")
+    public int flush() {
+        LOG.warn("Flushing change log buffer (via jmx)");
+        return changeLogService.flush();
+    }
+
+
+    @ManagedAttribute
+    public boolean isAsyncEnabled() {
+        return changeLogService.getBuffer().isPresent();
+    }
+
+
+    @ManagedAttribute
+    public String getBufferStatistics() {
+        return changeLogService
+                .getBuffer()
+                .map(WriteBehindBuffer::toString)
+                .orElse("n/a (asynchronous writing is disabled)");
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "ChangeLog";
+    }
+
+}
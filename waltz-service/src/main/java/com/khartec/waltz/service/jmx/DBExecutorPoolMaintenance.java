@@ -0,0 +1,85 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.data.DBExecutorPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Statistics for the Waltz parallel query executor")
+public class DBExecutorPoolMaintenance {
+
+    private final DBExecutorPool dbExecutorPool;
+
+    @Autowired
+    public DBExecutorPoolMaintenance(DBExecutorPool dbExecutorPool) {
+        this.dbExecutorPool = dbExecutorPool;
+    }
+
+
+    @ManagedAttribute
+    public int getThreadCount() {
+        return dbExecutorPool.getThreadCount();
+    }
+
+
+    @ManagedAttribute
+    public int getActiveCount() {
+        return dbExecutorPool.getActiveCount();
+    }
+
+
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return dbExecutorPool.getQueueDepth();
+    }
+
+
+    @ManagedAttribute
+    public int getQueueRemainingCapacity() {
+        return dbExecutorPool.getQueueRemainingCapacity();
+    }
+
+
+    @ManagedAttribute
+    public long getCompletedTaskCount() {
+        return dbExecutorPool.getCompletedTaskCount();
+    }
+
+
+    @ManagedAttribute
+    public long getRejectedTaskCount() {
+        return dbExecutorPool.getRejectedTaskCount();
+    }
+
+
+    @ManagedAttribute
+    public long getCallerRunsTaskCount() {
+        return dbExecutorPool.getCallerRunsTaskCount();
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "DBExecutorPool";
+    }
+
+}
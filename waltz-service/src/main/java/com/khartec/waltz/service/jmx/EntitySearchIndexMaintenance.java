@@ -0,0 +1,73 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.entity_search.EntitySearchIndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Maintenance functions for the Waltz in-memory entity search index")
+public class EntitySearchIndexMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndexMaintenance.class);
+
+    private final EntitySearchIndexService entitySearchIndexService;
+
+    @Autowired
+    public EntitySearchIndexMaintenance(EntitySearchIndexService entitySearchIndexService) {
+        this.entitySearchIndexService = entitySearchIndexService;
+    }
+
+
+    @ManagedOperation(description = "Rebuild the entity search index from the database")
+    public int rebuildIndex() {
+        LOG.warn("Rebuilding entity search index (via jmx)");
+        return entitySearchIndexService.rebuild();
+    }
+
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return entitySearchIndexService.isEnabled();
+    }
+
+
+    @ManagedAttribute
+    public boolean isReady() {
+        return entitySearchIndexService.isReady();
+    }
+
+
+    @ManagedAttribute
+    public int getIndexSize() {
+        return entitySearchIndexService.getIndexSize();
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "EntitySearchIndex";
+    }
+
+}
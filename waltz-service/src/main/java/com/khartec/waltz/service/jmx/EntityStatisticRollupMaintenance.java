@@ -0,0 +1,79 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.entity_statistic.EntityStatisticRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Maintenance functions for the Waltz entity statistic rollups")
+public class EntityStatisticRollupMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityStatisticRollupMaintenance.class);
+
+    private final EntityStatisticRollupService entityStatisticRollupService;
+
+    @Autowired
+    public EntityStatisticRollupMaintenance(EntityStatisticRollupService entityStatisticRollupService) {
+        this.entityStatisticRollupService = entityStatisticRollupService;
+    }
+
+
+    @ManagedOperation(description = "Rebuild rollups for statistics whose values have changed (e.g. after a load)")
+    public int refreshChanged() {
+        LOG.warn("Refreshing changed entity statistic rollups (via jmx)");
+        return entityStatisticRollupService.refreshChanged();
+    }
+
+
+    @ManagedOperation(description = "Discard all rollups, they are rebuilt as needed")
+    public void invalidateAll() {
+        LOG.warn("Discarding all entity statistic rollups (via jmx)");
+        entityStatisticRollupService.invalidateAll();
+    }
+
+
+    @ManagedAttribute
+    public boolean isEnabled() {
+        return entityStatisticRollupService.isEnabled();
+    }
+
+
+    @ManagedAttribute
+    public int getRollupCount() {
+        return entityStatisticRollupService.getRollupCount();
+    }
+
+
+    @ManagedAttribute
+    public String getLastBuiltAt() {
+        return String.valueOf(entityStatisticRollupService.getLastBuiltAt());
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "EntityStatisticRollup";
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Maintenance functions for the Waltz in-memory logical flow graph")
+public class LogicalFlowGraphMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogicalFlowGraphMaintenance.class);
+
+    private final LogicalFlowGraphService logicalFlowGraphService;
+
+    @Autowired
+    public LogicalFlowGraphMaintenance(LogicalFlowGraphService logicalFlowGraphService) {
+        this.logicalFlowGraphService = logicalFlowGraphService;
+    }
+
+
+    @ManagedOperation(description = "Rebuild the logical flow graph from the database")
+    public int rebuildGraph() {
+        LOG.warn("Rebuilding logical flow graph (via jmx)");
+        return logicalFlowGraphService.rebuild();
+    }
+
+
+    @ManagedAttribute
+    public boolean isReady() {
+        return logicalFlowGraphService.isReady();
+    }
+
+
+    @ManagedAttribute
+    public int getFlowCount() {
+        return logicalFlowGraphService.getFlowCount();
+    }
+
+
+    @ManagedAttribute
+    public int getNodeCount() {
+        return logicalFlowGraphService.getNodeCount();
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "LogicalFlowGraph";
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.model.sql_stats.SqlStatistic;
+import com.khartec.waltz.service.sql_stats.SqlStatisticsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.List;
+
+import static java.lang.String.format;
+
+@ManagedResource(description = "Sql latency statistics, grouped by calling dao and statement")
+public class SqlStatisticsMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqlStatisticsMaintenance.class);
+
+    private final SqlStatisticsService sqlStatisticsService;
+
+    @Autowired
+    public SqlStatisticsMaintenance(SqlStatisticsService sqlStatisticsService) {
+        this.sqlStatisticsService = sqlStatisticsService;
+    }
+
+
+    @ManagedOperation(description = "Statements with the highest p99 latency")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "limit", description = "Maximum number of statements to show")
+    })
+    public String[] slowest(int limit) {
+        return toDescriptions(sqlStatisticsService.findSlowest(limit));
+    }
+
+
+    @ManagedOperation(description = "Statements with the most total time spent executing")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "limit", description = "Maximum number of statements to show")
+    })
+    public String[] mostExpensive(int limit) {
+        return toDescriptions(sqlStatisticsService.findMostExpensive(limit));
+    }
+
+
+    @ManagedOperation(description = "Clear all collected sql statistics")
+    public void reset() {
+        LOG.warn("Resetting sql statistics (via jmx)");
+        sqlStatisticsService.reset();
+    }
+
+
+    private static String[] toDescriptions(List<SqlStatistic> stats) {
+        return stats
+                .stream()
+                .map(s -> format(
+                        "%s: count=%d, p50=%.2fms, p95=%.2fms, p99=%.2fms, max=%.2fms, total=%.0fms | %s",
+                        s.caller(),
+                        s.count(),
+                        s.p50Millis(),
+                        s.p95Millis(),
+                        s.p99Millis(),
+                        s.maxMillis(),
+                        s.totalMillis(),
+                        s.sql()))
+                .toArray(String[]::new);
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.jmx;
+
+import com.khartec.waltz.service.user.UserRoleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Maintenance functions and statistics for the Waltz user role cache")
+public class UserRoleMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserRoleMaintenance.class);
+
+    private final UserRoleService userRoleService;
+
+    @Autowired
+    public UserRoleMaintenance(UserRoleService userRoleService) {
+        this.userRoleService = userRoleService;
+    }
+
+
+    @ManagedOperation(description = "Clear the user role cache, roles will be reloaded on next use")
+    public void clearRoleCache() {
+        LOG.warn("Clearing user role cache (via jmx)");
+        userRoleService.clearRoleCache();
+    }
+
+
+    @ManagedAttribute
+    public int getCacheSize() {
+        return userRoleService.getRoleCacheStatistics().getSize();
+    }
+
+
+    @ManagedAttribute
+    public long getCacheHitCount() {
+        return userRoleService.getRoleCacheStatistics().getHitCount();
+    }
+
+
+    @ManagedAttribute
+    public long getCacheMissCount() {
+        return userRoleService.getRoleCacheStatistics().getMissCount();
+    }
+
+
+    @ManagedAttribute
+    public long getCacheEvictionCount() {
+        return userRoleService.getRoleCacheStatistics().getEvictionCount();
+    }
+
+
+    @ManagedAttribute
+    public double getCacheHitRatio() {
+        return userRoleService.getRoleCacheStatistics().getHitRatio();
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "UserRole";
+    }
+
+}
@@ -0,0 +1,453 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.FlowDirection;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+
+
+/**
+ * A compact, mutable, in-memory directed graph of logical flows.
+ *
+ * Each distinct flow endpoint (application, actor etc) is given an int index
+ * and each flow an int edge slot.  Adjacency is held as per-node arrays of
+ * edge slots in both directions so lineage can be walked upstream
+ * (<code>INBOUND</code>) or downstream (<code>OUTBOUND</code>) without
+ * touching the database.  Edges also carry the (sorted) ids of the data types
+ * decorating the flow which allows traversals to be restricted to flows
+ * carrying particular data types.
+ *
+ * Nodes are never removed, they simply lose their edges.  Periodically
+ * rebuilding the graph compacts it.
+ *
+ * Queries take a read lock, mutations a write lock.
+ */
+public class LogicalFlowGraph {
+
+    private static final int NONE = -1;
+    private static final int INITIAL_DEGREE = 4;
+    private static final long[] NO_IDS = new long[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<EntityReference, Integer> nodeIndexes = new HashMap<>();
+    private EntityReference[] nodes = new EntityReference[64];
+    private int[][] outEdges = new int[64][];
+    private int[] outDegrees = new int[64];
+    private int[][] inEdges = new int[64][];
+    private int[] inDegrees = new int[64];
+    private int nodeCount = 0;
+
+    private final Map<Long, Integer> edgeIndexes = new HashMap<>();
+    private long[] edgeFlowIds = new long[64];
+    private int[] edgeSources = new int[64];
+    private int[] edgeTargets = new int[64];
+    private long[][] edgeDataTypes = new long[64][];
+    private int edgeSlots = 0;
+    private int[] freeEdges = new int[16];
+    private int freeEdgeCount = 0;
+
+
+    /**
+     * Adds, or replaces, the edge for the given flow.
+     *
+     * @param flowId  logical flow id
+     * @param source  flow source
+     * @param target  flow target
+     * @param dataTypeIds  ids of the data types decorating the flow
+     */
+    public void put(long flowId,
+                    EntityReference source,
+                    EntityReference target,
+                    long[] dataTypeIds) {
+        checkNotNull(source, "source cannot be null");
+        checkNotNull(target, "target cannot be null");
+        checkNotNull(dataTypeIds, "dataTypeIds cannot be null");
+
+        long[] sortedDataTypeIds = Arrays.copyOf(dataTypeIds, dataTypeIds.length);
+        Arrays.sort(sortedDataTypeIds);
+
+        lock.writeLock().lock();
+        try {
+            removeEdge(flowId);
+            int sourceIdx = getOrCreateNode(source);
+            int targetIdx = getOrCreateNode(target);
+            addEdge(flowId, sourceIdx, targetIdx, sortedDataTypeIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param flowId  logical flow id
+     * @return true if the flow was in the graph
+     */
+    public boolean remove(long flowId) {
+        lock.writeLock().lock();
+        try {
+            return removeEdge(flowId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Breadth first walk from the given entity collecting every flow
+     * traversed within <code>maxHops</code>.  Flows between entities already
+     * visited are included, so the result is the complete sub-graph.
+     *
+     * @param start  entity to start from
+     * @param direction  <code>INBOUND</code> for upstream lineage, <code>OUTBOUND</code> for downstream
+     * @param maxHops  maximum number of flows between the start and any reported flow
+     * @param dataTypeIds  sorted data type ids, only flows decorated with one of these are followed. Empty for no restriction
+     * @return ids of the flows, nearest first
+     */
+    public long[] findFlowIds(EntityReference start,
+                              FlowDirection direction,
+                              int maxHops,
+                              long[] dataTypeIds) {
+        checkNotNull(start, "start cannot be null");
+        checkNotNull(dataTypeIds, "dataTypeIds cannot be null");
+        checkTrue(maxHops >= 0, "maxHops cannot be negative");
+        boolean outbound = isOutbound(direction);
+
+        lock.readLock().lock();
+        try {
+            int startIdx = indexOf(start);
+            if (startIdx == NONE) {
+                return NO_IDS;
+            }
+
+            LongStream.Builder flowIds = LongStream.builder();
+            walk(startIdx, outbound, maxHops, dataTypeIds, flowIds);
+            return flowIds.build().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * @param start  entity to start from
+     * @param direction  <code>INBOUND</code> for upstream, <code>OUTBOUND</code> for downstream
+     * @param dataTypeIds  sorted data type ids, only flows decorated with one of these are followed. Empty for no restriction
+     * @return references (without names) to every entity reachable from the start, nearest first
+     */
+    public List<EntityReference> findReachable(EntityReference start,
+                                               FlowDirection direction,
+                                               long[] dataTypeIds) {
+        checkNotNull(start, "start cannot be null");
+        checkNotNull(dataTypeIds, "dataTypeIds cannot be null");
+        boolean outbound = isOutbound(direction);
+
+        lock.readLock().lock();
+        try {
+            int startIdx = indexOf(start);
+            if (startIdx == NONE) {
+                return Collections.emptyList();
+            }
+
+            int[] visited = walk(startIdx, outbound, Integer.MAX_VALUE, dataTypeIds, null);
+            List<EntityReference> result = new ArrayList<>(visited.length - 1);
+            for (int i = 1; i < visited.length; i++) {
+                result.add(nodes[visited[i]]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Finds a route with the fewest flows from <code>source</code> to
+     * <code>target</code>.
+     *
+     * @param dataTypeIds  sorted data type ids, only flows decorated with one of these are followed. Empty for no restriction
+     * @return ids of the flows making up the route in order, or an empty array if there is no route
+     */
+    public long[] findShortestPath(EntityReference source,
+                                   EntityReference target,
+                                   long[] dataTypeIds) {
+        checkNotNull(source, "source cannot be null");
+        checkNotNull(target, "target cannot be null");
+        checkNotNull(dataTypeIds, "dataTypeIds cannot be null");
+
+        lock.readLock().lock();
+        try {
+            int sourceIdx = indexOf(source);
+            int targetIdx = indexOf(target);
+            if (sourceIdx == NONE || targetIdx == NONE || sourceIdx == targetIdx) {
+                return NO_IDS;
+            }
+
+            int[] viaEdge = new int[nodeCount];
+            Arrays.fill(viaEdge, NONE);
+            BitSet visited = new BitSet(nodeCount);
+            int[] queue = new int[nodeCount];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = sourceIdx;
+            visited.set(sourceIdx);
+
+            while (head < tail && ! visited.get(targetIdx)) {
+                int node = queue[head++];
+                for (int i = 0; i < outDegrees[node]; i++) {
+                    int edge = outEdges[node][i];
+                    int next = edgeTargets[edge];
+                    if (visited.get(next) || ! carriesDataType(edge, dataTypeIds)) {
+                        continue;
+                    }
+                    visited.set(next);
+                    viaEdge[next] = edge;
+                    queue[tail++] = next;
+                }
+            }
+
+            if (! visited.get(targetIdx)) {
+                return NO_IDS;
+            }
+
+            int length = 0;
+            for (int node = targetIdx; node != sourceIdx; node = edgeSources[viaEdge[node]]) {
+                length++;
+            }
+            long[] path = new long[length];
+            for (int node = targetIdx; node != sourceIdx; node = edgeSources[viaEdge[node]]) {
+                path[--length] = edgeFlowIds[viaEdge[node]];
+            }
+            return path;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    public int getFlowCount() {
+        lock.readLock().lock();
+        try {
+            return edgeIndexes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    // -- helpers --
+
+    /**
+     * Level by level breadth first walk.
+     *
+     * @param flowIds  if not null, receives the id of every edge followed
+     * @return indexes of the visited nodes in visiting order, starting with the start node
+     */
+    private int[] walk(int startIdx,
+                       boolean outbound,
+                       int maxHops,
+                       long[] dataTypeIds,
+                       LongStream.Builder flowIds) {
+        int[][] adjacency = outbound ? outEdges : inEdges;
+        int[] degrees = outbound ? outDegrees : inDegrees;
+        int[] ends = outbound ? edgeTargets : edgeSources;
+
+        BitSet visited = new BitSet(nodeCount);
+        int[] queue = new int[nodeCount];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = startIdx;
+        visited.set(startIdx);
+
+        for (int hop = 0; hop < maxHops && head < tail; hop++) {
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int node = queue[head++];
+                for (int i = 0; i < degrees[node]; i++) {
+                    int edge = adjacency[node][i];
+                    if (! carriesDataType(edge, dataTypeIds)) {
+                        continue;
+                    }
+                    if (flowIds != null) {
+                        flowIds.add(edgeFlowIds[edge]);
+                    }
+                    int next = ends[edge];
+                    if (! visited.get(next)) {
+                        visited.set(next);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        return Arrays.copyOf(queue, tail);
+    }
+
+
+    private boolean carriesDataType(int edge, long[] dataTypeIds) {
+        if (dataTypeIds.length == 0) {
+            return true;
+        }
+        for (long dataTypeId : edgeDataTypes[edge]) {
+            if (Arrays.binarySearch(dataTypeIds, dataTypeId) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static boolean isOutbound(FlowDirection direction) {
+        checkNotNull(direction, "direction cannot be null");
+        switch (direction) {
+            case INBOUND:
+                return false;
+            case OUTBOUND:
+                return true;
+            default:
+                throw new IllegalArgumentException("Cannot traverse flows in direction: " + direction);
+        }
+    }
+
+
+    private int indexOf(EntityReference ref) {
+        Integer idx = nodeIndexes.get(toKey(ref));
+        return idx == null ? NONE : idx;
+    }
+
+
+    private int getOrCreateNode(EntityReference ref) {
+        EntityReference key = toKey(ref);
+        Integer existing = nodeIndexes.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (nodeCount == nodes.length) {
+            int capacity = nodeCount * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            outEdges = Arrays.copyOf(outEdges, capacity);
+            outDegrees = Arrays.copyOf(outDegrees, capacity);
+            inEdges = Arrays.copyOf(inEdges, capacity);
+            inDegrees = Arrays.copyOf(inDegrees, capacity);
+        }
+
+        int idx = nodeCount++;
+        nodes[idx] = key;
+        outEdges[idx] = new int[INITIAL_DEGREE];
+        inEdges[idx] = new int[INITIAL_DEGREE];
+        nodeIndexes.put(key, idx);
+        return idx;
+    }
+
+
+    private void addEdge(long flowId, int sourceIdx, int targetIdx, long[] dataTypeIds) {
+        int edge;
+        if (freeEdgeCount > 0) {
+            edge = freeEdges[--freeEdgeCount];
+        } else {
+            if (edgeSlots == edgeFlowIds.length) {
+                int capacity = edgeSlots * 2;
+                edgeFlowIds = Arrays.copyOf(edgeFlowIds, capacity);
+                edgeSources = Arrays.copyOf(edgeSources, capacity);
+                edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+                edgeDataTypes = Arrays.copyOf(edgeDataTypes, capacity);
+            }
+            edge = edgeSlots++;
+        }
+
+        edgeFlowIds[edge] = flowId;
+        edgeSources[edge] = sourceIdx;
+        edgeTargets[edge] = targetIdx;
+        edgeDataTypes[edge] = dataTypeIds;
+        edgeIndexes.put(flowId, edge);
+
+        outEdges[sourceIdx] = append(outEdges[sourceIdx], outDegrees[sourceIdx]++, edge);
+        inEdges[targetIdx] = append(inEdges[targetIdx], inDegrees[targetIdx]++, edge);
+    }
+
+
+    private boolean removeEdge(long flowId) {
+        Integer edge = edgeIndexes.remove(flowId);
+        if (edge == null) {
+            return false;
+        }
+
+        int sourceIdx = edgeSources[edge];
+        int targetIdx = edgeTargets[edge];
+        outDegrees[sourceIdx] = removeFrom(outEdges[sourceIdx], outDegrees[sourceIdx], edge);
+        inDegrees[targetIdx] = removeFrom(inEdges[targetIdx], inDegrees[targetIdx], edge);
+        edgeDataTypes[edge] = null;
+
+        if (freeEdgeCount == freeEdges.length) {
+            freeEdges = Arrays.copyOf(freeEdges, freeEdgeCount * 2);
+        }
+        freeEdges[freeEdgeCount++] = edge;
+        return true;
+    }
+
+
+    private static int[] append(int[] xs, int position, int x) {
+        int[] result = position == xs.length
+                ? Arrays.copyOf(xs, xs.length * 2)
+                : xs;
+        result[position] = x;
+        return result;
+    }
+
+
+    /**
+     * Order is not significant so the removed element is replaced by the last one.
+     * @return the new size
+     */
+    private static int removeFrom(int[] xs, int size, int x) {
+        for (int i = 0; i < size; i++) {
+            if (xs[i] == x) {
+                xs[i] = xs[size - 1];
+                return size - 1;
+            }
+        }
+        return size;
+    }
+
+
+    private static EntityReference toKey(EntityReference ref) {
+        return mkRef(ref.kind(), ref.id());
+    }
+
+}
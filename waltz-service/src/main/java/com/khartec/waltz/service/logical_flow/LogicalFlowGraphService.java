@@ -0,0 +1,398 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.common.hierarchy.LongForest;
+import com.khartec.waltz.data.EntityReferenceNameResolver;
+import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.FlowDirection;
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.CollectionUtilities.isEmpty;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.common.StreamUtilities.batchProcessingCollector;
+import static java.util.stream.Collectors.*;
+
+
+/**
+ * Maintains a resident {@link LogicalFlowGraph} of all active logical flows
+ * and answers lineage questions (n-hop upstream/downstream, shortest path
+ * and reachability) from it.
+ *
+ * The graph is built on first use.  Flow additions, removals, restorations
+ * and data type changes made through Waltz are applied to the graph as they
+ * happen via {@link #refreshFlows(Collection)}.  Changes made outside of
+ * the services (e.g. bulk loads directly into the database) are picked up by
+ * a periodic full rebuild (<code>waltz.flow.graph.rebuild.minutes</code>).
+ */
+@Service
+public class LogicalFlowGraphService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogicalFlowGraphService.class);
+
+    // keeps IN lists well under the 2100 bind parameter limit of SQL Server
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private final LogicalFlowDao logicalFlowDao;
+    private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final ReferenceDataService referenceDataService;
+    private final EntityReferenceNameResolver nameResolver;
+    private final long rebuildIntervalMinutes;
+    private final int maxHops;
+
+    // rebuilds are serialised by the rebuild lock, the short swap lock guards
+    // changes to the current graph and the ids refreshed during a rebuild
+    private final Object rebuildLock = new Object();
+    private final Object swapLock = new Object();
+
+    private volatile LogicalFlowGraph graph;
+    private volatile LocalDateTime lastBuiltAt;
+    private Set<Long> refreshedDuringRebuild;
+
+
+    @Autowired
+    public LogicalFlowGraphService(LogicalFlowDao logicalFlowDao,
+                                   LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                                   ReferenceDataService referenceDataService,
+                                   EntityReferenceNameResolver nameResolver,
+                                   @Value("${waltz.flow.graph.rebuild.minutes:60}") long rebuildIntervalMinutes,
+                                   @Value("${waltz.flow.graph.max.hops:10}") int maxHops) {
+        checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
+        checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
+        checkNotNull(nameResolver, "nameResolver cannot be null");
+        checkTrue(maxHops > 0, "maxHops must be positive");
+
+        this.logicalFlowDao = logicalFlowDao;
+        this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.referenceDataService = referenceDataService;
+        this.nameResolver = nameResolver;
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+        this.maxHops = maxHops;
+    }
+
+
+    @Scheduled(fixedDelayString = "${waltz.flow.graph.refresh.ms:60000}")
+    public void refresh() {
+        if (! isReady() || lastBuiltAt.plusMinutes(rebuildIntervalMinutes).isAfter(nowUtc())) {
+            return;
+        }
+
+        try {
+            rebuild();
+        } catch (Exception e) {
+            LOG.error("Failed to rebuild logical flow graph", e);
+        }
+    }
+
+
+    /**
+     * @param ref  entity whose upstream lineage is required
+     * @param maxHops  how many flows back from the entity to go, capped at <code>waltz.flow.graph.max.hops</code>
+     * @param dataTypeIds  if not empty, only follow flows carrying these data types (or their descendants)
+     * @return flows feeding the entity, directly or indirectly
+     */
+    public List<LogicalFlow> findUpstreamFlows(EntityReference ref,
+                                               int maxHops,
+                                               Collection<Long> dataTypeIds) {
+        checkNotNull(ref, "ref cannot be null");
+        return findFlows(ref, FlowDirection.INBOUND, maxHops, dataTypeIds);
+    }
+
+
+    /**
+     * @param ref  entity whose downstream lineage is required
+     * @param maxHops  how many flows on from the entity to go, capped at <code>waltz.flow.graph.max.hops</code>
+     * @param dataTypeIds  if not empty, only follow flows carrying these data types (or their descendants)
+     * @return flows fed by the entity, directly or indirectly
+     */
+    public List<LogicalFlow> findDownstreamFlows(EntityReference ref,
+                                                 int maxHops,
+                                                 Collection<Long> dataTypeIds) {
+        checkNotNull(ref, "ref cannot be null");
+        return findFlows(ref, FlowDirection.OUTBOUND, maxHops, dataTypeIds);
+    }
+
+
+    /**
+     * @param dataTypeIds  if not empty, only follow flows carrying these data types (or their descendants)
+     * @return flows making up a shortest route from source to target, in order.  Empty if there is no route
+     */
+    public List<LogicalFlow> findShortestPath(EntityReference source,
+                                              EntityReference target,
+                                              Collection<Long> dataTypeIds) {
+        checkNotNull(source, "source cannot be null");
+        checkNotNull(target, "target cannot be null");
+
+        long[] flowIds = getGraph().findShortestPath(source, target, expandDataTypes(dataTypeIds));
+        return hydrate(flowIds);
+    }
+
+
+    /**
+     * @param direction  <code>INBOUND</code> for everything upstream, <code>OUTBOUND</code> for everything downstream
+     * @param dataTypeIds  if not empty, only follow flows carrying these data types (or their descendants)
+     * @return all entities reachable from the given entity
+     */
+    public List<EntityReference> findReachableEntities(EntityReference ref,
+                                                       FlowDirection direction,
+                                                       Collection<Long> dataTypeIds) {
+        checkNotNull(ref, "ref cannot be null");
+
+        List<EntityReference> reachable = getGraph().findReachable(ref, direction, expandDataTypes(dataTypeIds));
+        return reachable.isEmpty()
+                ? reachable
+                : nameResolver.resolve(reachable);
+    }
+
+
+    /**
+     * Reloads the given flows (and their data types) into the graph.  Flows
+     * which no longer exist, or are removed, are dropped from the graph.
+     * Does nothing if the graph has not been built, or started building, yet.
+     *
+     * The flows are loaded before the graph is locked, so lineage queries
+     * and rebuilds are only held up while the changes are applied.
+     *
+     * @param flowIds  ids of flows which have been added, removed, restored or re-decorated
+     */
+    public void refreshFlows(Collection<Long> flowIds) {
+        if (isEmpty(flowIds) || ! (isReady() || isRebuilding())) {
+            return;
+        }
+
+        List<LogicalFlow> current = loadInChunks(flowIds, logicalFlowDao::findActiveByFlowIds);
+        Map<Long, long[]> dataTypesByFlowId = loadDataTypes(loadInChunks(flowIds, logicalFlowDecoratorDao::findByFlowIds));
+
+        Set<Long> removed = new HashSet<>(flowIds);
+        current.forEach(f -> removed.remove(f.id().get()));
+
+        synchronized (swapLock) {
+            if (graph != null) {
+                removed.forEach(graph::remove);
+                current.forEach(f -> put(graph, f, dataTypesByFlowId));
+            }
+            if (refreshedDuringRebuild != null) {
+                refreshedDuringRebuild.addAll(flowIds);
+            }
+        }
+
+        LOG.debug("Refreshed {} flows in logical flow graph", flowIds.size());
+    }
+
+
+    /**
+     * Builds a new graph from the database and swaps it in.  Flows refreshed
+     * while the new graph was being built may have been loaded before those
+     * changes, so they are refreshed again once the new graph is in place.
+     * Only one rebuild runs at a time, lineage queries and refreshes carry
+     * on against the current graph until the swap.
+     *
+     * @return number of flows in the new graph
+     */
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            long st = System.currentTimeMillis();
+            LocalDateTime startedAt = nowUtc();
+
+            synchronized (swapLock) {
+                refreshedDuringRebuild = new HashSet<>();
+            }
+
+            Set<Long> toReplay;
+            LogicalFlowGraph newGraph = new LogicalFlowGraph();
+            try {
+                List<LogicalFlow> flows = logicalFlowDao.findAllNotRemoved();
+                Map<Long, long[]> dataTypesByFlowId = loadDataTypes(logicalFlowDecoratorDao.findAll());
+                flows.forEach(f -> put(newGraph, f, dataTypesByFlowId));
+            } finally {
+                synchronized (swapLock) {
+                    toReplay = refreshedDuringRebuild;
+                    refreshedDuringRebuild = null;
+                }
+            }
+
+            synchronized (swapLock) {
+                graph = newGraph;
+                lastBuiltAt = startedAt;
+            }
+
+            refreshFlows(toReplay);
+
+            LOG.info(
+                    "Built logical flow graph of {} flows between {} entities in {}ms ({} flows refreshed during the build replayed)",
+                    newGraph.getFlowCount(),
+                    newGraph.getNodeCount(),
+                    System.currentTimeMillis() - st,
+                    toReplay.size());
+            return newGraph.getFlowCount();
+        }
+    }
+
+
+    public boolean isReady() {
+        return graph != null;
+    }
+
+
+    public int getFlowCount() {
+        return isReady() ? graph.getFlowCount() : 0;
+    }
+
+
+    public int getNodeCount() {
+        return isReady() ? graph.getNodeCount() : 0;
+    }
+
+
+    // -- helpers --
+
+    private List<LogicalFlow> findFlows(EntityReference ref,
+                                        FlowDirection direction,
+                                        int maxHops,
+                                        Collection<Long> dataTypeIds) {
+        long[] flowIds = getGraph().findFlowIds(
+                ref,
+                direction,
+                Math.min(maxHops, this.maxHops),
+                expandDataTypes(dataTypeIds));
+        return hydrate(flowIds);
+    }
+
+
+    private boolean isRebuilding() {
+        synchronized (swapLock) {
+            return refreshedDuringRebuild != null;
+        }
+    }
+
+
+    private LogicalFlowGraph getGraph() {
+        if (! isReady()) {
+            synchronized (rebuildLock) {
+                if (! isReady()) {
+                    rebuild();
+                }
+            }
+        }
+        return graph;
+    }
+
+
+    /**
+     * Loads the flows, preserving the order given by the graph.  Flows
+     * removed since they were found are skipped.
+     */
+    private List<LogicalFlow> hydrate(long[] flowIds) {
+        if (flowIds.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Long> ids = LongStream.of(flowIds).boxed().collect(toList());
+        Map<Long, LogicalFlow> flowsById = loadInChunks(ids, logicalFlowDao::findActiveByFlowIds)
+                .stream()
+                .collect(toMap(f -> f.id().get(), Function.identity()));
+
+        return ids
+                .stream()
+                .map(flowsById::get)
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+
+    private static <T> List<T> loadInChunks(Collection<Long> ids,
+                                            Function<List<Long>, List<T>> loader) {
+        List<T> result = new ArrayList<>(ids.size());
+        ids.stream()
+                .collect(batchProcessingCollector(
+                        MAX_IDS_PER_QUERY,
+                        chunk -> result.addAll(loader.apply(new ArrayList<>(chunk)))));
+        return result;
+    }
+
+
+    /**
+     * Flows decorated with a child of a requested data type are also
+     * of interest, so the requested ids are expanded to include descendants.
+     *
+     * @return sorted data type ids, empty if no restriction is required
+     */
+    private long[] expandDataTypes(Collection<Long> dataTypeIds) {
+        if (isEmpty(dataTypeIds)) {
+            return new long[0];
+        }
+
+        LongForest forest = referenceDataService
+                .getSnapshot()
+                .getDataTypeForest();
+
+        return dataTypeIds
+                .stream()
+                .flatMapToLong(id -> LongStream.concat(
+                        LongStream.of(id),
+                        LongStream.of(forest.descendantIds(id))))
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+
+    private static void put(LogicalFlowGraph target,
+                            LogicalFlow flow,
+                            Map<Long, long[]> dataTypesByFlowId) {
+        long flowId = flow.id().get();
+        target.put(
+                flowId,
+                flow.source(),
+                flow.target(),
+                dataTypesByFlowId.getOrDefault(flowId, new long[0]));
+    }
+
+
+    private static Map<Long, long[]> loadDataTypes(List<DataTypeDecorator> decorators) {
+        return decorators
+                .stream()
+                .filter(d -> d.decoratorEntity().kind() == EntityKind.DATA_TYPE)
+                .collect(groupingBy(
+                        DataTypeDecorator::dataFlowId,
+                        collectingAndThen(
+                                toList(),
+                                ds -> ds.stream().mapToLong(DataTypeDecorator::dataTypeId).toArray())));
+    }
+
+}
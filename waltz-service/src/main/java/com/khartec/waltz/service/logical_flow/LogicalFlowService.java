@@ -21,7 +21,7 @@ package com.khartec.waltz.service.logical_flow;
 import com.khartec.waltz.common.FunctionUtilities;
 import com.khartec.waltz.common.SetUtilities;
 import com.khartec.waltz.data.DBExecutorPoolInterface;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowIdSelectorFactory;
 import com.khartec.waltz.data.logical_flow.LogicalFlowStatsDao;
@@ -55,6 +55,7 @@ import java.util.stream.Stream;
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.isEmpty;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.ListUtilities.newArrayList;
 import static com.khartec.waltz.model.EntityKind.DATA_TYPE;
 import static com.khartec.waltz.model.EntityKind.LOGICAL_DATA_FLOW;
@@ -74,8 +75,9 @@ public class LogicalFlowService {
     private final LogicalFlowDao logicalFlowDao;
     private final LogicalFlowStatsDao logicalFlowStatsDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
+    private final LogicalFlowGraphService logicalFlowGraphService;
 
-    private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory appIdSelectorFactory;
     private final LogicalFlowIdSelectorFactory logicalFlowIdSelectorFactory = new LogicalFlowIdSelectorFactory();
 
 
@@ -86,7 +88,9 @@ public class LogicalFlowService {
                               DBExecutorPoolInterface dbExecutorPool,
                               LogicalFlowDao logicalFlowDao,
                               LogicalFlowStatsDao logicalFlowStatsDao,
-                              LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
+                              LogicalFlowDecoratorDao logicalFlowDecoratorDao,
+                              LogicalFlowGraphService logicalFlowGraphService,
+                              CachingApplicationIdSelectorFactory appIdSelectorFactory) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(dataTypeService, "dataTypeService cannot be null");
@@ -94,6 +98,8 @@ public class LogicalFlowService {
         checkNotNull(logicalFlowDao, "logicalFlowDao must not be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDataTypeDecoratorDao cannot be null");
         checkNotNull(logicalFlowStatsDao, "logicalFlowStatsDao cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
+        checkNotNull(appIdSelectorFactory, "appIdSelectorFactory must not be null");
 
         this.changeLogService = changeLogService;
         this.dataTypeService = dataTypeService;
@@ -102,6 +108,8 @@ public class LogicalFlowService {
         this.logicalFlowDao = logicalFlowDao;
         this.logicalFlowStatsDao = logicalFlowStatsDao;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
+        this.logicalFlowGraphService = logicalFlowGraphService;
+        this.appIdSelectorFactory = appIdSelectorFactory;
     }
 
 
@@ -145,6 +153,14 @@ public class LogicalFlowService {
     }
 
 
+    /**
+     * Lazy variant of {@link #findBySelector(IdSelectionOptions)}, the caller must close the stream.
+     */
+    public Stream<LogicalFlow> streamBySelector(IdSelectionOptions options) {
+        return logicalFlowDao.streamBySelector(logicalFlowIdSelectorFactory.apply(options));
+    }
+
+
     /**
      * Creates a logical flow and creates a default, 'UNKNOWN' data type decoration
      * if possible.
@@ -170,6 +186,7 @@ public class LogicalFlowService {
 
         LogicalFlow logicalFlow = logicalFlowDao.addFlow(flowToAdd);
         attemptToAddUnknownDecoration(logicalFlow, username);
+        logicalFlowGraphService.refreshFlows(newArrayList(logicalFlow.id().get()));
 
         changeLogService.writeChangeLogEntries(logicalFlow, username, "Added", Operation.ADD);
 
@@ -216,7 +233,10 @@ public class LogicalFlowService {
                         .build())
                 .collect(toList());
 
-        return logicalFlowDao.addFlows(flowsToAdd, username);
+        List<LogicalFlow> addedFlows = logicalFlowDao.addFlows(flowsToAdd, username);
+        logicalFlowGraphService.refreshFlows(map(addedFlows, f -> f.id().get()));
+
+        return addedFlows;
     }
 
 
@@ -244,6 +264,7 @@ public class LogicalFlowService {
         LogicalFlow logicalFlow = logicalFlowDao.getByFlowId(flowId);
 
         int deleted = logicalFlowDao.removeFlow(flowId, username);
+        logicalFlowGraphService.refreshFlows(newArrayList(flowId));
 
         Set<EntityReference> affectedEntityRefs = SetUtilities.fromArray(logicalFlow.source(), logicalFlow.target());
 
@@ -306,6 +327,7 @@ public class LogicalFlowService {
     public boolean restoreFlow(long logicalFlowId, String username) {
         boolean result = logicalFlowDao.restoreFlow(logicalFlowId, username);
         if (result) {
+            logicalFlowGraphService.refreshFlows(newArrayList(logicalFlowId));
             changeLogService.writeChangeLogEntries(mkRef(LOGICAL_DATA_FLOW, logicalFlowId), username, "Restored", Operation.ADD);
         }
         return result;
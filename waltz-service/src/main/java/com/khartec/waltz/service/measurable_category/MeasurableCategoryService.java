@@ -18,29 +18,37 @@
 
 package com.khartec.waltz.service.measurable_category;
 
-import com.khartec.waltz.data.measurable_category.MeasurableCategoryDao;
 import com.khartec.waltz.model.measurable_category.MeasurableCategory;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
 @Service
 public class MeasurableCategoryService {
 
-    private final MeasurableCategoryDao measurableCategoryDao;
+    private final ReferenceDataService referenceDataService;
 
 
     @Autowired
-    public MeasurableCategoryService(MeasurableCategoryDao measurableCategoryDao) {
-        this.measurableCategoryDao = measurableCategoryDao;
+    public MeasurableCategoryService(ReferenceDataService referenceDataService) {
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
+        this.referenceDataService = referenceDataService;
     }
 
     public Collection<MeasurableCategory> findAll() {
-        return measurableCategoryDao.findAll();
+        return referenceDataService
+                .getSnapshot()
+                .getMeasurableCategories();
     }
 
     public MeasurableCategory getById(long id) {
-        return measurableCategoryDao.getById(id);
+        return referenceDataService
+                .getSnapshot()
+                .getMeasurableCategoryById(id)
+                .orElse(null);
     }
 }
@@ -19,7 +19,7 @@
 package com.khartec.waltz.service.measurable_rating;
 
 import com.khartec.waltz.common.DateTimeUtilities;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.measurable.MeasurableDao;
 import com.khartec.waltz.data.measurable.MeasurableIdSelectorFactory;
 import com.khartec.waltz.data.measurable_category.MeasurableCategoryDao;
@@ -42,6 +42,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.Checks.checkTrue;
@@ -56,23 +57,26 @@ public class MeasurableRatingService {
     private final ChangeLogService changeLogService;
 
     private final MeasurableIdSelectorFactory measurableIdSelectorFactory = new MeasurableIdSelectorFactory();
-    private final ApplicationIdSelectorFactory applicationIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory applicationIdSelectorFactory;
 
 
     @Autowired
     public MeasurableRatingService(MeasurableRatingDao measurableRatingDao,
                                    MeasurableDao measurableDao,
                                    MeasurableCategoryDao measurableCategoryDao,
-                                   ChangeLogService changeLogService) {
+                                   ChangeLogService changeLogService,
+                                   CachingApplicationIdSelectorFactory applicationIdSelectorFactory) {
         checkNotNull(measurableRatingDao, "measurableRatingDao cannot be null");
         checkNotNull(measurableDao, "measurableDao cannot be null");
         checkNotNull(measurableCategoryDao, "measurableCategoryDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(applicationIdSelectorFactory, "applicationIdSelectorFactory cannot be null");
 
         this.measurableRatingDao = measurableRatingDao;
         this.measurableDao = measurableDao;
         this.measurableCategoryDao = measurableCategoryDao;
         this.changeLogService = changeLogService;
+        this.applicationIdSelectorFactory = applicationIdSelectorFactory;
     }
 
     // -- READ
@@ -96,6 +100,16 @@ public class MeasurableRatingService {
         return measurableRatingDao.findByApplicationIdSelector(selector);
     }
 
+
+    /**
+     * Lazy variant of {@link #findByAppIdSelector(IdSelectionOptions)}, the caller must close the stream.
+     */
+    public Stream<MeasurableRating> streamByAppIdSelector(IdSelectionOptions options) {
+        checkNotNull(options, "options cannot be null");
+        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+        return measurableRatingDao.streamByApplicationIdSelector(selector);
+    }
+
     // -- WRITE
 
     public Collection<MeasurableRating> save(SaveMeasurableRatingCommand command) {
@@ -106,6 +120,7 @@ public class MeasurableRatingService {
         checkTrue(measurable.concrete(), "Cannot rate against an abstract measurable");
 
         Operation operationThatWasPerformed = measurableRatingDao.save(command);
+        applicationIdSelectorFactory.invalidateAll();
 
         writeChangeLogEntry(
                 command,
@@ -134,6 +149,7 @@ public class MeasurableRatingService {
                 "Cannot find category: %d", categoryId);
 
         measurableRatingDao.removeForCategory(ref, categoryId);
+        applicationIdSelectorFactory.invalidateAll();
 
         changeLogService.write(ImmutableChangeLog.builder()
                 .message(format("Removed all ratings for category: %s", category.name()))
@@ -154,6 +170,7 @@ public class MeasurableRatingService {
         Measurable measurable = measurableDao.getById(command.measurableId());
 
         boolean success = measurableRatingDao.remove(command);
+        applicationIdSelectorFactory.invalidateAll();
 
         if (success && measurable != null) {
             writeChangeLogEntry(
@@ -205,11 +222,21 @@ public class MeasurableRatingService {
     }
 
 
+    /**
+     * Lazy variant of {@link #findByCategory(long)}, the caller must close the stream.
+     */
+    public Stream<MeasurableRating> streamByCategory(long id) {
+        return measurableRatingDao.streamByCategory(id);
+    }
+
+
     public int deleteByMeasurableIdSelector(IdSelectionOptions selectionOptions) {
         Select<Record1<Long>> selector = measurableIdSelectorFactory
                 .apply(selectionOptions);
-        return measurableRatingDao
+        int removed = measurableRatingDao
                 .deleteByMeasurableIdSelector(selector);
+        applicationIdSelectorFactory.invalidateAll();
+        return removed;
     }
 
     public String getRequiredRatingEditRole(EntityReference ref) {
@@ -22,19 +22,20 @@ import com.khartec.waltz.common.Aliases;
 import com.khartec.waltz.common.MapUtilities;
 import com.khartec.waltz.data.actor.ActorDao;
 import com.khartec.waltz.data.application.ApplicationDao;
-import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
 import com.khartec.waltz.data.physical_flow.PhysicalFlowDao;
 import com.khartec.waltz.data.physical_specification.PhysicalSpecificationDao;
-import com.khartec.waltz.model.Criticality;
-import com.khartec.waltz.model.EntityKind;
-import com.khartec.waltz.model.EntityReference;
-import com.khartec.waltz.model.UserTimestamp;
+import com.khartec.waltz.model.*;
 import com.khartec.waltz.model.actor.Actor;
 import com.khartec.waltz.model.application.Application;
+import com.khartec.waltz.model.changelog.ChangeLog;
+import com.khartec.waltz.model.changelog.ImmutableChangeLog;
 import com.khartec.waltz.model.command.CommandOutcome;
+import com.khartec.waltz.model.data_flow_decorator.ImmutableUpdateDataFlowDecoratorsAction;
+import com.khartec.waltz.model.data_flow_decorator.UpdateDataFlowDecoratorsAction;
 import com.khartec.waltz.model.datatype.DataType;
 import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import com.khartec.waltz.model.datatype.ImmutableDataTypeDecorator;
 import com.khartec.waltz.model.enum_value.EnumValueKind;
 import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
 import com.khartec.waltz.model.logical_flow.LogicalFlow;
@@ -42,71 +43,102 @@ import com.khartec.waltz.model.physical_flow.*;
 import com.khartec.waltz.model.physical_specification.DataFormatKind;
 import com.khartec.waltz.model.physical_specification.ImmutablePhysicalSpecification;
 import com.khartec.waltz.model.physical_specification.PhysicalSpecification;
+import com.khartec.waltz.service.changelog.ChangeLogService;
+import com.khartec.waltz.service.data_flow_decorator.LogicalFlowDecoratorService;
 import com.khartec.waltz.service.data_type.DataTypeDecoratorService;
 import com.khartec.waltz.service.enum_value.EnumValueAliasService;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
 import com.khartec.waltz.service.physical_specification_data_type.PhysicalSpecDataTypeService;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
+import org.jooq.lambda.tuple.Tuple6;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
-import static com.khartec.waltz.common.SetUtilities.fromArray;
+import static com.khartec.waltz.common.ListUtilities.map;
+import static com.khartec.waltz.common.StreamUtilities.batchProcessingCollector;
 import static com.khartec.waltz.common.StringUtilities.isEmpty;
 import static com.khartec.waltz.common.StringUtilities.lower;
+import static com.khartec.waltz.model.EntityReference.mkRef;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 
 @Service
 public class PhysicalFlowUploadService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PhysicalFlowUploadService.class);
+
+    /**
+     * Number of commands resolved per set based lookup / batch insert, kept modest so the
+     * or'd lookup conditions stay well within database bind parameter limits.
+     */
+    private static final int BATCH_SIZE = 250;
+
     private final ActorDao actorDao;
     private final ApplicationDao applicationDao;
-    private final DataTypeDao dataTypeDao;
+    private final ReferenceDataService referenceDataService;
     private final LogicalFlowDao logicalFlowDao;
     private final DataTypeDecoratorService dataTypeDecoratorService;
     private final PhysicalSpecDataTypeService physicalSpecDataTypeService;
     private final PhysicalFlowDao physicalFlowDao;
     private final PhysicalSpecificationDao physicalSpecificationDao;
     private final EnumValueAliasService enumValueAliasService;
+    private final LogicalFlowDecoratorService logicalFlowDecoratorService;
+    private final LogicalFlowGraphService logicalFlowGraphService;
+    private final ChangeLogService changeLogService;
 
     private final Pattern basisOffsetRegex = Pattern.compile("T?(?<offset>[\\+\\-]?\\d+)");
 
 
     public PhysicalFlowUploadService(ActorDao actorDao,
                                      ApplicationDao applicationDao,
-                                     DataTypeDao dataTypeDao,
+                                     ReferenceDataService referenceDataService,
                                      LogicalFlowDao logicalFlowDao,
                                      DataTypeDecoratorService dataTypeDecoratorService,
                                      PhysicalSpecDataTypeService physicalSpecDataTypeService,
                                      PhysicalFlowDao physicalFlowDao,
                                      PhysicalSpecificationDao physicalSpecificationDao,
-                                     EnumValueAliasService enumValueAliasService) {
+                                     EnumValueAliasService enumValueAliasService,
+                                     LogicalFlowDecoratorService logicalFlowDecoratorService,
+                                     LogicalFlowGraphService logicalFlowGraphService,
+                                     ChangeLogService changeLogService) {
         checkNotNull(actorDao, "actorDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
-        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
         checkNotNull(dataTypeDecoratorService, "dataTypeDecoratorService cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
         checkNotNull(physicalSpecDataTypeService, "physicalSpecDataTypeService cannot be null");
         checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
         checkNotNull(physicalSpecificationDao, "physicalSpecificationDao cannot be null");
         checkNotNull(enumValueAliasService, "enumValueAliasService cannot be null");
+        checkNotNull(logicalFlowDecoratorService, "logicalFlowDecoratorService cannot be null");
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
+        checkNotNull(changeLogService, "changeLogService cannot be null");
         this.actorDao = actorDao;
         this.applicationDao = applicationDao;
-        this.dataTypeDao = dataTypeDao;
+        this.referenceDataService = referenceDataService;
         this.logicalFlowDao = logicalFlowDao;
         this.physicalSpecDataTypeService = physicalSpecDataTypeService;
         this.physicalFlowDao = physicalFlowDao;
         this.physicalSpecificationDao = physicalSpecificationDao;
         this.enumValueAliasService = enumValueAliasService;
         this.dataTypeDecoratorService = dataTypeDecoratorService;
+        this.logicalFlowDecoratorService = logicalFlowDecoratorService;
+        this.logicalFlowGraphService = logicalFlowGraphService;
+        this.changeLogService = changeLogService;
     }
 
 
@@ -138,9 +170,17 @@ public class PhysicalFlowUploadService {
             return parsedFlows;
         }
 
-        // no parse errors - check for duplicates
+        // no parse errors - check for duplicates, resolved a batch at a time
+        Map<PhysicalFlowParsed, PhysicalFlow> existingFlows = new HashMap<>();
+        parsedFlows
+                .stream()
+                .map(PhysicalFlowUploadCommandResponse::parsedFlow)
+                .collect(batchProcessingCollector(
+                        BATCH_SIZE,
+                        batch -> existingFlows.putAll(findExistingPhysicalFlows(batch))));
+
         List<PhysicalFlowUploadCommandResponse> responses = parsedFlows.stream()
-                .map(f -> Optional.ofNullable(physicalFlowDao.getByParsedFlow(f.parsedFlow()))
+                .map(f -> Optional.ofNullable(existingFlows.get(f.parsedFlow()))
                     .map(m -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
                             .copyOf(f)
                             .withEntityReference(m.entityReference()))
@@ -166,36 +206,16 @@ public class PhysicalFlowUploadService {
                 .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
                 .collect(toList());
 
-        // create physical flow with ids from the above two
-        List<PhysicalFlowUploadCommandResponse> created = newFlowCmds.stream()
-                .map(v -> {
-                    if (!(v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)) {
-                        return v;
-                    }
-
-                    PhysicalFlowParsed flow = v.parsedFlow();
-                    LogicalFlow logicalFlow = getOrCreateLogicalFlow(flow.source(), flow.target(), flow.dataType(), username);
-                    PhysicalSpecification specification = getOrCreatePhysicalSpec(flow, username);
-
-                    PhysicalFlow newFlow = ImmutablePhysicalFlow.builder()
-                            .logicalFlowId(logicalFlow.id().get())
-                            .specificationId(specification.id().get())
-                            .basisOffset(flow.basisOffset())
-                            .frequency(flow.frequency())
-                            .transport(flow.transport())
-                            .criticality(flow.criticality())
-                            .description(flow.description())
-                            .externalId(Optional.ofNullable(flow.externalId()))
-                            .lastUpdatedBy(username)
-                            .lastUpdatedAt(nowUtc())
-                            .build();
-
-                    long id = getOrCreatePhysicalFlow(newFlow);
-
-                    return ImmutablePhysicalFlowUploadCommandResponse.copyOf(v)
-                            .withEntityReference(EntityReference.mkRef(EntityKind.PHYSICAL_FLOW, id));
-                })
-                .collect(toList());
+        // create logical flows, specs and physical flows a batch at a time
+        List<PhysicalFlowUploadCommandResponse> created = new ArrayList<>(newFlowCmds.size());
+        newFlowCmds
+                .stream()
+                .collect(batchProcessingCollector(
+                        BATCH_SIZE,
+                        batch -> {
+                            created.addAll(uploadBatch(username, batch));
+                            LOG.info("Uploaded {}/{} physical flows", created.size(), newFlowCmds.size());
+                        }));
 
         return created;
     }
@@ -358,7 +378,7 @@ public class PhysicalFlowUploadService {
 
 
     private Map<String, DataType> loadDataTypesByNameOrCode() {
-        List<DataType> allDataTypes = dataTypeDao.findAll();
+        List<DataType> allDataTypes = referenceDataService.getSnapshot().getDataTypes();
         Map<String, DataType> dataTypesByName = MapUtilities.indexBy(dt -> lower(dt.name()), identity(), allDataTypes, (d1, d2) -> d2);
         Map<String, DataType> dataTypesByCode = MapUtilities.indexBy(dt -> lower(dt.code()), identity(), allDataTypes, (d1, d2) -> d2);
         dataTypesByName.putAll(dataTypesByCode);
@@ -366,93 +386,417 @@ public class PhysicalFlowUploadService {
     }
 
 
-    private LogicalFlow getOrCreateLogicalFlow(EntityReference source,
-                                               EntityReference target,
-                                               EntityReference dataType,
-                                               String username) {
+    /**
+     * Bulk equivalent of {@link PhysicalFlowDao#getByParsedFlow(PhysicalFlowParsed)}.
+     * Existing logical flows, specs (with their data types) and physical flows are
+     * loaded with a handful of set based queries and then matched in memory.
+     */
+    private Map<PhysicalFlowParsed, PhysicalFlow> findExistingPhysicalFlows(List<PhysicalFlowParsed> flows) {
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows = findLogicalFlows(flows);
+        Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> specs = findPhysicalSpecs(flows);
+        Set<Tuple2<Long, Long>> specDataTypes = findSpecDataTypes(specs.values());
+
+        Map<Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality>, PhysicalFlow> physicalFlows = findPhysicalFlows(
+                logicalFlows.values(),
+                specs.values(),
+                f -> !f.isRemoved() && f.entityLifecycleStatus() != EntityLifecycleStatus.REMOVED);
+
+        Map<PhysicalFlowParsed, PhysicalFlow> result = new HashMap<>();
+        flows.forEach(f -> {
+            LogicalFlow logicalFlow = logicalFlows.get(toLogicalFlowKey(f));
+            PhysicalSpecification spec = specs.get(toSpecKey(f));
+            if (logicalFlow == null || spec == null || !specDataTypes.contains(tuple(spec.id().get(), f.dataType().id()))) {
+                return;
+            }
+            PhysicalFlow physicalFlow = physicalFlows.get(toPhysicalFlowKey(logicalFlow.id().get(), spec.id().get(), f));
+            if (physicalFlow != null) {
+                result.put(f, physicalFlow);
+            }
+        });
+        return result;
+    }
 
-        LogicalFlow flow = logicalFlowDao.getBySourceAndTarget(source, target);
 
-        if (flow == null) {
-            LocalDateTime now = nowUtc();
+    /**
+     * Resolves (creating where needed) the logical flows, specifications, data type
+     * decorations and physical flows for a batch of validated commands.  Each step
+     * is a set based lookup followed by a batch insert of whatever is missing.
+     */
+    private List<PhysicalFlowUploadCommandResponse> uploadBatch(String username,
+                                                                List<PhysicalFlowUploadCommandResponse> batch) {
+        List<PhysicalFlowParsed> flows = map(batch, PhysicalFlowUploadCommandResponse::parsedFlow);
+        List<ChangeLog> changeLogs = new ArrayList<>();
+
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows = getOrCreateLogicalFlows(flows, username, changeLogs);
+        Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> specs = getOrCreatePhysicalSpecs(flows, username);
+
+        Map<Long, Set<Long>> requiredLogicalDataTypes = addSpecDataTypes(flows, specs, username, changeLogs);
+        flows.forEach(f -> requiredLogicalDataTypes
+                .computeIfAbsent(logicalFlows.get(toLogicalFlowKey(f)).id().get(), k -> new HashSet<>())
+                .add(f.dataType().id()));
+        addLogicalFlowDataTypes(requiredLogicalDataTypes, username);
+
+        Map<Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality>, PhysicalFlow> physicalFlows = getOrCreatePhysicalFlows(
+                flows,
+                logicalFlows,
+                specs,
+                username);
+
+        changeLogService.write(changeLogs);
+
+        return batch
+                .stream()
+                .map(v -> {
+                    PhysicalFlowParsed flow = v.parsedFlow();
+                    long logicalFlowId = logicalFlows.get(toLogicalFlowKey(flow)).id().get();
+                    long specId = getSpec(specs, flow).id().get();
+                    PhysicalFlow physicalFlow = physicalFlows.get(toPhysicalFlowKey(logicalFlowId, specId, flow));
 
-            LogicalFlow flowToAdd = ImmutableLogicalFlow.builder()
-                    .source(source)
-                    .target(target)
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
+                    return (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
+                            .copyOf(v)
+                            .withEntityReference(mkRef(EntityKind.PHYSICAL_FLOW, physicalFlow.id().get()));
+                })
+                .collect(toList());
+    }
+
+
+    private Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> getOrCreateLogicalFlows(List<PhysicalFlowParsed> flows,
+                                                                                           String username,
+                                                                                           List<ChangeLog> changeLogs) {
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows = findLogicalFlows(flows);
+
+        LocalDateTime now = nowUtc();
+        Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> flowsToAdd = new LinkedHashMap<>();
+        flows.stream()
+                .filter(f -> ! logicalFlows.containsKey(toLogicalFlowKey(f)))
+                .forEach(f -> flowsToAdd.putIfAbsent(
+                        toLogicalFlowKey(f),
+                        ImmutableLogicalFlow.builder()
+                                .source(f.source())
+                                .target(f.target())
+                                .lastUpdatedBy(username)
+                                .lastUpdatedAt(now)
+                                .provenance("waltz")
+                                .created(UserTimestamp.mkForUser(username, now))
+                                .build()));
+
+        if (flowsToAdd.isEmpty()) {
+            return logicalFlows;
+        }
+
+        List<LogicalFlow> addedFlows = logicalFlowDao.addFlows(new ArrayList<>(flowsToAdd.values()), username);
+        addedFlows.forEach(f -> logicalFlows.put(toLogicalFlowKey(f.source(), f.target()), f));
+        logicalFlowGraphService.refreshFlows(map(addedFlows, f -> f.id().get()));
+
+        flowsToAdd.values().forEach(f -> {
+            ImmutableChangeLog sourceLogEntry = ImmutableChangeLog.builder()
+                    .parentReference(f.source())
+                    .severity(Severity.INFORMATION)
+                    .userId(username)
+                    .message(String.format(
+                            "Flow added between: %s and %s",
+                            f.source().name().orElse(Long.toString(f.source().id())),
+                            f.target().name().orElse(Long.toString(f.target().id()))))
+                    .childKind(EntityKind.LOGICAL_DATA_FLOW)
+                    .operation(Operation.ADD)
                     .build();
+            changeLogs.add(sourceLogEntry);
+            changeLogs.add(sourceLogEntry.withParentReference(f.target()));
+        });
+
+        return logicalFlows;
+    }
+
+
+    private Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> getOrCreatePhysicalSpecs(List<PhysicalFlowParsed> flows,
+                                                                                                               String username) {
+        Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> specs = findPhysicalSpecs(flows);
 
-            flow = logicalFlowDao.addFlow(flowToAdd);
+        LocalDateTime now = nowUtc();
+        Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalFlowParsed> missing = new LinkedHashMap<>();
+        flows.stream()
+                .filter(f -> ! specs.containsKey(toSpecKey(f)))
+                .forEach(f -> missing.putIfAbsent(toSpecKey(f), f));
+
+        if (missing.isEmpty()) {
+            return specs;
         }
 
+        List<PhysicalSpecification> specsToAdd = map(
+                missing.values(),
+                f -> ImmutablePhysicalSpecification.builder()
+                        .owningEntity(f.owner())
+                        .format(f.format())
+                        .name(f.name())
+                        .externalId(Optional.ofNullable(f.specExternalId()).orElse(""))
+                        .description(Optional.ofNullable(f.specDescription()).orElse(""))
+                        .lastUpdatedBy(username)
+                        .lastUpdatedAt(now)
+                        .provenance("waltz")
+                        .created(UserTimestamp.mkForUser(username, now))
+                        .build());
+
+        physicalSpecificationDao.createAll(specsToAdd);
+
+        // batch inserts do not give back generated ids, so re-read the newly created specs
+        specs.putAll(findPhysicalSpecs(new ArrayList<>(missing.values())));
+        return specs;
+    }
+
+
+    /**
+     * Adds any missing data types to the specifications.  As with
+     * {@link DataTypeDecoratorService#addDecorators}, data types added to a spec
+     * are rippled to the logical flows of any existing physical flows which use it,
+     * these logical flow ids (and data types) are returned so they can be decorated.
+     */
+    private Map<Long, Set<Long>> addSpecDataTypes(List<PhysicalFlowParsed> flows,
+                                                  Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> specs,
+                                                  String username,
+                                                  List<ChangeLog> changeLogs) {
+        Set<Tuple2<Long, Long>> existing = findSpecDataTypes(specs.values());
+
+        Map<Long, Set<Long>> missingBySpecId = new HashMap<>();
+        flows.forEach(f -> {
+            long specId = getSpec(specs, f).id().get();
+            if (! existing.contains(tuple(specId, f.dataType().id()))) {
+                missingBySpecId
+                        .computeIfAbsent(specId, k -> new HashSet<>())
+                        .add(f.dataType().id());
+            }
+        });
+
+        Map<Long, Set<Long>> rippledDataTypesByLogicalFlowId = new HashMap<>();
+        if (missingBySpecId.isEmpty()) {
+            return rippledDataTypesByLogicalFlowId;
+        }
 
-        EntityReference logicalFlowEntityRef = EntityReference.mkRef(EntityKind.LOGICAL_DATA_FLOW, flow.id().get());
-        DataTypeDecorator existingDecorator = dataTypeDecoratorService.getByEntityRefAndDataTypeId(
-                logicalFlowEntityRef,
-                dataType.id());
+        LocalDateTime now = nowUtc();
+        List<DataTypeDecorator> decorators = missingBySpecId
+                .entrySet()
+                .stream()
+                .flatMap(e -> e.getValue()
+                        .stream()
+                        .map(dtId -> (DataTypeDecorator) ImmutableDataTypeDecorator.builder()
+                                .entityReference(mkRef(EntityKind.PHYSICAL_SPECIFICATION, e.getKey()))
+                                .decoratorEntity(mkRef(EntityKind.DATA_TYPE, dtId))
+                                .provenance("waltz")
+                                .lastUpdatedAt(now)
+                                .lastUpdatedBy(username)
+                                .build()))
+                .collect(toList());
 
-        if(existingDecorator == null) {
-            dataTypeDecoratorService
-                    .addDecorators(username, logicalFlowEntityRef, fromArray(dataType.id()));
+        physicalSpecDataTypeService.addDecorators(decorators);
+
+        missingBySpecId.forEach((specId, dtIds) -> changeLogs.add(ImmutableChangeLog.builder()
+                .parentReference(mkRef(EntityKind.PHYSICAL_SPECIFICATION, specId))
+                .userId(username)
+                .severity(Severity.INFORMATION)
+                .message(String.format("Added data types: %s", dtIds.toString()))
+                .childKind(EntityKind.DATA_TYPE)
+                .operation(Operation.UPDATE)
+                .build()));
+
+        physicalFlowDao
+                .findBySpecificationIds(missingBySpecId.keySet())
+                .stream()
+                .filter(f -> ! f.isRemoved())
+                .forEach(f -> rippledDataTypesByLogicalFlowId
+                        .computeIfAbsent(f.logicalFlowId(), k -> new HashSet<>())
+                        .addAll(missingBySpecId.get(f.specificationId())));
+
+        if (rippledDataTypesByLogicalFlowId.isEmpty()) {
+            return rippledDataTypesByLogicalFlowId;
         }
-        return flow;
+
+        // only active logical flows can be decorated
+        Set<Long> activeLogicalFlowIds = logicalFlowDao
+                .findActiveByFlowIds(rippledDataTypesByLogicalFlowId.keySet())
+                .stream()
+                .map(f -> f.id().get())
+                .collect(toSet());
+        rippledDataTypesByLogicalFlowId.keySet().retainAll(activeLogicalFlowIds);
+
+        return rippledDataTypesByLogicalFlowId;
     }
 
 
-    private PhysicalSpecification getOrCreatePhysicalSpec(PhysicalFlowParsed flow,
-                                                          String username) {
-        EntityReference owner = flow.owner();
-        DataFormatKind format = flow.format();
-        String name = flow.name();
+    private void addLogicalFlowDataTypes(Map<Long, Set<Long>> requiredDataTypesByLogicalFlowId,
+                                         String username) {
+        Set<Tuple2<Long, Long>> existing = dataTypeDecoratorService
+                .findByFlowIds(requiredDataTypesByLogicalFlowId.keySet(), EntityKind.LOGICAL_DATA_FLOW)
+                .stream()
+                .map(d -> tuple(d.entityReference().id(), d.dataTypeId()))
+                .collect(toSet());
+
+        List<UpdateDataFlowDecoratorsAction> actions = requiredDataTypesByLogicalFlowId
+                .entrySet()
+                .stream()
+                .map(e -> ImmutableUpdateDataFlowDecoratorsAction.builder()
+                        .flowId(e.getKey())
+                        .addedDecorators(e.getValue()
+                                .stream()
+                                .filter(dtId -> ! existing.contains(tuple(e.getKey(), dtId)))
+                                .map(dtId -> mkRef(EntityKind.DATA_TYPE, dtId))
+                                .collect(toSet()))
+                        .build())
+                .filter(action -> ! action.addedDecorators().isEmpty())
+                .collect(toList());
 
+        // rates, audits and recalculates usage for all affected flows in one go
+        logicalFlowDecoratorService.addDecoratorsBatch(actions, username);
+    }
 
-        // check database
-        PhysicalSpecification spec = physicalSpecificationDao.getByParsedFlow(flow);
-        if (spec == null) {
 
-            // create
-            LocalDateTime now = nowUtc();
-            PhysicalSpecification specToAdd = ImmutablePhysicalSpecification.builder()
-                    .owningEntity(owner)
-                    .format(format)
-                    .name(name)
-                    .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
-                    .description(Optional.ofNullable(flow.specDescription()).orElse(""))
+    private Map<Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality>, PhysicalFlow> getOrCreatePhysicalFlows(List<PhysicalFlowParsed> flows,
+                                                                                                                     Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> logicalFlows,
+                                                                                                                     Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> specs,
+                                                                                                                     String username) {
+        // matching mirrors PhysicalFlowDao#matchPhysicalFlow, so removed flows are considered too
+        Map<Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality>, PhysicalFlow> physicalFlows = findPhysicalFlows(
+                logicalFlows.values(),
+                specs.values(),
+                f -> true);
+
+        LocalDateTime now = nowUtc();
+        Map<Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality>, PhysicalFlow> flowsToAdd = new LinkedHashMap<>();
+        flows.forEach(f -> {
+            long logicalFlowId = logicalFlows.get(toLogicalFlowKey(f)).id().get();
+            long specId = getSpec(specs, f).id().get();
+            Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality> key = toPhysicalFlowKey(logicalFlowId, specId, f);
+
+            if (physicalFlows.containsKey(key) || flowsToAdd.containsKey(key)) {
+                return;
+            }
+
+            flowsToAdd.put(key, ImmutablePhysicalFlow.builder()
+                    .logicalFlowId(logicalFlowId)
+                    .specificationId(specId)
+                    .basisOffset(f.basisOffset())
+                    .frequency(f.frequency())
+                    .transport(f.transport())
+                    .criticality(f.criticality())
+                    .description(f.description())
+                    .externalId(Optional.ofNullable(f.externalId()))
                     .lastUpdatedBy(username)
                     .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
+                    .build());
+        });
 
-            Long id = physicalSpecificationDao.create(specToAdd);
-            spec = ImmutablePhysicalSpecification
-                    .copyOf(specToAdd)
-                    .withId(id);
+        if (flowsToAdd.isEmpty()) {
+            return physicalFlows;
         }
 
-        Long dataTypeId = flow.dataType().id();
-        EntityReference specificationEntityRef = EntityReference.mkRef(EntityKind.PHYSICAL_SPECIFICATION, spec.id().get());
+        physicalFlowDao.createAll(flowsToAdd.values());
 
-        DataTypeDecorator existingDataType = dataTypeDecoratorService.getByEntityRefAndDataTypeId(specificationEntityRef, dataTypeId);
-        if(existingDataType == null) {
-            dataTypeDecoratorService.addDecorators(username, specificationEntityRef, fromArray(dataTypeId));
-        }
-        return spec;
+        // batch inserts do not give back generated ids, so re-read the candidate flows
+        return findPhysicalFlows(logicalFlows.values(), specs.values(), f -> true);
     }
 
 
-    private long getOrCreatePhysicalFlow(PhysicalFlow newFlow) {
-        PhysicalFlow existing = physicalFlowDao.matchPhysicalFlow(newFlow);
-        if (existing != null) {
-            return existing.id().get();
-        } else {
-            return physicalFlowDao.create(newFlow);
+    private Map<Tuple2<EntityReference, EntityReference>, LogicalFlow> findLogicalFlows(List<PhysicalFlowParsed> flows) {
+        List<Tuple2<EntityReference, EntityReference>> sourcesAndTargets = flows
+                .stream()
+                .map(PhysicalFlowUploadService::toLogicalFlowKey)
+                .distinct()
+                .collect(toList());
+
+        return new HashMap<>(MapUtilities.indexBy(
+                f -> toLogicalFlowKey(f.source(), f.target()),
+                identity(),
+                logicalFlowDao.findBySourcesAndTargets(sourcesAndTargets),
+                (f1, f2) -> f1));
+    }
+
+
+    private Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> findPhysicalSpecs(List<PhysicalFlowParsed> flows) {
+        return new HashMap<>(MapUtilities.indexBy(
+                s -> toSpecKey(s.owningEntity(), s.format(), s.name()),
+                identity(),
+                physicalSpecificationDao.findByParsedFlows(flows),
+                (s1, s2) -> s1));
+    }
+
+
+    private Set<Tuple2<Long, Long>> findSpecDataTypes(Collection<PhysicalSpecification> specs) {
+        return physicalSpecDataTypeService
+                .findBySpecificationIds(map(specs, s -> s.id().get()))
+                .stream()
+                .map(d -> tuple(d.entityReference().id(), d.dataTypeId()))
+                .collect(toSet());
+    }
+
+
+    private Map<Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality>, PhysicalFlow> findPhysicalFlows(Collection<LogicalFlow> logicalFlows,
+                                                                                                              Collection<PhysicalSpecification> specs,
+                                                                                                              Predicate<PhysicalFlow> filter) {
+        if (logicalFlows.isEmpty() || specs.isEmpty()) {
+            return new HashMap<>();
         }
+
+        List<PhysicalFlow> candidates = physicalFlowDao
+                .findByLogicalFlowIdsAndSpecificationIds(
+                        map(logicalFlows, f -> f.id().get()),
+                        map(specs, s -> s.id().get()))
+                .stream()
+                .filter(filter)
+                .collect(toList());
+
+        return MapUtilities.indexBy(
+                f -> tuple(f.logicalFlowId(), f.specificationId(), f.basisOffset(), f.frequency(), f.transport(), f.criticality()),
+                identity(),
+                candidates,
+                (f1, f2) -> f1);
     }
 
+
+    private static Tuple2<EntityReference, EntityReference> toLogicalFlowKey(PhysicalFlowParsed flow) {
+        return toLogicalFlowKey(flow.source(), flow.target());
+    }
+
+
+    private static Tuple2<EntityReference, EntityReference> toLogicalFlowKey(EntityReference source,
+                                                                             EntityReference target) {
+        // refs are compared on kind and id only, names may differ depending on where the ref came from
+        return tuple(mkRef(source.kind(), source.id()), mkRef(target.kind(), target.id()));
+    }
+
+
+    private static PhysicalSpecification getSpec(Map<Tuple3<EntityReference, DataFormatKind, String>, PhysicalSpecification> specs,
+                                                 PhysicalFlowParsed flow) {
+        return checkNotNull(
+                specs.get(toSpecKey(flow)),
+                "Could not find or create specification: '%s' (%s) owned by: %s",
+                flow.name(),
+                flow.format(),
+                flow.owner().id());
+    }
+
+
+    private static Tuple3<EntityReference, DataFormatKind, String> toSpecKey(PhysicalFlowParsed flow) {
+        return toSpecKey(flow.owner(), flow.format(), flow.name());
+    }
+
+
+    private static Tuple3<EntityReference, DataFormatKind, String> toSpecKey(EntityReference owner,
+                                                                             DataFormatKind format,
+                                                                             String name) {
+        // names are matched ignoring case and surrounding whitespace, as the database lookup
+        // may be case insensitive (e.g. SQL Server's default collation)
+        return tuple(
+                mkRef(owner.kind(), owner.id()),
+                format,
+                name == null ? null : name.trim().toLowerCase(Locale.ROOT));
+    }
+
+
+    private static Tuple6<Long, Long, Integer, FrequencyKind, String, Criticality> toPhysicalFlowKey(long logicalFlowId,
+                                                                                                     long specId,
+                                                                                                     PhysicalFlowParsed flow) {
+        return tuple(logicalFlowId, specId, flow.basisOffset(), flow.frequency(), flow.transport(), flow.criticality());
+    }
+
+
     private Aliases<String> loadTransportAliases() {
         return enumValueAliasService.mkAliases(EnumValueKind.TRANSPORT_KIND);
     }
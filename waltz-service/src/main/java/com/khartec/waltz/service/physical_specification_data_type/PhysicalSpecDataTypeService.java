@@ -19,10 +19,16 @@
 package com.khartec.waltz.service.physical_specification_data_type;
 
 import com.khartec.waltz.data.datatype_decorator.PhysicalSpecDecoratorDao;
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.CollectionUtilities.isEmpty;
 
 @Service
 public class PhysicalSpecDataTypeService {
@@ -36,6 +42,20 @@ public class PhysicalSpecDataTypeService {
         this.physicalSpecDecoratorDao = physicalSpecDecoratorDao;
     }
 
+    public List<DataTypeDecorator> findBySpecificationIds(Collection<Long> specIds) {
+        checkNotNull(specIds, "specIds cannot be null");
+        return isEmpty(specIds)
+                ? Collections.emptyList()
+                : physicalSpecDecoratorDao.findBySpecificationIds(specIds);
+    }
+
+
+    public int[] addDecorators(Collection<DataTypeDecorator> decorators) {
+        checkNotNull(decorators, "decorators cannot be null");
+        return physicalSpecDecoratorDao.addDecorators(decorators);
+    }
+
+
     public int rippleDataTypesToLogicalFlows() {
         return physicalSpecDecoratorDao.rippleDataTypesToLogicalFlows();
     }
@@ -18,34 +18,36 @@
 
 package com.khartec.waltz.service.rating_scheme;
 
-import com.khartec.waltz.data.rating_scheme.RatingSchemeDAO;
 import com.khartec.waltz.model.rating.RagName;
 import com.khartec.waltz.model.rating.RatingScheme;
-import org.jooq.impl.DSL;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 import java.util.List;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
 @Service
 public class RatingSchemeService {
 
-    private final RatingSchemeDAO ratingSchemeDAO;
+    private final ReferenceDataService referenceDataService;
 
     @Autowired
-    public RatingSchemeService(RatingSchemeDAO ratingSchemeDAO) {
-        this.ratingSchemeDAO = ratingSchemeDAO;
+    public RatingSchemeService(ReferenceDataService referenceDataService) {
+        checkNotNull(referenceDataService, "referenceDataService cannot be null");
+        this.referenceDataService = referenceDataService;
     }
 
     public Collection<RatingScheme>  findAll() {
-        return ratingSchemeDAO.findAll();
+        return referenceDataService.getSnapshot().getRatingSchemes();
     }
 
     public RatingScheme getById(long id) {
-        return ratingSchemeDAO.getById(id);
+        return referenceDataService.getSnapshot().getRatingSchemeById(id).orElse(null);
     }
 
-    public List<RagName> getAllRatingSchemeItems() {return ratingSchemeDAO.fetchItems(DSL.trueCondition()); }
+    public List<RagName> getAllRatingSchemeItems() {return referenceDataService.getSnapshot().getRatingSchemeItems(); }
 
 }
@@ -0,0 +1,138 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.reference_data;
+
+import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.data.enum_value.EnumValueDao;
+import com.khartec.waltz.data.involvement_kind.InvolvementKindDao;
+import com.khartec.waltz.data.measurable_category.MeasurableCategoryDao;
+import com.khartec.waltz.data.rating_scheme.RatingSchemeDAO;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DateTimeUtilities.nowUtc;
+
+
+/**
+ * Provides the current {@link ReferenceDataSnapshot}.
+ *
+ * The snapshot is loaded on first use and then reloaded periodically
+ * (<code>waltz.reference.data.refresh.ms</code>) to pick up changes made
+ * directly in the database or by other servers.  Services which modify
+ * reference data should call {@link #reload()} after writing so their
+ * changes are visible immediately.
+ */
+@Service
+public class ReferenceDataService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceDataService.class);
+
+    private final DataTypeDao dataTypeDao;
+    private final RatingSchemeDAO ratingSchemeDAO;
+    private final EnumValueDao enumValueDao;
+    private final InvolvementKindDao involvementKindDao;
+    private final MeasurableCategoryDao measurableCategoryDao;
+
+    private volatile ReferenceDataSnapshot snapshot;
+
+
+    @Autowired
+    public ReferenceDataService(DataTypeDao dataTypeDao,
+                                RatingSchemeDAO ratingSchemeDAO,
+                                EnumValueDao enumValueDao,
+                                InvolvementKindDao involvementKindDao,
+                                MeasurableCategoryDao measurableCategoryDao) {
+        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
+        checkNotNull(ratingSchemeDAO, "ratingSchemeDAO cannot be null");
+        checkNotNull(enumValueDao, "enumValueDao cannot be null");
+        checkNotNull(involvementKindDao, "involvementKindDao cannot be null");
+        checkNotNull(measurableCategoryDao, "measurableCategoryDao cannot be null");
+
+        this.dataTypeDao = dataTypeDao;
+        this.ratingSchemeDAO = ratingSchemeDAO;
+        this.enumValueDao = enumValueDao;
+        this.involvementKindDao = involvementKindDao;
+        this.measurableCategoryDao = measurableCategoryDao;
+    }
+
+
+    /**
+     * @return the current snapshot, loading it if this is the first request
+     */
+    public ReferenceDataSnapshot getSnapshot() {
+        ReferenceDataSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            return snapshot == null
+                    ? reload()
+                    : snapshot;
+        }
+    }
+
+
+    @Scheduled(fixedDelayString = "${waltz.reference.data.refresh.ms:300000}")
+    public void refresh() {
+        if (snapshot == null) {
+            return;
+        }
+
+        try {
+            reload();
+        } catch (Exception e) {
+            LOG.error("Failed to reload reference data, continuing with version: {}", snapshot.getVersion(), e);
+        }
+    }
+
+
+    /**
+     * Loads a new snapshot from the database and makes it current.
+     *
+     * @return the new snapshot
+     */
+    public synchronized ReferenceDataSnapshot reload() {
+        long st = System.currentTimeMillis();
+        long version = snapshot == null
+                ? 1
+                : snapshot.getVersion() + 1;
+
+        ReferenceDataSnapshot newSnapshot = new ReferenceDataSnapshot(
+                version,
+                nowUtc(),
+                dataTypeDao.findAll(),
+                ratingSchemeDAO.findAll(),
+                ratingSchemeDAO.fetchItems(DSL.trueCondition()),
+                enumValueDao.findAll(),
+                involvementKindDao.findAll(),
+                measurableCategoryDao.findAll());
+
+        snapshot = newSnapshot;
+
+        LOG.debug("Loaded reference data: {} in {}ms", newSnapshot, System.currentTimeMillis() - st);
+        return newSnapshot;
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.reference_data;
+
+import com.khartec.waltz.common.hierarchy.LongForest;
+import com.khartec.waltz.model.EnumValue;
+import com.khartec.waltz.model.IdProvider;
+import com.khartec.waltz.model.datatype.DataType;
+import com.khartec.waltz.model.involvement_kind.InvolvementKind;
+import com.khartec.waltz.model.measurable_category.MeasurableCategory;
+import com.khartec.waltz.model.rating.RagName;
+import com.khartec.waltz.model.rating.RatingScheme;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.MapUtilities.indexBy;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.function.Function.identity;
+
+
+/**
+ * An immutable, point in time, copy of the small and rarely changing
+ * reference data tables (data types, rating schemes, enum values, involvement
+ * kinds and measurable categories), indexed for lookup by id (and code where
+ * applicable).
+ *
+ * Each snapshot carries a version which increases every time the reference
+ * data is reloaded, callers may use this to detect whether anything they have
+ * derived from a snapshot is out of date.
+ */
+public class ReferenceDataSnapshot {
+
+    private final long version;
+    private final LocalDateTime loadedAt;
+
+    private final List<DataType> dataTypes;
+    private final Map<Long, DataType> dataTypesById;
+    private final Map<String, DataType> dataTypesByCode;
+    private final LongForest dataTypeForest;
+
+    private final List<RatingScheme> ratingSchemes;
+    private final Map<Long, RatingScheme> ratingSchemesById;
+    private final List<RagName> ratingSchemeItems;
+
+    private final List<EnumValue> enumValues;
+
+    private final List<InvolvementKind> involvementKinds;
+    private final Map<Long, InvolvementKind> involvementKindsById;
+
+    private final List<MeasurableCategory> measurableCategories;
+    private final Map<Long, MeasurableCategory> measurableCategoriesById;
+
+
+    ReferenceDataSnapshot(long version,
+                          LocalDateTime loadedAt,
+                          Collection<DataType> dataTypes,
+                          Collection<RatingScheme> ratingSchemes,
+                          Collection<RagName> ratingSchemeItems,
+                          Collection<EnumValue> enumValues,
+                          Collection<InvolvementKind> involvementKinds,
+                          Collection<MeasurableCategory> measurableCategories) {
+        checkNotNull(loadedAt, "loadedAt cannot be null");
+        checkNotNull(dataTypes, "dataTypes cannot be null");
+        checkNotNull(ratingSchemes, "ratingSchemes cannot be null");
+        checkNotNull(ratingSchemeItems, "ratingSchemeItems cannot be null");
+        checkNotNull(enumValues, "enumValues cannot be null");
+        checkNotNull(involvementKinds, "involvementKinds cannot be null");
+        checkNotNull(measurableCategories, "measurableCategories cannot be null");
+
+        this.version = version;
+        this.loadedAt = loadedAt;
+
+        this.dataTypes = unmodifiableList(new ArrayList<>(dataTypes));
+        this.dataTypesById = indexById(dataTypes);
+        this.dataTypesByCode = unmodifiableMap(indexBy(DataType::code, identity(), dataTypes, (a, b) -> a));
+        this.dataTypeForest = mkDataTypeForest(dataTypes);
+
+        this.ratingSchemes = unmodifiableList(new ArrayList<>(ratingSchemes));
+        this.ratingSchemesById = indexById(ratingSchemes);
+        this.ratingSchemeItems = unmodifiableList(new ArrayList<>(ratingSchemeItems));
+
+        this.enumValues = unmodifiableList(new ArrayList<>(enumValues));
+
+        this.involvementKinds = unmodifiableList(new ArrayList<>(involvementKinds));
+        this.involvementKindsById = indexById(involvementKinds);
+
+        this.measurableCategories = unmodifiableList(new ArrayList<>(measurableCategories));
+        this.measurableCategoriesById = indexById(measurableCategories);
+    }
+
+
+    public long getVersion() {
+        return version;
+    }
+
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+
+    public List<DataType> getDataTypes() {
+        return dataTypes;
+    }
+
+
+    public Optional<DataType> getDataTypeById(long id) {
+        return Optional.ofNullable(dataTypesById.get(id));
+    }
+
+
+    public Optional<DataType> getDataTypeByCode(String code) {
+        return Optional.ofNullable(dataTypesByCode.get(code));
+    }
+
+
+    /**
+     * @return the data type which has been declared as 'unknown', if one exists
+     */
+    public Optional<DataType> getUnknownDataType() {
+        return dataTypes
+                .stream()
+                .filter(DataType::unknown)
+                .findFirst();
+    }
+
+
+    /**
+     * @return the data type hierarchy, for parent/child lookups by data type id
+     */
+    public LongForest getDataTypeForest() {
+        return dataTypeForest;
+    }
+
+
+    public List<RatingScheme> getRatingSchemes() {
+        return ratingSchemes;
+    }
+
+
+    public Optional<RatingScheme> getRatingSchemeById(long id) {
+        return Optional.ofNullable(ratingSchemesById.get(id));
+    }
+
+
+    /**
+     * @return items of all rating schemes, in position order
+     */
+    public List<RagName> getRatingSchemeItems() {
+        return ratingSchemeItems;
+    }
+
+
+    public List<EnumValue> getEnumValues() {
+        return enumValues;
+    }
+
+
+    public List<InvolvementKind> getInvolvementKinds() {
+        return involvementKinds;
+    }
+
+
+    public Optional<InvolvementKind> getInvolvementKindById(long id) {
+        return Optional.ofNullable(involvementKindsById.get(id));
+    }
+
+
+    public List<MeasurableCategory> getMeasurableCategories() {
+        return measurableCategories;
+    }
+
+
+    public Optional<MeasurableCategory> getMeasurableCategoryById(long id) {
+        return Optional.ofNullable(measurableCategoriesById.get(id));
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer("ReferenceDataSnapshot{");
+        sb.append("version=").append(version);
+        sb.append(", loadedAt=").append(loadedAt);
+        sb.append(", #dataTypes=").append(dataTypes.size());
+        sb.append(", #ratingSchemes=").append(ratingSchemes.size());
+        sb.append(", #enumValues=").append(enumValues.size());
+        sb.append(", #involvementKinds=").append(involvementKinds.size());
+        sb.append(", #measurableCategories=").append(measurableCategories.size());
+        sb.append('}');
+        return sb.toString();
+    }
+
+
+    // -- helpers --
+
+    private static <T extends IdProvider> Map<Long, T> indexById(Collection<T> xs) {
+        return unmodifiableMap(indexBy(x -> x.id().get(), identity(), xs, (a, b) -> a));
+    }
+
+
+    private static LongForest mkDataTypeForest(Collection<DataType> dataTypes) {
+        LongForest.Builder builder = LongForest.builder();
+        dataTypes.forEach(dt -> {
+            if (dt.parentId().isPresent()) {
+                builder.add(dt.id().get(), dt.parentId().get());
+            } else {
+                builder.add(dt.id().get());
+            }
+        });
+        return builder.build();
+    }
+
+}
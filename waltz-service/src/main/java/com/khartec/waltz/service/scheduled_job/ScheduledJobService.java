@@ -19,6 +19,7 @@
 package com.khartec.waltz.service.scheduled_job;
 
 
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.scheduled_job.ScheduledJobDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.scheduled_job.JobKey;
@@ -45,6 +46,7 @@ public class ScheduledJobService {
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobService.class);
 
     private final AuthoritativeSourceService authoritativeSourceService;
+    private final CachingApplicationIdSelectorFactory applicationIdSelectorFactory;
     private final ComplexityRatingService complexityRatingService;
     private final DataTypeUsageService dataTypeUsageService;
     private final EntityHierarchyService entityHierarchyService;
@@ -55,6 +57,7 @@ public class ScheduledJobService {
 
     @Autowired
     public ScheduledJobService(AuthoritativeSourceService authoritativeSourceService,
+                               CachingApplicationIdSelectorFactory applicationIdSelectorFactory,
                                ComplexityRatingService complexityRatingService,
                                DataTypeUsageService dataTypeUsageService,
                                EntityHierarchyService entityHierarchyService,
@@ -62,6 +65,7 @@ public class ScheduledJobService {
                                PhysicalSpecDataTypeService physicalSpecDataTypeService,
                                ScheduledJobDao scheduledJobDao) {
         checkNotNull(authoritativeSourceService, "authoritativeSourceService cannot be null");
+        checkNotNull(applicationIdSelectorFactory, "applicationIdSelectorFactory cannot be null");
         checkNotNull(complexityRatingService, "complexityRatingService cannot be null");
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
         checkNotNull(logicalFlowService, "logicalFlowService cannot be null");
@@ -69,6 +73,7 @@ public class ScheduledJobService {
         checkNotNull(scheduledJobDao, "scheduledJobDao cannot be null");
 
         this.authoritativeSourceService = authoritativeSourceService;
+        this.applicationIdSelectorFactory = applicationIdSelectorFactory;
         this.complexityRatingService = complexityRatingService;
         this.dataTypeUsageService = dataTypeUsageService;
         this.entityHierarchyService = entityHierarchyService;
@@ -82,22 +87,22 @@ public class ScheduledJobService {
     public void run() {
         Thread.currentThread().setName("WaltzScheduledJobService");
         runIfNeeded(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
+                (jk) -> rebuildHierarchy(EntityKind.CHANGE_INITIATIVE));
 
         runIfNeeded(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
+                (jk) -> rebuildHierarchy(EntityKind.DATA_TYPE));
 
         runIfNeeded(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
+                (jk) -> rebuildHierarchy(EntityKind.ENTITY_STATISTIC));
 
         runIfNeeded(JobKey.HIERARCHY_REBUILD_MEASURABLE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
+                (jk) -> rebuildHierarchy(EntityKind.MEASURABLE));
 
         runIfNeeded(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
+                (jk) -> rebuildHierarchy(EntityKind.ORG_UNIT));
 
         runIfNeeded(JobKey.HIERARCHY_REBUILD_PERSON,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.PERSON));
+                (jk) -> rebuildHierarchy(EntityKind.PERSON));
 
         runIfNeeded(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
                 (jk) -> physicalSpecDataTypeService.rippleDataTypesToLogicalFlows());
@@ -116,6 +121,17 @@ public class ScheduledJobService {
     }
 
 
+    /**
+     * Rebuilds the hierarchy for the given kind and then discards any
+     * cached application selections as they may have been resolved
+     * against the old hierarchy.
+     */
+    private void rebuildHierarchy(EntityKind kind) {
+        entityHierarchyService.buildFor(kind);
+        applicationIdSelectorFactory.invalidateAll();
+    }
+
+
     private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor) {
         try {
             if (scheduledJobDao.isJobRunnable(jobKey)
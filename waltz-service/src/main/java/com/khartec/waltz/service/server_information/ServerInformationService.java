@@ -18,7 +18,7 @@
 
 package com.khartec.waltz.service.server_information;
 
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.server_information.ServerInformationDao;
 import com.khartec.waltz.data.server_information.search.ServerInformationSearchDao;
 import com.khartec.waltz.model.EntityKind;
@@ -41,19 +41,22 @@ import static java.util.Collections.emptyList;
 @Service
 public class ServerInformationService {
 
-    private final ApplicationIdSelectorFactory selectorFactory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory selectorFactory;
     private final ServerInformationDao serverInformationDao;
     private final ServerInformationSearchDao serverInformationSearchDao;
 
 
     @Autowired
     public ServerInformationService(ServerInformationDao serverInfoDao,
-                                    ServerInformationSearchDao serverInformationSearchDao) {
+                                    ServerInformationSearchDao serverInformationSearchDao,
+                                    CachingApplicationIdSelectorFactory selectorFactory) {
         checkNotNull(serverInfoDao, "serverInformationDao must not be null");
         checkNotNull(serverInformationSearchDao, "serverInformationSearchDao cannot be null");
+        checkNotNull(selectorFactory, "selectorFactory must not be null");
 
         this.serverInformationDao = serverInfoDao;
         this.serverInformationSearchDao = serverInformationSearchDao;
+        this.selectorFactory = selectorFactory;
     }
 
     public List<ServerInformation> findByAssetCode(String assetCode) {
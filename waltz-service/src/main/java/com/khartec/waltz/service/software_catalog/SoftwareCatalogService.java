@@ -19,7 +19,7 @@
 package com.khartec.waltz.service.software_catalog;
 
 import com.khartec.waltz.common.ListUtilities;
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.software_catalog.SoftwarePackageDao;
 import com.khartec.waltz.data.software_catalog.SoftwareUsageDao;
 import com.khartec.waltz.data.software_catalog.SoftwareVersionDao;
@@ -43,7 +43,7 @@ import static com.khartec.waltz.schema.tables.SoftwarePackage.SOFTWARE_PACKAGE;
 @Service
 public class SoftwareCatalogService {
 
-    private final ApplicationIdSelectorFactory factory = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory factory;
     private final SoftwarePackageDao softwarePackageDao;
     private final SoftwareUsageDao softwareUsageDao;
     private final SoftwareVersionDao softwareVersionDao;
@@ -52,14 +52,17 @@ public class SoftwareCatalogService {
     @Autowired
     public SoftwareCatalogService(SoftwarePackageDao softwarePackageDao,
                                   SoftwareUsageDao softwareUsageDao,
-                                  SoftwareVersionDao softwareVersionDao) {
+                                  SoftwareVersionDao softwareVersionDao,
+                                  CachingApplicationIdSelectorFactory factory) {
         checkNotNull(softwarePackageDao, "softwarePackageDao cannot be null");
         checkNotNull(softwareUsageDao, "softwareUsageDao cannot be null");
         checkNotNull(softwareVersionDao, "softwareVersionDao cannot be null");
+        checkNotNull(factory, "factory cannot be null");
 
         this.softwarePackageDao = softwarePackageDao;
         this.softwareUsageDao = softwareUsageDao;
         this.softwareVersionDao = softwareVersionDao;
+        this.factory = factory;
     }
 
 
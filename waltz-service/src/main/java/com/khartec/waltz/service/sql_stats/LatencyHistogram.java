@@ -0,0 +1,132 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Thread-safe, fixed memory, latency histogram.
+ *
+ * Values are recorded (in nanoseconds) into exponentially sized buckets,
+ * each roughly 19% wider than the last, starting at one microsecond.
+ * Percentiles are therefore approximate; they report the upper bound of
+ * the bucket containing the requested rank (capped at the observed max).
+ */
+public class LatencyHistogram {
+
+    private static final double BUCKET_GROWTH = Math.pow(2, 0.25);
+    private static final double LOG_BUCKET_GROWTH = Math.log(BUCKET_GROWTH);
+    private static final int BUCKET_COUNT = 4 * 42; // 1us * 2^42 ~= 73 minutes
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+
+    /**
+     * Records a value which stands for <code>weight</code> executions, used
+     * when only a sample of executions are recorded.
+     */
+    public void record(long nanos, long weight) {
+        long value = Math.max(0, nanos);
+        buckets.addAndGet(toBucket(value), weight);
+        count.add(weight);
+        totalNanos.add(value * weight);
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+
+    public long getCount() {
+        return count.sum();
+    }
+
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+
+    public long getMeanNanos() {
+        long c = getCount();
+        return c == 0
+                ? 0
+                : getTotalNanos() / c;
+    }
+
+
+    /**
+     * @param percentile  value between 0 and 100 (e.g. 99 for the p99)
+     * @return approximate latency, in nanos, at the given percentile
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(toUpperBound(i), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+
+    // -- HELPERS ---
+
+    private static int toBucket(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        if (micros <= 1) {
+            return 0;
+        }
+        int bucket = (int) Math.ceil(Math.log(micros) / LOG_BUCKET_GROWTH);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+
+    private static long toUpperBound(int bucket) {
+        return TimeUnit.MICROSECONDS.toNanos((long) Math.ceil(Math.pow(BUCKET_GROWTH, bucket)));
+    }
+
+}
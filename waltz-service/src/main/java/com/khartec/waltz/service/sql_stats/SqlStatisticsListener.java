@@ -0,0 +1,173 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_stats;
+
+
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+
+
+/**
+ * Times every sql execution, recording the latency against the shape of
+ * the sql.  Executions which exceed the slow query threshold are logged,
+ * with the inlined sql, to the `WALTZ.PERFORMANCE` logger.
+ *
+ * Statistics are kept per calling dao method.  Finding the caller means
+ * walking the stack (roughly 60 microseconds for a typical request), which
+ * is too expensive to do for every statement.  Only a random sample of 1 in
+ * `callerSampleRate` executions are therefore recorded, each one weighted
+ * to stand for `callerSampleRate` executions, so counts and totals are
+ * estimates unless the rate is 1.  A rate of zero (or less) disables caller
+ * capture, every execution is then recorded against an unknown caller.
+ *
+ * Start times are held on the execute context so concurrent executions
+ * (e.g. via the `DBExecutorPool`) do not interfere with each other.
+ */
+public class SqlStatisticsListener extends DefaultExecuteListener {
+
+    private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
+    private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
+
+    private static final String START_TIME_KEY = SqlStatisticsListener.class.getName() + ".start";
+    private static final String DATA_PACKAGE_PREFIX = "com.khartec.waltz.data.";
+    private static final String WALTZ_PACKAGE_PREFIX = "com.khartec.waltz.";
+
+    private final SqlStatisticsRecorder recorder;
+    private final long slowQueryThresholdInNanos;
+    private final int callerSampleRate;
+
+
+    public class SQLPerformanceWarning
+            extends Exception {
+
+        public SQLPerformanceWarning(String message) {
+            super(message);
+        }
+    }
+
+
+    public SqlStatisticsListener(SqlStatisticsRecorder recorder,
+                                 long slowQueryThresholdMillis,
+                                 int callerSampleRate) {
+        checkNotNull(recorder, "recorder cannot be null");
+        LOG.info("Initialising with {} millisecond threshold and caller sample rate of {}", slowQueryThresholdMillis, callerSampleRate);
+        this.recorder = recorder;
+        this.slowQueryThresholdInNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        this.callerSampleRate = callerSampleRate;
+    }
+
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        super.executeStart(ctx);
+        ctx.data(START_TIME_KEY, System.nanoTime());
+    }
+
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        super.executeEnd(ctx);
+        Object start = ctx.data(START_TIME_KEY);
+        if (start == null) {
+            return;
+        }
+
+        long duration = System.nanoTime() - (Long) start;
+        if (callerSampleRate <= 0) {
+            recorder.record(null, determineSql(ctx), duration);
+        } else if (shouldSampleCaller()) {
+            recorder.record(
+                    determineCaller(Thread.currentThread().getStackTrace()),
+                    determineSql(ctx),
+                    duration,
+                    callerSampleRate);
+        }
+
+        if (duration > slowQueryThresholdInNanos && ctx.query() != null) {
+            DSLContext context = DSL.using(ctx.dialect(),
+                    // ... and the flag for pretty-printing
+                    new Settings().withRenderFormatted(true));
+
+            LOG.warn(
+                    String.format("Slow SQL executed in %d milliseconds", TimeUnit.NANOSECONDS.toMillis(duration)),
+                    new SQLPerformanceWarning(context.renderInlined(ctx.query())));
+        }
+    }
+
+
+    // -- HELPERS ---
+
+    private boolean shouldSampleCaller() {
+        return callerSampleRate == 1
+                || ThreadLocalRandom.current().nextInt(callerSampleRate) == 0;
+    }
+
+
+    private static String determineSql(ExecuteContext ctx) {
+        if (ctx.sql() != null) {
+            return ctx.sql();
+        }
+        String[] batchSql = ctx.batchSQL();
+        return batchSql.length > 0
+                ? batchSql[0]
+                : "";
+    }
+
+
+    /**
+     * Walks the given stack to find the dao which issued the query.  If
+     * no dao is involved (e.g. extractors) then the first waltz class
+     * outside of this package is used instead.
+     */
+    static String determineCaller(StackTraceElement[] stack) {
+        StackTraceElement fallback = null;
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (className.startsWith(DATA_PACKAGE_PREFIX)) {
+                return toCallerName(frame);
+            }
+            if (fallback == null
+                    && className.startsWith(WALTZ_PACKAGE_PREFIX)
+                    && ! className.startsWith(SqlStatisticsListener.class.getPackage().getName())) {
+                fallback = frame;
+            }
+        }
+        return fallback == null
+                ? SqlStatisticsRecorder.UNKNOWN_CALLER
+                : toCallerName(fallback);
+    }
+
+
+    private static String toCallerName(StackTraceElement frame) {
+        String className = frame.getClassName();
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        return simpleName + "." + frame.getMethodName();
+    }
+
+}
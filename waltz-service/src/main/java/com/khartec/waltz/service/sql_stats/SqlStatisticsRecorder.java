@@ -0,0 +1,143 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_stats;
+
+import com.khartec.waltz.model.sql_stats.ImmutableSqlStatistic;
+import com.khartec.waltz.model.sql_stats.SqlStatistic;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static java.util.stream.Collectors.toList;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+
+/**
+ * Collects latency histograms for executed sql, keyed by the calling dao
+ * method and a normalised form of the statement (literals and bind lists
+ * collapsed).  Executions differing only by parameter values are therefore
+ * grouped together, while the same statement issued by two daos is reported
+ * separately.  Executions without a captured caller are grouped under an
+ * `unknown` caller.
+ *
+ * The number of distinct keys is bounded, once the limit is reached any
+ * new caller/statement pairs are recorded against an overflow key.
+ */
+public class SqlStatisticsRecorder {
+
+    static final String OVERFLOW_SQL = "[other]";
+    static final String UNKNOWN_CALLER = "unknown";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Tuple2<String, String> OVERFLOW_KEY = tuple(UNKNOWN_CALLER, OVERFLOW_SQL);
+
+    private final int maxDistinctStatements;
+    private final Map<Tuple2<String, String>, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+
+    public SqlStatisticsRecorder(int maxDistinctStatements) {
+        checkTrue(maxDistinctStatements > 0, "maxDistinctStatements must be positive");
+        this.maxDistinctStatements = maxDistinctStatements;
+    }
+
+
+    /**
+     * @param caller  the class/method issuing the sql, may be null if it was not captured
+     * @param sql  the executed sql, it is normalised before being used as a key
+     * @param nanos  execution time
+     */
+    public void record(String caller, String sql, long nanos) {
+        record(caller, sql, nanos, 1);
+    }
+
+
+    /**
+     * As {@link #record(String, String, long)} but the execution stands for
+     * <code>weight</code> executions, as used when callers are sampled.
+     */
+    public void record(String caller, String sql, long nanos, long weight) {
+        Tuple2<String, String> key = tuple(
+                caller == null ? UNKNOWN_CALLER : caller,
+                normalise(sql));
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            if (histograms.size() >= maxDistinctStatements) {
+                key = OVERFLOW_KEY;
+            }
+            histogram = histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(nanos, weight);
+    }
+
+
+    public List<SqlStatistic> getStatistics() {
+        return histograms
+                .entrySet()
+                .stream()
+                .map(e -> toStatistic(e.getKey(), e.getValue()))
+                .collect(toList());
+    }
+
+
+    public void reset() {
+        histograms.clear();
+    }
+
+
+    static String normalise(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMERIC_LITERAL.matcher(s).replaceAll("?");
+        s = PARAMETER_LIST.matcher(s).replaceAll("?, ...");
+        return WHITESPACE.matcher(s).replaceAll(" ").trim();
+    }
+
+
+    // -- HELPERS ---
+
+    private static SqlStatistic toStatistic(Tuple2<String, String> key, LatencyHistogram histogram) {
+        return ImmutableSqlStatistic.builder()
+                .caller(key.v1)
+                .sql(key.v2)
+                .count(histogram.getCount())
+                .totalMillis(toMillis(histogram.getTotalNanos()))
+                .meanMillis(toMillis(histogram.getMeanNanos()))
+                .p50Millis(toMillis(histogram.getPercentileNanos(50)))
+                .p95Millis(toMillis(histogram.getPercentileNanos(95)))
+                .p99Millis(toMillis(histogram.getPercentileNanos(99)))
+                .maxMillis(toMillis(histogram.getMaxNanos()))
+                .build();
+    }
+
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_stats;
+
+import com.khartec.waltz.model.sql_stats.SqlStatistic;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+
+@Service
+public class SqlStatisticsService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SqlStatisticsService.class);
+
+    private final SqlStatisticsRecorder sqlStatisticsRecorder;
+
+
+    @Autowired
+    public SqlStatisticsService(SqlStatisticsRecorder sqlStatisticsRecorder) {
+        checkNotNull(sqlStatisticsRecorder, "sqlStatisticsRecorder cannot be null");
+        this.sqlStatisticsRecorder = sqlStatisticsRecorder;
+    }
+
+
+    /**
+     * Returns statistics ordered by p99 latency, slowest first.
+     * @param limit  maximum number of statistics to return
+     * @return list of statistics
+     */
+    public List<SqlStatistic> findSlowest(int limit) {
+        return sqlStatisticsRecorder
+                .getStatistics()
+                .stream()
+                .sorted(Comparator.comparingDouble(SqlStatistic::p99Millis).reversed())
+                .limit(limit)
+                .collect(toList());
+    }
+
+
+    /**
+     * Returns statistics ordered by total time spent, highest first.
+     * @param limit  maximum number of statistics to return
+     * @return list of statistics
+     */
+    public List<SqlStatistic> findMostExpensive(int limit) {
+        return sqlStatisticsRecorder
+                .getStatistics()
+                .stream()
+                .sorted(Comparator.comparingDouble(SqlStatistic::totalMillis).reversed())
+                .limit(limit)
+                .collect(toList());
+    }
+
+
+    public boolean reset() {
+        LOG.info("Resetting sql statistics");
+        sqlStatisticsRecorder.reset();
+        return true;
+    }
+
+}
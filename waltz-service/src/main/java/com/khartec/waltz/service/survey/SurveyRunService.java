@@ -32,22 +32,23 @@ import com.khartec.waltz.model.survey.*;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.common.ListUtilities.map;
 import static com.khartec.waltz.common.MapUtilities.indexBy;
 import static com.khartec.waltz.common.SetUtilities.fromCollection;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.*;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Service
 public class SurveyRunService {
@@ -275,6 +276,13 @@ public class SurveyRunService {
     }
 
 
+    /**
+     * Issues the instances and recipients for a survey run.  If the run has already been
+     * issued only the difference is applied: recipients who are no longer required are
+     * removed and new recipients are added (to existing instances when issuing by group).
+     * Existing instances which are kept are reset to the run's due date and are not started.
+     * If the existing instances do not match the run's issuance kind they are replaced.
+     */
     public boolean createSurveyInstancesAndRecipients(long surveyRunId,
                                                       List<SurveyInstanceRecipient> excludedRecipients) {
 
@@ -286,57 +294,128 @@ public class SurveyRunService {
                 .filter(r -> !excludedRecipientSet.contains(r))
                 .collect(toList());
 
-        Map<SurveyInstance, List<SurveyInstanceRecipient>> instancesAndRecipientsToSave = surveyInstanceRecipients.stream()
-                .collect(groupingBy(
-                        SurveyInstanceRecipient::surveyInstance,
-                        toList()
-                ));
-
-        // delete existing instances and recipients
-        deleteSurveyInstancesAndRecipients(surveyRunId);
-
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k,v) -> {
-                    if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
-                        // one instance per group
-                        long instanceId = createSurveyInstance(k);
-                        v.forEach(r -> createSurveyInstanceRecipient(instanceId, r));
-                    } else {
-                        // one instance for each individual
-                        v.forEach(r -> {
-                            long instanceId = createSurveyInstance(k);
-                            createSurveyInstanceRecipient(instanceId, r);
-                        });
-                    }
+        List<SurveyInstanceRecipient> existingRecipients = surveyInstanceRecipientDao.findForSurveyRun(surveyRunId);
+        boolean replaceExisting = ! isConsistentWithIssuanceKind(existingRecipients, surveyRun.issuanceKind());
+        if (replaceExisting) {
+            existingRecipients = emptyList();
+        }
+
+        Map<Tuple3<EntityKind, Long, Long>, SurveyInstanceRecipient> existingByKey = indexByRecipientKey(existingRecipients);
+        Map<Tuple3<EntityKind, Long, Long>, SurveyInstanceRecipient> requiredByKey = indexByRecipientKey(surveyInstanceRecipients);
+
+        List<SurveyInstanceRecipient> recipientsToRemove = existingRecipients
+                .stream()
+                .filter(r -> ! requiredByKey.containsKey(toRecipientKey(r)))
+                .collect(toList());
+
+        Map<EntityReference, List<SurveyInstanceRecipient>> recipientsToAddByEntity = requiredByKey
+                .entrySet()
+                .stream()
+                .filter(e -> ! existingByKey.containsKey(e.getKey()))
+                .map(Map.Entry::getValue)
+                .collect(groupingBy(r -> r.surveyInstance().surveyEntity(), toList()));
+
+        // group instances which keep at least one recipient can take additional recipients
+        Set<Long> removedRecipientIds = SetUtilities.map(recipientsToRemove, r -> r.id().get());
+        Map<Tuple2<EntityKind, Long>, Long> retainedInstanceIdsByEntity = existingRecipients
+                .stream()
+                .filter(r -> ! removedRecipientIds.contains(r.id().get()))
+                .collect(toMap(
+                        r -> toEntityKey(r.surveyInstance().surveyEntity()),
+                        r -> r.surveyInstance().id().get(),
+                        (id1, id2) -> id1));
+
+        // kept instances are reset to the run's current due date and status, as new instances are
+        Map<Long, SurveyInstanceCreateCommand> instancesToReissue = existingRecipients
+                .stream()
+                .filter(r -> ! removedRecipientIds.contains(r.id().get()))
+                .collect(toMap(
+                        r -> r.surveyInstance().id().get(),
+                        r -> mkCreateCommand(requiredByKey.get(toRecipientKey(r)).surveyInstance()),
+                        (c1, c2) -> c1));
+
+        Map<Long, List<Long>> personIdsToAddByInstanceId = new HashMap<>();
+        List<Tuple2<SurveyInstanceCreateCommand, ? extends Collection<Long>>> instancesToCreate = new ArrayList<>();
+
+        recipientsToAddByEntity.forEach((entity, recipients) -> {
+            List<Long> personIds = map(recipients, r -> r.person().id().get());
+            SurveyInstanceCreateCommand createCommand = mkCreateCommand(recipients.get(0).surveyInstance());
+
+            if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
+                // one instance per group
+                Long existingInstanceId = retainedInstanceIdsByEntity.get(toEntityKey(entity));
+                if (existingInstanceId != null) {
+                    personIdsToAddByInstanceId.put(existingInstanceId, personIds);
+                } else {
+                    instancesToCreate.add(tuple(createCommand, personIds));
                 }
-        );
+            } else {
+                // one instance for each individual
+                personIds.forEach(personId -> instancesToCreate.add(tuple(createCommand, singletonList(personId))));
+            }
+        });
+
+        surveyInstanceDao.issue(
+                surveyRunId,
+                replaceExisting,
+                removedRecipientIds,
+                personIdsToAddByInstanceId,
+                instancesToReissue,
+                instancesToCreate);
 
         return true;
     }
 
 
-    private void deleteSurveyInstancesAndRecipients(long surveyRunId) {
-        surveyInstanceRecipientDao.deleteForSurveyRun(surveyRunId);
-        surveyInstanceDao.deleteForSurveyRun(surveyRunId);
+    private static boolean isConsistentWithIssuanceKind(List<SurveyInstanceRecipient> recipients,
+                                                        SurveyIssuanceKind issuanceKind) {
+        if (issuanceKind == SurveyIssuanceKind.GROUP) {
+            // at most one instance per entity
+            Map<Tuple2<EntityKind, Long>, Set<Long>> instanceIdsByEntity = recipients
+                    .stream()
+                    .collect(groupingBy(
+                            r -> toEntityKey(r.surveyInstance().surveyEntity()),
+                            mapping(r -> r.surveyInstance().id().get(), toSet())));
+            return instanceIdsByEntity.values().stream().allMatch(ids -> ids.size() == 1);
+        } else {
+            // exactly one recipient per instance
+            Map<Long, Long> recipientCountsByInstanceId = recipients
+                    .stream()
+                    .collect(groupingBy(r -> r.surveyInstance().id().get(), counting()));
+            return recipientCountsByInstanceId.values().stream().allMatch(c -> c == 1);
+        }
     }
 
 
-    private long createSurveyInstance(SurveyInstance surveyInstance) {
-        return surveyInstanceDao.create(ImmutableSurveyInstanceCreateCommand.builder()
+    private static Map<Tuple3<EntityKind, Long, Long>, SurveyInstanceRecipient> indexByRecipientKey(List<SurveyInstanceRecipient> recipients) {
+        return recipients
+                .stream()
+                .collect(toMap(
+                        SurveyRunService::toRecipientKey,
+                        r -> r,
+                        (r1, r2) -> r1,
+                        LinkedHashMap::new));
+    }
+
+
+    private static Tuple2<EntityKind, Long> toEntityKey(EntityReference ref) {
+        return tuple(ref.kind(), ref.id());
+    }
+
+
+    private static Tuple3<EntityKind, Long, Long> toRecipientKey(SurveyInstanceRecipient recipient) {
+        EntityReference ref = recipient.surveyInstance().surveyEntity();
+        return tuple(ref.kind(), ref.id(), recipient.person().id().get());
+    }
+
+
+    private static SurveyInstanceCreateCommand mkCreateCommand(SurveyInstance surveyInstance) {
+        return ImmutableSurveyInstanceCreateCommand.builder()
                 .surveyRunId(surveyInstance.surveyRunId())
                 .entityReference(surveyInstance.surveyEntity())
                 .status(surveyInstance.status())
                 .dueDate(surveyInstance.dueDate())
-                .build());
-    }
-
-
-    private long createSurveyInstanceRecipient(long surveyInstanceId, SurveyInstanceRecipient surveyInstanceRecipient) {
-        return surveyInstanceRecipientDao.create(ImmutableSurveyInstanceRecipientCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(surveyInstanceRecipient.person().id().get())
-                .build());
+                .build();
     }
 
 
@@ -19,11 +19,13 @@
 package com.khartec.waltz.service.svg;
 
 import com.khartec.waltz.common.SvgUtilities;
+import com.khartec.waltz.common.cache.ExpiringCache;
 import com.khartec.waltz.data.svg.SvgDiagramDao;
 import com.khartec.waltz.model.svg.ImmutableSvgDiagram;
 import com.khartec.waltz.model.svg.SvgDiagram;
 import org.jooq.lambda.Unchecked;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.xml.sax.SAXException;
 
@@ -31,44 +33,97 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.concurrent.TimeUnit;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.DigestUtilities.digest;
 import static java.util.stream.Collectors.toList;
 
+/**
+ * Converted (product specific) svg output is cached, keyed on a digest of
+ * the source svg and the conversion inputs.  As the key changes whenever
+ * the stored svg changes the cache never needs explicit invalidation,
+ * entries are evicted when the cache is full (least recently used first).
+ */
 @Service
 public class SvgDiagramService {
 
+    private static final long CACHE_TTL_HOURS = 24;
+
     private final SvgDiagramDao svgDiagramDao;
+    private final ExpiringCache<String, String> convertedSvgCache;
 
 
     @Autowired
-    public SvgDiagramService(SvgDiagramDao svgDiagramDao) {
+    public SvgDiagramService(SvgDiagramDao svgDiagramDao,
+                             @Value("${waltz.svg.cache.size:100}") int cacheSize) {
+        checkNotNull(svgDiagramDao, "svgDiagramDao cannot be null");
+
         this.svgDiagramDao = svgDiagramDao;
+        this.convertedSvgCache = new ExpiringCache<>(cacheSize, CACHE_TTL_HOURS, TimeUnit.HOURS);
     }
 
 
     public SvgDiagram getById(long id) {
         SvgDiagram diagram = svgDiagramDao.getById(id);
-        return Unchecked.supplier(() -> {
-            String updatedSvg = convertProductSpecificSvg(diagram);
-            return ImmutableSvgDiagram.copyOf(diagram)
-                    .withSvg(updatedSvg);
-        }).get();
+        return ImmutableSvgDiagram.copyOf(diagram)
+                .withSvg(getConvertedSvg(diagram));
     }
 
 
     public Collection<SvgDiagram> findByGroups(String... groups) {
         return svgDiagramDao.findByGroups(groups)
                 .stream()
-                .map(Unchecked.function(diagram -> {
-                    String updatedSvg = convertProductSpecificSvg(diagram);
-                    return ImmutableSvgDiagram.copyOf(diagram)
-                            .withSvg(updatedSvg);
-                }))
+                .map(diagram -> ImmutableSvgDiagram.copyOf(diagram)
+                        .withSvg(getConvertedSvg(diagram)))
                 .collect(toList());
     }
 
 
+    /**
+     * Digest of the ids and (converted) svg of the given diagrams, suitable
+     * for use as an http entity tag.
+     */
+    public String mkETag(Collection<SvgDiagram> diagrams) {
+        checkNotNull(diagrams, "diagrams cannot be null");
+
+        StringBuilder sb = new StringBuilder();
+        diagrams.forEach(d -> sb
+                .append(d.id().orElse(null))
+                .append('\u0000')
+                .append(d.svg())
+                .append('\u0000'));
+
+        return "\"" + Unchecked.supplier(() -> digest(sb.toString().getBytes(StandardCharsets.UTF_8))).get() + "\"";
+    }
+
+
+    // -- helpers --
+
+    private String getConvertedSvg(SvgDiagram diagram) {
+        if (! "visio".equals(diagram.product())) {
+            return diagram.svg();
+        }
+
+        String key = Unchecked.supplier(() -> digest(mkCacheKeySource(diagram))).get();
+        return convertedSvgCache.get(
+                key,
+                Unchecked.function(k -> convertProductSpecificSvg(diagram)));
+    }
+
+
+    private static byte[] mkCacheKeySource(SvgDiagram diagram) {
+        return String.join(
+                    "\u0000",
+                    diagram.product(),
+                    diagram.keyProperty(),
+                    diagram.svg())
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+
     private String convertProductSpecificSvg(SvgDiagram diagram) throws ParserConfigurationException, IOException, SAXException, XPathExpressionException, TransformerException {
         switch (diagram.product()) {
             case "visio":
@@ -86,4 +141,4 @@ public class SvgDiagramService {
         return SvgUtilities.convertVisioSvg(key, svgStr);
     }
 
-}
\ No newline at end of file
+}
@@ -20,6 +20,7 @@ package com.khartec.waltz.service.taxonomy_management;
 
 import com.khartec.waltz.common.DateTimeUtilities;
 import com.khartec.waltz.common.StringUtilities;
+import com.khartec.waltz.data.ThreadBoundTransactionScope;
 import com.khartec.waltz.data.taxonomy_management.TaxonomyChangeDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.EntityReference;
@@ -28,6 +29,7 @@ import com.khartec.waltz.model.measurable.Measurable;
 import com.khartec.waltz.model.measurable_category.MeasurableCategory;
 import com.khartec.waltz.model.taxonomy_management.*;
 import com.khartec.waltz.model.user.SystemRole;
+import com.khartec.waltz.service.changelog.ChangeLogService;
 import com.khartec.waltz.service.client_cache_key.ClientCacheKeyService;
 import com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService;
 import com.khartec.waltz.service.measurable.MeasurableService;
@@ -37,10 +39,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 import static com.khartec.waltz.common.Checks.*;
+import static com.khartec.waltz.service.taxonomy_management.TaxonomyManagementUtilities.validateBatch;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
@@ -54,6 +60,8 @@ public class TaxonomyChangeService {
     private final MeasurableCategoryService measurableCategoryService;
     private final MeasurableService measurableService;
     private final EntityHierarchyService entityHierarchyService;
+    private final ChangeLogService changeLogService;
+    private final ThreadBoundTransactionScope transactionScope;
 
 
     @Autowired
@@ -63,9 +71,13 @@ public class TaxonomyChangeService {
                                  UserRoleService userRoleService,
                                  List<TaxonomyCommandProcessor> processors,
                                  MeasurableService measurableService,
-                                 EntityHierarchyService entityHierarchyService) {
+                                 EntityHierarchyService entityHierarchyService,
+                                 ChangeLogService changeLogService,
+                                 ThreadBoundTransactionScope transactionScope) {
         checkNotNull(taxonomyChangeDao, "taxonomyChangeDao cannot be null");
         checkNotNull(clientCacheKeyService, "clientCacheKeyService cannot be null");
+        checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(transactionScope, "transactionScope cannot be null");
         this.clientCacheKeyService = clientCacheKeyService;
         this.taxonomyChangeDao = taxonomyChangeDao;
         this.userRoleService = userRoleService;
@@ -78,6 +90,8 @@ public class TaxonomyChangeService {
                 .collect(toMap(t -> t.v1, t -> t.v2));
         this.measurableService = measurableService;
         this.entityHierarchyService = entityHierarchyService;
+        this.changeLogService = changeLogService;
+        this.transactionScope = transactionScope;
     }
 
 
@@ -130,12 +144,76 @@ public class TaxonomyChangeService {
 
         updatedCommand = taxonomyChangeDao.update(updatedCommand);
 
-        // rebuild measurable hierarchy
+        // rebuild measurable hierarchy, a move only affects the moved subtree
         if (command.changeDomain().kind() == EntityKind.MEASURABLE_CATEGORY
                 && isHierarchyChange(command)) {
-            entityHierarchyService.buildForMeasurableByCategory(command.changeDomain().id());
+            if (command.changeType() == TaxonomyChangeType.MOVE) {
+                entityHierarchyService.buildForSubtree(command.primaryReference());
+            } else {
+                entityHierarchyService.buildForMeasurableByCategory(command.changeDomain().id());
+            }
+        }
+
+        return updatedCommand;
+    }
+
+
+    /**
+     * Applies all draft changes for the given domain, oldest first.
+     *
+     * The whole batch is validated against an in-memory copy of the category tree
+     * before anything is written, the commands are then applied in a single
+     * transaction (either all are applied or none are, a command which fails
+     * rolls back the batch) and the category hierarchy is rebuilt once at the
+     * end.  Change log entries are written synchronously so they roll back
+     * with the batch.
+     *
+     * @param domain  measurable category the drafts belong to
+     * @param userId  user applying the changes
+     * @return the applied commands
+     */
+    public Collection<TaxonomyChangeCommand> applyAllForDomain(EntityReference domain, String userId) {
+        checkTrue(
+                domain.kind() == EntityKind.MEASURABLE_CATEGORY,
+                "Batch apply is only supported for [MEASURABLE_CATEGORY] domains, not [%s]",
+                domain.kind());
+        verifyUserHasPermissions(userId, domain);
+
+        List<TaxonomyChangeCommand> drafts = findDraftChangesByDomain(domain)
+                .stream()
+                .sorted(Comparator.comparing(cmd -> cmd.id().orElse(Long.MAX_VALUE)))
+                .collect(toList());
+
+        if (drafts.isEmpty()) {
+            return emptyList();
+        }
+
+        validateBatch(measurableService.findByCategoryId(domain.id()), drafts);
+
+        List<TaxonomyChangeCommand> appliedCommands = changeLogService.writeSynchronouslyWithin(
+                () -> transactionScope.inTransaction(() -> drafts
+                        .stream()
+                        .map(cmd -> taxonomyChangeDao.update(applyOrFail(cmd, userId)))
+                        .collect(toList())));
+
+        clientCacheKeyService.createOrUpdate("TAXONOMY");
+
+        if (drafts.stream().anyMatch(this::isHierarchyChange)) {
+            entityHierarchyService.buildForMeasurableByCategory(domain.id());
         }
 
+        return appliedCommands;
+    }
+
+
+    private TaxonomyChangeCommand applyOrFail(TaxonomyChangeCommand command, String userId) {
+        TaxonomyChangeCommand updatedCommand = getCommandProcessor(command).apply(command, userId);
+        if (updatedCommand.status() == TaxonomyChangeLifecycleStatus.FAILED) {
+            throw new IllegalStateException(String.format(
+                    "Change [%s] to measurable [%d] failed, no changes in the batch have been applied",
+                    command.changeType(),
+                    command.primaryReference().id()));
+        }
         return updatedCommand;
     }
 
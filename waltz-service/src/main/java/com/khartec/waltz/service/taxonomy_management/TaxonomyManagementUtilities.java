@@ -27,12 +27,19 @@ import com.khartec.waltz.model.measurable_rating.MeasurableRating;
 import com.khartec.waltz.model.taxonomy_management.ImmutableTaxonomyChangeImpact;
 import com.khartec.waltz.model.taxonomy_management.ImmutableTaxonomyChangePreview;
 import com.khartec.waltz.model.taxonomy_management.TaxonomyChangeCommand;
+import com.khartec.waltz.model.taxonomy_management.TaxonomyChangeType;
 import com.khartec.waltz.service.measurable.MeasurableService;
 import com.khartec.waltz.service.measurable_rating.MeasurableRatingService;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static com.khartec.waltz.common.Checks.checkFalse;
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.Checks.checkTrue;
 import static com.khartec.waltz.model.IdSelectionOptions.mkOpts;
@@ -106,6 +113,78 @@ public class TaxonomyManagementUtilities {
     }
 
 
+    /**
+     * Validates a batch of commands against an in-memory copy of the category tree.
+     * Commands are simulated in the given order so, for example, a move into a node
+     * removed by an earlier command, or a move which creates a cycle given the earlier
+     * moves, is rejected before anything is written.
+     *
+     * @param categoryMeasurables all measurables in the category the commands apply to
+     * @param commands commands in the order they will be applied
+     * @throws IllegalArgumentException if any command is not valid
+     */
+    public static void validateBatch(Collection<Measurable> categoryMeasurables,
+                                     List<TaxonomyChangeCommand> commands) {
+        Map<Long, Long> parentsById = new HashMap<>();
+        categoryMeasurables.forEach(m -> parentsById.put(
+                m.id().get(),
+                m.parentId().orElse(null)));
+
+        for (TaxonomyChangeCommand cmd : commands) {
+            long measurableId = cmd.primaryReference().id();
+            checkTrue(
+                    parentsById.containsKey(measurableId),
+                    "Change [%s] refers to measurable [%d] which is not in the category (or is removed by an earlier change)",
+                    cmd.changeType(),
+                    measurableId);
+
+            if (cmd.changeType() == TaxonomyChangeType.MOVE) {
+                Long destinationId = cmd.paramAsLong("destinationId", null);
+                if (destinationId != null) {
+                    checkTrue(
+                            parentsById.containsKey(destinationId),
+                            "Cannot move measurable [%d] to [%d] as the destination is not in the category (or is removed by an earlier change)",
+                            measurableId,
+                            destinationId);
+                    checkFalse(
+                            destinationId == measurableId,
+                            "Parent node is already a child of the measurable.");
+                    checkFalse(
+                            Objects.equals(parentsById.get(destinationId), measurableId),
+                            "Measurable cannot set it self as its parent.");
+                    checkTrue(
+                            ! isAncestorOrSelf(parentsById, measurableId, destinationId),
+                            "Cannot move measurable [%d] to [%d] as the destination is the measurable or one of its descendants",
+                            measurableId,
+                            destinationId);
+                }
+                parentsById.put(measurableId, destinationId);
+            } else if (cmd.changeType() == TaxonomyChangeType.REMOVE) {
+                Set<Long> removedIds = parentsById
+                        .keySet()
+                        .stream()
+                        .filter(id -> isAncestorOrSelf(parentsById, measurableId, id))
+                        .collect(Collectors.toSet());
+                parentsById.keySet().removeAll(removedIds);
+            }
+        }
+    }
+
+
+    private static boolean isAncestorOrSelf(Map<Long, Long> parentsById,
+                                            long ancestorId,
+                                            Long id) {
+        // bounded walk, guards against cycles already present in the data
+        for (int i = 0; id != null && i <= parentsById.size(); i++) {
+            if (id == ancestorId) {
+                return true;
+            }
+            id = parentsById.get(id);
+        }
+        return false;
+    }
+
+
     public static String getNameParam(TaxonomyChangeCommand cmd) {
         return cmd.param("name");
     }
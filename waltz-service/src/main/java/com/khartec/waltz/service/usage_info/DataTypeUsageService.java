@@ -18,7 +18,8 @@
 
 package com.khartec.waltz.service.usage_info;
 
-import com.khartec.waltz.data.application.ApplicationIdSelectorFactory;
+import com.khartec.waltz.data.DBExecutorPoolInterface;
+import com.khartec.waltz.data.application.CachingApplicationIdSelectorFactory;
 import com.khartec.waltz.data.data_type.DataTypeDao;
 import com.khartec.waltz.data.data_type.DataTypeIdSelectorFactory;
 import com.khartec.waltz.data.data_type_usage.DataTypeUsageDao;
@@ -33,43 +34,63 @@ import com.khartec.waltz.model.usage_info.UsageKind;
 import com.khartec.waltz.service.changelog.ChangeLogService;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
-import static com.khartec.waltz.common.CollectionUtilities.*;
+import static com.khartec.waltz.common.Checks.checkTrue;
+import static com.khartec.waltz.common.CollectionUtilities.map;
+import static com.khartec.waltz.common.CollectionUtilities.maybe;
 import static com.khartec.waltz.common.SetUtilities.fromCollection;
+import static com.khartec.waltz.common.StreamUtilities.batchProcessingCollector;
 import static com.khartec.waltz.model.usage_info.UsageInfoUtilities.mkChangeSet;
-import static com.khartec.waltz.schema.tables.Actor.ACTOR;
-import static com.khartec.waltz.schema.tables.Application.APPLICATION;
 
 @Service
 public class DataTypeUsageService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataTypeUsageService.class);
+
     private final DataTypeUsageDao dataTypeUsageDao;
     private final DataTypeDao dataTypeDao;
-    private final ApplicationIdSelectorFactory appIdSelectorFactor = new ApplicationIdSelectorFactory();
+    private final CachingApplicationIdSelectorFactory appIdSelectorFactor;
     private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final ChangeLogService changeLogService;
+    private final DBExecutorPoolInterface dbExecutorPool;
+    private final int recalcChunkSize;
+    private final Semaphore recalcChunksInFlight;
 
 
     @Autowired
     public DataTypeUsageService(DataTypeUsageDao dataTypeUsageDao,
                                 DataTypeDao dataTypeDao,
-                                ChangeLogService changeLogService) {
+                                ChangeLogService changeLogService,
+                                CachingApplicationIdSelectorFactory appIdSelectorFactor,
+                                DBExecutorPoolInterface dbExecutorPool,
+                                @Value("${waltz.data.type.usage.recalc.chunk.size:500}") int recalcChunkSize,
+                                @Value("${waltz.data.type.usage.recalc.parallelism:2}") int recalcParallelism) {
         checkNotNull(dataTypeUsageDao, "dataTypeUsageDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(appIdSelectorFactor, "appIdSelectorFactor cannot be null");
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
+        checkTrue(recalcChunkSize > 0, "recalcChunkSize must be positive");
+        checkTrue(recalcParallelism > 0, "recalcParallelism must be positive");
         this.dataTypeUsageDao = dataTypeUsageDao;
         this.dataTypeDao = dataTypeDao;
         this.changeLogService = changeLogService;
+        this.appIdSelectorFactor = appIdSelectorFactor;
+        this.dbExecutorPool = dbExecutorPool;
+        this.recalcChunkSize = recalcChunkSize;
+        this.recalcChunksInFlight = new Semaphore(recalcParallelism);
     }
 
 
@@ -145,11 +166,25 @@ public class DataTypeUsageService {
     }
 
 
+    /**
+     * Recalculates the usages of all active applications and actors.  Entities are
+     * split into chunks which are recalculated in parallel on the db executor pool,
+     * each chunk in its own short transaction, and only changed usages are written.
+     */
     public boolean recalculateForAllApplications() {
-        return dataTypeUsageDao.recalculateForAllApplications();
+        long st = System.currentTimeMillis();
+
+        int changes = recalculateInParallel(EntityKind.APPLICATION) + recalculateInParallel(EntityKind.ACTOR);
+
+        LOG.info("Recalculated data type usages, {} rows changed in {}ms", changes, System.currentTimeMillis() - st);
+        return true;
     }
 
 
+    /**
+     * Recalculates the usages of just the given applications and actors (typically
+     * the source and target of an edited flow).  Other entity kinds are ignored.
+     */
     public boolean recalculateForApplications(Collection<EntityReference> refs) {
         checkNotNull(refs, "refs cannot be null");
         Set<Long> appIds = refs
@@ -164,28 +199,70 @@ public class DataTypeUsageService {
                 .map(EntityReference::id)
                 .collect(Collectors.toSet());
 
-        if (isEmpty(appIds) && isEmpty(actorIds)) {
-            return true;
-        } else {
-            Select<Record1<Long>> appIdSelector = convertApplicationIdsToIdSelector(appIds);
-            Select<Record1<Long>> actorIdSelector = convertActorIdsToIdSelector(actorIds);
-            return dataTypeUsageDao.recalculateForIdSelector(EntityKind.APPLICATION, appIdSelector) &&
-                    dataTypeUsageDao.recalculateForIdSelector(EntityKind.ACTOR, actorIdSelector);
+        dataTypeUsageDao.recalculateForIds(EntityKind.APPLICATION, appIds, recalcChunkSize);
+        dataTypeUsageDao.recalculateForIds(EntityKind.ACTOR, actorIds, recalcChunkSize);
+        return true;
+    }
+
+
+    /**
+     * Chunks are run on the shared database executor pool, at most
+     * <code>recalcParallelism</code> chunks are queued or running at once so
+     * a recalculation cannot fill the pool's queue.  If the pool still rejects
+     * a chunk it is run on the calling thread.
+     */
+    private int recalculateInParallel(EntityKind kind) {
+        List<Future<Integer>> chunkResults = new ArrayList<>();
+
+        dataTypeUsageDao
+                .findIdsForRecalculation(kind)
+                .stream()
+                .collect(batchProcessingCollector(
+                        recalcChunkSize,
+                        chunk -> {
+                            if (! chunk.isEmpty()) {
+                                // the collector reuses its buffer, so each task gets a copy
+                                List<Long> ids = new ArrayList<>(chunk);
+                                chunkResults.add(submitChunk(kind, ids));
+                            }
+                        }));
+
+        int changes = 0;
+        for (Future<Integer> chunkResult : chunkResults) {
+            changes += await(kind, chunkResult);
         }
+        return changes;
     }
 
 
-    private Select<Record1<Long>> convertApplicationIdsToIdSelector(Set<Long> appIds) {
-        return DSL.select(APPLICATION.ID)
-                .from(APPLICATION)
-                .where(APPLICATION.ID.in(appIds));
+    private Future<Integer> submitChunk(EntityKind kind, List<Long> ids) {
+        try {
+            recalcChunksInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst recalculating " + kind + " data type usages", e);
+        }
+
+        // a saturated pool runs the chunk on this thread, which still releases the permit
+        return dbExecutorPool.submit(() -> {
+            try {
+                return dataTypeUsageDao.recalculateForIds(kind, ids);
+            } finally {
+                recalcChunksInFlight.release();
+            }
+        });
     }
 
 
-    private Select<Record1<Long>> convertActorIdsToIdSelector(Set<Long> actorIds) {
-        return DSL.select(ACTOR.ID)
-                .from(ACTOR)
-                .where(ACTOR.ID.in(actorIds));
+    private static int await(EntityKind kind, Future<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst recalculating " + kind + " data type usages", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to recalculate " + kind + " data type usages", e.getCause());
+        }
     }
 
 
@@ -19,6 +19,8 @@
 package com.khartec.waltz.service.user;
 
 import com.khartec.waltz.common.SetUtilities;
+import com.khartec.waltz.common.cache.CacheStatistics;
+import com.khartec.waltz.common.cache.ExpiringCache;
 import com.khartec.waltz.data.user.UserRoleDao;
 import com.khartec.waltz.model.EntityKind;
 import com.khartec.waltz.model.Operation;
@@ -33,17 +35,20 @@ import com.khartec.waltz.service.person.PersonService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.common.CollectionUtilities.sort;
 import static com.khartec.waltz.common.SetUtilities.asSet;
 import static com.khartec.waltz.model.EntityReference.mkRef;
 import static java.lang.String.format;
+import static java.util.Collections.unmodifiableSet;
 
 /**
  * Created by dwatkins on 30/03/2016.
@@ -59,15 +64,30 @@ public class UserRoleService {
 
     private final PersonService personService;
 
+    /**
+     * Roles are checked on (almost) every write request so we cache them,
+     * keyed by the lower-cased user name (matching the case-insensitive
+     * lookup in the dao).  Entries are evicted when roles are updated via
+     * this service and expire after the ttl to pick up external changes.
+     */
+    private final ExpiringCache<String, Set<String>> roleCache;
+
 
     @Autowired
     public UserRoleService(UserRoleDao userRoleDao,
-                           ChangeLogService changeLogService, PersonService personService) {
+                           ChangeLogService changeLogService,
+                           PersonService personService,
+                           @Value("${waltz.user.roles.cache.size:2000}") int roleCacheSize,
+                           @Value("${waltz.user.roles.cache.ttl.seconds:60}") int roleCacheTtlSeconds) {
         this.personService = personService;
         checkNotNull(userRoleDao, "userRoleDao must not be null");
 
         this.userRoleDao = userRoleDao;
         this.changeLogService = changeLogService;
+        this.roleCache = new ExpiringCache<>(
+                roleCacheSize,
+                roleCacheTtlSeconds,
+                TimeUnit.SECONDS);
     }
 
 
@@ -83,7 +103,7 @@ public class UserRoleService {
 
 
     public boolean hasRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return userRoles.containsAll(requiredRoles);
     }
 
@@ -98,7 +118,7 @@ public class UserRoleService {
     }
 
     public boolean hasAnyRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = getUserRoles(userName);
         return ! SetUtilities.intersection(userRoles, requiredRoles)
                     .isEmpty();
     }
@@ -112,7 +132,7 @@ public class UserRoleService {
     public User getByUserId(String userId) {
         return ImmutableUser.builder()
                 .userName(userId)
-                .addAllRoles(userRoleDao.getUserRoles(userId))
+                .addAllRoles(getUserRoles(userId))
                 .build();
     }
 
@@ -139,12 +159,49 @@ public class UserRoleService {
             changeLogService.write(logEntry);
         }
 
-        return userRoleDao.updateRoles(targetUserName, newRoles);
+        try {
+            return userRoleDao.updateRoles(targetUserName, newRoles);
+        } finally {
+            evictCachedRoles(targetUserName);
+        }
     }
 
 
     public Set<String> getUserRoles(String userName) {
-        return userRoleDao.getUserRoles(userName);
+        checkNotNull(userName, "userName cannot be null");
+        return roleCache.get(
+                toRoleCacheKey(userName),
+                k -> unmodifiableSet(userRoleDao.getUserRoles(userName)));
+    }
+
+
+    /**
+     * Removes any cached roles for the given user.  Should be called by
+     * anything which modifies user roles without going via this service.
+     *
+     * @param userName  user whose roles have changed
+     */
+    public void evictCachedRoles(String userName) {
+        checkNotNull(userName, "userName cannot be null");
+        roleCache.invalidate(toRoleCacheKey(userName));
+    }
+
+
+    public void clearRoleCache() {
+        LOG.info("Clearing user role cache");
+        roleCache.invalidateAll();
+    }
+
+
+    public CacheStatistics getRoleCacheStatistics() {
+        return roleCache.getStatistics();
+    }
+
+
+    // -- HELPERS ---
+
+    private static String toRoleCacheKey(String userName) {
+        return userName.toLowerCase();
     }
 
 }
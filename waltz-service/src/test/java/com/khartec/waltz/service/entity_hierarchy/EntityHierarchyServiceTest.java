@@ -0,0 +1,120 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.service.entity_hierarchy;
+
+import com.khartec.waltz.common.hierarchy.LongForest;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService.convertForestToHierarchyItems;
+import static com.khartec.waltz.service.entity_hierarchy.EntityHierarchyService.findSubtreeIds;
+import static org.junit.Assert.assertEquals;
+
+
+public class EntityHierarchyServiceTest {
+
+    //  1
+    //  +- 2
+    //  |  +- 3
+    //  |     +- 4
+    //  +- 5
+    //     +- 6
+    private static LongForest.Builder mkTree() {
+        return LongForest.builder()
+                .add(1)
+                .add(2, 1)
+                .add(3, 2)
+                .add(4, 3)
+                .add(5, 1)
+                .add(6, 5);
+    }
+
+
+    @Test
+    public void subtreeRebuildMatchesFullRebuildAfterMove() {
+        LongForest before = mkTree().build();
+        LongForest after = LongForest.builder()
+                .add(1)
+                .add(2, 1)
+                .add(3, 6)  // moved from under 2
+                .add(4, 3)
+                .add(5, 1)
+                .add(6, 5)
+                .build();
+
+        assertEquals(fullRebuild(after), subtreeRebuild(before, after, 3));
+    }
+
+
+    @Test
+    public void subtreeRebuildMatchesFullRebuildAfterMoveToRoot() {
+        LongForest before = mkTree().build();
+        LongForest after = LongForest.builder()
+                .add(1)
+                .add(2, 1)
+                .add(3)  // now a root
+                .add(4, 3)
+                .add(5, 1)
+                .add(6, 5)
+                .build();
+
+        assertEquals(fullRebuild(after), subtreeRebuild(before, after, 3));
+    }
+
+
+    // -- HELPERS ---
+
+    private static Set<EntityHierarchyItem> fullRebuild(LongForest forest) {
+        return new HashSet<>(convertForestToHierarchyItems(EntityKind.MEASURABLE, forest, id -> true));
+    }
+
+
+    /**
+     * Mimics a subtree rebuild: rows of affected nodes are replaced in the
+     * rows of a full rebuild of the previous tree.
+     */
+    private static Set<EntityHierarchyItem> subtreeRebuild(LongForest before,
+                                                          LongForest after,
+                                                          long movedId) {
+        Set<EntityHierarchyItem> stored = fullRebuild(before);
+
+        List<Long> previousDescendantIds = stored
+                .stream()
+                .filter(item -> item.parentId().get() == movedId)
+                .map(item -> item.id().get())
+                .collect(Collectors.toList());
+
+        Set<Long> affectedIds = findSubtreeIds(after, movedId, previousDescendantIds);
+
+        Set<EntityHierarchyItem> result = stored
+                .stream()
+                .filter(item -> ! affectedIds.contains(item.id().get()))
+                .collect(Collectors.toSet());
+        result.addAll(convertForestToHierarchyItems(EntityKind.MEASURABLE, after, affectedIds::contains));
+        return result;
+    }
+
+}
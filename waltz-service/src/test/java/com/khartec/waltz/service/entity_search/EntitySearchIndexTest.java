@@ -0,0 +1,164 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+
+package com.khartec.waltz.service.entity_search;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityLifecycleStatus;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.ImmutableEntityReference;
+import com.khartec.waltz.model.entity_search.EntitySearchOptions;
+import com.khartec.waltz.model.entity_search.ImmutableEntitySearchOptions;
+import com.khartec.waltz.model.entity_search.ImmutableSearchableEntity;
+import com.khartec.waltz.model.entity_search.SearchableEntity;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class EntitySearchIndexTest {
+
+    @Test
+    public void codeMatchesRankAboveNameMatchesAboveAliasMatches() {
+        EntitySearchIndex index = new EntitySearchIndex();
+        index.replaceAll(newArrayList(
+                mkApp(1, "Zebra Trading", "Z-1"),
+                mkApp(2, "Trade Capture", "C-2"),
+                mkApp(3, "Settlements", "S-3", "old trading system"),
+                mkApp(4, "Post Trade", "P-4"),
+                mkApp(5, "Blotter", "TRADE-5")));
+
+        assertEquals(
+                newArrayList(5L, 2L, 4L, 1L, 3L),
+                ids(index.search(mkOptions("trad", EntityKind.APPLICATION))));
+    }
+
+
+    @Test
+    public void allTermsMustMatch() {
+        EntitySearchIndex index = new EntitySearchIndex();
+        index.replaceAll(newArrayList(
+                mkApp(1, "Equity Trade Capture", "A1"),
+                mkApp(2, "Bond Trade Capture", "A2")));
+
+        assertEquals(
+                newArrayList(2L),
+                ids(index.search(mkOptions("capture bond", EntityKind.APPLICATION))));
+    }
+
+
+    @Test
+    public void resultsAreFilteredByKindAndLifecycleStatus() {
+        EntitySearchIndex index = new EntitySearchIndex();
+        index.replaceAll(newArrayList(
+                mkApp(1, "Payments", "A1"),
+                mkEntity(EntityKind.ORG_UNIT, 2, "Payments Operations", EntityLifecycleStatus.ACTIVE),
+                mkEntity(EntityKind.APPLICATION, 3, "Payments Legacy", EntityLifecycleStatus.REMOVED)));
+
+        assertEquals(
+                newArrayList(1L),
+                ids(index.search(mkOptions("payments", EntityKind.APPLICATION))));
+
+        assertEquals(
+                "results are grouped by kind in the requested order",
+                newArrayList(2L, 1L),
+                ids(index.search(mkOptions("payments", EntityKind.ORG_UNIT, EntityKind.APPLICATION))));
+    }
+
+
+    @Test
+    public void updatesReplaceAndRemoveEntries() {
+        EntitySearchIndex index = new EntitySearchIndex();
+        index.replaceAll(newArrayList(
+                mkApp(1, "Risk Engine", "A1"),
+                mkApp(2, "Risk Reporting", "A2")));
+
+        index.update(
+                newArrayList(ref(1), ref(2)),
+                newArrayList(mkApp(1, "Pricing Engine", "A1")));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search(mkOptions("risk", EntityKind.APPLICATION)).isEmpty());
+        assertEquals(newArrayList(1L), ids(index.search(mkOptions("pricing", EntityKind.APPLICATION))));
+    }
+
+
+    @Test
+    public void shortTermsAreMatchedAlongsideLongerTerms() {
+        EntitySearchIndex index = new EntitySearchIndex();
+        index.replaceAll(newArrayList(
+                mkApp(1, "FX Options", "A1"),
+                mkApp(2, "Rates Options", "A2")));
+
+        assertEquals(
+                newArrayList(1L),
+                ids(index.search(mkOptions("fx options", EntityKind.APPLICATION))));
+    }
+
+
+    // -- helpers --
+
+    private static List<Long> ids(List<EntityReference> results) {
+        return results
+                .stream()
+                .map(EntityReference::id)
+                .collect(toList());
+    }
+
+
+    private static EntitySearchOptions mkOptions(String query, EntityKind... kinds) {
+        return ImmutableEntitySearchOptions.builder()
+                .searchQuery(query)
+                .entityKinds(newArrayList(kinds))
+                .build();
+    }
+
+
+    private static EntityReference ref(long id) {
+        return EntityReference.mkRef(EntityKind.APPLICATION, id);
+    }
+
+
+    private static SearchableEntity mkApp(long id, String name, String assetCode, String... aliases) {
+        return ImmutableSearchableEntity.builder()
+                .entityReference(EntityReference.mkRef(EntityKind.APPLICATION, id, name))
+                .codes(Collections.singletonList(assetCode))
+                .aliases(newArrayList(aliases))
+                .build();
+    }
+
+
+    private static SearchableEntity mkEntity(EntityKind kind, long id, String name, EntityLifecycleStatus status) {
+        return ImmutableSearchableEntity.builder()
+                .entityReference(ImmutableEntityReference.builder()
+                        .kind(kind)
+                        .id(id)
+                        .name(name)
+                        .entityLifecycleStatus(status)
+                        .build())
+                .build();
+    }
+
+}
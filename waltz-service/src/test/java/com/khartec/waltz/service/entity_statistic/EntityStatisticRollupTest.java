@@ -0,0 +1,160 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.entity_statistic;
+
+import com.khartec.waltz.common.hierarchy.LongForest;
+import com.khartec.waltz.model.entity_statistic.EntityStatisticRollupEntry;
+import com.khartec.waltz.model.entity_statistic.ImmutableEntityStatisticRollupEntry;
+import com.khartec.waltz.model.entity_statistic.RollupKind;
+import com.khartec.waltz.model.tally.Tally;
+import com.khartec.waltz.model.tally.TallyPack;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class EntityStatisticRollupTest {
+
+    private static final long STAT_ID = 99;
+    private static final LocalDateTime T1 = LocalDateTime.of(2019, 1, 1, 10, 0);
+    private static final LocalDateTime T2 = LocalDateTime.of(2019, 1, 2, 10, 0);
+
+    //  1
+    //  +- 2
+    //  |  +- 3
+    //  +- 4
+    private static final LongForest ORG_UNITS = LongForest.builder()
+            .add(1)
+            .add(2, 1)
+            .add(3, 2)
+            .add(4, 1)
+            .build();
+
+    private static final List<EntityStatisticRollupEntry> CURRENT = newArrayList(
+            mkEntry(2, "PASS", Optional.empty(), 2, "10", T1),
+            mkEntry(3, "PASS", Optional.empty(), 1, "5", T2),
+            mkEntry(3, "FAIL", Optional.empty(), 3, "1", T1),
+            mkEntry(4, "FAIL", Optional.empty(), 1, "2", T1));
+
+
+    @Test
+    public void countsAreCombinedDownTheHierarchy() {
+        EntityStatisticRollup rollup = new EntityStatisticRollup(STAT_ID, RollupKind.COUNT_BY_ENTITY, ORG_UNITS, CURRENT);
+
+        assertEquals(3.0, tallies(rollup, 1).get("PASS"), 0);
+        assertEquals(4.0, tallies(rollup, 1).get("FAIL"), 0);
+        assertEquals(3.0, tallies(rollup, 2).get("PASS"), 0);
+        assertEquals(1.0, tallies(rollup, 4).get("FAIL"), 0);
+        assertEquals(T2, rollup.rollup(1).get(0).lastUpdatedAt());
+    }
+
+
+    @Test
+    public void sumsAndAverages() {
+        EntityStatisticRollup sums = new EntityStatisticRollup(STAT_ID, RollupKind.SUM_BY_VALUE, ORG_UNITS, CURRENT);
+        EntityStatisticRollup avgs = new EntityStatisticRollup(STAT_ID, RollupKind.AVG_BY_VALUE, ORG_UNITS, CURRENT);
+
+        assertEquals(15.0, tallies(sums, 1).get("PASS"), 0);
+        assertEquals(3.0, tallies(sums, 1).get("FAIL"), 0);
+
+        // average of all values beneath the node, not an average of the child averages
+        assertEquals(5.0, tallies(avgs, 1).get("PASS"), 0);
+        assertEquals(0.75, tallies(avgs, 1).get("FAIL"), 0);
+    }
+
+
+    @Test
+    public void historicValuesAreRolledUpPerDayInDateOrder() {
+        LocalDate day1 = T1.toLocalDate();
+        LocalDate day2 = T2.toLocalDate();
+        EntityStatisticRollup rollup = new EntityStatisticRollup(
+                STAT_ID,
+                RollupKind.COUNT_BY_ENTITY,
+                ORG_UNITS,
+                newArrayList(
+                        mkEntry(3, "PASS", Optional.of(day2), 1, "0", T2),
+                        mkEntry(2, "PASS", Optional.of(day1), 2, "0", T1),
+                        mkEntry(4, "PASS", Optional.of(day2), 4, "0", T2)));
+
+        List<TallyPack<String>> packs = rollup.rollup(1);
+        assertEquals(2, packs.size());
+        assertEquals(day1.atStartOfDay(), packs.get(0).lastUpdatedAt());
+        assertEquals(day2.atStartOfDay(), packs.get(1).lastUpdatedAt());
+        assertEquals(5.0, packs.get(1).tallies().get(0).count(), 0);
+
+        assertEquals(1, rollup.rollup(4).size());
+    }
+
+
+    @Test
+    public void nodesWithoutValuesOrUnknownNodesHaveNoPacks() {
+        EntityStatisticRollup rollup = new EntityStatisticRollup(
+                STAT_ID,
+                RollupKind.COUNT_BY_ENTITY,
+                ORG_UNITS,
+                newArrayList(mkEntry(4, "PASS", Optional.empty(), 1, "0", T1)));
+
+        assertTrue(rollup.rollup(2).isEmpty());
+        assertTrue(rollup.rollup(42).isEmpty());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void statisticsWithoutRollupKindAreRejected() {
+        new EntityStatisticRollup(STAT_ID, RollupKind.NONE, ORG_UNITS, CURRENT);
+    }
+
+
+    private static Map<String, Double> tallies(EntityStatisticRollup rollup, long orgUnitId) {
+        return rollup
+                .rollup(orgUnitId)
+                .get(0)
+                .tallies()
+                .stream()
+                .collect(toMap(Tally::id, Tally::count));
+    }
+
+
+    private static EntityStatisticRollupEntry mkEntry(long orgUnitId,
+                                                      String outcome,
+                                                      Optional<LocalDate> date,
+                                                      long count,
+                                                      String total,
+                                                      LocalDateTime lastUpdatedAt) {
+        return ImmutableEntityStatisticRollupEntry.builder()
+                .statisticId(STAT_ID)
+                .orgUnitId(orgUnitId)
+                .outcome(outcome)
+                .date(date)
+                .count(count)
+                .total(new BigDecimal(total))
+                .lastUpdatedAt(lastUpdatedAt)
+                .build();
+    }
+}
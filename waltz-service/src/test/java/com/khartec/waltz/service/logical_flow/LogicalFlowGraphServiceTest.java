@@ -0,0 +1,176 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.data.EntityReferenceNameResolver;
+import com.khartec.waltz.data.data_type.DataTypeDao;
+import com.khartec.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import com.khartec.waltz.data.enum_value.EnumValueDao;
+import com.khartec.waltz.data.involvement_kind.InvolvementKindDao;
+import com.khartec.waltz.data.logical_flow.LogicalFlowDao;
+import com.khartec.waltz.data.measurable_category.MeasurableCategoryDao;
+import com.khartec.waltz.data.rating_scheme.RatingSchemeDAO;
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.datatype.DataTypeDecorator;
+import com.khartec.waltz.model.logical_flow.ImmutableLogicalFlow;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.service.reference_data.ReferenceDataService;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class LogicalFlowGraphServiceTest {
+
+    private final DSLContext dsl = DSL.using(SQLDialect.H2);
+    private final Map<Long, LogicalFlow> flowsInDatabase = new ConcurrentHashMap<>();
+
+    private CountDownLatch rebuildLoaded;
+    private CountDownLatch releaseRebuild;
+    private LogicalFlowGraphService service;
+
+
+    @Before
+    public void setUp() {
+        flowsInDatabase.clear();
+        flowsInDatabase.put(1L, mkFlow(1, 10, 20));
+
+        LogicalFlowDao flowDao = new LogicalFlowDao(dsl) {
+            @Override
+            public List<LogicalFlow> findAllNotRemoved() {
+                List<LogicalFlow> snapshot = new ArrayList<>(flowsInDatabase.values());
+                if (rebuildLoaded != null) {
+                    rebuildLoaded.countDown();
+                    await(releaseRebuild);
+                }
+                return snapshot;
+            }
+
+            @Override
+            public List<LogicalFlow> findActiveByFlowIds(Collection<Long> flowIds) {
+                return flowIds
+                        .stream()
+                        .filter(flowsInDatabase::containsKey)
+                        .map(flowsInDatabase::get)
+                        .collect(toList());
+            }
+        };
+
+        LogicalFlowDecoratorDao decoratorDao = new LogicalFlowDecoratorDao(dsl) {
+            @Override
+            public List<DataTypeDecorator> findAll() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public List<DataTypeDecorator> findByFlowIds(Collection<Long> flowIds) {
+                return Collections.emptyList();
+            }
+        };
+
+        ReferenceDataService referenceDataService = new ReferenceDataService(
+                new DataTypeDao(dsl),
+                new RatingSchemeDAO(dsl),
+                new EnumValueDao(dsl),
+                new InvolvementKindDao(dsl),
+                new MeasurableCategoryDao(dsl));
+
+        service = new LogicalFlowGraphService(
+                flowDao,
+                decoratorDao,
+                referenceDataService,
+                new EntityReferenceNameResolver(dsl, 10, 10),
+                60,
+                10);
+    }
+
+
+    @Test
+    public void refreshesAreIgnoredBeforeTheFirstBuild() {
+        service.refreshFlows(newArrayList(1L));
+        assertEquals(0, service.getFlowCount());
+
+        assertEquals(1, service.rebuild());
+    }
+
+
+    @Test(timeout = 10_000)
+    public void refreshesDuringRebuildAreNotBlockedAndAreReplayedOntoTheNewGraph() throws Exception {
+        service.rebuild();
+
+        rebuildLoaded = new CountDownLatch(1);
+        releaseRebuild = new CountDownLatch(1);
+        Thread rebuilder = new Thread(service::rebuild);
+        rebuilder.start();
+        await(rebuildLoaded);
+
+        // the rebuild has already loaded its flows, so it has not seen this one
+        flowsInDatabase.put(2L, mkFlow(2, 20, 30));
+        service.refreshFlows(newArrayList(2L));
+        assertEquals("refresh applies to the current graph while the rebuild is running", 2, service.getFlowCount());
+
+        releaseRebuild.countDown();
+        rebuilder.join();
+
+        assertEquals("flow refreshed during the rebuild is replayed onto the new graph", 2, service.getFlowCount());
+        assertTrue(service.isReady());
+    }
+
+
+    // -- HELPERS ---
+
+    private static LogicalFlow mkFlow(long id, long sourceAppId, long targetAppId) {
+        return ImmutableLogicalFlow.builder()
+                .id(id)
+                .source(mkRef(EntityKind.APPLICATION, sourceAppId))
+                .target(mkRef(EntityKind.APPLICATION, targetAppId))
+                .lastUpdatedBy("test")
+                .lastUpdatedAt(LocalDateTime.now())
+                .provenance("test")
+                .build();
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue("timed out waiting for latch", latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.logical_flow;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.FlowDirection;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static org.junit.Assert.*;
+
+
+public class LogicalFlowGraphTest {
+
+    private static final long[] ANY_DATA_TYPE = new long[0];
+
+    private static final EntityReference A = mkApp(1);
+    private static final EntityReference B = mkApp(2);
+    private static final EntityReference C = mkApp(3);
+    private static final EntityReference D = mkApp(4);
+    private static final EntityReference E = mkRef(EntityKind.ACTOR, 1);
+
+
+    //  A --10--> B --20--> C --30--> D
+    //  |                   ^
+    //  +--------40---------+
+    //  E --50--> A
+    private static LogicalFlowGraph mkGraph() {
+        LogicalFlowGraph graph = new LogicalFlowGraph();
+        graph.put(10, A, B, new long[] {100});
+        graph.put(20, B, C, new long[] {100});
+        graph.put(30, C, D, new long[] {200});
+        graph.put(40, A, C, new long[] {300, 200});
+        graph.put(50, E, A, new long[0]);
+        return graph;
+    }
+
+
+    @Test
+    public void downstreamIsLimitedByHops() {
+        LogicalFlowGraph graph = mkGraph();
+
+        assertArrayEquals(new long[] {10, 40}, sorted(graph.findFlowIds(A, FlowDirection.OUTBOUND, 1, ANY_DATA_TYPE)));
+        assertArrayEquals(new long[] {10, 20, 30, 40}, sorted(graph.findFlowIds(A, FlowDirection.OUTBOUND, 2, ANY_DATA_TYPE)));
+        assertArrayEquals(new long[0], graph.findFlowIds(A, FlowDirection.OUTBOUND, 0, ANY_DATA_TYPE));
+    }
+
+
+    @Test
+    public void upstream() {
+        LogicalFlowGraph graph = mkGraph();
+
+        assertArrayEquals(new long[] {20, 40}, sorted(graph.findFlowIds(C, FlowDirection.INBOUND, 1, ANY_DATA_TYPE)));
+        assertArrayEquals(new long[] {10, 20, 40, 50}, sorted(graph.findFlowIds(C, FlowDirection.INBOUND, 3, ANY_DATA_TYPE)));
+    }
+
+
+    @Test
+    public void entitiesAreMatchedOnKindAndId() {
+        LogicalFlowGraph graph = mkGraph();
+
+        assertArrayEquals(
+                new long[] {50},
+                graph.findFlowIds(mkRef(EntityKind.ACTOR, 1, "named"), FlowDirection.OUTBOUND, 1, ANY_DATA_TYPE));
+        assertArrayEquals(
+                new long[0],
+                graph.findFlowIds(mkRef(EntityKind.ACTOR, 99), FlowDirection.OUTBOUND, 1, ANY_DATA_TYPE));
+    }
+
+
+    @Test
+    public void dataTypesRestrictTraversal() {
+        LogicalFlowGraph graph = mkGraph();
+
+        assertArrayEquals(
+                new long[] {10, 20},
+                sorted(graph.findFlowIds(A, FlowDirection.OUTBOUND, 5, new long[] {100})));
+        assertEquals(
+                newArrayList(C, D),
+                graph.findReachable(A, FlowDirection.OUTBOUND, new long[] {200}));
+    }
+
+
+    @Test
+    public void reachable() {
+        LogicalFlowGraph graph = mkGraph();
+
+        assertEquals(newArrayList(B, C, D), graph.findReachable(A, FlowDirection.OUTBOUND, ANY_DATA_TYPE));
+        assertEquals(newArrayList(A, E), graph.findReachable(B, FlowDirection.INBOUND, ANY_DATA_TYPE));
+        assertTrue(graph.findReachable(D, FlowDirection.OUTBOUND, ANY_DATA_TYPE).isEmpty());
+    }
+
+
+    @Test
+    public void shortestPath() {
+        LogicalFlowGraph graph = mkGraph();
+
+        assertArrayEquals(new long[] {50, 40, 30}, graph.findShortestPath(E, D, ANY_DATA_TYPE));
+        assertArrayEquals(new long[] {10, 20}, graph.findShortestPath(A, C, new long[] {100}));
+        assertArrayEquals(new long[0], graph.findShortestPath(D, A, ANY_DATA_TYPE));
+        assertArrayEquals(new long[0], graph.findShortestPath(A, A, ANY_DATA_TYPE));
+    }
+
+
+    @Test
+    public void removeAndReplace() {
+        LogicalFlowGraph graph = mkGraph();
+
+        assertTrue(graph.remove(40));
+        assertFalse(graph.remove(40));
+        assertEquals(4, graph.getFlowCount());
+        assertArrayEquals(new long[] {10, 20, 30}, graph.findShortestPath(A, D, ANY_DATA_TYPE));
+
+        graph.put(20, B, D, new long[] {100});
+        assertArrayEquals(new long[] {10, 20}, graph.findShortestPath(A, D, ANY_DATA_TYPE));
+        assertArrayEquals(new long[0], graph.findShortestPath(A, C, ANY_DATA_TYPE));
+        assertEquals(5, graph.getNodeCount());
+    }
+
+
+    private static EntityReference mkApp(long id) {
+        return mkRef(EntityKind.APPLICATION, id);
+    }
+
+
+    private static long[] sorted(long[] xs) {
+        long[] copy = Arrays.copyOf(xs, xs.length);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.reference_data;
+
+import com.khartec.waltz.model.datatype.DataType;
+import com.khartec.waltz.model.datatype.ImmutableDataType;
+import com.khartec.waltz.model.rating.ImmutableRatingScheme;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.*;
+
+
+public class ReferenceDataSnapshotTest {
+
+    private static final DataType ROOT = mkDataType(1, null, "ROOT", false);
+    private static final DataType CHILD = mkDataType(2, 1L, "CHILD", false);
+    private static final DataType UNKNOWN = mkDataType(3, null, "UNKNOWN", true);
+
+    private static final ReferenceDataSnapshot SNAPSHOT = new ReferenceDataSnapshot(
+            7,
+            LocalDateTime.now(),
+            newArrayList(ROOT, CHILD, UNKNOWN),
+            newArrayList(ImmutableRatingScheme.builder().id(10L).name("scheme").description("desc").build()),
+            emptyList(),
+            emptyList(),
+            emptyList(),
+            emptyList());
+
+
+    @Test
+    public void dataTypesAreIndexedByIdAndCode() {
+        assertEquals(7, SNAPSHOT.getVersion());
+        assertEquals(newArrayList(ROOT, CHILD, UNKNOWN), SNAPSHOT.getDataTypes());
+        assertEquals(CHILD, SNAPSHOT.getDataTypeById(2).get());
+        assertEquals(ROOT, SNAPSHOT.getDataTypeByCode("ROOT").get());
+        assertFalse(SNAPSHOT.getDataTypeById(99).isPresent());
+        assertFalse(SNAPSHOT.getDataTypeByCode("NOPE").isPresent());
+        assertEquals(UNKNOWN, SNAPSHOT.getUnknownDataType().get());
+    }
+
+
+    @Test
+    public void dataTypeHierarchyIsAvailable() {
+        assertArrayEquals(new long[] {2}, SNAPSHOT.getDataTypeForest().descendantIds(1));
+        assertArrayEquals(new long[] {1}, SNAPSHOT.getDataTypeForest().ancestorIds(2));
+    }
+
+
+    @Test
+    public void otherReferenceDataIsIndexedById() {
+        assertEquals("scheme", SNAPSHOT.getRatingSchemeById(10).get().name());
+        assertFalse(SNAPSHOT.getInvolvementKindById(10).isPresent());
+        assertFalse(SNAPSHOT.getMeasurableCategoryById(10).isPresent());
+    }
+
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void listsCannotBeModified() {
+        SNAPSHOT.getDataTypes().clear();
+    }
+
+
+    private static DataType mkDataType(long id, Long parentId, String code, boolean unknown) {
+        return ImmutableDataType.builder()
+                .id(id)
+                .parentId(Optional.ofNullable(parentId))
+                .code(code)
+                .name(code.toLowerCase())
+                .description("")
+                .unknown(unknown)
+                .build();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.sql_stats;
+
+import com.khartec.waltz.model.sql_stats.SqlStatistic;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class SqlStatisticsRecorderTest {
+
+    @Test
+    public void literalsAndParameterListsAreNormalised() {
+        assertEquals(
+                "select * from app where id in (?, ...) and name = ? and kind = ?",
+                SqlStatisticsRecorder.normalise("select *  from app\n where id in (?, ?,?) and name = 'o''brien' and kind = ?"));
+
+        assertEquals(
+                "select t1.x from t1 where t1.y > ?",
+                SqlStatisticsRecorder.normalise("select t1.x from t1 where t1.y > 12.5"));
+    }
+
+
+    @Test
+    public void executionsDifferingOnlyByParametersAreGrouped() {
+        SqlStatisticsRecorder recorder = new SqlStatisticsRecorder(10);
+        recorder.record("AppDao.getById", "select * from app where id = 1", 100);
+        recorder.record("AppDao.getById", "select * from app where id = 2", 100);
+
+        List<SqlStatistic> stats = recorder.getStatistics();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).count());
+        assertEquals("AppDao.getById", stats.get(0).caller());
+    }
+
+
+    @Test
+    public void sameStatementFromDifferentDaosIsReportedSeparately() {
+        SqlStatisticsRecorder recorder = new SqlStatisticsRecorder(10);
+        recorder.record("AppDao.getById", "select * from app where id = 1", 100);
+        recorder.record("AppDao.getById", "select * from app where id = 2", 100);
+        recorder.record("OtherDao.getById", "select * from app where id = 3", 100);
+
+        Map<String, Long> countsByCaller = recorder
+                .getStatistics()
+                .stream()
+                .collect(toMap(SqlStatistic::caller, SqlStatistic::count));
+
+        assertEquals(2, countsByCaller.size());
+        assertEquals(Long.valueOf(2), countsByCaller.get("AppDao.getById"));
+        assertEquals(Long.valueOf(1), countsByCaller.get("OtherDao.getById"));
+    }
+
+
+    @Test
+    public void statementsWithoutCapturedCallersAreReportedAsUnknown() {
+        SqlStatisticsRecorder recorder = new SqlStatisticsRecorder(10);
+        recorder.record(null, "select * from app", 100);
+
+        assertEquals(SqlStatisticsRecorder.UNKNOWN_CALLER, recorder.getStatistics().get(0).caller());
+    }
+
+
+    @Test
+    public void sampledExecutionsAreWeighted() {
+        SqlStatisticsRecorder recorder = new SqlStatisticsRecorder(10);
+        recorder.record("AppDao.getById", "select * from app where id = 1", TimeUnit.MILLISECONDS.toNanos(2), 10);
+
+        SqlStatistic stat = recorder.getStatistics().get(0);
+        assertEquals(10, stat.count());
+        assertEquals(20.0, stat.totalMillis(), 0.001);
+        assertEquals(2.0, stat.meanMillis(), 0.001);
+    }
+
+
+    @Test
+    public void callerIsTheIssuingDao() {
+        StackTraceElement[] stack = {
+                frame("java.lang.Thread", "getStackTrace"),
+                frame("com.khartec.waltz.service.sql_stats.SqlStatisticsListener", "executeEnd"),
+                frame("org.jooq.impl.AbstractQuery", "execute"),
+                frame("com.khartec.waltz.data.application.ApplicationDao", "getById"),
+                frame("com.khartec.waltz.service.application.ApplicationService", "getById")
+        };
+
+        assertEquals("ApplicationDao.getById", SqlStatisticsListener.determineCaller(stack));
+    }
+
+
+    @Test
+    public void callerFallsBackToFirstWaltzClassWhenNoDaoIsInvolved() {
+        StackTraceElement[] stack = {
+                frame("com.khartec.waltz.service.sql_stats.SqlStatisticsListener", "executeEnd"),
+                frame("org.jooq.impl.AbstractQuery", "execute"),
+                frame("com.khartec.waltz.web.endpoints.extracts.AppExtractor", "extract")
+        };
+
+        assertEquals("AppExtractor.extract", SqlStatisticsListener.determineCaller(stack));
+    }
+
+
+    @Test
+    public void distinctStatementsAreBounded() {
+        SqlStatisticsRecorder recorder = new SqlStatisticsRecorder(1);
+        recorder.record("Dao.a", "select a from t", 100);
+        recorder.record("Dao.b", "select b from t", 100);
+        recorder.record("Dao.c", "select c from t", 100);
+
+        List<SqlStatistic> stats = recorder.getStatistics();
+        assertEquals(2, stats.size());
+        assertEquals(2, stats.stream().filter(s -> s.sql().equals(SqlStatisticsRecorder.OVERFLOW_SQL)).findFirst().get().count());
+    }
+
+
+    @Test
+    public void histogramPercentilesAreApproximatelyCorrect() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), histogram.getMaxNanos());
+        assertWithin(500, histogram.getPercentileNanos(50));
+        assertWithin(990, histogram.getPercentileNanos(99));
+        assertEquals(histogram.getMaxNanos(), histogram.getPercentileNanos(100));
+    }
+
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+    }
+
+
+    // -- HELPERS ---
+
+    private static StackTraceElement frame(String className, String methodName) {
+        return new StackTraceElement(className, methodName, null, -1);
+    }
+
+
+    private static void assertWithin(long expectedMillis, long actualNanos) {
+        double actualMillis = actualNanos / 1_000_000.0;
+        assertTrue(
+                "expected ~" + expectedMillis + "ms but was " + actualMillis,
+                actualMillis >= expectedMillis && actualMillis <= expectedMillis * 1.2);
+    }
+
+}
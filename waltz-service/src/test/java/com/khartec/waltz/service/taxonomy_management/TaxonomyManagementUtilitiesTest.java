@@ -0,0 +1,131 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.service.taxonomy_management;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.measurable.ImmutableMeasurable;
+import com.khartec.waltz.model.measurable.Measurable;
+import com.khartec.waltz.model.taxonomy_management.ImmutableTaxonomyChangeCommand;
+import com.khartec.waltz.model.taxonomy_management.TaxonomyChangeCommand;
+import com.khartec.waltz.model.taxonomy_management.TaxonomyChangeType;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static com.khartec.waltz.service.taxonomy_management.TaxonomyManagementUtilities.validateBatch;
+
+
+public class TaxonomyManagementUtilitiesTest {
+
+    private static final long CATEGORY_ID = 1;
+
+    //  1
+    //  +- 2
+    //  |  +- 3
+    //  +- 4
+    private static final List<Measurable> MEASURABLES = newArrayList(
+            mkMeasurable(1, null),
+            mkMeasurable(2, 1L),
+            mkMeasurable(3, 2L),
+            mkMeasurable(4, 1L));
+
+
+    @Test
+    public void validBatchPasses() {
+        validateBatch(MEASURABLES, newArrayList(
+                mkMove(3, 4L),
+                mkMove(2, 3L),
+                mkMove(4, null),
+                mkCommand(TaxonomyChangeType.UPDATE_NAME, 2)));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void moveUnderOwnDescendantFails() {
+        validateBatch(MEASURABLES, newArrayList(mkMove(1, 3L)));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void moveUnderOwnChildFails() {
+        validateBatch(MEASURABLES, newArrayList(mkMove(2, 3L)));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cycleIntroducedByEarlierMoveFails() {
+        validateBatch(MEASURABLES, newArrayList(
+                mkMove(4, 3L),
+                mkMove(2, 4L)));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void changeToRemovedDescendantFails() {
+        validateBatch(MEASURABLES, newArrayList(
+                mkCommand(TaxonomyChangeType.REMOVE, 2),
+                mkCommand(TaxonomyChangeType.UPDATE_NAME, 3)));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void moveToMeasurableOutsideCategoryFails() {
+        validateBatch(MEASURABLES, newArrayList(mkMove(2, 99L)));
+    }
+
+
+    private static Measurable mkMeasurable(long id, Long parentId) {
+        return ImmutableMeasurable.builder()
+                .id(id)
+                .parentId(Optional.ofNullable(parentId))
+                .categoryId(CATEGORY_ID)
+                .name("m" + id)
+                .description("")
+                .concrete(true)
+                .lastUpdatedBy("test")
+                .lastUpdatedAt(LocalDateTime.now())
+                .provenance("test")
+                .build();
+    }
+
+
+    private static TaxonomyChangeCommand mkMove(long id, Long destinationId) {
+        return ImmutableTaxonomyChangeCommand
+                .copyOf(mkCommand(TaxonomyChangeType.MOVE, id))
+                .withParams(destinationId == null
+                        ? Collections.emptyMap()
+                        : Collections.singletonMap("destinationId", destinationId.toString()));
+    }
+
+
+    private static TaxonomyChangeCommand mkCommand(TaxonomyChangeType type, long id) {
+        return ImmutableTaxonomyChangeCommand.builder()
+                .changeType(type)
+                .changeDomain(mkRef(EntityKind.MEASURABLE_CATEGORY, CATEGORY_ID))
+                .primaryReference(mkRef(EntityKind.MEASURABLE, id))
+                .createdBy("test")
+                .lastUpdatedBy("test")
+                .build();
+    }
+}
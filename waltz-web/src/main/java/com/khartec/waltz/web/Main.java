@@ -26,6 +26,7 @@ import com.khartec.waltz.common.exception.UpdateFailedException;
 import com.khartec.waltz.service.DIConfiguration;
 import com.khartec.waltz.service.settings.SettingsService;
 import com.khartec.waltz.web.endpoints.Endpoint;
+import com.khartec.waltz.web.endpoints.EndpointUtilities;
 import com.khartec.waltz.web.endpoints.api.StaticResourcesEndpoint;
 import com.khartec.waltz.web.endpoints.extracts.DataExtractor;
 import org.jooq.exception.DataAccessException;
@@ -222,6 +223,8 @@ public class Main {
                 }
             }));
 
+            EndpointUtilities.enableStreamCompression();
+
             LOG.info("Enabled GZIP (size: " + minimumLength + ")");
 
         } else {
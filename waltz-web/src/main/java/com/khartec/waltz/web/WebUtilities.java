@@ -18,7 +18,9 @@
 
 package com.khartec.waltz.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JSR310Module;
@@ -37,9 +39,11 @@ import spark.Response;
 import spark.ResponseTransformer;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.khartec.waltz.common.Checks.checkAll;
 import static com.khartec.waltz.common.Checks.checkNotNull;
@@ -73,6 +77,10 @@ public class WebUtilities {
 
     public static final ResponseTransformer transformer = mapper::writeValueAsString;
 
+    // flushing after every item would send each one as its own (tiny) chunk
+    private static final ObjectWriter streamingWriter = mapper.writer()
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
 
     /**
      * @see StringUtilities
@@ -105,6 +113,35 @@ public class WebUtilities {
     }
 
 
+    /**
+     * Writes the items as a json array, rendering one item at a time so neither
+     * the items nor the rendered array need to be held in memory.  The output
+     * stream is closed once the array is complete.
+     *
+     * @param out  stream to write to
+     * @param items  items to render, the stream is consumed but not closed
+     * @return  number of items written
+     * @throws IOException  if the items cannot be rendered or written
+     */
+    public static long writeJsonArray(OutputStream out,
+                                      Stream<?> items) throws IOException {
+        checkNotNull(out, "out cannot be null");
+        checkNotNull(items, "items cannot be null");
+
+        long count = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            Iterator<?> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                streamingWriter.writeValue(generator, iterator.next());
+                count++;
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+
+
     public static long getLong(Request request,
                                String paramName) {
         checkNotNull(request, "request must not be null");
@@ -20,18 +20,28 @@ package com.khartec.waltz.web.endpoints;
 
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.StreamRoute;
 import com.khartec.waltz.web.WebUtilities;
+import spark.Request;
 import spark.ResponseTransformer;
 import spark.Route;
 import spark.Spark;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
 import static com.khartec.waltz.web.WebUtilities.TYPE_JSON;
+import static com.khartec.waltz.web.WebUtilities.writeJsonArray;
 
 
 public class EndpointUtilities {
 
     private static final ResponseTransformer transformer = WebUtilities.transformer;
 
+    private static volatile boolean streamCompressionEnabled = false;
+
 
     /**
      * Helper method to register a route which provides a list of items.
@@ -57,6 +67,37 @@ public class EndpointUtilities {
         Spark.get(path, wrapDatumHandler(handler), transformer);
     }
 
+
+    /**
+     * Helper method to register a route which provides a (potentially very
+     * large) list of items.  Items are rendered to the response one at a time,
+     * so neither the list nor its json are held in memory.  Clients see the
+     * same json array as {@link #getForList(String, ListRoute)} would produce.
+     *
+     * The stream is closed once written so it may be backed by a database
+     * cursor.  As the response is committed whilst streaming, errors part way
+     * through result in a truncated response rather than an error report.
+     * @param path
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForStream(String path, StreamRoute<T> handler) {
+        Spark.get(path, wrapStreamHandler(handler));
+    }
+
+    public static <T> void postForStream(String path, StreamRoute<T> handler) {
+        Spark.post(path, wrapStreamHandler(handler));
+    }
+
+
+    /**
+     * Streamed responses bypass the usual (body length based) gzip filter, when
+     * enabled they are compressed whilst being written if the client accepts gzip.
+     */
+    public static void enableStreamCompression() {
+        streamCompressionEnabled = true;
+    }
+
     public static <T> void postForDatum(String path, DatumRoute<T> handler) {
         Spark.post(path, wrapDatumHandler(handler), transformer);
     }
@@ -65,6 +106,43 @@ public class EndpointUtilities {
         Spark.post(path, wrapListHandler(handler), transformer);
     }
 
+    /**
+     * As {@link #getForList(String, ListRoute)} but responses may be served from
+     * the given {@link ResponseCache} (if it is enabled).
+     * @param path
+     * @param responseCache
+     * @param clientCacheKey  client cache key which is bumped when the data behind this route changes
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForList(String path, ResponseCache responseCache, String clientCacheKey, ListRoute<T> handler) {
+        if (responseCache.isEnabled()) {
+            Spark.get(path, responseCache.wrap(clientCacheKey, wrapListHandler(handler)));
+        } else {
+            getForList(path, handler);
+        }
+    }
+
+    public static <T> void getForDatum(String path, ResponseCache responseCache, String clientCacheKey, DatumRoute<T> handler) {
+        if (responseCache.isEnabled()) {
+            Spark.get(path, responseCache.wrap(clientCacheKey, wrapDatumHandler(handler)));
+        } else {
+            getForDatum(path, handler);
+        }
+    }
+
+    /**
+     * For read-only routes which take their parameters in the request body
+     * (e.g. selection options), the body forms part of the cache key.
+     */
+    public static <T> void postForList(String path, ResponseCache responseCache, String clientCacheKey, ListRoute<T> handler) {
+        if (responseCache.isEnabled()) {
+            Spark.post(path, responseCache.wrap(clientCacheKey, wrapListHandler(handler)));
+        } else {
+            postForList(path, handler);
+        }
+    }
+
     public static <T> void deleteForList(String path, ListRoute<T> handler) {
         Spark.delete(path, wrapListHandler(handler), transformer);
     }
@@ -91,6 +169,28 @@ public class EndpointUtilities {
         };
     }
 
+    private static <T> Route wrapStreamHandler(StreamRoute<T> handler) {
+        return (request, response) -> {
+            response.type(TYPE_JSON);
+            try (Stream<T> items = handler.apply(request, response)) {
+                HttpServletResponse raw = response.raw();
+                OutputStream out = raw.getOutputStream();
+                if (streamCompressionEnabled && acceptsGzip(request)) {
+                    raw.setHeader("Content-Encoding", "gzip");
+                    out = new GZIPOutputStream(out, 8192);
+                }
+                writeJsonArray(out, items);
+            }
+            // response is already committed, spark will not write this
+            return "";
+        };
+    }
+
+    private static boolean acceptsGzip(Request request) {
+        String acceptEncoding = request.headers("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
     private static <T> Route wrapDatumHandler(DatumRoute<T> handler) {
         return (request, response) -> {
             response.type(TYPE_JSON);
@@ -0,0 +1,250 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints;
+
+import com.khartec.waltz.common.DigestUtilities;
+import com.khartec.waltz.common.cache.CacheStatistics;
+import com.khartec.waltz.common.cache.ExpiringCache;
+import com.khartec.waltz.service.client_cache_key.ClientCacheKeyService;
+import com.khartec.waltz.service.user.UserRoleService;
+import com.khartec.waltz.web.WebUtilities;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.StringUtilities.isEmpty;
+import static com.khartec.waltz.web.WebUtilities.TYPE_JSON;
+import static com.khartec.waltz.web.WebUtilities.getUsername;
+
+
+/**
+ * Optional, server side cache of rendered (json) responses for read endpoints.
+ *
+ * Endpoints opt in by registering routes via the caching variants in
+ * {@link EndpointUtilities}, naming the client cache key (see
+ * {@link ClientCacheKeyService}) which is bumped when the underlying data changes.
+ * Responses are cached by request method, path, query string, body and the
+ * user's roles, so opted in routes must not otherwise depend on who is asking.
+ * Only routes whose data is changed solely by writes which bump the named key
+ * should opt in, e.g. selector based lookups which depend on ratings, groups or
+ * the person hierarchy must not, nor must data (such as data types) which is
+ * only ever changed outside of Waltz.
+ *
+ * Every cached response carries a strong <code>ETag</code> and requests with a
+ * matching <code>If-None-Match</code> header receive an empty 304 response.
+ * Bumping the client cache key changes the lookup key, so entries from before
+ * the bump are never served again (they age out of the cache).  Changes made
+ * outside of Waltz are picked up once the ttl expires.
+ */
+@Service
+public class ResponseCache {
+
+    private final ClientCacheKeyService clientCacheKeyService;
+    private final UserRoleService userRoleService;
+    private final boolean enabled;
+    private final ExpiringCache<String, CachedResponse> cache;
+
+
+    @Autowired
+    public ResponseCache(ClientCacheKeyService clientCacheKeyService,
+                         UserRoleService userRoleService,
+                         @Value("${waltz.web.response.cache.enabled:false}") boolean enabled,
+                         @Value("${waltz.web.response.cache.size:500}") int cacheSize,
+                         @Value("${waltz.web.response.cache.ttl.seconds:300}") int ttlSeconds) {
+        checkNotNull(clientCacheKeyService, "clientCacheKeyService cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+
+        this.clientCacheKeyService = clientCacheKeyService;
+        this.userRoleService = userRoleService;
+        this.enabled = enabled;
+        this.cache = new ExpiringCache<>(cacheSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+
+    /**
+     * Wraps the given route so its rendered response is cached.  The returned
+     * route produces the json body itself and must be registered without a
+     * response transformer.
+     *
+     * @param clientCacheKey  name of the client cache key which invalidates the responses
+     * @param route  route producing the (unrendered) response
+     * @return route serving cached, rendered responses
+     */
+    public Route wrap(String clientCacheKey, Route route) {
+        checkNotNull(clientCacheKey, "clientCacheKey cannot be null");
+        checkNotNull(route, "route cannot be null");
+
+        return (request, response) -> {
+            response.type(TYPE_JSON);
+
+            String lookupKey = mkLookupKey(
+                    clientCacheKeyService.getVersion(clientCacheKey),
+                    request.requestMethod(),
+                    request.pathInfo(),
+                    request.queryString(),
+                    request.body(),
+                    findRoles(request));
+
+            CachedResponse cached;
+            try {
+                cached = cache.get(lookupKey, k -> render(route, request, response));
+            } catch (RenderException re) {
+                throw re.getCause();
+            }
+
+            response.header("ETag", cached.etag);
+            response.header("Cache-Control", "no-cache");
+
+            if (matchesETag(request.headers("If-None-Match"), cached.etag)) {
+                response.status(304);
+                return "";
+            }
+            return cached.body;
+        };
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+
+    public CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+
+    // -- HELPERS ---
+
+    private Collection<String> findRoles(Request request) {
+        String username = getUsername(request);
+        return username == null
+                ? Collections.emptySet()
+                : userRoleService.getUserRoles(username);
+    }
+
+
+    private static CachedResponse render(Route route, Request request, Response response) {
+        try {
+            String body = WebUtilities.transformer.render(route.handle(request, response));
+            return new CachedResponse(body, mkETag(body));
+        } catch (Exception e) {
+            throw new RenderException(e);
+        }
+    }
+
+
+    static String mkLookupKey(String version,
+                              String method,
+                              String path,
+                              String queryString,
+                              String body,
+                              Collection<String> roles) {
+        return String.join(
+                "|",
+                version,
+                method,
+                path,
+                isEmpty(queryString) ? "" : queryString,
+                isEmpty(body) ? "" : digest(body),
+                String.join(",", new TreeSet<>(roles)));
+    }
+
+
+    static String mkETag(String body) {
+        return "\"" + digest(body) + "\"";
+    }
+
+
+    /**
+     * <code>If-None-Match</code> uses the weak comparison, so a weak form of
+     * our tag (<code>W/"..."</code>) also matches.
+     */
+    public static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (isEmpty(ifNoneMatch)) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static String digest(String str) {
+        try {
+            return DigestUtilities.digest(str.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot create digest", e);
+        }
+    }
+
+
+    private static class CachedResponse {
+
+        private final String body;
+        private final String etag;
+
+
+        private CachedResponse(String body, String etag) {
+            this.body = body;
+            this.etag = etag;
+        }
+    }
+
+
+    private static class RenderException extends RuntimeException {
+
+        private RenderException(Exception cause) {
+            super(cause);
+        }
+
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+
+}
@@ -64,6 +64,7 @@ public class EntityHierarchyEndpoint implements Endpoint {
         String findRootTalliesPath = mkPath(BASE, "root-tallies");
         String findRootsPath = mkPath(BASE, "roots", ":kind");
         String buildByKindPath = mkPath(BASE, "build", ":kind");
+        String buildSubtreePath = mkPath(BASE, "build", ":kind", ":id");
 
         ListRoute<Tally<String>> findTalliesRoute = (request, response) -> entityHierarchyService.tallyByKind();
         ListRoute<Tally<String>> findRootTalliesRoute = (request, response) -> entityHierarchyService.getRootTallies();
@@ -73,6 +74,7 @@ public class EntityHierarchyEndpoint implements Endpoint {
         getForList(findRootTalliesPath, findRootTalliesRoute);
         getForList(findRootsPath, findRootsRoute);
         postForDatum(buildByKindPath, this::buildByKindRoute);
+        postForDatum(buildSubtreePath, this::buildSubtreeRoute);
     }
 
 
@@ -83,4 +85,12 @@ public class EntityHierarchyEndpoint implements Endpoint {
         return entityHierarchyService.buildFor(kind);
     }
 
+
+    private int buildSubtreeRoute(Request request, Response response) {
+        requireRole(userRoleService, request, ADMIN);
+        EntityReference ref = getEntityReference(request);
+        LOG.info("Building entity hierarchy for subtree: {}", ref);
+        return entityHierarchyService.buildForSubtree(ref);
+    }
+
 }
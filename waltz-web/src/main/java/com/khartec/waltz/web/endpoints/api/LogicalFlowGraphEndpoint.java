@@ -0,0 +1,123 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints.api;
+
+import com.khartec.waltz.common.StreamUtilities;
+import com.khartec.waltz.model.EntityReference;
+import com.khartec.waltz.model.FlowDirection;
+import com.khartec.waltz.model.logical_flow.LogicalFlow;
+import com.khartec.waltz.service.logical_flow.LogicalFlowGraphService;
+import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.endpoints.Endpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import spark.Request;
+
+import java.util.List;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.common.EnumUtilities.readEnum;
+import static com.khartec.waltz.web.WebUtilities.getEntityReference;
+import static com.khartec.waltz.web.WebUtilities.mkPath;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
+import static java.util.stream.Collectors.toList;
+
+
+/**
+ * Lineage queries answered from the in-memory logical flow graph.
+ *
+ * All routes accept optional, repeatable, <code>dataTypeId</code> query
+ * params to restrict the traversal to flows carrying those data types.
+ */
+@Service
+public class LogicalFlowGraphEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "logical-flow-graph");
+    private static final int DEFAULT_HOPS = 1;
+
+    private final LogicalFlowGraphService logicalFlowGraphService;
+
+
+    @Autowired
+    public LogicalFlowGraphEndpoint(LogicalFlowGraphService logicalFlowGraphService) {
+        checkNotNull(logicalFlowGraphService, "logicalFlowGraphService cannot be null");
+
+        this.logicalFlowGraphService = logicalFlowGraphService;
+    }
+
+
+    @Override
+    public void register() {
+        String findUpstreamPath = mkPath(BASE_URL, "upstream", ":kind", ":id");
+        String findDownstreamPath = mkPath(BASE_URL, "downstream", ":kind", ":id");
+        String findReachablePath = mkPath(BASE_URL, "reachable", ":kind", ":id");
+        String findShortestPathPath = mkPath(BASE_URL, "path", ":sourceKind", ":sourceId", ":targetKind", ":targetId");
+
+        ListRoute<LogicalFlow> findUpstreamRoute = (request, response)
+                -> logicalFlowGraphService.findUpstreamFlows(
+                        getEntityReference(request),
+                        readHops(request),
+                        readDataTypeIds(request));
+
+        ListRoute<LogicalFlow> findDownstreamRoute = (request, response)
+                -> logicalFlowGraphService.findDownstreamFlows(
+                        getEntityReference(request),
+                        readHops(request),
+                        readDataTypeIds(request));
+
+        ListRoute<EntityReference> findReachableRoute = (request, response) -> {
+            FlowDirection direction = readEnum(
+                    request.queryParams("direction"),
+                    FlowDirection.class,
+                    (s) -> FlowDirection.OUTBOUND);
+
+            return logicalFlowGraphService.findReachableEntities(
+                    getEntityReference(request),
+                    direction,
+                    readDataTypeIds(request));
+        };
+
+        ListRoute<LogicalFlow> findShortestPathRoute = (request, response)
+                -> logicalFlowGraphService.findShortestPath(
+                        getEntityReference(request, "sourceKind", "sourceId"),
+                        getEntityReference(request, "targetKind", "targetId"),
+                        readDataTypeIds(request));
+
+        getForList(findUpstreamPath, findUpstreamRoute);
+        getForList(findDownstreamPath, findDownstreamRoute);
+        getForList(findReachablePath, findReachableRoute);
+        getForList(findShortestPathPath, findShortestPathRoute);
+    }
+
+
+    private int readHops(Request request) {
+        String hops = request.queryParams("hops");
+        return hops == null
+                ? DEFAULT_HOPS
+                : Integer.parseInt(hops);
+    }
+
+
+    private List<Long> readDataTypeIds(Request request) {
+        return StreamUtilities.ofNullableArray(request.queryParamsValues("dataTypeId"))
+                .map(Long::valueOf)
+                .collect(toList());
+    }
+
+}
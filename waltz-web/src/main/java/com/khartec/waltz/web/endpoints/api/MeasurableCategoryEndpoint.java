@@ -23,9 +23,11 @@ import com.khartec.waltz.service.measurable_category.MeasurableCategoryService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
+import com.khartec.waltz.web.endpoints.ResponseCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.web.WebUtilities.getId;
 import static com.khartec.waltz.web.WebUtilities.mkPath;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForDatum;
@@ -38,11 +40,15 @@ public class MeasurableCategoryEndpoint implements Endpoint {
     private static final String BASE_URL = mkPath("api", "measurable-category");
 
     private final MeasurableCategoryService measurableCategoryService;
+    private final ResponseCache responseCache;
 
 
     @Autowired
-    public MeasurableCategoryEndpoint(MeasurableCategoryService measurableCategoryService) {
+    public MeasurableCategoryEndpoint(MeasurableCategoryService measurableCategoryService,
+                                      ResponseCache responseCache) {
+        checkNotNull(responseCache, "responseCache cannot be null");
         this.measurableCategoryService = measurableCategoryService;
+        this.responseCache = responseCache;
     }
 
 
@@ -58,7 +64,7 @@ public class MeasurableCategoryEndpoint implements Endpoint {
         DatumRoute<MeasurableCategory> getByIdRoute = (request, response)
                 -> measurableCategoryService.getById(getId(request));
 
-        getForList(findAllPath, findAllRoute);
+        getForList(findAllPath, responseCache, "TAXONOMY", findAllRoute);
         getForDatum(getByIdPath, getByIdRoute);
     }
 
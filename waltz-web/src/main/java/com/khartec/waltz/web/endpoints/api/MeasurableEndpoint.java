@@ -23,9 +23,11 @@ import com.khartec.waltz.service.measurable.MeasurableService;
 import com.khartec.waltz.web.DatumRoute;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
+import com.khartec.waltz.web.endpoints.ResponseCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import static com.khartec.waltz.common.Checks.checkNotNull;
 import static com.khartec.waltz.web.WebUtilities.*;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.*;
 
@@ -36,11 +38,15 @@ public class MeasurableEndpoint implements Endpoint {
     private static final String BASE_URL = mkPath("api", "measurable");
 
     private final MeasurableService measurableService;
+    private final ResponseCache responseCache;
 
 
     @Autowired
-    public MeasurableEndpoint(MeasurableService measurableService) {
+    public MeasurableEndpoint(MeasurableService measurableService,
+                              ResponseCache responseCache) {
+        checkNotNull(responseCache, "responseCache cannot be null");
         this.measurableService = measurableService;
+        this.responseCache = responseCache;
     }
 
 
@@ -68,7 +74,7 @@ public class MeasurableEndpoint implements Endpoint {
         ListRoute<Measurable> findByExternalIdRoute = (request, response)
                 -> measurableService.findByExternalId(request.params("extId"));
 
-        getForList(findAllPath, findAllRoute);
+        getForList(findAllPath, responseCache, "TAXONOMY", findAllRoute);
         getForList(findByExternalIdPath, findByExternalIdRoute);
         postForList(findByMeasurableIdSelectorPath, findByMeasurableIdSelectorRoute);
         getForDatum(getByIdPath, getByIdRoute);
@@ -0,0 +1,83 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints.api;
+
+import com.khartec.waltz.model.sql_stats.SqlStatistic;
+import com.khartec.waltz.model.user.SystemRole;
+import com.khartec.waltz.service.sql_stats.SqlStatisticsService;
+import com.khartec.waltz.service.user.UserRoleService;
+import com.khartec.waltz.web.DatumRoute;
+import com.khartec.waltz.web.ListRoute;
+import com.khartec.waltz.web.endpoints.Endpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import static com.khartec.waltz.common.Checks.checkNotNull;
+import static com.khartec.waltz.web.WebUtilities.*;
+import static com.khartec.waltz.web.endpoints.EndpointUtilities.*;
+
+
+@Service
+public class SqlStatisticsEndpoint implements Endpoint {
+
+    private static final String BASE_URL = mkPath("api", "sys", "sql-stats");
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final SqlStatisticsService sqlStatisticsService;
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public SqlStatisticsEndpoint(SqlStatisticsService sqlStatisticsService,
+                                 UserRoleService userRoleService) {
+        checkNotNull(sqlStatisticsService, "sqlStatisticsService cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+
+        this.sqlStatisticsService = sqlStatisticsService;
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        String findSlowestPath = mkPath(BASE_URL);
+        String findMostExpensivePath = mkPath(BASE_URL, "most-expensive");
+        String resetPath = mkPath(BASE_URL);
+
+        ListRoute<SqlStatistic> findSlowestRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return sqlStatisticsService.findSlowest(getLimit(request).orElse(DEFAULT_LIMIT));
+        };
+
+        ListRoute<SqlStatistic> findMostExpensiveRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return sqlStatisticsService.findMostExpensive(getLimit(request).orElse(DEFAULT_LIMIT));
+        };
+
+        DatumRoute<Boolean> resetRoute = (request, response) -> {
+            requireRole(userRoleService, request, SystemRole.ADMIN);
+            return sqlStatisticsService.reset();
+        };
+
+        getForList(findSlowestPath, findSlowestRoute);
+        getForList(findMostExpensivePath, findMostExpensiveRoute);
+        deleteForDatum(resetPath, resetRoute);
+    }
+
+}
@@ -22,8 +22,14 @@ import com.khartec.waltz.model.svg.SvgDiagram;
 import com.khartec.waltz.service.svg.SvgDiagramService;
 import com.khartec.waltz.web.ListRoute;
 import com.khartec.waltz.web.endpoints.Endpoint;
+import com.khartec.waltz.web.endpoints.ResponseCache;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import spark.Spark;
+
+import java.util.Collection;
 
 import static com.khartec.waltz.web.WebUtilities.mkPath;
 import static com.khartec.waltz.web.endpoints.EndpointUtilities.getForList;
@@ -47,8 +53,17 @@ public class SvgDiagramEndpoint implements Endpoint {
     public void register() {
         String findByGroupsPath = mkPath(BASE_URL, "group");
 
-        ListRoute<SvgDiagram> findByGroupsRoute = (request, response) ->
-                svgDiagramService.findByGroups(request.queryParamsValues("group"));
+        ListRoute<SvgDiagram> findByGroupsRoute = (request, response) -> {
+            Collection<SvgDiagram> diagrams = svgDiagramService.findByGroups(request.queryParamsValues("group"));
+
+            // diagrams are large and rarely change, let clients revalidate rather than re-download
+            String eTag = svgDiagramService.mkETag(diagrams);
+            response.header(HttpHeader.ETAG.asString(), eTag);
+            if (ResponseCache.matchesETag(request.headers(HttpHeader.IF_NONE_MATCH.asString()), eTag)) {
+                Spark.halt(HttpStatus.NOT_MODIFIED_304);
+            }
+            return diagrams;
+        };
 
         getForList(findByGroupsPath, findByGroupsRoute);
     }
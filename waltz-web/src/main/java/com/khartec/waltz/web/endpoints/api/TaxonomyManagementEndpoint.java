@@ -50,6 +50,7 @@ public class TaxonomyManagementEndpoint implements Endpoint {
         registerPreviewById(mkPath(BASE_URL, "pending-changes", "id", ":id", "preview"));
         registerApplyPendingChange(mkPath(BASE_URL, "pending-changes", "id", ":id", "apply"));
         registerFindPendingChangesByDomain(mkPath(BASE_URL, "pending-changes", "by-domain", ":kind", ":id"));
+        registerApplyPendingChangesByDomain(mkPath(BASE_URL, "pending-changes", "by-domain", ":kind", ":id", "apply"));
     }
 
 
@@ -62,6 +63,15 @@ public class TaxonomyManagementEndpoint implements Endpoint {
     }
 
 
+    private void registerApplyPendingChangesByDomain(String path) {
+        postForList(path, (req, resp) -> {
+            return taxonomyChangeService.applyAllForDomain(
+                    getEntityReference(req),
+                    getUsername(req));
+        });
+    }
+
+
     private void registerSubmitPendingChange(String path) {
         postForDatum(path, (req, resp) -> {
             return taxonomyChangeService.submitDraftChange(
@@ -23,27 +23,47 @@ import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.eclipse.jetty.http.MimeTypes;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.Record;
 import org.jooq.Select;
+import org.supercsv.io.CsvListWriter;
+import org.supercsv.prefs.CsvPreference;
 import spark.Request;
 import spark.Response;
 
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.khartec.waltz.common.Checks.checkNotNull;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
 
 
+/**
+ * Base class for extracts which are driven directly from a jOOQ query.
+ *
+ * Results are read via a lazy cursor and written straight to the servlet
+ * output stream (no content length is set, so the response is chunked).
+ * This means large extracts never need the full result set, or the full
+ * rendered document, to be held in memory.
+ */
 public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
+    private static final int EXTRACT_FETCH_SIZE = 1000;
+    private static final int EXCEL_ROW_WINDOW_SIZE = 500;
+
     protected DSLContext dsl;
 
 
@@ -72,75 +92,99 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
     private Object writeAsExcel(String suggestedFilenameStem,
                                 Select<?> qry,
                                 Response response) throws IOException {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet(sanitizeSheetName(suggestedFilenameStem));
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW_SIZE);
+        try {
+            SXSSFSheet sheet = workbook.createSheet(sanitizeSheetName(suggestedFilenameStem));
 
-        writeExcelHeader(qry, sheet);
-        writeExcelBody(qry, sheet);
+            writeExcelHeader(qry, sheet);
 
-        int endFilterColumnIndex = qry.fields().length == 0
-                ? 0
-                : qry.fields().length - 1;
+            int endFilterColumnIndex = qry.fields().length == 0
+                    ? 0
+                    : qry.fields().length - 1;
 
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
-        sheet.createFreezePane(0, 1);
+            sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
+            sheet.createFreezePane(0, 1);
 
-        byte[] bytes = convertExcelToByteArray(workbook);
+            writeExcelBody(qry, sheet);
 
-        HttpServletResponse httpResponse = response.raw();
+            HttpServletResponse httpResponse = response.raw();
 
-        httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-        httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
-        httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
+            httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
+            httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+            OutputStream outputStream = httpResponse.getOutputStream();
+            workbook.write(outputStream);
+            outputStream.flush();
+            outputStream.close();
 
-        return httpResponse;
+            return httpResponse;
+        } finally {
+            // removes the temporary files backing the flushed rows
+            workbook.dispose();
+            workbook.close();
+        }
     }
 
 
     private Object writeAsCSV(String suggestedFilenameStem,
                               Select<?> qry,
-                              Response response) {
-        String csv = qry.fetch().formatCSV();
+                              Response response) throws IOException {
         response.type(MimeTypes.Type.TEXT_PLAIN.name());
         response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
-        return csv;
-    }
 
+        HttpServletResponse httpResponse = response.raw();
+
+        CsvListWriter csvWriter = new CsvListWriter(
+                new BufferedWriter(new OutputStreamWriter(httpResponse.getOutputStream(), StandardCharsets.UTF_8)),
+                CsvPreference.EXCEL_PREFERENCE);
+
+        try {
+            List<String> headers = qry
+                    .fieldStream()
+                    .map(Field::getName)
+                    .collect(toList());
+
+            csvWriter.write(headers);
 
-    private byte[] convertExcelToByteArray(XSSFWorkbook workbook) throws IOException {
-        ByteArrayOutputStream outByteStream = new ByteArrayOutputStream();
-        workbook.write(outByteStream);
-        workbook.close();
-        return outByteStream.toByteArray();
+            try (Cursor<? extends Record> cursor = fetchLazy(qry)) {
+                for (Record r : cursor) {
+                    csvWriter.write(r.intoList());
+                }
+            }
+
+            csvWriter.flush();
+        } finally {
+            csvWriter.close();
+        }
+
+        return httpResponse;
     }
 
 
-    private void writeExcelBody(Select<?> qry, XSSFSheet sheet) {
+    private void writeExcelBody(Select<?> qry, SXSSFSheet sheet) {
         AtomicInteger rowNum = new AtomicInteger(1);
-        qry.fetch().forEach(r -> {
-            Row row = sheet.createRow(rowNum.getAndIncrement());
-            AtomicInteger colNum = new AtomicInteger(0);
-            for (Field<?> field : r.fields()) {
-                Cell cell = row.createCell(colNum.getAndIncrement());
-                ofNullable(r.get(field)).ifPresent(v -> {
-                    if (v instanceof Number) {
-                        cell.setCellType(CellType.NUMERIC);
-                        cell.setCellValue(((Number) v).doubleValue());
-                    } else {
-                        cell.setCellValue(Objects.toString(v));
-                    }
-                });
-            }
-        });
+        try (Cursor<? extends Record> cursor = fetchLazy(qry)) {
+            cursor.forEach(r -> {
+                Row row = sheet.createRow(rowNum.getAndIncrement());
+                AtomicInteger colNum = new AtomicInteger(0);
+                for (Field<?> field : r.fields()) {
+                    Cell cell = row.createCell(colNum.getAndIncrement());
+                    ofNullable(r.get(field)).ifPresent(v -> {
+                        if (v instanceof Number) {
+                            cell.setCellType(CellType.NUMERIC);
+                            cell.setCellValue(((Number) v).doubleValue());
+                        } else {
+                            cell.setCellValue(Objects.toString(v));
+                        }
+                    });
+                }
+            });
+        }
     }
 
 
-    private void writeExcelHeader(Select<?> qry, XSSFSheet sheet) {
+    private void writeExcelHeader(Select<?> qry, SXSSFSheet sheet) {
         Row headerRow = sheet.createRow(0);
         AtomicInteger colNum = new AtomicInteger();
         qry.fieldStream().forEach(f -> {
@@ -149,4 +193,11 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         });
     }
 
+
+    private Cursor<? extends Record> fetchLazy(Select<?> qry) {
+        return qry
+                .fetchSize(EXTRACT_FETCH_SIZE)
+                .fetchLazy();
+    }
+
 }
@@ -0,0 +1,67 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web;
+
+import com.khartec.waltz.model.EntityKind;
+import com.khartec.waltz.model.EntityReference;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.khartec.waltz.common.ListUtilities.newArrayList;
+import static com.khartec.waltz.model.EntityReference.mkRef;
+import static org.junit.Assert.assertEquals;
+
+public class WebUtilities_writeJsonArray {
+
+    @Test
+    public void matchesNonStreamedRendering() throws Exception {
+        List<EntityReference> refs = newArrayList(
+                mkRef(EntityKind.APPLICATION, 1, "a"),
+                mkRef(EntityKind.MEASURABLE, 2, "b"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = WebUtilities.writeJsonArray(out, refs.stream());
+
+        assertEquals(2, count);
+        assertEquals(
+                WebUtilities.transformer.render(refs),
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+
+    @Test
+    public void emptyStreamIsEmptyArray() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = WebUtilities.writeJsonArray(out, Stream.empty());
+
+        assertEquals(0, count);
+        assertEquals("[]", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mustProvideOutputStream() throws Exception {
+        WebUtilities.writeJsonArray(null, Stream.empty());
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package com.khartec.waltz.web.endpoints;
+
+import org.junit.Test;
+
+import static com.khartec.waltz.common.SetUtilities.asSet;
+import static com.khartec.waltz.web.endpoints.ResponseCache.*;
+import static org.junit.Assert.*;
+
+
+public class ResponseCacheTest {
+
+    private static final String ETAG = mkETag("[1,2,3]");
+
+
+    @Test
+    public void etagsAreStrongAndStable() {
+        assertTrue(ETAG.startsWith("\""));
+        assertTrue(ETAG.endsWith("\""));
+        assertEquals(ETAG, mkETag("[1,2,3]"));
+        assertNotEquals(ETAG, mkETag("[1,2]"));
+    }
+
+
+    @Test
+    public void ifNoneMatch() {
+        assertTrue(matchesETag(ETAG, ETAG));
+        assertTrue(matchesETag("W/" + ETAG, ETAG));
+        assertTrue(matchesETag("\"other\", " + ETAG, ETAG));
+        assertTrue(matchesETag("*", ETAG));
+        assertFalse(matchesETag("\"other\"", ETAG));
+        assertFalse(matchesETag("", ETAG));
+        assertFalse(matchesETag(null, ETAG));
+    }
+
+
+    @Test
+    public void lookupKeyIgnoresRoleOrder() {
+        assertEquals(
+                mkLookupKey("v1", "GET", "/api/x", null, "", asSet("A", "B")),
+                mkLookupKey("v1", "GET", "/api/x", "", null, asSet("B", "A")));
+    }
+
+
+    @Test
+    public void lookupKeyChangesWithVersionBodyAndRoles() {
+        String key = mkLookupKey("v1", "POST", "/api/x", null, "{\"a\":1}", asSet("A"));
+        assertNotEquals(key, mkLookupKey("v2", "POST", "/api/x", null, "{\"a\":1}", asSet("A")));
+        assertNotEquals(key, mkLookupKey("v1", "POST", "/api/x", null, "{\"a\":2}", asSet("A")));
+        assertNotEquals(key, mkLookupKey("v1", "POST", "/api/x", null, "{\"a\":1}", asSet("A", "B")));
+        assertNotEquals(key, mkLookupKey("v1", "POST", "/api/x", "q=1", "{\"a\":1}", asSet("A")));
+    }
+
+}